@@ -0,0 +1,219 @@
+package com.nfbank.common.utils.redis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 自动管道:多个线程并发发出的命令进入队列,由少量共享连接批量写出、一次flush,再按顺序读回应答分发给各自的调用方。
+ * <p>
+ * 每个共享连接对应一个IO线程:取出队列中已积累的命令(最多redis.autoPipeline.maxBatch条)作为一批发送,
+ * 一批在途时新到的命令继续积累,负载越高批次越大,系统调用和连接数都远少于每个线程独占一个连接。
+ * <p>
+ * 关闭后IO线程处理完在途的一批即退出并断开连接,队列中和之后发送的命令以连接异常失败。
+ */
+@Slf4j
+public class AutoPipelineChannel implements CommandChannel {
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setNameFormat("redis-auto-pipeline-%d").setDaemon(true).build();
+
+    private final RedisEndpoint endpoint;
+
+    private final Lane[] lanes;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    AutoPipelineChannel(RedisEndpoint endpoint, int connections, int maxBatch, int queueSize) {
+        this.endpoint = endpoint;
+        this.lanes = new Lane[connections];
+        for (int i = 0; i < connections; i++) {
+            lanes[i] = new Lane(maxBatch, queueSize);
+            lanes[i].thread = THREAD_FACTORY.newThread(lanes[i]);
+            lanes[i].thread.start();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Object> send(Protocol.Command command, byte[][] args) {
+        PendingCommand pending = new PendingCommand(command, args);
+        if (closed) {
+            pending.future.completeExceptionally(new JedisConnectionException("自动管道已关闭：" + endpoint));
+            return pending.future;
+        }
+        //轮流分配到各个连接
+        Lane lane = lanes[(next.getAndIncrement() & Integer.MAX_VALUE) % lanes.length];
+        try {
+            //队列满时阻塞,对调用方形成背压
+            lane.queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(new JedisConnectionException(e));
+            return pending.future;
+        }
+        //入队与关闭并发时IO线程可能已经清空队列退出,由发送方自己移出并结束
+        if (closed && lane.queue.remove(pending)) {
+            pending.future.completeExceptionally(new JedisConnectionException("自动管道已关闭：" + endpoint));
+        }
+        return pending.future;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Lane lane : lanes) {
+            //唤醒等待命令的IO线程;正在读写的一批不受影响,完成后线程检查到关闭即退出
+            lane.thread.interrupt();
+        }
+    }
+
+    /**
+     * 等待应答的命令
+     */
+    private static class PendingCommand {
+
+        final Protocol.Command command;
+        final byte[][] args;
+        final CompletableFuture<Object> future = new CompletableFuture<Object>();
+
+        PendingCommand(Protocol.Command command, byte[][] args) {
+            this.command = command;
+            this.args = args;
+        }
+    }
+
+    /**
+     * 共享连接,开放Connection的写命令和读应答方法
+     */
+    private static class PipelineConnection extends Client {
+
+        PipelineConnection(String host, int port) {
+            super(host, port);
+        }
+
+        void write(Protocol.Command command, byte[][] args) {
+            sendCommand(command, args);
+        }
+
+        Object read() {
+            return getOne();
+        }
+    }
+
+    /**
+     * 一个共享连接及其命令队列、IO线程
+     */
+    private class Lane implements Runnable {
+
+        final BlockingQueue<PendingCommand> queue;
+
+        final int maxBatch;
+
+        Thread thread;
+
+        PipelineConnection connection;
+
+        Lane(int maxBatch, int queueSize) {
+            this.maxBatch = maxBatch;
+            this.queue = new ArrayBlockingQueue<PendingCommand>(queueSize);
+        }
+
+        @Override
+        public void run() {
+            List<PendingCommand> batch = new ArrayList<PendingCommand>(maxBatch);
+            while (!closed) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                queue.drainTo(batch, maxBatch - 1);
+                execute(batch);
+                batch.clear();
+            }
+            disconnect();
+            queue.drainTo(batch);
+            fail(batch, new JedisConnectionException("自动管道已关闭：" + endpoint));
+        }
+
+        /**
+         * 一次写出整批命令,再依次读回应答
+         */
+        private void execute(List<PendingCommand> batch) {
+            try {
+                endpoint.getHealth().checkAvailable();
+                if (connection == null) {
+                    connection = connect();
+                }
+                for (PendingCommand pending : batch) {
+                    connection.write(pending.command, pending.args);
+                }
+                for (PendingCommand pending : batch) {
+                    try {
+                        pending.future.complete(connection.read());
+                    } catch (JedisDataException e) {
+                        //错误应答只影响当前命令
+                        pending.future.completeExceptionally(e);
+                    }
+                }
+                endpoint.getHealth().recordSuccess();
+            } catch (JedisConnectionException e) {
+                if (!(e instanceof RedisUnavailableException)) {
+                    log.warn("自动管道连接{}异常：{}", endpoint, e.getMessage());
+                    endpoint.getHealth().recordFailure(e);
+                }
+                //连接状态未知,丢弃连接,下一批重新建立
+                disconnect();
+                fail(batch, e);
+            } catch (RuntimeException e) {
+                disconnect();
+                fail(batch, e);
+            }
+        }
+
+        private PipelineConnection connect() {
+            PipelineConnection created = new PipelineConnection(endpoint.getHost(), endpoint.getPort());
+            RedisClientConfig config = endpoint.getConfig();
+            created.setConnectionTimeout(config.getTimeout());
+            created.setSoTimeout(config.getTimeout());
+            if (config.getPassword() != null) {
+                created.setPassword(config.getPassword());
+            }
+            created.setDb(endpoint.getDatabase());
+            //BinaryClient.connect会完成认证和选库
+            created.connect();
+            return created;
+        }
+
+        private void disconnect() {
+            if (connection != null) {
+                try {
+                    connection.disconnect();
+                } catch (Exception ignored) {
+                }
+                connection = null;
+            }
+        }
+
+        private void fail(List<PendingCommand> batch, Exception e) {
+            for (PendingCommand pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.nfbank.common.utils.redis;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 批量写入集合的结果:发送的成员数、实际新增的成员数和耗时
+ */
+public class BulkLoadResult {
+
+    private final long members;
+
+    private final long added;
+
+    private final long elapsedNanos;
+
+    BulkLoadResult(long members, long added, long elapsedNanos) {
+        this.members = members;
+        this.added = added;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return 发送的成员数
+     */
+    public long getMembers() {
+        return members;
+    }
+
+    /**
+     * @return 写入前不存在的成员数,有序集合中已存在的成员只更新分数,不计入
+     */
+    public long getAdded() {
+        return added;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * @return 每秒写入的成员数
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : members * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "发送" + members + ",新增" + added + ",耗时" + getElapsedMillis() + "毫秒,每秒" + (long) getThroughput();
+    }
+}
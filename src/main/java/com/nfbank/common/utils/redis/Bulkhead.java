@@ -0,0 +1,138 @@
+package com.nfbank.common.utils.redis;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 隔离区:限制一类命令(或一类调用方)同时占用的连接数。名额用完时最多等待waitMillis,仍没有名额则抛出
+ * {@link RedisBulkheadException},不会在连接池上无限等待,也不会占满其他命令需要的连接。
+ */
+public class Bulkhead {
+
+    private final String name;
+
+    private final int maxConcurrent;
+
+    private final long waitMillis;
+
+    private final Semaphore permits;
+
+    private final LongAdder acquired = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrent, long waitMillis) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.waitMillis = waitMillis;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * 占用一个名额,名额已满时最多等待waitMillis
+     *
+     * @throws RedisBulkheadException 等待超时或线程被中断
+     */
+    void acquire() {
+        boolean success;
+        if (waitMillis <= 0) {
+            success = permits.tryAcquire();
+        } else {
+            try {
+                success = permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                success = false;
+            }
+        }
+        if (!success) {
+            rejected.increment();
+            throw new RedisBulkheadException("Redis隔离区" + name + "已满(最大并发" + maxConcurrent + "),等待"
+                    + waitMillis + "毫秒后拒绝");
+        }
+        acquired.increment();
+    }
+
+    /**
+     * 释放名额
+     */
+    void release() {
+        permits.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 生成快照
+     *
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        int available = permits.availablePermits();
+        return new Snapshot(name, maxConcurrent, maxConcurrent - available, permits.getQueueLength(),
+                acquired.sum(), rejected.sum());
+    }
+
+    /**
+     * 隔离区快照
+     */
+    public static class Snapshot {
+
+        private final String name;
+        private final int maxConcurrent;
+        private final int active;
+        private final int waiters;
+        private final long acquired;
+        private final long rejected;
+
+        Snapshot(String name, int maxConcurrent, int active, int waiters, long acquired, long rejected) {
+            this.name = name;
+            this.maxConcurrent = maxConcurrent;
+            this.active = active;
+            this.waiters = waiters;
+            this.acquired = acquired;
+            this.rejected = rejected;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        /**
+         * 正在执行的调用数
+         */
+        public int getActive() {
+            return active;
+        }
+
+        /**
+         * 等待名额的线程数(近似值)
+         */
+        public int getWaiters() {
+            return waiters;
+        }
+
+        public long getAcquired() {
+            return acquired;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return name + ":执行中" + active + "/" + maxConcurrent + ",等待" + waiters + ",累计通过" + acquired
+                    + ",拒绝" + rejected;
+        }
+    }
+}
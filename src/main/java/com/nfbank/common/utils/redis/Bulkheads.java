@@ -0,0 +1,191 @@
+package com.nfbank.common.utils.redis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 隔离区配置和命令归属。命令按以下顺序确定隔离区:
+ * <ol>
+ * <li>当前线程通过{@link #tag(String)}指定的隔离区(按调用方划分,如报表任务)</li>
+ * <li>redis.bulkhead.&lt;name&gt;.commands中列出的命令名(如KEYS.keys),以*结尾表示前缀匹配</li>
+ * <li>名为default的隔离区(如果配置了)</li>
+ * </ol>
+ * 都不匹配的命令不受限制。命令名到隔离区的匹配结果会缓存,之后每次调用只是一次ThreadLocal读和一次Map读。
+ */
+public class Bulkheads {
+
+    /**
+     * 未归入其他隔离区的命令使用的隔离区名
+     */
+    public static final String DEFAULT = "default";
+
+    /**
+     * 缓存中表示不受限制
+     */
+    private static final Bulkhead NONE = new Bulkhead("none", 0, 0);
+
+    private final Map<String, Bulkhead> partitions;
+
+    private final Map<String, Bulkhead> exactCommands = new HashMap<String, Bulkhead>();
+
+    private final Map<String, Bulkhead> prefixCommands = new LinkedHashMap<String, Bulkhead>();
+
+    private final ConcurrentMap<String, Bulkhead> resolved = new ConcurrentHashMap<String, Bulkhead>();
+
+    private final ThreadLocal<Bulkhead> tagged = new ThreadLocal<Bulkhead>();
+
+    /**
+     * @param partitions 隔离区
+     * @param commands   隔离区名到命令名列表的映射
+     */
+    public Bulkheads(List<Bulkhead> partitions, Map<String, List<String>> commands) {
+        Map<String, Bulkhead> byName = new LinkedHashMap<String, Bulkhead>();
+        for (Bulkhead bulkhead : partitions) {
+            byName.put(bulkhead.getName(), bulkhead);
+        }
+        this.partitions = Collections.unmodifiableMap(byName);
+        for (Map.Entry<String, List<String>> entry : commands.entrySet()) {
+            Bulkhead bulkhead = byName.get(entry.getKey());
+            for (String command : entry.getValue()) {
+                if (command.endsWith("*")) {
+                    prefixCommands.put(command.substring(0, command.length() - 1), bulkhead);
+                } else {
+                    exactCommands.put(command, bulkhead);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按redis.bulkhead.*配置创建
+     *
+     * @return 隔离区配置,未配置redis.bulkhead.names时为空(不限制任何命令)
+     */
+    static Bulkheads fromConfig() {
+        List<Bulkhead> partitions = new ArrayList<Bulkhead>();
+        Map<String, List<String>> commands = new LinkedHashMap<String, List<String>>();
+        for (String name : split(RedisConfig.getBulkheadNames())) {
+            String prefix = "redis.bulkhead." + name + ".";
+            int maxConcurrent = Integer.parseInt(RedisConfig.getProperty(prefix + "maxConcurrent", "20"));
+            long waitMillis = Long.parseLong(RedisConfig.getProperty(prefix + "waitMillis", "0"));
+            partitions.add(new Bulkhead(name, maxConcurrent, waitMillis));
+            commands.put(name, split(RedisConfig.getProperty(prefix + "commands", "")));
+        }
+        return new Bulkheads(partitions, commands);
+    }
+
+    private static List<String> split(String value) {
+        List<String> list = new ArrayList<String>();
+        if (value != null) {
+            for (String item : value.split(",")) {
+                if (!item.trim().isEmpty()) {
+                    list.add(item.trim());
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 确定命令所属的隔离区
+     *
+     * @param command 命令名
+     * @return 隔离区,不受限制时返回null
+     */
+    Bulkhead resolve(String command) {
+        if (partitions.isEmpty()) {
+            return null;
+        }
+        Bulkhead bulkhead = tagged.get();
+        if (bulkhead != null) {
+            return bulkhead;
+        }
+        bulkhead = resolved.get(command);
+        if (bulkhead == null) {
+            bulkhead = match(command);
+            resolved.put(command, bulkhead);
+        }
+        return bulkhead == NONE ? null : bulkhead;
+    }
+
+    private Bulkhead match(String command) {
+        Bulkhead bulkhead = exactCommands.get(command);
+        if (bulkhead != null) {
+            return bulkhead;
+        }
+        for (Map.Entry<String, Bulkhead> entry : prefixCommands.entrySet()) {
+            if (command.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        bulkhead = partitions.get(DEFAULT);
+        return bulkhead == null ? NONE : bulkhead;
+    }
+
+    /**
+     * 指定当前线程后续命令使用的隔离区,直到返回的Scope关闭:
+     * <pre>
+     * try (Bulkheads.Scope scope = RedisUtil.getInstance().bulkhead("report")) {
+     *     ...
+     * }
+     * </pre>
+     *
+     * @param name 隔离区名
+     * @return 关闭时恢复之前的隔离区
+     */
+    public Scope tag(String name) {
+        Bulkhead bulkhead = partitions.get(name);
+        if (bulkhead == null) {
+            throw new IllegalArgumentException("未配置Redis隔离区：" + name);
+        }
+        Bulkhead previous = tagged.get();
+        tagged.set(bulkhead);
+        return () -> {
+            if (previous == null) {
+                tagged.remove();
+            } else {
+                tagged.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 当前线程通过{@link #tag(String)}指定的隔离区名
+     *
+     * @return 隔离区名,未指定时为null
+     */
+    String taggedName() {
+        Bulkhead bulkhead = tagged.get();
+        return bulkhead == null ? null : bulkhead.getName();
+    }
+
+    /**
+     * 所有隔离区的快照
+     *
+     * @return 隔离区名到快照的映射
+     */
+    public Map<String, Bulkhead.Snapshot> snapshot() {
+        Map<String, Bulkhead.Snapshot> snapshots = new LinkedHashMap<String, Bulkhead.Snapshot>();
+        for (Bulkhead bulkhead : partitions.values()) {
+            snapshots.put(bulkhead.getName(), bulkhead.snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * 调用方隔离区的作用范围
+     */
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
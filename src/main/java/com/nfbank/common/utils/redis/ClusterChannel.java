@@ -0,0 +1,393 @@
+package com.nfbank.common.utils.redis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.util.JedisClusterCRC16;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * Redis Cluster命令通道:按key计算槽位(CRC16,支持{hash tag}),发往负责该槽位的节点。
+ * <ul>
+ * <li>槽位到节点的映射由CLUSTER SLOTS加载并缓存,收到MOVED时立即更新该槽位并在后台重新加载全部映射</li>
+ * <li>收到ASK(槽位迁移中)时在目标节点上先发ASKING再重发命令,不更新映射</li>
+ * <li>节点连接失败(宕机、熔断)时在后台重新加载映射,主从切换后槽位改指向新的主节点</li>
+ * <li>节点通过注册表获取,与单节点模式共用连接池、熔断和指标</li>
+ * </ul>
+ * 多key命令(mget、del多个key等)要求所有key在同一槽位,否则Redis返回CROSSSLOT错误,可用hash tag让相关key落在同一槽位。
+ * 其他无key命令(ping、info等)只发往一个节点;作用于整个库的命令(keys、scan、dbsize、flushdb、flushall)只发往一个节点时结果不完整,
+ * 抛出UnsupportedOperationException,应使用RedisUtil.KEYS中逐个节点执行的方法。集群只有0号库,不支持select。
+ * <p>
+ * 开启自动管道或NIO传输时经各节点的共享通道发送,否则每条命令借用该节点连接池中的连接。
+ */
+@Slf4j
+public class ClusterChannel implements CommandChannel {
+
+    /**
+     * 槽位总数
+     */
+    static final int SLOTS = 16384;
+
+    /**
+     * 因节点失败刷新映射的最小间隔
+     */
+    private static final long FAILURE_REFRESH_INTERVAL_MILLIS = 100;
+
+    /**
+     * 没有key、可以发往任意节点的命令
+     */
+    private static final Set<Protocol.Command> KEYLESS = EnumSet.of(
+            Protocol.Command.PING, Protocol.Command.ECHO, Protocol.Command.INFO, Protocol.Command.TIME,
+            Protocol.Command.DBSIZE, Protocol.Command.KEYS, Protocol.Command.SCAN, Protocol.Command.RANDOMKEY,
+            Protocol.Command.FLUSHDB, Protocol.Command.FLUSHALL, Protocol.Command.LASTSAVE, Protocol.Command.SAVE,
+            Protocol.Command.BGSAVE, Protocol.Command.BGREWRITEAOF, Protocol.Command.CONFIG, Protocol.Command.SLOWLOG,
+            Protocol.Command.SCRIPT, Protocol.Command.CLUSTER, Protocol.Command.PUBLISH, Protocol.Command.PUBSUB,
+            Protocol.Command.WAIT, Protocol.Command.READONLY, Protocol.Command.ASKING);
+
+    /**
+     * 作用于整个库的无key命令,只发往一个节点时结果不完整
+     */
+    private static final Set<Protocol.Command> WHOLE_KEYSPACE = EnumSet.of(
+            Protocol.Command.KEYS, Protocol.Command.SCAN, Protocol.Command.DBSIZE,
+            Protocol.Command.FLUSHDB, Protocol.Command.FLUSHALL);
+
+    private final List<RedisEndpoint> seeds;
+
+    /**
+     * 按ip、端口获取(必要时注册)节点
+     */
+    private final Function<HostAndPort, RedisEndpoint> resolver;
+
+    private final int maxRedirects;
+
+    /**
+     * true:经节点的共享通道发送;false:借用节点连接池中的连接
+     */
+    private final boolean multiplexed;
+
+    /**
+     * 槽位到节点的映射,未知的槽位为null
+     */
+    private final AtomicReferenceArray<RedisEndpoint> slots = new AtomicReferenceArray<RedisEndpoint>(SLOTS);
+
+    /**
+     * 当前映射中的所有主节点
+     */
+    private volatile List<RedisEndpoint> masters = Collections.emptyList();
+
+    private volatile boolean loaded;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * 上次因节点失败而刷新映射的时间。节点熔断期间每条命令都会快速失败,限制刷新频率避免持续执行CLUSTER SLOTS
+     */
+    private volatile long lastFailureRefresh;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * 处理重定向、后台刷新映射。共享通道的应答在I/O线程上完成,重发和ASKING不能在I/O线程上阻塞
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("redis-cluster-%d").setDaemon(true).build());
+
+    /**
+     * @param seeds        初始节点,用于加载槽位映射
+     * @param resolver     按ip、端口获取节点
+     * @param maxRedirects 一条命令最多跟随的重定向次数
+     * @param multiplexed  是否经节点的共享通道发送
+     */
+    public ClusterChannel(List<RedisEndpoint> seeds, Function<HostAndPort, RedisEndpoint> resolver, int maxRedirects,
+                          boolean multiplexed) {
+        if (seeds.isEmpty()) {
+            throw new IllegalArgumentException("未配置Redis集群节点");
+        }
+        this.seeds = new ArrayList<RedisEndpoint>(seeds);
+        this.resolver = resolver;
+        this.maxRedirects = maxRedirects;
+        this.multiplexed = multiplexed;
+    }
+
+    /**
+     * 计算key所在的槽位,key中含{...}且括号内非空时只对括号内的部分计算
+     *
+     * @param key key
+     * @return 槽位(0~16383)
+     */
+    public static int slot(byte[] key) {
+        return JedisClusterCRC16.getSlot(key);
+    }
+
+    public static int slot(String key) {
+        return slot(SafeEncoder.encode(key));
+    }
+
+    /**
+     * 作用于整个库的命令在集群、分片模式下只会发往一个节点,直接拒绝,避免静默返回部分结果或只清空一个节点
+     *
+     * @param command 命令
+     * @param mode    模式名称,用于异常信息
+     * @throws UnsupportedOperationException 命令作用于整个库
+     */
+    static void checkRoutable(Protocol.Command command, String mode) {
+        if (WHOLE_KEYSPACE.contains(command)) {
+            throw new UnsupportedOperationException(mode + "模式下" + command
+                    + "只会发往一个节点,结果不完整,请使用RedisUtil.KEYS中逐个节点执行的keys、scan、flushAll");
+        }
+    }
+
+    /**
+     * 命令的路由key
+     *
+     * @return 无key时返回null
+     */
+    static byte[] routingKey(Protocol.Command command, byte[][] args) {
+        if (KEYLESS.contains(command) || args.length == 0) {
+            return null;
+        }
+        switch (command) {
+            case EVAL:
+            case EVALSHA:
+                //EVAL script numkeys key...
+                return args.length > 2 && !"0".equals(SafeEncoder.encode(args[1])) ? args[2] : null;
+            case BITOP:
+            case OBJECT:
+                //BITOP op destkey key...、OBJECT subcommand key
+                return args.length > 1 ? args[1] : null;
+            default:
+                return args[0];
+        }
+    }
+
+    @Override
+    public CompletableFuture<Object> send(Protocol.Command command, byte[][] args) {
+        checkRoutable(command, "集群");
+        CompletableFuture<Object> result = new CompletableFuture<Object>();
+        try {
+            ensureLoaded();
+            byte[] key = routingKey(command, args);
+            sendTo(key == null ? anyNode() : nodeFor(slot(key)), command, args, false, 0, result);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void sendTo(RedisEndpoint node, Protocol.Command command, byte[][] args, boolean asking, int redirects,
+                        CompletableFuture<Object> result) {
+        CompletableFuture<Object> reply;
+        if (multiplexed && !asking) {
+            reply = node.getChannel().send(command, args);
+        } else {
+            //ASKING只对同一连接上的下一条命令有效,必须独占连接
+            reply = new CompletableFuture<Object>();
+            try {
+                reply.complete(executeOnPool(node, command, args, asking));
+            } catch (RuntimeException e) {
+                reply.completeExceptionally(e);
+            }
+        }
+        reply.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (error instanceof JedisRedirectionException && redirects < maxRedirects) {
+                Runnable redirect = () -> redirect((JedisRedirectionException) error, command, args, redirects, result);
+                if (multiplexed) {
+                    executor.execute(redirect);
+                } else {
+                    redirect.run();
+                }
+            } else {
+                if (error instanceof JedisConnectionException) {
+                    nodeFailed(node);
+                }
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    /**
+     * 节点连接失败:可能已宕机或发生主从切换,在后台重新加载槽位映射(与JedisCluster的renewSlotCache相同)
+     *
+     * @param node 失败的节点
+     */
+    void nodeFailed(RedisEndpoint node) {
+        long now = System.currentTimeMillis();
+        if (now - lastFailureRefresh < FAILURE_REFRESH_INTERVAL_MILLIS) {
+            return;
+        }
+        lastFailureRefresh = now;
+        log.warn("Redis集群节点{}连接失败,重新加载槽位映射", node);
+        refreshAsync();
+    }
+
+    private void redirect(JedisRedirectionException e, Protocol.Command command, byte[][] args, int redirects,
+                          CompletableFuture<Object> result) {
+        try {
+            RedisEndpoint target = resolver.apply(e.getTargetNode());
+            boolean asking = e instanceof JedisAskDataException;
+            if (!asking) {
+                slots.set(e.getSlot(), target);
+                refreshAsync();
+            }
+            sendTo(target, command, args, asking, redirects + 1, result);
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(ex);
+        }
+    }
+
+    private static Object executeOnPool(RedisEndpoint node, Protocol.Command command, byte[][] args, boolean asking) {
+        if (!asking) {
+            return node.execute(command, args);
+        }
+        Jedis jedis = node.getResource();
+        try {
+            jedis.asking();
+            return TracingClient.of(jedis).execute(command, args);
+        } finally {
+            jedis.close();
+        }
+    }
+
+    /**
+     * 负责槽位的节点,映射中没有时发往任意节点,由其返回MOVED
+     */
+    RedisEndpoint nodeFor(int slot) {
+        RedisEndpoint node = slots.get(slot);
+        return node == null ? anyNode() : node;
+    }
+
+    /**
+     * 负责key所在槽位的节点
+     *
+     * @param key key
+     * @return 节点
+     */
+    RedisEndpoint nodeFor(String key) {
+        ensureLoaded();
+        return nodeFor(slot(key));
+    }
+
+    private RedisEndpoint anyNode() {
+        List<RedisEndpoint> current = masters;
+        if (current.isEmpty()) {
+            current = seeds;
+        }
+        return current.get((next.getAndIncrement() & Integer.MAX_VALUE) % current.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    refresh();
+                }
+            }
+        }
+    }
+
+    private void refreshAsync() {
+        if (refreshing.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    log.warn("刷新Redis集群槽位映射失败：{}", e.getMessage());
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * 依次向已知主节点和初始节点执行CLUSTER SLOTS,用第一个成功的结果替换槽位映射
+     *
+     * @throws JedisConnectionException 所有节点都失败
+     */
+    public void refresh() {
+        Set<RedisEndpoint> candidates = new LinkedHashSet<RedisEndpoint>(masters);
+        candidates.addAll(seeds);
+        RuntimeException last = null;
+        for (RedisEndpoint candidate : candidates) {
+            List<Object> reply;
+            try {
+                Jedis jedis = candidate.getResource();
+                try {
+                    reply = jedis.clusterSlots();
+                } finally {
+                    jedis.close();
+                }
+            } catch (RuntimeException e) {
+                log.warn("从{}加载Redis集群槽位映射失败：{}", candidate, e.getMessage());
+                last = e;
+                continue;
+            }
+            apply(reply);
+            return;
+        }
+        throw new JedisConnectionException("无法加载Redis集群槽位映射", last);
+    }
+
+    /**
+     * 应用CLUSTER SLOTS的应答:每项为[起始槽位, 结束槽位, [主节点ip, 端口, id], 从节点...]
+     */
+    @SuppressWarnings("unchecked")
+    private void apply(List<Object> reply) {
+        RedisEndpoint[] mapping = new RedisEndpoint[SLOTS];
+        Set<RedisEndpoint> nodes = new LinkedHashSet<RedisEndpoint>();
+        for (Object item : reply) {
+            List<Object> range = (List<Object>) item;
+            List<Object> master = (List<Object>) range.get(2);
+            RedisEndpoint node = resolver.apply(new HostAndPort(SafeEncoder.encode((byte[]) master.get(0)),
+                    ((Long) master.get(1)).intValue()));
+            nodes.add(node);
+            for (int slot = ((Long) range.get(0)).intValue(); slot <= ((Long) range.get(1)).intValue(); slot++) {
+                mapping[slot] = node;
+            }
+        }
+        for (int slot = 0; slot < SLOTS; slot++) {
+            slots.set(slot, mapping[slot]);
+        }
+        masters = Collections.unmodifiableList(new ArrayList<RedisEndpoint>(nodes));
+        loaded = true;
+        log.info("Redis集群槽位映射已加载,主节点：{}", nodes);
+    }
+
+    /**
+     * 当前映射中的所有主节点
+     *
+     * @return 主节点列表
+     */
+    public List<RedisEndpoint> getMasters() {
+        ensureLoaded();
+        return masters;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
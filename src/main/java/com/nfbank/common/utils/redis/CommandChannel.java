@@ -0,0 +1,31 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.Protocol;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 多个调用方共享的命令通道:命令发出后立即返回,应答通过CompletableFuture异步送达。
+ * 应答的格式与Jedis的Protocol.read一致(bulk/status为byte[],整数为Long,数组为List,空值为null),
+ * 错误应答以JedisDataException异常完成。
+ * <p>
+ * 通过{@link MultiplexedJedis}包装后,RedisUtil中现有的命令代码无需修改即可运行在通道上。
+ */
+public interface CommandChannel {
+
+    /**
+     * 发送一条命令
+     *
+     * @param command 命令
+     * @param args    参数
+     * @return 应答
+     */
+    CompletableFuture<Object> send(Protocol.Command command, byte[][] args);
+
+    /**
+     * 关闭通道,未完成的命令以异常结束
+     */
+    void close();
+}
@@ -0,0 +1,111 @@
+package com.nfbank.common.utils.redis;
+
+import javax.management.ObjectName;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 按命令名统计的耗时指标。每个命令的统计对象首次调用时创建,之后只是一次ConcurrentHashMap读,
+ * 命令名是常量字符串,hashCode已缓存。命令数量固定(RedisUtil中的方法),内存占用固定。
+ */
+public class CommandMetrics {
+
+    private final ConcurrentMap<String, CommandStats> stats = new ConcurrentHashMap<String, CommandStats>();
+
+    /**
+     * JMX指标名前缀
+     */
+    private final String prefix;
+
+    /**
+     * 是否把指标注册到JMX
+     */
+    private final boolean jmxEnabled;
+
+    /**
+     * 已注册的JMX指标,关闭客户端时注销
+     */
+    private final Queue<ObjectName> registered = new ConcurrentLinkedQueue<ObjectName>();
+
+    public CommandMetrics() {
+        this("");
+    }
+
+    /**
+     * @param prefix JMX指标名前缀,用于区分多个客户端,如"session/"
+     */
+    public CommandMetrics(String prefix) {
+        this(prefix, RedisConfig.getMetricsJmxEnabled());
+    }
+
+    /**
+     * @param prefix     JMX指标名前缀,用于区分多个客户端,如"session/"
+     * @param jmxEnabled 是否把指标注册到JMX
+     */
+    public CommandMetrics(String prefix, boolean jmxEnabled) {
+        this.prefix = prefix;
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    /**
+     * 获取命令的统计对象,不存在时创建并按配置注册到JMX
+     *
+     * @param command 命令名
+     * @return 统计对象
+     */
+    CommandStats get(String command) {
+        CommandStats current = stats.get(command);
+        if (current == null) {
+            CommandStats created = new CommandStats(command);
+            current = stats.putIfAbsent(command, created);
+            if (current == null) {
+                current = created;
+                if (jmxEnabled) {
+                    ObjectName objectName = JmxSupport.register(created, "RedisCommand", prefix + command);
+                    if (objectName != null) {
+                        registered.add(objectName);
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 所有命令的指标快照,按命令名排序
+     *
+     * @return 命令名到快照的映射
+     */
+    public Map<String, CommandStats.Snapshot> snapshot() {
+        Map<String, CommandStats.Snapshot> snapshots = new TreeMap<String, CommandStats.Snapshot>();
+        for (CommandStats commandStats : stats.values()) {
+            snapshots.put(commandStats.getCommand(), commandStats.snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * 从JMX注销所有命令的指标
+     */
+    void unregister() {
+        ObjectName objectName;
+        while ((objectName = registered.poll()) != null) {
+            JmxSupport.unregister(objectName);
+        }
+    }
+
+    /**
+     * 清空所有命令的计数和耗时
+     */
+    public void reset() {
+        for (CommandStats commandStats : stats.values()) {
+            commandStats.reset();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.nfbank.common.utils.redis;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 单个命令(如HASH.hgetAll)的成功/失败次数和耗时直方图,失败的调用同样计入耗时
+ */
+public class CommandStats implements CommandStatsMXBean {
+
+    private final String command;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final LongAdder successes = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    CommandStats(String command) {
+        this.command = command;
+    }
+
+    void recordSuccess(long nanos) {
+        successes.increment();
+        latency.record(nanos);
+    }
+
+    void recordError(long nanos) {
+        errors.increment();
+        latency.record(nanos);
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * 生成快照
+     *
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(command, successes.sum(), errors.sum(), latency.snapshot());
+    }
+
+    @Override
+    public long getSuccessCount() {
+        return successes.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.snapshot().getMean() / 1000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.snapshot().getP50() / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.snapshot().getP99() / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.snapshot().getP999() / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.snapshot().getMax() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        successes.reset();
+        errors.reset();
+        latency.reset();
+    }
+
+    /**
+     * 命令指标快照
+     */
+    public static class Snapshot {
+
+        private final String command;
+        private final long successes;
+        private final long errors;
+        private final LatencyHistogram.Snapshot latency;
+
+        Snapshot(String command, long successes, long errors, LatencyHistogram.Snapshot latency) {
+            this.command = command;
+            this.successes = successes;
+            this.errors = errors;
+            this.latency = latency;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public long getSuccesses() {
+            return successes;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return command + ":成功" + successes + ",失败" + errors + ";" + latency;
+        }
+    }
+}
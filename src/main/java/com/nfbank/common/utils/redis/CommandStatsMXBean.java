@@ -0,0 +1,28 @@
+package com.nfbank.common.utils.redis;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 单个命令指标的JMX接口,耗时单位为微秒
+ */
+public interface CommandStatsMXBean {
+
+    long getSuccessCount();
+
+    long getErrorCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    /**
+     * 清空计数和耗时直方图
+     */
+    void reset();
+}
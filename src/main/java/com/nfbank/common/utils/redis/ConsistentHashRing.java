@@ -0,0 +1,123 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.util.MurmurHash;
+import redis.clients.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 一致性哈希环:每个节点按ip:port生成若干虚拟节点散布在环上,key按64位MurmurHash顺时针找到第一个虚拟节点。
+ * 增加或移除一个节点时只有约1/N的key改变归属。
+ * <p>
+ * key中含{...}且括号内非空时只对括号内的部分计算哈希(与Redis Cluster的hash tag规则一致),
+ * 需要放在同一节点上的key(如多key命令涉及的key)可以用相同的hash tag。
+ * <p>
+ * 环在构造后不可变,查找是对排好序的long数组二分,不加锁、不分配对象。
+ */
+public class ConsistentHashRing {
+
+    /**
+     * 与Jedis分片一致的MurmurHash种子
+     */
+    private static final int SEED = 0x1234ABCD;
+
+    private final List<RedisEndpoint> nodes;
+
+    /**
+     * 虚拟节点的哈希值,升序
+     */
+    private final long[] points;
+
+    /**
+     * 与points对应的节点
+     */
+    private final RedisEndpoint[] owners;
+
+    /**
+     * @param nodes        节点
+     * @param virtualNodes 每个节点的虚拟节点数,越多分布越均匀,常用160
+     */
+    public ConsistentHashRing(List<RedisEndpoint> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("一致性哈希环至少需要一个节点和一个虚拟节点");
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<RedisEndpoint>(nodes));
+        int size = nodes.size() * virtualNodes;
+        long[][] entries = new long[size][];
+        int i = 0;
+        for (int n = 0; n < nodes.size(); n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                //按ip:port而不是下标生成,节点列表顺序变化时分布不变;不含库,同一个key在各个库中落在同一节点
+                RedisEndpoint node = nodes.get(n);
+                byte[] name = SafeEncoder.encode(RedisEndpoint.key(node.getHost(), node.getPort()) + "-VNODE-" + v);
+                entries[i++] = new long[]{MurmurHash.hash64A(name, SEED), n};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        points = new long[size];
+        owners = new RedisEndpoint[size];
+        for (i = 0; i < size; i++) {
+            points[i] = entries[i][0];
+            owners[i] = nodes.get((int) entries[i][1]);
+        }
+    }
+
+    /**
+     * 查找key所在的节点
+     *
+     * @param key key
+     * @return 节点
+     */
+    public RedisEndpoint get(byte[] key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+            if (index == points.length) {
+                index = 0;
+            }
+        }
+        return owners[index];
+    }
+
+    public RedisEndpoint get(String key) {
+        return get(SafeEncoder.encode(key));
+    }
+
+    /**
+     * key的哈希值,有hash tag时只计算括号内的部分
+     */
+    static long hash(byte[] key) {
+        int start = -1;
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] == '{') {
+                start = i;
+                break;
+            }
+        }
+        if (start >= 0) {
+            for (int end = start + 1; end < key.length; end++) {
+                if (key[end] == '}') {
+                    if (end > start + 1) {
+                        return MurmurHash.hash64A(key, start + 1, end - start - 1, SEED);
+                    }
+                    break;
+                }
+            }
+        }
+        return MurmurHash.hash64A(key, SEED);
+    }
+
+    /**
+     * 环上的所有节点
+     *
+     * @return 节点列表
+     */
+    public List<RedisEndpoint> getNodes() {
+        return nodes;
+    }
+}
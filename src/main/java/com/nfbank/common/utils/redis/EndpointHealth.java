@@ -0,0 +1,221 @@
+package com.nfbank.common.utils.redis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * Redis节点健康状态(熔断器)。
+ * <p>
+ * 连续失败次数达到redis.health.failureThreshold后进入OPEN状态,此时所有请求直接抛出
+ * {@link RedisUnavailableException},不再建连等待超时;后台线程按带随机抖动的指数退避间隔
+ * 探测节点(HALF_OPEN),探测成功后恢复为CLOSED,失败则加大退避间隔继续探测。
+ */
+@Slf4j
+public class EndpointHealth {
+
+    /**
+     * 熔断状态
+     */
+    public enum State {
+        /**
+         * 正常
+         */
+        CLOSED,
+        /**
+         * 熔断,请求快速失败
+         */
+        OPEN,
+        /**
+         * 后台探测中,请求仍快速失败
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * 退避指数上限,防止移位溢出
+     */
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    /**
+     * 所有节点共用的计时线程,只负责到时把任务交给{@link #WORKERS},不执行可能阻塞的操作
+     */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("redis-health-timer-%d").setDaemon(true).build());
+
+    /**
+     * 执行探测和延迟清理的线程。探测可能阻塞到连接超时,各节点的探测并行执行,
+     * 多个节点不可用时不会互相拖延,也不会推迟其他节点的清理
+     */
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("redis-health-probe-%d").setDaemon(true).build());
+
+    private final RedisEndpoint endpoint;
+
+    private volatile State state = State.CLOSED;
+
+    /**
+     * 连续失败次数
+     */
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /**
+     * 本次熔断以来的探测次数,用于计算退避间隔
+     */
+    private int probeAttempts;
+
+    /**
+     * 累计失败次数
+     */
+    private final AtomicLong totalFailures = new AtomicLong();
+
+    /**
+     * 熔断期间被拒绝的请求数
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * 累计熔断次数
+     */
+    private final AtomicLong opened = new AtomicLong();
+
+    EndpointHealth(RedisEndpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * 节点当前是否可用
+     *
+     * @return true可用
+     */
+    public boolean isAvailable() {
+        return state == State.CLOSED;
+    }
+
+    /**
+     * 节点不可用时直接抛出异常
+     *
+     * @throws RedisUnavailableException 节点处于熔断状态
+     */
+    void checkAvailable() {
+        if (state != State.CLOSED) {
+            rejected.incrementAndGet();
+            throw new RedisUnavailableException("Redis节点不可用(熔断中)：" + endpoint.getKey());
+        }
+    }
+
+    /**
+     * 记录一次成功
+     */
+    void recordSuccess() {
+        //正常情况下只有一次读,不产生写竞争
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * 记录一次连接失败,连续失败达到阈值时熔断并开始后台探测
+     *
+     * @param e 失败原因
+     */
+    void recordFailure(Throwable e) {
+        totalFailures.incrementAndGet();
+        if (consecutiveFailures.incrementAndGet() < endpoint.getConfig().getHealthFailureThreshold()) {
+            return;
+        }
+        synchronized (this) {
+            if (state != State.CLOSED) {
+                return;
+            }
+            state = State.OPEN;
+            probeAttempts = 0;
+            opened.incrementAndGet();
+            log.warn("Redis节点{}连续失败{}次,进入熔断状态", endpoint, consecutiveFailures.get(), e);
+            scheduleProbe();
+        }
+    }
+
+    /**
+     * 延迟执行任务,用于节点的延迟清理
+     *
+     * @param task        任务
+     * @param delayMillis 延迟(毫秒)
+     */
+    static void schedule(Runnable task, long delayMillis) {
+        TIMER.schedule(() -> WORKERS.execute(task), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 按退避间隔安排下一次探测,调用方需持有当前对象锁
+     */
+    private void scheduleProbe() {
+        long delay = backoffMillis(probeAttempts++, endpoint.getConfig());
+        schedule(this::probe, delay);
+    }
+
+    private void probe() {
+        state = State.HALF_OPEN;
+        try {
+            endpoint.ping();
+        } catch (Exception e) {
+            synchronized (this) {
+                state = State.OPEN;
+                log.warn("Redis节点{}探测失败,第{}次", endpoint, probeAttempts);
+                scheduleProbe();
+            }
+            return;
+        }
+        synchronized (this) {
+            consecutiveFailures.set(0);
+            state = State.CLOSED;
+            log.info("Redis节点{}探测成功,恢复可用", endpoint);
+        }
+    }
+
+    /**
+     * 第attempt次重试前的等待时间:客户端配置的基础间隔按2的指数增长(不超过上限),在其后半段随机取值,避免大量客户端同时重连
+     *
+     * @param attempt 第几次,从0开始
+     * @param config  客户端配置
+     * @return 等待毫秒数
+     */
+    static long backoffMillis(int attempt, RedisClientConfig config) {
+        return backoffMillis(attempt, config.getHealthBackoffMillis(), config.getHealthMaxBackoffMillis());
+    }
+
+    private static long backoffMillis(int attempt, long base, long max) {
+        long exp = Math.min(max, base << Math.min(attempt, MAX_BACKOFF_SHIFT));
+        long half = exp / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public long getTotalFailures() {
+        return totalFailures.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getOpened() {
+        return opened.get();
+    }
+}
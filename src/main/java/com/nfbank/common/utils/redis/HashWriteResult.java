@@ -0,0 +1,37 @@
+package com.nfbank.common.utils.redis;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * hash批量写入的结果:新增的字段数和覆盖已有值的字段数
+ */
+public class HashWriteResult {
+
+    private final long created;
+
+    private final long updated;
+
+    HashWriteResult(long created, long updated) {
+        this.created = created;
+        this.updated = updated;
+    }
+
+    /**
+     * @return 写入前不存在的字段数
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return 写入前已存在、值被覆盖的字段数
+     */
+    public long getUpdated() {
+        return updated;
+    }
+
+    @Override
+    public String toString() {
+        return "新增" + created + ",更新" + updated;
+    }
+}
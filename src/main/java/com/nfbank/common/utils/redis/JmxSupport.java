@@ -0,0 +1,59 @@
+package com.nfbank.common.utils.redis;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 注册JMX指标
+ */
+@Slf4j
+final class JmxSupport {
+
+    private static final String DOMAIN = "com.nfbank.common.utils.redis";
+
+    private JmxSupport() {
+    }
+
+    /**
+     * 注册到平台MBeanServer,名称为com.nfbank.common.utils.redis:type=类型,name="名称"。
+     * 已注册(如同一JVM中多个类加载器加载了本类)或注册失败时只记录日志
+     *
+     * @param bean MXBean
+     * @param type 类型
+     * @param name 名称
+     * @return 注册成功返回ObjectName,否则返回null
+     */
+    static ObjectName register(Object bean, String type, String name) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                log.warn("JMX指标已存在：{}", objectName);
+                return null;
+            }
+            server.registerMBean(bean, objectName);
+            return objectName;
+        } catch (Exception e) {
+            log.warn("注册JMX指标失败：{} {}", type, name, e);
+            return null;
+        }
+    }
+
+    /**
+     * 注销,未注册或注销失败时只记录日志
+     *
+     * @param objectName 注册时返回的名称
+     */
+    static void unregister(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            log.warn("注销JMX指标失败：{}", objectName, e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 运行在{@link CommandChannel}上的Jedis:不持有socket,发出的命令交给共享通道,读取应答时等待通道返回。
+ * 对象很轻,每次调用新建一个,同一时刻只能被一个线程使用,用完无需归还。
+ * <p>
+ * 共享通道上不能执行会改变连接状态的命令(切换库、事务、订阅、阻塞读等),这些命令会直接抛出JedisDataException。
+ */
+public class MultiplexedJedis extends Jedis {
+
+    /**
+     * 会改变连接状态或长时间占用连接的命令
+     */
+    private static final Set<Protocol.Command> UNSUPPORTED = EnumSet.of(
+            Protocol.Command.SELECT, Protocol.Command.AUTH, Protocol.Command.QUIT,
+            Protocol.Command.MULTI, Protocol.Command.EXEC, Protocol.Command.DISCARD,
+            Protocol.Command.WATCH, Protocol.Command.UNWATCH,
+            Protocol.Command.SUBSCRIBE, Protocol.Command.PSUBSCRIBE,
+            Protocol.Command.UNSUBSCRIBE, Protocol.Command.PUNSUBSCRIBE, Protocol.Command.MONITOR,
+            Protocol.Command.BLPOP, Protocol.Command.BRPOP, Protocol.Command.BRPOPLPUSH,
+            Protocol.Command.SYNC, Protocol.Command.CLIENT);
+
+    public MultiplexedJedis(CommandChannel channel, int timeout) {
+        super();
+        this.client = new ChannelClient(channel, timeout);
+    }
+
+    /**
+     * 把Connection的写命令、读应答改为通过通道完成,Jedis的其余逻辑(参数编码、应答转换、Pipeline)保持不变
+     */
+    private static class ChannelClient extends TracingClient {
+
+        private final CommandChannel channel;
+
+        private final int timeout;
+
+        /**
+         * 已发出、尚未读取应答的命令,按发出顺序排列
+         */
+        private final ArrayDeque<CompletableFuture<Object>> pending = new ArrayDeque<CompletableFuture<Object>>();
+
+        private boolean broken;
+
+        ChannelClient(CommandChannel channel, int timeout) {
+            this.channel = channel;
+            this.timeout = timeout;
+        }
+
+        @Override
+        protected Connection sendCommand(Protocol.Command cmd, byte[]... args) {
+            if (UNSUPPORTED.contains(cmd)) {
+                throw new JedisDataException("共享连接上不支持该命令：" + cmd);
+            }
+            trace(cmd, args);
+            pending.add(channel.send(cmd, args));
+            return this;
+        }
+
+        @Override
+        protected void flush() {
+            //通道自行批量发送
+        }
+
+        @Override
+        protected Object readProtocolWithCheckingBroken() {
+            CompletableFuture<Object> future = pending.poll();
+            if (future == null) {
+                throw new JedisDataException("没有等待应答的命令");
+            }
+            try {
+                return future.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof JedisConnectionException) {
+                    broken = true;
+                }
+                if (cause instanceof JedisException) {
+                    throw (JedisException) cause;
+                }
+                broken = true;
+                throw new JedisConnectionException(cause);
+            } catch (TimeoutException e) {
+                broken = true;
+                throw new JedisConnectionException(new SocketTimeoutException("Read timed out"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                broken = true;
+                throw new JedisConnectionException(e);
+            }
+        }
+
+        @Override
+        public List<Object> getAll(int except) {
+            List<Object> all = new ArrayList<Object>();
+            while (pending.size() > except) {
+                try {
+                    all.add(readProtocolWithCheckingBroken());
+                } catch (JedisDataException e) {
+                    all.add(e);
+                }
+            }
+            return all;
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public void setTimeoutInfinite() {
+            //读取应答的超时由构造时的timeout控制,没有socket可设置(EVAL等命令会调用)
+        }
+
+        @Override
+        public void rollbackTimeout() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return !broken;
+        }
+
+        @Override
+        public void disconnect() {
+            pending.clear();
+        }
+
+        @Override
+        public boolean isBroken() {
+            return broken;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.nfbank.common.utils.redis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 基于NIO的多路复用通道:一个节点只用一个selector线程和少量非阻塞连接,任意多个调用方的命令在连接上流水线发送。
+ * <p>
+ * 调用方只把命令放入连接的发送队列;selector线程把队列中的命令用{@link RespCodec}直接编码进堆外发送缓冲区,
+ * 从堆外接收缓冲区原地解析应答,按发送顺序完成各调用方的future。
+ */
+@Slf4j
+public class NioChannel implements CommandChannel, Runnable {
+
+    /**
+     * 接收缓冲区扩容的上限。应答按增量解析,缓冲区只需容纳一行,只有超长的状态或错误行才需要扩容
+     */
+    private static final int MAX_READ_BUFFER = 1 << 20;
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setNameFormat("redis-nio-%d").setDaemon(true).build();
+
+    private final RedisEndpoint endpoint;
+
+    private final Selector selector;
+
+    private final Connection[] connections;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * 已经唤醒selector、尚未处理发送队列,避免每个命令都调用一次wakeup
+     */
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    private volatile boolean closed;
+
+    NioChannel(RedisEndpoint endpoint, int connections, int bufferSize, int queueSize) {
+        this.endpoint = endpoint;
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new JedisConnectionException(e);
+        }
+        this.connections = new Connection[connections];
+        for (int i = 0; i < connections; i++) {
+            this.connections[i] = new Connection(bufferSize, queueSize);
+        }
+        THREAD_FACTORY.newThread(this).start();
+    }
+
+    @Override
+    public CompletableFuture<Object> send(Protocol.Command command, byte[][] args) {
+        PendingCommand pending = new PendingCommand(command, args);
+        if (closed) {
+            pending.future.completeExceptionally(new JedisConnectionException("NIO通道已关闭：" + endpoint));
+            return pending.future;
+        }
+        Connection connection = connections[(next.getAndIncrement() & Integer.MAX_VALUE) % connections.length];
+        try {
+            //队列满时阻塞,对调用方形成背压
+            connection.outbound.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(new JedisConnectionException(e));
+            return pending.future;
+        }
+        //入队与关闭并发时selector线程可能已经清空队列退出,由发送方自己移出并结束
+        if (closed && connection.outbound.remove(pending)) {
+            pending.future.completeExceptionally(new JedisConnectionException("NIO通道已关闭：" + endpoint));
+            return pending.future;
+        }
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+        return pending.future;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    /**
+     * 通道是否已关闭。selector线程异常退出时通道也会关闭,{@link RedisEndpoint#getChannel()}随后创建新的通道
+     *
+     * @return 是否已关闭
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * selector线程。单个连接的异常(包括解析应答时的运行时异常)只使该连接的命令失败并断开重连,
+     * selector本身异常时关闭整个通道,由节点重新创建
+     */
+    @Override
+    public void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                //先清除标记再处理队列:之后入队的命令会重新唤醒selector
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isValid() && key.isReadable()) {
+                        connection.read();
+                    }
+                }
+                for (Connection connection : connections) {
+                    connection.write();
+                }
+            }
+        } catch (Throwable e) {
+            log.error("NIO通道{}异常,关闭通道", endpoint, e);
+        } finally {
+            closed = true;
+            JedisConnectionException e = new JedisConnectionException("NIO通道已关闭：" + endpoint);
+            for (Connection connection : connections) {
+                connection.fail(e);
+                connection.failOutbound(e);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 等待应答的命令
+     */
+    private static class PendingCommand {
+
+        final Protocol.Command command;
+        final byte[][] args;
+        final CompletableFuture<Object> future = new CompletableFuture<Object>();
+
+        PendingCommand(Protocol.Command command, byte[][] args) {
+            this.command = command;
+            this.args = args;
+        }
+    }
+
+    /**
+     * 一个非阻塞连接,除send外的方法只在selector线程中调用
+     */
+    private class Connection {
+
+        /**
+         * 调用方放入、尚未编码的命令
+         */
+        final BlockingQueue<PendingCommand> outbound;
+
+        /**
+         * 已编码发送、等待应答的命令
+         */
+        final ArrayDeque<PendingCommand> inflight = new ArrayDeque<PendingCommand>();
+
+        final RespCodec.Decoder decoder = new RespCodec.Decoder();
+
+        /**
+         * 缓冲区的初始大小,超大命令或超长行使缓冲区扩容后,数据处理完即恢复为该大小
+         */
+        final int bufferSize;
+
+        ByteBuffer writeBuffer;
+
+        ByteBuffer readBuffer;
+
+        SocketChannel socket;
+
+        SelectionKey key;
+
+        Connection(int bufferSize, int queueSize) {
+            this.outbound = new ArrayBlockingQueue<PendingCommand>(queueSize);
+            this.bufferSize = bufferSize;
+            this.writeBuffer = ByteBuffer.allocateDirect(bufferSize);
+            this.readBuffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        /**
+         * 编码发送队列中的命令并写出,socket写不进时关注OP_WRITE,等可写后由下一轮select继续
+         */
+        void write() {
+            if (outbound.isEmpty() && writeBuffer.position() == 0) {
+                return;
+            }
+            try {
+                if (socket == null) {
+                    connect();
+                }
+                while (true) {
+                    PendingCommand pending;
+                    while ((pending = outbound.peek()) != null) {
+                        int length = RespCodec.encodedLength(pending.command, pending.args);
+                        if (length > writeBuffer.remaining()) {
+                            if (writeBuffer.position() > 0) {
+                                break;
+                            }
+                            writeBuffer = ByteBuffer.allocateDirect(length);
+                        }
+                        outbound.poll();
+                        RespCodec.encode(writeBuffer, pending.command, pending.args);
+                        inflight.add(pending);
+                    }
+                    //以Buffer调用flip、clear、position(int),JDK 9以上编译时不绑定到ByteBuffer新增的重载,Java 8下可以运行
+                    ((Buffer) writeBuffer).flip();
+                    socket.write(writeBuffer);
+                    boolean drained = !writeBuffer.hasRemaining();
+                    writeBuffer.compact();
+                    if (!drained || outbound.isEmpty()) {
+                        break;
+                    }
+                }
+                if (writeBuffer.position() == 0 && writeBuffer.capacity() > bufferSize) {
+                    writeBuffer = ByteBuffer.allocateDirect(bufferSize);
+                }
+                int ops = writeBuffer.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+                if (key.interestOps() != ops) {
+                    key.interestOps(ops);
+                }
+            } catch (RedisUnavailableException e) {
+                failOutbound(e);
+            } catch (IOException | RuntimeException e) {
+                broken(e);
+                failOutbound(e instanceof JedisConnectionException ? (JedisConnectionException) e : new JedisConnectionException(e));
+            }
+        }
+
+        /**
+         * 读取并增量解析应答,未解析完的应答由解码器保留进度,接收缓冲区中只剩不完整的一行。
+         * 一行超过缓冲区时扩容(不超过{@link #MAX_READ_BUFFER}),处理完后恢复初始大小
+         */
+        void read() {
+            try {
+                if (socket.read(readBuffer) < 0) {
+                    throw new JedisConnectionException("It seems like server has closed the connection.");
+                }
+                ((Buffer) readBuffer).flip();
+                Object reply;
+                while ((reply = decoder.decode(readBuffer)) != RespCodec.INCOMPLETE) {
+                    PendingCommand pending = inflight.poll();
+                    if (pending == null) {
+                        throw new JedisConnectionException("收到多余的应答");
+                    }
+                    if (reply instanceof JedisDataException) {
+                        pending.future.completeExceptionally((JedisDataException) reply);
+                    } else {
+                        pending.future.complete(reply);
+                    }
+                }
+                readBuffer.compact();
+                if (!readBuffer.hasRemaining()) {
+                    if (readBuffer.capacity() >= MAX_READ_BUFFER) {
+                        throw new JedisConnectionException("应答行超过" + MAX_READ_BUFFER + "字节");
+                    }
+                    resizeReadBuffer(readBuffer.capacity() * 2);
+                } else if (readBuffer.capacity() > bufferSize && readBuffer.position() < bufferSize) {
+                    resizeReadBuffer(bufferSize);
+                }
+                endpoint.getHealth().recordSuccess();
+            } catch (IOException | RuntimeException e) {
+                //包括应答格式错误(如无法解析的MOVED)、key已取消等,连接状态未知,断开后重连
+                broken(e);
+            }
+        }
+
+        private void resizeReadBuffer(int capacity) {
+            ByteBuffer resized = ByteBuffer.allocateDirect(capacity);
+            ((Buffer) readBuffer).flip();
+            resized.put(readBuffer);
+            readBuffer = resized;
+        }
+
+        /**
+         * 阻塞建连(带超时)后切换为非阻塞,认证和选库命令排在所有命令之前发送
+         */
+        private void connect() throws IOException {
+            endpoint.getHealth().checkAvailable();
+            SocketChannel created = SocketChannel.open();
+            try {
+                created.socket().setTcpNoDelay(true);
+                created.socket().setKeepAlive(true);
+                created.socket().connect(new InetSocketAddress(endpoint.getHost(), endpoint.getPort()),
+                        endpoint.getConfig().getTimeout());
+                created.configureBlocking(false);
+                key = created.register(selector, SelectionKey.OP_READ, this);
+            } catch (IOException e) {
+                created.close();
+                throw e;
+            }
+            socket = created;
+            ((Buffer) writeBuffer).clear();
+            ((Buffer) readBuffer).clear();
+            decoder.reset();
+            String password = endpoint.getConfig().getPassword();
+            if (password != null) {
+                handshake(Protocol.Command.AUTH, SafeEncoder.encode(password));
+            }
+            if (endpoint.getDatabase() != 0) {
+                handshake(Protocol.Command.SELECT, Protocol.toByteArray(endpoint.getDatabase()));
+            }
+        }
+
+        private void handshake(Protocol.Command command, byte[] arg) {
+            PendingCommand pending = new PendingCommand(command, new byte[][]{arg});
+            pending.future.whenComplete((reply, e) -> {
+                if (e != null) {
+                    log.error("NIO连接{}执行{}失败：{}", endpoint, command, e.getMessage());
+                }
+            });
+            RespCodec.encode(writeBuffer, pending.command, pending.args);
+            inflight.add(pending);
+        }
+
+        /**
+         * 连接异常:已发送的命令全部失败,关闭连接,下次有命令时重新建连
+         */
+        private void broken(Exception cause) {
+            log.warn("NIO连接{}异常：{}", endpoint, cause.getMessage());
+            endpoint.getHealth().recordFailure(cause);
+            fail(cause instanceof JedisConnectionException ? (JedisConnectionException) cause : new JedisConnectionException(cause));
+        }
+
+        void fail(JedisConnectionException e) {
+            PendingCommand pending;
+            while ((pending = inflight.poll()) != null) {
+                pending.future.completeExceptionally(e);
+            }
+            if (socket != null) {
+                key.cancel();
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+                socket = null;
+                key = null;
+            }
+        }
+
+        void failOutbound(JedisConnectionException e) {
+            List<PendingCommand> drained = new ArrayList<PendingCommand>();
+            outbound.drainTo(drained);
+            for (PendingCommand pending : drained) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.JedisPool;
+
+import javax.management.ObjectName;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 节点连接池指标:连接数、等待线程数、建连/销毁/校验失败/获取超时计数,以及获取连接等待时间和连接占用时间的直方图。
+ * 用于区分延迟来自Redis本身还是来自等待连接。
+ * <p>
+ * 计数使用LongAdder,直方图见{@link LatencyHistogram},记录时不加锁。
+ */
+public class PoolMetrics implements PoolMetricsMXBean {
+
+    private final RedisEndpoint endpoint;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder borrowTimeouts = new LongAdder();
+
+    /**
+     * 从调用getResource到拿到连接的时间
+     */
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+    /**
+     * 从借出到归还的时间
+     */
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+
+    private volatile ObjectName objectName;
+
+    PoolMetrics(RedisEndpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void recordCreated() {
+        created.increment();
+    }
+
+    void recordDestroyed() {
+        destroyed.increment();
+    }
+
+    void recordValidationFailure() {
+        validationFailures.increment();
+    }
+
+    void recordBorrowTimeout() {
+        borrowTimeouts.increment();
+    }
+
+    void recordBorrowWait(long nanos) {
+        borrowWait.record(nanos);
+    }
+
+    void recordHoldTime(long nanos) {
+        holdTime.record(nanos);
+    }
+
+    /**
+     * 注册到JMX,名称为com.nfbank.common.utils.redis:type=RedisPool,name="ip:port",非默认客户端为name="客户端名/ip:port"
+     */
+    void register() {
+        if (objectName == null) {
+            RedisClientConfig config = endpoint.getConfig();
+            objectName = JmxSupport.register(this, "RedisPool",
+                    config.isDefault() ? endpoint.getKey() : config.getName() + "/" + endpoint.getKey());
+        }
+    }
+
+    /**
+     * 从JMX注销
+     */
+    void unregister() {
+        ObjectName current = objectName;
+        if (current != null) {
+            objectName = null;
+            JmxSupport.unregister(current);
+        }
+    }
+
+    /**
+     * 生成当前指标快照
+     *
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(endpoint.getKey(), getNumActive(), getNumIdle(), getNumWaiters(), created.sum(),
+                destroyed.sum(), validationFailures.sum(), borrowTimeouts.sum(), borrowWait.snapshot(), holdTime.snapshot());
+    }
+
+    private JedisPool pool() {
+        return endpoint.isInitialized() ? endpoint.getPool() : null;
+    }
+
+    @Override
+    public int getNumActive() {
+        JedisPool pool = pool();
+        return pool == null ? 0 : pool.getNumActive();
+    }
+
+    @Override
+    public int getNumIdle() {
+        JedisPool pool = pool();
+        return pool == null ? 0 : pool.getNumIdle();
+    }
+
+    @Override
+    public int getNumWaiters() {
+        JedisPool pool = pool();
+        return pool == null ? 0 : pool.getNumWaiters();
+    }
+
+    @Override
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    @Override
+    public long getDestroyedCount() {
+        return destroyed.sum();
+    }
+
+    @Override
+    public long getValidationFailureCount() {
+        return validationFailures.sum();
+    }
+
+    @Override
+    public long getBorrowTimeoutCount() {
+        return borrowTimeouts.sum();
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return borrowWait.snapshot().getCount();
+    }
+
+    @Override
+    public double getBorrowWaitP50Micros() {
+        return borrowWait.snapshot().getP50() / 1000.0;
+    }
+
+    @Override
+    public double getBorrowWaitP99Micros() {
+        return borrowWait.snapshot().getP99() / 1000.0;
+    }
+
+    @Override
+    public double getBorrowWaitMaxMicros() {
+        return borrowWait.snapshot().getMax() / 1000.0;
+    }
+
+    @Override
+    public double getHoldTimeP50Micros() {
+        return holdTime.snapshot().getP50() / 1000.0;
+    }
+
+    @Override
+    public double getHoldTimeP99Micros() {
+        return holdTime.snapshot().getP99() / 1000.0;
+    }
+
+    @Override
+    public double getHoldTimeMaxMicros() {
+        return holdTime.snapshot().getMax() / 1000.0;
+    }
+
+    @Override
+    public void resetHistograms() {
+        borrowWait.reset();
+        holdTime.reset();
+    }
+
+    /**
+     * 连接池指标快照
+     */
+    public static class Snapshot {
+
+        private final String endpoint;
+        private final int active;
+        private final int idle;
+        private final int waiters;
+        private final long created;
+        private final long destroyed;
+        private final long validationFailures;
+        private final long borrowTimeouts;
+        private final LatencyHistogram.Snapshot borrowWait;
+        private final LatencyHistogram.Snapshot holdTime;
+
+        Snapshot(String endpoint, int active, int idle, int waiters, long created, long destroyed,
+                 long validationFailures, long borrowTimeouts, LatencyHistogram.Snapshot borrowWait,
+                 LatencyHistogram.Snapshot holdTime) {
+            this.endpoint = endpoint;
+            this.active = active;
+            this.idle = idle;
+            this.waiters = waiters;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.validationFailures = validationFailures;
+            this.borrowTimeouts = borrowTimeouts;
+            this.borrowWait = borrowWait;
+            this.holdTime = holdTime;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getWaiters() {
+            return waiters;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getDestroyed() {
+            return destroyed;
+        }
+
+        public long getValidationFailures() {
+            return validationFailures;
+        }
+
+        public long getBorrowTimeouts() {
+            return borrowTimeouts;
+        }
+
+        public LatencyHistogram.Snapshot getBorrowWait() {
+            return borrowWait;
+        }
+
+        public LatencyHistogram.Snapshot getHoldTime() {
+            return holdTime;
+        }
+
+        @Override
+        public String toString() {
+            return endpoint + ":借出" + active + ",空闲" + idle + ",等待" + waiters + ",建连" + created + ",销毁" + destroyed
+                    + ",校验失败" + validationFailures + ",获取超时" + borrowTimeouts
+                    + ";获取等待[" + borrowWait + "];占用时间[" + holdTime + "]";
+        }
+    }
+}
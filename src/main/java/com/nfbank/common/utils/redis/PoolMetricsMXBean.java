@@ -0,0 +1,54 @@
+package com.nfbank.common.utils.redis;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 连接池指标的JMX接口,耗时单位为微秒
+ */
+public interface PoolMetricsMXBean {
+
+    /**
+     * 已借出的连接数
+     */
+    int getNumActive();
+
+    /**
+     * 空闲连接数
+     */
+    int getNumIdle();
+
+    /**
+     * 等待获取连接的线程数
+     */
+    int getNumWaiters();
+
+    long getCreatedCount();
+
+    long getDestroyedCount();
+
+    long getValidationFailureCount();
+
+    /**
+     * 获取连接超时(连接池耗尽)次数
+     */
+    long getBorrowTimeoutCount();
+
+    long getBorrowCount();
+
+    double getBorrowWaitP50Micros();
+
+    double getBorrowWaitP99Micros();
+
+    double getBorrowWaitMaxMicros();
+
+    double getHoldTimeP50Micros();
+
+    double getHoldTimeP99Micros();
+
+    double getHoldTimeMaxMicros();
+
+    /**
+     * 清空耗时直方图,计数器不清空
+     */
+    void resetHistograms();
+}
@@ -0,0 +1,149 @@
+package com.nfbank.common.utils.redis;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 读写分离:只读命令发往从节点(轮询或最少执行中),写命令和其他命令发往主节点。
+ * 熔断中的从节点不参与选择,全部不可用时读主节点。
+ * <p>
+ * 从节点复制有延迟,刚写入就要读到的场景用{@link #forceMaster()}在当前线程内强制读主节点。
+ */
+public class ReadRouter {
+
+    /**
+     * 可以发往从节点的命令(RedisUtil中的命令名)
+     */
+    static final Set<String> READ_ONLY_COMMANDS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "KEYS.exists", "KEYS.ttl", "KEYS.type", "KEYS.keys", "KEYS.sort",
+            "STRINGS.get", "STRINGS.mget", "STRINGS.getrange", "STRINGS.strlen",
+            "LISTS.lindex", "LISTS.llen", "LISTS.lrange",
+            "SETS.scard", "SETS.sdiff", "SETS.sinter", "SETS.sismember", "SETS.smembers", "SETS.sunion",
+            "SORTSET.zcard", "SORTSET.zcount", "SORTSET.zrange", "SORTSET.zrangeByScore", "SORTSET.zrank",
+            "SORTSET.zrevrange", "SORTSET.zrevrank", "SORTSET.zscore",
+            "HASH.hexists", "HASH.hget", "HASH.hgetAll", "HASH.hkeys", "HASH.hlen", "HASH.hmget", "HASH.hvals",
+            "BATCH.getAll", "BATCH.hgetAcross", "BATCH.hgetAllAcross")));
+
+    private final RedisEndpoint[] replicas;
+
+    private final ReadStrategy strategy;
+
+    /**
+     * 每个从节点执行中的命令数,仅LEAST_OUTSTANDING使用
+     */
+    private final AtomicIntegerArray outstanding;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * 各个库的路由共用,强制读主节点对当前线程的所有库生效
+     */
+    private static final ThreadLocal<Boolean> MASTER_FORCED = new ThreadLocal<Boolean>();
+
+    public ReadRouter(List<RedisEndpoint> replicas, ReadStrategy strategy) {
+        this.replicas = replicas.toArray(new RedisEndpoint[0]);
+        this.strategy = strategy;
+        this.outstanding = new AtomicIntegerArray(this.replicas.length);
+    }
+
+    /**
+     * 为命令选择从节点
+     *
+     * @param command 命令名
+     * @return 从节点下标,应发往主节点时返回-1。返回值不小于0时,执行完毕后需调用{@link #release(int)}
+     */
+    int select(String command) {
+        if (replicas.length == 0 || !READ_ONLY_COMMANDS.contains(command) || MASTER_FORCED.get() != null) {
+            return -1;
+        }
+        int index = strategy == ReadStrategy.LEAST_OUTSTANDING ? leastOutstanding() : roundRobin();
+        if (index >= 0) {
+            outstanding.incrementAndGet(index);
+        }
+        return index;
+    }
+
+    private int roundRobin() {
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.length; i++) {
+            int index = (start + i) % replicas.length;
+            if (isAvailable(index)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private int leastOutstanding() {
+        //从轮询位置开始比较,执行中命令数相同时分散到不同从节点
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        int best = -1;
+        int bestOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.length; i++) {
+            int index = (start + i) % replicas.length;
+            int current = outstanding.get(index);
+            if (current < bestOutstanding && isAvailable(index)) {
+                best = index;
+                bestOutstanding = current;
+            }
+        }
+        return best;
+    }
+
+    private boolean isAvailable(int index) {
+        return replicas[index].getHealth().isAvailable();
+    }
+
+    /**
+     * 命令执行完毕
+     *
+     * @param index {@link #select(String)}返回的下标
+     */
+    void release(int index) {
+        outstanding.decrementAndGet(index);
+    }
+
+    RedisEndpoint getReplica(int index) {
+        return replicas[index];
+    }
+
+    /**
+     * 当前线程后续的只读命令都读主节点,直到返回的Scope关闭
+     *
+     * @return 关闭时恢复读从节点
+     */
+    public Scope forceMaster() {
+        Boolean previous = MASTER_FORCED.get();
+        MASTER_FORCED.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                MASTER_FORCED.remove();
+            }
+        };
+    }
+
+    /**
+     * 当前线程是否强制读主节点
+     *
+     * @return true强制读主节点
+     */
+    static boolean isMasterForced() {
+        return MASTER_FORCED.get() != null;
+    }
+
+    /**
+     * 强制读主节点的作用范围
+     */
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,30 @@
+package com.nfbank.common.utils.redis;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 只读命令选择从节点的方式,对应redis.replicas.strategy配置
+ */
+public enum ReadStrategy {
+    /**
+     * 轮流选择
+     */
+    ROUND_ROBIN,
+    /**
+     * 选择当前执行中命令最少的从节点
+     */
+    LEAST_OUTSTANDING;
+
+    /**
+     * 解析配置值,忽略大小写,-与_等价
+     *
+     * @param value 配置值
+     * @return 选择方式,为空时返回ROUND_ROBIN
+     */
+    public static ReadStrategy parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return ROUND_ROBIN;
+        }
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
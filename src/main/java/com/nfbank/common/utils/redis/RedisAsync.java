@@ -0,0 +1,896 @@
+package com.nfbank.common.utils.redis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import redis.clients.jedis.BinaryClient;
+import redis.clients.jedis.SortingParams;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * RedisUtil各命令组的异步版本,返回CompletableFuture。
+ * <p>
+ * 命令在有界线程池中执行,仍然使用原有连接池,相互独立的命令可以并发执行(如一次页面请求的多个hget),
+ * 总耗时接近其中最慢的一次调用。线程池队列满时返回异常完成的CompletableFuture(RejectedExecutionException),不阻塞调用方。
+ * 线程数和队列长度分别由redis.async.threads和redis.async.queueSize配置,线程数不宜超过连接池最大连接数。
+ * <p>
+ * 调用线程上的{@link RedisUtil#readFromMaster()}和{@link RedisUtil#bulkhead(String)}对异步命令同样有效。
+ */
+public class RedisAsync {
+
+    private final RedisUtil redisUtil;
+
+    private final ExecutorService executor;
+
+    /**
+     * 提交到{@link #executor}前带上调用线程的读主节点、隔离区标记,提交时(调用线程上)取得
+     */
+    private final Executor inheriting;
+
+    /**
+     * 操作Key的方法
+     */
+    public Keys KEYS = new Keys();
+    /**
+     * 对存储结构为String类型的操作
+     */
+    public Strings STRINGS = new Strings();
+    /**
+     * 对存储结构为List类型的操作
+     */
+    public Lists LISTS = new Lists();
+    /**
+     * 对存储结构为Set类型的操作
+     */
+    public Sets SETS = new Sets();
+    /**
+     * 对存储结构为HashMap类型的操作
+     */
+    public Hash HASH = new Hash();
+    /**
+     * 对存储结构为Set(排序的)类型的操作
+     */
+    public SortSet SORTSET = new SortSet();
+
+    RedisAsync(RedisUtil redisUtil) {
+        this.redisUtil = redisUtil;
+        RedisClientConfig config = redisUtil.getConfig();
+        int threads = config.getAsyncThreads();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(config.getAsyncQueueSize()),
+                new ThreadFactoryBuilder().setNameFormat("redis-async-%d").setDaemon(true).build());
+        this.inheriting = task -> executor.execute(redisUtil.inheritContext(task));
+    }
+
+    /**
+     * 在线程池中执行有返回值的命令
+     *
+     * @param supplier 命令
+     * @return 异步结果
+     */
+    private <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, inheriting);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> future = new CompletableFuture<T>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * 在线程池中执行无返回值的命令
+     *
+     * @param runnable 命令
+     * @return 异步结果
+     */
+    private CompletableFuture<Void> run(Runnable runnable) {
+        try {
+            return CompletableFuture.runAsync(runnable, inheriting);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<Void> future = new CompletableFuture<Void>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * 执行异步命令的线程池,批量命令并行执行各块时共用
+     */
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 停止线程池,已提交的命令继续执行
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public class Keys {
+        /**
+         * 异步执行{@link RedisUtil.Keys#flushAll()}
+         */
+        public CompletableFuture<String> flushAll() {
+            return supply(() -> redisUtil.KEYS.flushAll());
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#rename(String, String)}
+         */
+        public CompletableFuture<String> rename(String oldKey, String newKey) {
+            return supply(() -> redisUtil.KEYS.rename(oldKey, newKey));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#renamenx(String, String)}
+         */
+        public CompletableFuture<Long> renamenx(String oldKey, String newKey) {
+            return supply(() -> redisUtil.KEYS.renamenx(oldKey, newKey));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#rename(byte[], byte[])}
+         */
+        public CompletableFuture<String> rename(byte[] oldKey, byte[] newKey) {
+            return supply(() -> redisUtil.KEYS.rename(oldKey, newKey));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#expired(String, int)}
+         */
+        public CompletableFuture<Long> expired(String key, int seconds) {
+            return supply(() -> redisUtil.KEYS.expired(key, seconds));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#expireAt(String, long)}
+         */
+        public CompletableFuture<Long> expireAt(String key, long timestamp) {
+            return supply(() -> redisUtil.KEYS.expireAt(key, timestamp));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#ttl(String)}
+         */
+        public CompletableFuture<Long> ttl(String key) {
+            return supply(() -> redisUtil.KEYS.ttl(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#persist(String)}
+         */
+        public CompletableFuture<Long> persist(String key) {
+            return supply(() -> redisUtil.KEYS.persist(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#del(String...)}
+         */
+        public CompletableFuture<Long> del(String... keys) {
+            return supply(() -> redisUtil.KEYS.del(keys));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#del(byte[]...)}
+         */
+        public CompletableFuture<Long> del(byte[]... keys) {
+            return supply(() -> redisUtil.KEYS.del(keys));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#exists(String)}
+         */
+        public CompletableFuture<Boolean> exists(String key) {
+            return supply(() -> redisUtil.KEYS.exists(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#exists(int, String)}
+         */
+        public CompletableFuture<Boolean> exists(int dbIndex, String key) {
+            return supply(() -> redisUtil.KEYS.exists(dbIndex, key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#sort(String)}
+         */
+        public CompletableFuture<List<String>> sort(String key) {
+            return supply(() -> redisUtil.KEYS.sort(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#sort(String, SortingParams)}
+         */
+        public CompletableFuture<List<String>> sort(String key, SortingParams params) {
+            return supply(() -> redisUtil.KEYS.sort(key, params));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#type(String)}
+         */
+        public CompletableFuture<String> type(String key) {
+            return supply(() -> redisUtil.KEYS.type(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Keys#keys(String)}
+         */
+        public CompletableFuture<Set<String>> keys(String pattern) {
+            return supply(() -> redisUtil.KEYS.keys(pattern));
+        }
+    }
+
+    public class Strings {
+        /**
+         * 异步执行{@link RedisUtil.Strings#get(String)}
+         */
+        public CompletableFuture<String> get(String key) {
+            return supply(() -> redisUtil.STRINGS.get(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#get(byte[])}
+         */
+        public CompletableFuture<byte[]> get(byte[] key) {
+            return supply(() -> redisUtil.STRINGS.get(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#setEx(String, int, String)}
+         */
+        public CompletableFuture<String> setEx(String key, int seconds, String value) {
+            return supply(() -> redisUtil.STRINGS.setEx(key, seconds, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#setEx(byte[], int, byte[])}
+         */
+        public CompletableFuture<String> setEx(byte[] key, int seconds, byte[] value) {
+            return supply(() -> redisUtil.STRINGS.setEx(key, seconds, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#setnx(String, String)}
+         */
+        public CompletableFuture<Long> setnx(String key, String value) {
+            return supply(() -> redisUtil.STRINGS.setnx(key, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#set(String, String)}
+         */
+        public CompletableFuture<String> set(String key, String value) {
+            return supply(() -> redisUtil.STRINGS.set(key, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#set(String, byte[])}
+         */
+        public CompletableFuture<String> set(String key, byte[] value) {
+            return supply(() -> redisUtil.STRINGS.set(key, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#set(byte[], byte[])}
+         */
+        public CompletableFuture<String> set(byte[] key, byte[] value) {
+            return supply(() -> redisUtil.STRINGS.set(key, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#setRange(String, long, String)}
+         */
+        public CompletableFuture<Long> setRange(String key, long offset, String value) {
+            return supply(() -> redisUtil.STRINGS.setRange(key, offset, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#append(String, String)}
+         */
+        public CompletableFuture<Long> append(String key, String value) {
+            return supply(() -> redisUtil.STRINGS.append(key, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#decrBy(String, long)}
+         */
+        public CompletableFuture<Long> decrBy(String key, long number) {
+            return supply(() -> redisUtil.STRINGS.decrBy(key, number));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#incrBy(String, long)}
+         */
+        public CompletableFuture<Long> incrBy(String key, long number) {
+            return supply(() -> redisUtil.STRINGS.incrBy(key, number));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#getrange(String, long, long)}
+         */
+        public CompletableFuture<String> getrange(String key, long startOffset, long endOffset) {
+            return supply(() -> redisUtil.STRINGS.getrange(key, startOffset, endOffset));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#getSet(String, String)}
+         */
+        public CompletableFuture<String> getSet(String key, String value) {
+            return supply(() -> redisUtil.STRINGS.getSet(key, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#mget(String...)}
+         */
+        public CompletableFuture<List<String>> mget(String... keys) {
+            return supply(() -> redisUtil.STRINGS.mget(keys));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#mset(String...)}
+         */
+        public CompletableFuture<String> mset(String... keysValues) {
+            return supply(() -> redisUtil.STRINGS.mset(keysValues));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Strings#strlen(String)}
+         */
+        public CompletableFuture<Long> strlen(String key) {
+            return supply(() -> redisUtil.STRINGS.strlen(key));
+        }
+    }
+
+    public class Lists {
+        /**
+         * 异步执行{@link RedisUtil.Lists#llen(String)}
+         */
+        public CompletableFuture<Long> llen(String key) {
+            return supply(() -> redisUtil.LISTS.llen(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#llen(byte[])}
+         */
+        public CompletableFuture<Long> llen(byte[] key) {
+            return supply(() -> redisUtil.LISTS.llen(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lset(byte[], int, byte[])}
+         */
+        public CompletableFuture<String> lset(byte[] key, int index, byte[] value) {
+            return supply(() -> redisUtil.LISTS.lset(key, index, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lset(String, int, String)}
+         */
+        public CompletableFuture<String> lset(String key, int index, String value) {
+            return supply(() -> redisUtil.LISTS.lset(key, index, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#linsert(String, BinaryClient.LIST_POSITION, String, String)}
+         */
+        public CompletableFuture<Long> linsert(String key, BinaryClient.LIST_POSITION where, String pivot, String value) {
+            return supply(() -> redisUtil.LISTS.linsert(key, where, pivot, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#linsert(byte[], BinaryClient.LIST_POSITION, byte[], byte[])}
+         */
+        public CompletableFuture<Long> linsert(byte[] key, BinaryClient.LIST_POSITION where, byte[] pivot, byte[] value) {
+            return supply(() -> redisUtil.LISTS.linsert(key, where, pivot, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lindex(String, int)}
+         */
+        public CompletableFuture<String> lindex(String key, int index) {
+            return supply(() -> redisUtil.LISTS.lindex(key, index));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lindex(byte[], int)}
+         */
+        public CompletableFuture<byte[]> lindex(byte[] key, int index) {
+            return supply(() -> redisUtil.LISTS.lindex(key, index));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lpop(String)}
+         */
+        public CompletableFuture<String> lpop(String key) {
+            return supply(() -> redisUtil.LISTS.lpop(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lpop(byte[])}
+         */
+        public CompletableFuture<byte[]> lpop(byte[] key) {
+            return supply(() -> redisUtil.LISTS.lpop(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#rpop(String)}
+         */
+        public CompletableFuture<String> rpop(String key) {
+            return supply(() -> redisUtil.LISTS.rpop(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lpush(String, String)}
+         */
+        public CompletableFuture<Long> lpush(String key, String value) {
+            return supply(() -> redisUtil.LISTS.lpush(key, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#rpush(String, String)}
+         */
+        public CompletableFuture<Long> rpush(String key, String value) {
+            return supply(() -> redisUtil.LISTS.rpush(key, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#rpush(byte[], byte[])}
+         */
+        public CompletableFuture<Long> rpush(byte[] key, byte[] value) {
+            return supply(() -> redisUtil.LISTS.rpush(key, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lpush(byte[], byte[])}
+         */
+        public CompletableFuture<Long> lpush(byte[] key, byte[] value) {
+            return supply(() -> redisUtil.LISTS.lpush(key, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lrange(String, long, long)}
+         */
+        public CompletableFuture<List<String>> lrange(String key, long start, long end) {
+            return supply(() -> redisUtil.LISTS.lrange(key, start, end));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lrange(byte[], int, int)}
+         */
+        public CompletableFuture<List<byte[]>> lrange(byte[] key, int start, int end) {
+            return supply(() -> redisUtil.LISTS.lrange(key, start, end));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lrem(byte[], int, byte[])}
+         */
+        public CompletableFuture<Long> lrem(byte[] key, int c, byte[] value) {
+            return supply(() -> redisUtil.LISTS.lrem(key, c, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#lrem(String, int, String)}
+         */
+        public CompletableFuture<Long> lrem(String key, int c, String value) {
+            return supply(() -> redisUtil.LISTS.lrem(key, c, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#ltrim(byte[], int, int)}
+         */
+        public CompletableFuture<String> ltrim(byte[] key, int start, int end) {
+            return supply(() -> redisUtil.LISTS.ltrim(key, start, end));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Lists#ltrim(String, int, int)}
+         */
+        public CompletableFuture<String> ltrim(String key, int start, int end) {
+            return supply(() -> redisUtil.LISTS.ltrim(key, start, end));
+        }
+    }
+
+    public class Sets {
+        /**
+         * 异步执行{@link RedisUtil.Sets#sadd(String, String)}
+         */
+        public CompletableFuture<Long> sadd(String key, String member) {
+            return supply(() -> redisUtil.SETS.sadd(key, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#sadd(byte[], byte[])}
+         */
+        public CompletableFuture<Long> sadd(byte[] key, byte[] member) {
+            return supply(() -> redisUtil.SETS.sadd(key, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#scard(String)}
+         */
+        public CompletableFuture<Long> scard(String key) {
+            return supply(() -> redisUtil.SETS.scard(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#sdiff(String...)}
+         */
+        public CompletableFuture<Set<String>> sdiff(String... keys) {
+            return supply(() -> redisUtil.SETS.sdiff(keys));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#sdiffstore(String, String...)}
+         */
+        public CompletableFuture<Long> sdiffstore(String newKey, String... keys) {
+            return supply(() -> redisUtil.SETS.sdiffstore(newKey, keys));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#sinter(String...)}
+         */
+        public CompletableFuture<Set<String>> sinter(String... keys) {
+            return supply(() -> redisUtil.SETS.sinter(keys));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#sinterstore(String, String...)}
+         */
+        public CompletableFuture<Long> sinterstore(String newkey, String... keys) {
+            return supply(() -> redisUtil.SETS.sinterstore(newkey, keys));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#sismember(String, String)}
+         */
+        public CompletableFuture<Boolean> sismember(String key, String member) {
+            return supply(() -> redisUtil.SETS.sismember(key, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#smembers(String)}
+         */
+        public CompletableFuture<Set<String>> smembers(String key) {
+            return supply(() -> redisUtil.SETS.smembers(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#smembers(byte[])}
+         */
+        public CompletableFuture<Set<byte[]>> smembers(byte[] key) {
+            return supply(() -> redisUtil.SETS.smembers(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#smove(String, String, String)}
+         */
+        public CompletableFuture<Long> smove(String srcKey, String dstKey, String member) {
+            return supply(() -> redisUtil.SETS.smove(srcKey, dstKey, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#spop(String)}
+         */
+        public CompletableFuture<String> spop(String key) {
+            return supply(() -> redisUtil.SETS.spop(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#srem(String, String)}
+         */
+        public CompletableFuture<Long> srem(String key, String member) {
+            return supply(() -> redisUtil.SETS.srem(key, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#sunion(String...)}
+         */
+        public CompletableFuture<Set<String>> sunion(String... keys) {
+            return supply(() -> redisUtil.SETS.sunion(keys));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Sets#sunionstore(String, String...)}
+         */
+        public CompletableFuture<Long> sunionstore(String newKey, String... keys) {
+            return supply(() -> redisUtil.SETS.sunionstore(newKey, keys));
+        }
+    }
+
+    public class Hash {
+        /**
+         * 异步执行{@link RedisUtil.Hash#hdel(String, String)}
+         */
+        public CompletableFuture<Long> hdel(String key, String field) {
+            return supply(() -> redisUtil.HASH.hdel(key, field));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hdel(String)}
+         */
+        public CompletableFuture<Long> hdel(String key) {
+            return supply(() -> redisUtil.HASH.hdel(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hexists(String, String)}
+         */
+        public CompletableFuture<Boolean> hexists(String key, String field) {
+            return supply(() -> redisUtil.HASH.hexists(key, field));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hget(String, String)}
+         */
+        public CompletableFuture<String> hget(String key, String field) {
+            return supply(() -> redisUtil.HASH.hget(key, field));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hget(byte[], byte[])}
+         */
+        public CompletableFuture<byte[]> hget(byte[] key, byte[] field) {
+            return supply(() -> redisUtil.HASH.hget(key, field));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hgetAll(String)}
+         */
+        public CompletableFuture<Map<String, String>> hgetAll(String key) {
+            return supply(() -> redisUtil.HASH.hgetAll(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hsetAll(String, Map)}
+         */
+        public CompletableFuture<Void> hsetAll(String key, Map<String, String> map) {
+            return run(() -> redisUtil.HASH.hsetAll(key, map));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hsetAll(String, Map, int)}
+         */
+        public CompletableFuture<Void> hsetAll(String key, Map<String, String> map, int seconds) {
+            return run(() -> redisUtil.HASH.hsetAll(key, map, seconds));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hsetAllWithResult(String, Map)}
+         */
+        public CompletableFuture<HashWriteResult> hsetAllWithResult(String key, Map<String, String> map) {
+            return supply(() -> redisUtil.HASH.hsetAllWithResult(key, map));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hsetAllWithResult(String, Map, int)}
+         */
+        public CompletableFuture<HashWriteResult> hsetAllWithResult(String key, Map<String, String> map, int seconds) {
+            return supply(() -> redisUtil.HASH.hsetAllWithResult(key, map, seconds));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hset(String, String, String)}
+         */
+        public CompletableFuture<Long> hset(String key, String field, String value) {
+            return supply(() -> redisUtil.HASH.hset(key, field, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hset(String, String, byte[])}
+         */
+        public CompletableFuture<Long> hset(String key, String field, byte[] value) {
+            return supply(() -> redisUtil.HASH.hset(key, field, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hsetnx(String, String, String)}
+         */
+        public CompletableFuture<Long> hsetnx(String key, String field, String value) {
+            return supply(() -> redisUtil.HASH.hsetnx(key, field, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hvals(String)}
+         */
+        public CompletableFuture<List<String>> hvals(String key) {
+            return supply(() -> redisUtil.HASH.hvals(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hincrby(String, String, long)}
+         */
+        public CompletableFuture<Long> hincrby(String key, String field, long value) {
+            return supply(() -> redisUtil.HASH.hincrby(key, field, value));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hkeys(String)}
+         */
+        public CompletableFuture<Set<String>> hkeys(String key) {
+            return supply(() -> redisUtil.HASH.hkeys(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hlen(String)}
+         */
+        public CompletableFuture<Long> hlen(String key) {
+            return supply(() -> redisUtil.HASH.hlen(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hmget(String, String...)}
+         */
+        public CompletableFuture<List<String>> hmget(String key, String... fields) {
+            return supply(() -> redisUtil.HASH.hmget(key, fields));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hmget(byte[], byte[]...)}
+         */
+        public CompletableFuture<List<byte[]>> hmget(byte[] key, byte[]... fields) {
+            return supply(() -> redisUtil.HASH.hmget(key, fields));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hmset(String, Map)}
+         */
+        public CompletableFuture<String> hmset(String key, Map<String, String> map) {
+            return supply(() -> redisUtil.HASH.hmset(key, map));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.Hash#hmset(byte[], Map)}
+         */
+        public CompletableFuture<String> hmset(byte[] key, Map<byte[], byte[]> map) {
+            return supply(() -> redisUtil.HASH.hmset(key, map));
+        }
+    }
+
+    public class SortSet {
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zadd(byte[], double, byte[])}
+         */
+        public CompletableFuture<Long> zadd(byte[] key, double score, byte[] member) {
+            return supply(() -> redisUtil.SORTSET.zadd(key, score, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zadd(String, int, String)}
+         */
+        public CompletableFuture<Long> zadd(String key, int score, String member) {
+            return supply(() -> redisUtil.SORTSET.zadd(key, score, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zcard(String)}
+         */
+        public CompletableFuture<Long> zcard(String key) {
+            return supply(() -> redisUtil.SORTSET.zcard(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zunionstore(String, String...)}
+         */
+        public CompletableFuture<Long> zunionstore(String destKey,String... keys) {
+            return supply(() -> redisUtil.SORTSET.zunionstore(destKey, keys));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zcount(String, double, double)}
+         */
+        public CompletableFuture<Long> zcount(String key, double min, double max) {
+            return supply(() -> redisUtil.SORTSET.zcount(key, min, max));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zlength(String)}
+         */
+        public CompletableFuture<Long> zlength(String key) {
+            return supply(() -> redisUtil.SORTSET.zlength(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zincrby(String, double, String)}
+         */
+        public CompletableFuture<Double> zincrby(String key, double score, String member) {
+            return supply(() -> redisUtil.SORTSET.zincrby(key, score, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zincrby(String, int, String)}
+         */
+        public CompletableFuture<Double> zincrby(String key, int score, String member) {
+            return supply(() -> redisUtil.SORTSET.zincrby(key, score, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zrange(String, int, int)}
+         */
+        public CompletableFuture<Set<String>> zrange(String key, int start, int end) {
+            return supply(() -> redisUtil.SORTSET.zrange(key, start, end));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zrange(byte[], int, int)}
+         */
+        public CompletableFuture<Set<byte[]>> zrange(byte[] key, int start, int end) {
+            return supply(() -> redisUtil.SORTSET.zrange(key, start, end));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zrangeByScore(String, double, double)}
+         */
+        public CompletableFuture<Set<String>> zrangeByScore(String key, double min, double max) {
+            return supply(() -> redisUtil.SORTSET.zrangeByScore(key, min, max));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zrank(String, String)}
+         */
+        public CompletableFuture<Long> zrank(String key, String member) {
+            return supply(() -> redisUtil.SORTSET.zrank(key, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zrevrank(String, String)}
+         */
+        public CompletableFuture<Long> zrevrank(String key, String member) {
+            return supply(() -> redisUtil.SORTSET.zrevrank(key, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zrem(String, String)}
+         */
+        public CompletableFuture<Long> zrem(String key, String member) {
+            return supply(() -> redisUtil.SORTSET.zrem(key, member));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zrem(String)}
+         */
+        public CompletableFuture<Long> zrem(String key) {
+            return supply(() -> redisUtil.SORTSET.zrem(key));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zremrangeByRank(String, int, int)}
+         */
+        public CompletableFuture<Long> zremrangeByRank(String key, int start, int end) {
+            return supply(() -> redisUtil.SORTSET.zremrangeByRank(key, start, end));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zremrangeByScore(String, double, double)}
+         */
+        public CompletableFuture<Long> zremrangeByScore(String key, double min, double max) {
+            return supply(() -> redisUtil.SORTSET.zremrangeByScore(key, min, max));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zrevrange(String, int, int)}
+         */
+        public CompletableFuture<Set<String>> zrevrange(String key, int start, int end) {
+            return supply(() -> redisUtil.SORTSET.zrevrange(key, start, end));
+        }
+
+        /**
+         * 异步执行{@link RedisUtil.SortSet#zscore(String, String)}
+         */
+        public CompletableFuture<Double> zscore(String key, String memebr) {
+            return supply(() -> redisUtil.SORTSET.zscore(key, memebr));
+        }
+    }
+}
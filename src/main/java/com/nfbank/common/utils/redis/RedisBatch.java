@@ -0,0 +1,428 @@
+package com.nfbank.common.utils.redis;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 批量命令:输入按redis.batch.chunkSize分块,每块借用一个连接以pipeline发送,多块最多按redis.batch.parallelism路并行,
+ * 结果按输入的key返回。与逐个调用相比省去每个key一次的网络往返;与一条命令发送全部相比,避免单个请求过大长时间阻塞Redis。
+ * <p>
+ * 并行的块在异步命令线程池中执行,调用线程也参与执行并接手尚未开始的块,线程池繁忙时退化为在调用线程中串行执行。
+ * 集群、分片模式下先按key所在节点分组,每块只含同一节点的key,在该节点的连接上以pipeline发送;槽位映射过期时收到MOVED的命令改为按key路由重发。
+ * NIO传输或自动管道下各节点的共享通道本身就会批量发送,不再分组。每块计为一次命令(如BATCH.getAll)记录指标和慢日志。
+ */
+public class RedisBatch {
+
+    /**
+     * 批量写入时每个pipeline包含的命令数
+     */
+    static final int LOAD_WINDOW = 16;
+
+    private final RedisUtil redisUtil;
+
+    RedisBatch(RedisUtil redisUtil) {
+        this.redisUtil = redisUtil;
+    }
+
+    /**
+     * 批量获取字符串
+     *
+     * @param keys key集合,重复的key只查询一次
+     * @return key到值的映射,按输入顺序排列,不存在的key不在结果中
+     */
+    public Map<String, String> getAll(Collection<String> keys) {
+        List<String> distinct = distinct(keys);
+        List<Object> replies = run("BATCH.getAll", distinct, key -> key, (pipeline, key) -> pipeline.get(key));
+        return collect(distinct, replies);
+    }
+
+    /**
+     * 批量存储字符串
+     *
+     * @param values key到值的映射
+     */
+    public void setAll(Map<String, String> values) {
+        run("BATCH.setAll", new ArrayList<Map.Entry<String, String>>(values.entrySet()), Map.Entry::getKey,
+                (pipeline, entry) -> pipeline.set(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * 批量存储字符串并设置相同的过期时间
+     *
+     * @param values  key到值的映射
+     * @param seconds 过期时间(秒)
+     */
+    public void setAllEx(Map<String, String> values, int seconds) {
+        run("BATCH.setAllEx", new ArrayList<Map.Entry<String, String>>(values.entrySet()), Map.Entry::getKey,
+                (pipeline, entry) -> pipeline.setex(entry.getKey(), seconds, entry.getValue()));
+    }
+
+    /**
+     * 获取多个hash中同一个field的值
+     *
+     * @param keys  hash的key集合
+     * @param field 字段
+     * @return key到字段值的映射,按输入顺序排列,key或字段不存在时不在结果中
+     */
+    public Map<String, String> hgetAcross(Collection<String> keys, String field) {
+        List<String> distinct = distinct(keys);
+        List<Object> replies = run("BATCH.hgetAcross", distinct, key -> key, (pipeline, key) -> pipeline.hget(key, field));
+        return collect(distinct, replies);
+    }
+
+    /**
+     * 获取多个hash的全部字段
+     *
+     * @param keys hash的key集合
+     * @return key到hash内容的映射,按输入顺序排列,不存在的key不在结果中
+     */
+    public Map<String, Map<String, String>> hgetAllAcross(Collection<String> keys) {
+        List<String> distinct = distinct(keys);
+        List<Object> replies = run("BATCH.hgetAllAcross", distinct, key -> key, (pipeline, key) -> pipeline.hgetAll(key));
+        Map<String, Map<String, String>> result = new LinkedHashMap<String, Map<String, String>>();
+        for (int i = 0; i < replies.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> hash = (Map<String, String>) replies.get(i);
+            if (hash != null && !hash.isEmpty()) {
+                result.put(distinct.get(i), hash);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量删除
+     *
+     * @param keys key集合
+     * @return 实际删除的key数
+     */
+    public long delAll(Collection<String> keys) {
+        long deleted = 0;
+        for (Object reply : run("BATCH.delAll", distinct(keys), key -> key, (pipeline, key) -> pipeline.del(key))) {
+            deleted += (Long) reply;
+        }
+        return deleted;
+    }
+
+    /**
+     * 批量设置相同的过期时间
+     *
+     * @param keys    key集合
+     * @param seconds 过期时间(秒)
+     * @return 设置成功(key存在)的key数
+     */
+    public long expireAll(Collection<String> keys, int seconds) {
+        long updated = 0;
+        for (Object reply : run("BATCH.expireAll", distinct(keys), key -> key,
+                (pipeline, key) -> pipeline.expire(key, seconds))) {
+            updated += (Long) reply;
+        }
+        return updated;
+    }
+
+    private static List<String> distinct(Collection<String> keys) {
+        return new ArrayList<String>(new LinkedHashSet<String>(keys));
+    }
+
+    private static Map<String, String> collect(List<String> keys, List<Object> replies) {
+        Map<String, String> result = new LinkedHashMap<String, String>(keys.size() * 4 / 3 + 1);
+        for (int i = 0; i < replies.size(); i++) {
+            Object reply = replies.get(i);
+            if (reply != null) {
+                result.put(keys.get(i), (String) reply);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 分块执行,返回与输入顺序一致的应答。任一块失败后不再开始新的块,等已开始的块结束后抛出第一个异常
+     *
+     * @param command   命令名
+     * @param items     输入
+     * @param keyOf     输入的key,用于集群、分片模式下按节点分组
+     * @param operation 把一个输入加入pipeline
+     * @return 应答
+     */
+    private <T> List<Object> run(String command, List<T> items, Function<T, String> keyOf, BiConsumer<Pipeline, T> operation) {
+        if (items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Chunk> chunkList = split(items, keyOf, Math.max(redisUtil.getConfig().getBatchChunkSize(), 1));
+        int chunks = chunkList.size();
+        Object[] replies = new Object[items.size()];
+        if (chunks == 1) {
+            runChunk(command, chunkList.get(0), items, operation, replies);
+            return Arrays.asList(replies);
+        }
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(chunks);
+        AtomicReference<RuntimeException> error = new AtomicReference<RuntimeException>();
+        Runnable worker = () -> {
+            int chunk;
+            while ((chunk = next.getAndIncrement()) < chunks) {
+                try {
+                    if (error.get() == null) {
+                        runChunk(command, chunkList.get(chunk), items, operation, replies);
+                    }
+                } catch (RuntimeException e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        Executor executor = redisUtil.async().getExecutor();
+        Runnable inherited = redisUtil.inheritContext(worker);
+        int lanes = Math.min(Math.max(redisUtil.getConfig().getBatchParallelism(), 1), chunks);
+        for (int i = 1; i < lanes; i++) {
+            try {
+                executor.execute(inherited);
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+        //只等待已被领取的块,尚未开始的任务领不到块会直接结束
+        Uninterruptibles.awaitUninterruptibly(done);
+        if (error.get() != null) {
+            throw error.get();
+        }
+        return Arrays.asList(replies);
+    }
+
+    /**
+     * 从source中按chunkSize取出输入,每块用operation生成一条命令,每{@link #LOAD_WINDOW}块组成一个pipeline,
+     * 最多按redis.batch.parallelism路并行发送。各路同时最多持有一个pipeline的输入,整体占用的内存与输入总量无关
+     *
+     * @param command   命令名
+     * @param key       写入的key,集群、分片模式下pipeline发往其所在节点
+     * @param source    输入,只在加锁后读取,可以是惰性生成或从文件读取的迭代器
+     * @param chunkSize 每条命令包含的输入个数
+     * @param operation 把一块输入作为一条命令加入pipeline,命令应答为整数(如SADD、ZADD的新增个数)
+     * @return 写入结果
+     */
+    <T> BulkLoadResult load(String command, String key, Iterator<T> source, int chunkSize,
+                            BiConsumer<Pipeline, List<T>> operation) {
+        long start = System.nanoTime();
+        RedisEndpoint node = redisUtil.pipelinesByNode() ? redisUtil.endpointFor(key) : null;
+        Feed<T> feed = new Feed<T>(source, Math.max(chunkSize, 1));
+        LongAdder added = new LongAdder();
+        Runnable worker = () -> {
+            List<List<T>> window;
+            while ((window = feed.take()) != null) {
+                try {
+                    added.add(loadWindow(command, node, window, operation));
+                } catch (RuntimeException e) {
+                    feed.fail(e);
+                } finally {
+                    feed.release();
+                }
+            }
+        };
+        Executor executor = redisUtil.async().getExecutor();
+        Runnable inherited = redisUtil.inheritContext(worker);
+        for (int i = 1; i < Math.max(redisUtil.getConfig().getBatchParallelism(), 1); i++) {
+            try {
+                executor.execute(inherited);
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+        feed.awaitIdle();
+        if (feed.error != null) {
+            throw feed.error;
+        }
+        return new BulkLoadResult(feed.items, added.sum(), System.nanoTime() - start);
+    }
+
+    private <T> long loadWindow(String command, RedisEndpoint node, List<List<T>> window,
+                                BiConsumer<Pipeline, List<T>> operation) {
+        List<Object> replies = pipeline(command, node, window, operation);
+        RedisUtil.throwErrorReply(replies);
+        long added = 0;
+        for (Object reply : replies) {
+            added += (Long) reply;
+        }
+        return added;
+    }
+
+    /**
+     * 各路共享的输入:加锁读取,记录正在发送的pipeline数。输入读完或出错后不再读取source,
+     * 调用线程等待已取出的pipeline发送完成即可返回,线程池中尚未开始的任务之后领不到输入会直接结束
+     */
+    private static class Feed<T> {
+
+        private final Iterator<T> source;
+
+        private final int chunkSize;
+
+        private boolean closed;
+
+        private int inFlight;
+
+        private long items;
+
+        private RuntimeException error;
+
+        Feed(Iterator<T> source, int chunkSize) {
+            this.source = source;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * @return 下一个pipeline的输入,已读完或已出错时返回null
+         */
+        synchronized List<List<T>> take() {
+            if (closed) {
+                return null;
+            }
+            List<List<T>> window = new ArrayList<List<T>>();
+            try {
+                while (window.size() < LOAD_WINDOW && source.hasNext()) {
+                    List<T> chunk = new ArrayList<T>(chunkSize);
+                    while (chunk.size() < chunkSize && source.hasNext()) {
+                        chunk.add(source.next());
+                    }
+                    items += chunk.size();
+                    window.add(chunk);
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+                return null;
+            }
+            if (window.isEmpty()) {
+                closed = true;
+                return null;
+            }
+            inFlight++;
+            return window;
+        }
+
+        synchronized void fail(RuntimeException e) {
+            if (error == null) {
+                error = e;
+            }
+            closed = true;
+        }
+
+        synchronized void release() {
+            if (--inFlight == 0) {
+                notifyAll();
+            }
+        }
+
+        synchronized void awaitIdle() {
+            boolean interrupted = false;
+            while (inFlight > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 分块:集群、分片模式下先按节点分组再按chunkSize切分,否则按输入顺序切分
+     */
+    private <T> List<Chunk> split(List<T> items, Function<T, String> keyOf, int chunkSize) {
+        Map<RedisEndpoint, List<Integer>> groups = new LinkedHashMap<RedisEndpoint, List<Integer>>();
+        boolean byNode = redisUtil.pipelinesByNode();
+        for (int i = 0; i < items.size(); i++) {
+            RedisEndpoint node = byNode ? redisUtil.endpointFor(keyOf.apply(items.get(i))) : null;
+            groups.computeIfAbsent(node, n -> new ArrayList<Integer>()).add(i);
+        }
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        for (Map.Entry<RedisEndpoint, List<Integer>> group : groups.entrySet()) {
+            List<Integer> indexes = group.getValue();
+            for (int from = 0; from < indexes.size(); from += chunkSize) {
+                chunks.add(new Chunk(group.getKey(), indexes.subList(from, Math.min(from + chunkSize, indexes.size()))));
+            }
+        }
+        return chunks;
+    }
+
+    private <T> void runChunk(String command, Chunk chunk, List<T> items, BiConsumer<Pipeline, T> operation,
+                              Object[] replies) {
+        List<T> inputs = new ArrayList<T>(chunk.indexes.size());
+        for (int index : chunk.indexes) {
+            inputs.add(items.get(index));
+        }
+        List<Object> chunkReplies = pipeline(command, chunk.node, inputs, operation);
+        RedisUtil.throwErrorReply(chunkReplies);
+        for (int i = 0; i < chunkReplies.size(); i++) {
+            replies[chunk.indexes.get(i)] = chunkReplies.get(i);
+        }
+    }
+
+    /**
+     * 以pipeline发送一组命令。node为null时按RedisUtil的路由发送;否则在该节点的连接上发送,
+     * 节点返回MOVED/ASK(槽位映射已过期)的命令改为按key路由重发,由集群通道跟随重定向并更新映射
+     */
+    private <T> List<Object> pipeline(String command, RedisEndpoint node, List<T> inputs, BiConsumer<Pipeline, T> operation) {
+        RedisCallback<List<Object>> callback = jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            for (T input : inputs) {
+                operation.accept(pipeline, input);
+            }
+            return pipeline.syncAndReturnAll();
+        };
+        if (node == null) {
+            return redisUtil.execute(command, callback);
+        }
+        List<Object> replies = new ArrayList<Object>(redisUtil.executeOn(command, node, callback));
+        for (int i = 0; i < replies.size(); i++) {
+            if (replies.get(i) instanceof JedisRedirectionException) {
+                T input = inputs.get(i);
+                replies.set(i, redisUtil.execute(command, jedis -> {
+                    Pipeline pipeline = jedis.pipelined();
+                    operation.accept(pipeline, input);
+                    return pipeline.syncAndReturnAll().get(0);
+                }));
+            }
+        }
+        return replies;
+    }
+
+    /**
+     * 一块输入:在输入中的下标和发往的节点,节点为null时按RedisUtil的路由发送
+     */
+    private static class Chunk {
+
+        final RedisEndpoint node;
+
+        final List<Integer> indexes;
+
+        Chunk(RedisEndpoint node, List<Integer> indexes) {
+            this.node = node;
+            this.indexes = indexes;
+        }
+    }
+}
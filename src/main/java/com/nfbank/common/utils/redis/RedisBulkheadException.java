@@ -0,0 +1,23 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 隔离区({@link Bulkhead})并发已满且在等待时间内没有空出名额时抛出,命令未发送到Redis。
+ * 该异常不填充堆栈,高峰期大量拒绝时开销很小。
+ */
+public class RedisBulkheadException extends JedisException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RedisBulkheadException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
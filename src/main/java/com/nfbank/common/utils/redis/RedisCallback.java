@@ -0,0 +1,21 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 在一个Redis连接上执行的操作,连接的获取和归还由{@link RedisUtil#execute(RedisCallback)}负责
+ *
+ * @param <T> 返回值类型
+ */
+public interface RedisCallback<T> {
+
+    /**
+     * 执行操作
+     *
+     * @param jedis 连接,不要在回调中关闭
+     * @return 执行结果
+     */
+    T doInRedis(Jedis jedis);
+}
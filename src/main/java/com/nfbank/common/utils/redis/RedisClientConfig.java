@@ -0,0 +1,974 @@
+package com.nfbank.common.utils.redis;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 一个Redis客户端({@link RedisUtil}实例)的配置:地址、连接池、超时、部署方式(从节点、集群、分片、Sentinel),
+ * 以及该实例的批量命令、pipeline、事务、SCAN参数,慢日志、指标、熔断参数,异步线程池和NIO/自动管道的大小。
+ * 默认实例的配置取自redis.properties,配置热更新后重新生成;其他实例通过{@link #builder()}创建:
+ * <pre>
+ * RedisUtil sessions = RedisUtil.create(RedisClientConfig.builder()
+ *         .name("session").host("10.0.0.5").port(6379).maxTotal(50).build());
+ * </pre>
+ * 构建器的初始值取自{@link RedisConfig}的当前值(密码除外,其他部署通常密码不同,需要时用{@link Builder#password(String)}指定),
+ * 生成后不再随redis.properties变化;未指定名称时依次命名为client-1、client-2…,名称用于区分各实例的JMX指标,应保持唯一;
+ * 连接预热、隔离区和配置文件检查仍是进程级配置。实例不可变,修改配置需要重新生成。
+ */
+public final class RedisClientConfig {
+
+    /**
+     * 默认实例的名称,该实例的JMX指标名不带前缀
+     */
+    public static final String DEFAULT_NAME = "default";
+
+    /**
+     * 未指定名称的实例的序号
+     */
+    private static final AtomicInteger UNNAMED = new AtomicInteger();
+
+    private final String name;
+    private final String host;
+    private final int port;
+    private final String password;
+    private final int database;
+    private final int timeout;
+    private final int maxTotal;
+    private final int maxIdle;
+    private final int minIdle;
+    private final long maxWaitMillis;
+    private final int retryNum;
+    private final boolean testOnBorrow;
+    private final boolean testOnReturn;
+    private final boolean testWhileIdle;
+    private final ValidationMode validationMode;
+    private final long validationIdleMillis;
+    private final Transport transport;
+    private final boolean autoPipelineEnabled;
+    private final String replicas;
+    private final ReadStrategy replicaStrategy;
+    private final String clusterNodes;
+    private final int clusterMaxRedirects;
+    private final String shards;
+    private final int shardVirtualNodes;
+    private final String sentinelMaster;
+    private final String sentinelNodes;
+    private final int batchChunkSize;
+    private final int batchParallelism;
+    private final int hashChunkSize;
+    private final int pipelineFlushSize;
+    private final int transactionMaxRetries;
+    private final long transactionBackoffMillis;
+    private final int scanCount;
+    private final int scanDeleteBatchSize;
+    private final double scanDeleteRatePerSecond;
+    private final boolean metricsCommandsEnabled;
+    private final boolean metricsJmxEnabled;
+    private final boolean slowLogEnabled;
+    private final long slowLogThresholdMillis;
+    private final int slowLogCapacity;
+    private final int slowLogStackDepth;
+    private final int healthFailureThreshold;
+    private final long healthBackoffMillis;
+    private final long healthMaxBackoffMillis;
+    private final int asyncThreads;
+    private final int asyncQueueSize;
+    private final int nioConnections;
+    private final int nioBufferSize;
+    private final int nioQueueSize;
+    private final int autoPipelineConnections;
+    private final int autoPipelineMaxBatch;
+    private final int autoPipelineQueueSize;
+
+    private RedisClientConfig(Builder builder) {
+        this.name = builder.name;
+        this.host = builder.host;
+        this.port = builder.port;
+        this.password = builder.password == null || builder.password.isEmpty() ? null : builder.password;
+        this.database = builder.database;
+        this.timeout = builder.timeout;
+        this.maxTotal = builder.maxTotal;
+        this.maxIdle = builder.maxIdle;
+        this.minIdle = builder.minIdle;
+        this.maxWaitMillis = builder.maxWaitMillis;
+        this.retryNum = builder.retryNum;
+        this.testOnBorrow = builder.testOnBorrow;
+        this.testOnReturn = builder.testOnReturn;
+        this.testWhileIdle = builder.testWhileIdle;
+        this.validationMode = builder.validationMode;
+        this.validationIdleMillis = builder.validationIdleMillis;
+        this.transport = builder.transport;
+        this.autoPipelineEnabled = builder.autoPipelineEnabled;
+        this.replicas = builder.replicas;
+        this.replicaStrategy = builder.replicaStrategy;
+        this.clusterNodes = builder.clusterNodes;
+        this.clusterMaxRedirects = builder.clusterMaxRedirects;
+        this.shards = builder.shards;
+        this.shardVirtualNodes = builder.shardVirtualNodes;
+        this.sentinelMaster = builder.sentinelMaster;
+        this.sentinelNodes = builder.sentinelNodes;
+        this.batchChunkSize = builder.batchChunkSize;
+        this.batchParallelism = builder.batchParallelism;
+        this.hashChunkSize = builder.hashChunkSize;
+        this.pipelineFlushSize = builder.pipelineFlushSize;
+        this.transactionMaxRetries = builder.transactionMaxRetries;
+        this.transactionBackoffMillis = builder.transactionBackoffMillis;
+        this.scanCount = builder.scanCount;
+        this.scanDeleteBatchSize = builder.scanDeleteBatchSize;
+        this.scanDeleteRatePerSecond = builder.scanDeleteRatePerSecond;
+        this.metricsCommandsEnabled = builder.metricsCommandsEnabled;
+        this.metricsJmxEnabled = builder.metricsJmxEnabled;
+        this.slowLogEnabled = builder.slowLogEnabled;
+        this.slowLogThresholdMillis = builder.slowLogThresholdMillis;
+        this.slowLogCapacity = builder.slowLogCapacity;
+        this.slowLogStackDepth = builder.slowLogStackDepth;
+        this.healthFailureThreshold = builder.healthFailureThreshold;
+        this.healthBackoffMillis = builder.healthBackoffMillis;
+        this.healthMaxBackoffMillis = builder.healthMaxBackoffMillis;
+        this.asyncThreads = builder.asyncThreads;
+        this.asyncQueueSize = builder.asyncQueueSize;
+        this.nioConnections = builder.nioConnections;
+        this.nioBufferSize = builder.nioBufferSize;
+        this.nioQueueSize = builder.nioQueueSize;
+        this.autoPipelineConnections = builder.autoPipelineConnections;
+        this.autoPipelineMaxBatch = builder.autoPipelineMaxBatch;
+        this.autoPipelineQueueSize = builder.autoPipelineQueueSize;
+    }
+
+    /**
+     * 按redis.properties的当前值生成默认实例的配置
+     *
+     * @return 配置
+     */
+    static RedisClientConfig defaults() {
+        return builder()
+                .name(DEFAULT_NAME)
+                .host(RedisConfig.getIp())
+                .port(RedisConfig.getPort())
+                .password(RedisConfig.getPassword())
+                .database(RedisConfig.getDbIndex())
+                .replicas(RedisConfig.getReplicas())
+                .replicaStrategy(RedisConfig.getReplicaStrategy())
+                .clusterNodes(RedisConfig.getClusterNodes())
+                .clusterMaxRedirects(RedisConfig.getClusterMaxRedirects())
+                .shards(RedisConfig.getShards())
+                .shardVirtualNodes(RedisConfig.getShardVirtualNodes())
+                .sentinel(RedisConfig.getSentinelMaster(), RedisConfig.getSentinelNodes())
+                .create();
+    }
+
+    /**
+     * redis.properties更新后生成默认实例的新配置:地址、密码、超时、连接池参数以及批量命令、事务、SCAN、慢日志、指标、熔断参数取新值,
+     * 部署方式、传输方式、库、线程池和通道大小等需要重启才能生效的配置保持不变
+     *
+     * @return 新配置
+     */
+    RedisClientConfig refresh() {
+        Builder builder = toBuilder()
+                .host(RedisConfig.getIp())
+                .port(RedisConfig.getPort())
+                .password(RedisConfig.getPassword());
+        builder.timeout = RedisConfig.getTimeout();
+        builder.maxTotal = RedisConfig.getMaxTotal();
+        builder.maxIdle = RedisConfig.getMaxIdle();
+        builder.minIdle = RedisConfig.getMinIdle();
+        builder.maxWaitMillis = RedisConfig.getMaxWaitMillis();
+        builder.retryNum = RedisConfig.getRetryNum();
+        builder.testOnBorrow = RedisConfig.getTestOnBorrow();
+        builder.testOnReturn = RedisConfig.getTestOnReturn();
+        builder.testWhileIdle = RedisConfig.getTestWhileIdle();
+        builder.validationMode = RedisConfig.getValidationMode();
+        builder.validationIdleMillis = RedisConfig.getValidationIdleMillis();
+        builder.batchChunkSize = RedisConfig.getBatchChunkSize();
+        builder.batchParallelism = RedisConfig.getBatchParallelism();
+        builder.hashChunkSize = RedisConfig.getHashChunkSize();
+        builder.pipelineFlushSize = RedisConfig.getPipelineFlushSize();
+        builder.transactionMaxRetries = RedisConfig.getTransactionMaxRetries();
+        builder.transactionBackoffMillis = RedisConfig.getTransactionBackoffMillis();
+        builder.scanCount = RedisConfig.getScanCount();
+        builder.scanDeleteBatchSize = RedisConfig.getScanDeleteBatchSize();
+        builder.scanDeleteRatePerSecond = RedisConfig.getScanDeleteRatePerSecond();
+        builder.metricsCommandsEnabled = RedisConfig.getMetricsCommandsEnabled();
+        builder.metricsJmxEnabled = RedisConfig.getMetricsJmxEnabled();
+        builder.slowLogEnabled = RedisConfig.getSlowLogEnabled();
+        builder.slowLogThresholdMillis = RedisConfig.getSlowLogThresholdMillis();
+        builder.slowLogStackDepth = RedisConfig.getSlowLogStackDepth();
+        builder.healthFailureThreshold = RedisConfig.getHealthFailureThreshold();
+        builder.healthBackoffMillis = RedisConfig.getHealthBackoffMillis();
+        builder.healthMaxBackoffMillis = RedisConfig.getHealthMaxBackoffMillis();
+        return builder.create();
+    }
+
+    /**
+     * 创建构建器,地址、密码和部署方式以外的配置项初始值取自redis.properties,地址和部署方式需要指定,无密码时不发送AUTH
+     *
+     * @return 构建器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 以本配置为初始值创建构建器,用于在现有配置上修改个别项
+     *
+     * @return 构建器
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.name = name;
+        builder.host = host;
+        builder.port = port;
+        builder.password = password;
+        builder.database = database;
+        builder.timeout = timeout;
+        builder.maxTotal = maxTotal;
+        builder.maxIdle = maxIdle;
+        builder.minIdle = minIdle;
+        builder.maxWaitMillis = maxWaitMillis;
+        builder.retryNum = retryNum;
+        builder.testOnBorrow = testOnBorrow;
+        builder.testOnReturn = testOnReturn;
+        builder.testWhileIdle = testWhileIdle;
+        builder.validationMode = validationMode;
+        builder.validationIdleMillis = validationIdleMillis;
+        builder.transport = transport;
+        builder.autoPipelineEnabled = autoPipelineEnabled;
+        builder.replicas = replicas;
+        builder.replicaStrategy = replicaStrategy;
+        builder.clusterNodes = clusterNodes;
+        builder.clusterMaxRedirects = clusterMaxRedirects;
+        builder.shards = shards;
+        builder.shardVirtualNodes = shardVirtualNodes;
+        builder.sentinelMaster = sentinelMaster;
+        builder.sentinelNodes = sentinelNodes;
+        builder.batchChunkSize = batchChunkSize;
+        builder.batchParallelism = batchParallelism;
+        builder.hashChunkSize = hashChunkSize;
+        builder.pipelineFlushSize = pipelineFlushSize;
+        builder.transactionMaxRetries = transactionMaxRetries;
+        builder.transactionBackoffMillis = transactionBackoffMillis;
+        builder.scanCount = scanCount;
+        builder.scanDeleteBatchSize = scanDeleteBatchSize;
+        builder.scanDeleteRatePerSecond = scanDeleteRatePerSecond;
+        builder.metricsCommandsEnabled = metricsCommandsEnabled;
+        builder.metricsJmxEnabled = metricsJmxEnabled;
+        builder.slowLogEnabled = slowLogEnabled;
+        builder.slowLogThresholdMillis = slowLogThresholdMillis;
+        builder.slowLogCapacity = slowLogCapacity;
+        builder.slowLogStackDepth = slowLogStackDepth;
+        builder.healthFailureThreshold = healthFailureThreshold;
+        builder.healthBackoffMillis = healthBackoffMillis;
+        builder.healthMaxBackoffMillis = healthMaxBackoffMillis;
+        builder.asyncThreads = asyncThreads;
+        builder.asyncQueueSize = asyncQueueSize;
+        builder.nioConnections = nioConnections;
+        builder.nioBufferSize = nioBufferSize;
+        builder.nioQueueSize = nioQueueSize;
+        builder.autoPipelineConnections = autoPipelineConnections;
+        builder.autoPipelineMaxBatch = autoPipelineMaxBatch;
+        builder.autoPipelineQueueSize = autoPipelineQueueSize;
+        return builder;
+    }
+
+    /**
+     * 客户端名称,用于区分各实例的JMX指标和日志
+     */
+    public String getName() {
+        return name;
+    }
+
+    public boolean isDefault() {
+        return DEFAULT_NAME.equals(name);
+    }
+
+    /**
+     * 单节点、主从模式下的主节点地址
+     */
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * 默认库
+     */
+    public int getDatabase() {
+        return database;
+    }
+
+    /**
+     * 建连和读写超时(毫秒)
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     * getJedis获取连接失败时的尝试次数
+     */
+    public int getRetryNum() {
+        return retryNum;
+    }
+
+    public boolean isTestOnBorrow() {
+        return testOnBorrow;
+    }
+
+    public boolean isTestOnReturn() {
+        return testOnReturn;
+    }
+
+    public boolean isTestWhileIdle() {
+        return testWhileIdle;
+    }
+
+    public ValidationMode getValidationMode() {
+        return validationMode;
+    }
+
+    public long getValidationIdleMillis() {
+        return validationIdleMillis;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public boolean isAutoPipelineEnabled() {
+        return autoPipelineEnabled;
+    }
+
+    /**
+     * 命令是否经共享连接发送(NIO传输方式或开启自动管道)
+     */
+    boolean isMultiplexed() {
+        return transport == Transport.NIO || autoPipelineEnabled;
+    }
+
+    /**
+     * 从节点地址(ip:port,逗号分隔)
+     */
+    public String getReplicas() {
+        return replicas;
+    }
+
+    public ReadStrategy getReplicaStrategy() {
+        return replicaStrategy;
+    }
+
+    /**
+     * 集群种子节点地址(ip:port,逗号分隔)
+     */
+    public String getClusterNodes() {
+        return clusterNodes;
+    }
+
+    public int getClusterMaxRedirects() {
+        return clusterMaxRedirects;
+    }
+
+    /**
+     * 分片节点地址(ip:port,逗号分隔)
+     */
+    public String getShards() {
+        return shards;
+    }
+
+    public int getShardVirtualNodes() {
+        return shardVirtualNodes;
+    }
+
+    public String getSentinelMaster() {
+        return sentinelMaster;
+    }
+
+    /**
+     * Sentinel地址(ip:port,逗号分隔)
+     */
+    public String getSentinelNodes() {
+        return sentinelNodes;
+    }
+
+    /**
+     * 批量命令每个pipeline最多包含的key数
+     */
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+
+    /**
+     * 批量命令最多同时使用的连接数
+     */
+    public int getBatchParallelism() {
+        return batchParallelism;
+    }
+
+    /**
+     * hash批量写入时每条HMSET最多包含的字段数
+     */
+    public int getHashChunkSize() {
+        return hashChunkSize;
+    }
+
+    /**
+     * pipeline中未读取应答的命令达到多少条时先发送并读取
+     */
+    public int getPipelineFlushSize() {
+        return pipelineFlushSize;
+    }
+
+    /**
+     * 乐观锁事务冲突后的最大重试次数
+     */
+    public int getTransactionMaxRetries() {
+        return transactionMaxRetries;
+    }
+
+    /**
+     * 乐观锁事务冲突后重试的基础等待时间(毫秒)
+     */
+    public long getTransactionBackoffMillis() {
+        return transactionBackoffMillis;
+    }
+
+    /**
+     * 遍历key时每次SCAN的COUNT提示
+     */
+    public int getScanCount() {
+        return scanCount;
+    }
+
+    /**
+     * 按表达式删除时每次删除的key数
+     */
+    public int getScanDeleteBatchSize() {
+        return scanDeleteBatchSize;
+    }
+
+    /**
+     * 按表达式删除时每秒最多删除的key数,0表示不限速
+     */
+    public double getScanDeleteRatePerSecond() {
+        return scanDeleteRatePerSecond;
+    }
+
+    /**
+     * 是否按命令名统计耗时
+     */
+    public boolean isMetricsCommandsEnabled() {
+        return metricsCommandsEnabled;
+    }
+
+    /**
+     * 是否把连接池和命令指标注册到JMX
+     */
+    public boolean isMetricsJmxEnabled() {
+        return metricsJmxEnabled;
+    }
+
+    /**
+     * 是否开启客户端慢日志
+     */
+    public boolean isSlowLogEnabled() {
+        return slowLogEnabled;
+    }
+
+    /**
+     * 慢日志阈值(毫秒)
+     */
+    public long getSlowLogThresholdMillis() {
+        return slowLogThresholdMillis;
+    }
+
+    /**
+     * 慢日志保留的记录数
+     */
+    public int getSlowLogCapacity() {
+        return slowLogCapacity;
+    }
+
+    /**
+     * 慢日志记录的调用栈深度
+     */
+    public int getSlowLogStackDepth() {
+        return slowLogStackDepth;
+    }
+
+    /**
+     * 节点连续失败多少次后熔断
+     */
+    public int getHealthFailureThreshold() {
+        return healthFailureThreshold;
+    }
+
+    /**
+     * 熔断后探测及重试的基础退避间隔(毫秒)
+     */
+    public long getHealthBackoffMillis() {
+        return healthBackoffMillis;
+    }
+
+    /**
+     * 退避间隔上限(毫秒)
+     */
+    public long getHealthMaxBackoffMillis() {
+        return healthMaxBackoffMillis;
+    }
+
+    /**
+     * 异步命令线程数
+     */
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    /**
+     * 异步命令等待队列长度
+     */
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    /**
+     * NIO方式每个节点的连接数
+     */
+    public int getNioConnections() {
+        return nioConnections;
+    }
+
+    /**
+     * NIO连接收发缓冲区初始大小(字节)
+     */
+    public int getNioBufferSize() {
+        return nioBufferSize;
+    }
+
+    /**
+     * NIO每个连接的发送队列长度
+     */
+    public int getNioQueueSize() {
+        return nioQueueSize;
+    }
+
+    /**
+     * 自动管道每个节点的共享连接数
+     */
+    public int getAutoPipelineConnections() {
+        return autoPipelineConnections;
+    }
+
+    /**
+     * 自动管道单批最多发送的命令数
+     */
+    public int getAutoPipelineMaxBatch() {
+        return autoPipelineMaxBatch;
+    }
+
+    /**
+     * 自动管道每个连接的等待队列长度
+     */
+    public int getAutoPipelineQueueSize() {
+        return autoPipelineQueueSize;
+    }
+
+    @Override
+    public String toString() {
+        return name + "[" + (isConfigured(clusterNodes) ? "cluster " + clusterNodes
+                : isConfigured(shards) ? "shards " + shards
+                : isConfigured(sentinelMaster) ? "sentinel " + sentinelMaster + "@" + sentinelNodes
+                : host + ":" + port + "/" + database) + ",maxTotal=" + maxTotal + ",timeout=" + timeout + "]";
+    }
+
+    static boolean isConfigured(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    /**
+     * 配置构建器
+     */
+    public static final class Builder {
+
+        private String name;
+        private String host;
+        private int port = 6379;
+        private String password;
+        private int database;
+        private int timeout = RedisConfig.getTimeout();
+        private int maxTotal = RedisConfig.getMaxTotal();
+        private int maxIdle = RedisConfig.getMaxIdle();
+        private int minIdle = RedisConfig.getMinIdle();
+        private long maxWaitMillis = RedisConfig.getMaxWaitMillis();
+        private int retryNum = RedisConfig.getRetryNum();
+        private boolean testOnBorrow = RedisConfig.getTestOnBorrow();
+        private boolean testOnReturn = RedisConfig.getTestOnReturn();
+        private boolean testWhileIdle = RedisConfig.getTestWhileIdle();
+        private ValidationMode validationMode = RedisConfig.getValidationMode();
+        private long validationIdleMillis = RedisConfig.getValidationIdleMillis();
+        private Transport transport = RedisConfig.getTransport();
+        private boolean autoPipelineEnabled = RedisConfig.getAutoPipelineEnabled();
+        private String replicas = "";
+        private ReadStrategy replicaStrategy = ReadStrategy.ROUND_ROBIN;
+        private String clusterNodes = "";
+        private int clusterMaxRedirects = RedisConfig.getClusterMaxRedirects();
+        private String shards = "";
+        private int shardVirtualNodes = RedisConfig.getShardVirtualNodes();
+        private String sentinelMaster = "";
+        private String sentinelNodes = "";
+        private int batchChunkSize = RedisConfig.getBatchChunkSize();
+        private int batchParallelism = RedisConfig.getBatchParallelism();
+        private int hashChunkSize = RedisConfig.getHashChunkSize();
+        private int pipelineFlushSize = RedisConfig.getPipelineFlushSize();
+        private int transactionMaxRetries = RedisConfig.getTransactionMaxRetries();
+        private long transactionBackoffMillis = RedisConfig.getTransactionBackoffMillis();
+        private int scanCount = RedisConfig.getScanCount();
+        private int scanDeleteBatchSize = RedisConfig.getScanDeleteBatchSize();
+        private double scanDeleteRatePerSecond = RedisConfig.getScanDeleteRatePerSecond();
+        private boolean metricsCommandsEnabled = RedisConfig.getMetricsCommandsEnabled();
+        private boolean metricsJmxEnabled = RedisConfig.getMetricsJmxEnabled();
+        private boolean slowLogEnabled = RedisConfig.getSlowLogEnabled();
+        private long slowLogThresholdMillis = RedisConfig.getSlowLogThresholdMillis();
+        private int slowLogCapacity = RedisConfig.getSlowLogCapacity();
+        private int slowLogStackDepth = RedisConfig.getSlowLogStackDepth();
+        private int healthFailureThreshold = RedisConfig.getHealthFailureThreshold();
+        private long healthBackoffMillis = RedisConfig.getHealthBackoffMillis();
+        private long healthMaxBackoffMillis = RedisConfig.getHealthMaxBackoffMillis();
+        private int asyncThreads = RedisConfig.getAsyncThreads();
+        private int asyncQueueSize = RedisConfig.getAsyncQueueSize();
+        private int nioConnections = RedisConfig.getNioConnections();
+        private int nioBufferSize = RedisConfig.getNioBufferSize();
+        private int nioQueueSize = RedisConfig.getNioQueueSize();
+        private int autoPipelineConnections = RedisConfig.getAutoPipelineConnections();
+        private int autoPipelineMaxBatch = RedisConfig.getAutoPipelineMaxBatch();
+        private int autoPipelineQueueSize = RedisConfig.getAutoPipelineQueueSize();
+
+        private Builder() {
+        }
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder host(String host) {
+            this.host = host;
+            return this;
+        }
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder password(String password) {
+            this.password = password;
+            return this;
+        }
+
+        public Builder database(int database) {
+            this.database = database;
+            return this;
+        }
+
+        public Builder timeout(int timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder maxTotal(int maxTotal) {
+            this.maxTotal = maxTotal;
+            return this;
+        }
+
+        public Builder maxIdle(int maxIdle) {
+            this.maxIdle = maxIdle;
+            return this;
+        }
+
+        public Builder minIdle(int minIdle) {
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        public Builder maxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+            return this;
+        }
+
+        public Builder retryNum(int retryNum) {
+            this.retryNum = retryNum;
+            return this;
+        }
+
+        public Builder testOnBorrow(boolean testOnBorrow) {
+            this.testOnBorrow = testOnBorrow;
+            return this;
+        }
+
+        public Builder testOnReturn(boolean testOnReturn) {
+            this.testOnReturn = testOnReturn;
+            return this;
+        }
+
+        public Builder testWhileIdle(boolean testWhileIdle) {
+            this.testWhileIdle = testWhileIdle;
+            return this;
+        }
+
+        public Builder validationMode(ValidationMode validationMode) {
+            this.validationMode = validationMode;
+            return this;
+        }
+
+        public Builder validationIdleMillis(long validationIdleMillis) {
+            this.validationIdleMillis = validationIdleMillis;
+            return this;
+        }
+
+        public Builder transport(Transport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        public Builder autoPipelineEnabled(boolean autoPipelineEnabled) {
+            this.autoPipelineEnabled = autoPipelineEnabled;
+            return this;
+        }
+
+        /**
+         * @param replicas 从节点地址(ip:port,逗号分隔)
+         */
+        public Builder replicas(String replicas) {
+            this.replicas = replicas;
+            return this;
+        }
+
+        public Builder replicaStrategy(ReadStrategy replicaStrategy) {
+            this.replicaStrategy = replicaStrategy;
+            return this;
+        }
+
+        /**
+         * @param clusterNodes 集群种子节点地址(ip:port,逗号分隔)
+         */
+        public Builder clusterNodes(String clusterNodes) {
+            this.clusterNodes = clusterNodes;
+            return this;
+        }
+
+        public Builder clusterMaxRedirects(int clusterMaxRedirects) {
+            this.clusterMaxRedirects = clusterMaxRedirects;
+            return this;
+        }
+
+        /**
+         * @param shards 分片节点地址(ip:port,逗号分隔)
+         */
+        public Builder shards(String shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        public Builder shardVirtualNodes(int shardVirtualNodes) {
+            this.shardVirtualNodes = shardVirtualNodes;
+            return this;
+        }
+
+        /**
+         * @param master    Sentinel中的主节点名
+         * @param sentinels Sentinel地址(ip:port,逗号分隔)
+         */
+        public Builder sentinel(String master, String sentinels) {
+            this.sentinelMaster = master;
+            this.sentinelNodes = sentinels;
+            return this;
+        }
+
+        public Builder batchChunkSize(int batchChunkSize) {
+            this.batchChunkSize = batchChunkSize;
+            return this;
+        }
+
+        public Builder batchParallelism(int batchParallelism) {
+            this.batchParallelism = batchParallelism;
+            return this;
+        }
+
+        public Builder hashChunkSize(int hashChunkSize) {
+            this.hashChunkSize = hashChunkSize;
+            return this;
+        }
+
+        public Builder pipelineFlushSize(int pipelineFlushSize) {
+            this.pipelineFlushSize = pipelineFlushSize;
+            return this;
+        }
+
+        public Builder transactionMaxRetries(int transactionMaxRetries) {
+            this.transactionMaxRetries = transactionMaxRetries;
+            return this;
+        }
+
+        public Builder transactionBackoffMillis(long transactionBackoffMillis) {
+            this.transactionBackoffMillis = transactionBackoffMillis;
+            return this;
+        }
+
+        public Builder scanCount(int scanCount) {
+            this.scanCount = scanCount;
+            return this;
+        }
+
+        public Builder scanDeleteBatchSize(int scanDeleteBatchSize) {
+            this.scanDeleteBatchSize = scanDeleteBatchSize;
+            return this;
+        }
+
+        public Builder scanDeleteRatePerSecond(double scanDeleteRatePerSecond) {
+            this.scanDeleteRatePerSecond = scanDeleteRatePerSecond;
+            return this;
+        }
+
+        public Builder metricsCommandsEnabled(boolean metricsCommandsEnabled) {
+            this.metricsCommandsEnabled = metricsCommandsEnabled;
+            return this;
+        }
+
+        public Builder metricsJmxEnabled(boolean metricsJmxEnabled) {
+            this.metricsJmxEnabled = metricsJmxEnabled;
+            return this;
+        }
+
+        public Builder slowLogEnabled(boolean slowLogEnabled) {
+            this.slowLogEnabled = slowLogEnabled;
+            return this;
+        }
+
+        public Builder slowLogThresholdMillis(long slowLogThresholdMillis) {
+            this.slowLogThresholdMillis = slowLogThresholdMillis;
+            return this;
+        }
+
+        public Builder slowLogCapacity(int slowLogCapacity) {
+            this.slowLogCapacity = slowLogCapacity;
+            return this;
+        }
+
+        public Builder slowLogStackDepth(int slowLogStackDepth) {
+            this.slowLogStackDepth = slowLogStackDepth;
+            return this;
+        }
+
+        public Builder healthFailureThreshold(int healthFailureThreshold) {
+            this.healthFailureThreshold = healthFailureThreshold;
+            return this;
+        }
+
+        public Builder healthBackoffMillis(long healthBackoffMillis) {
+            this.healthBackoffMillis = healthBackoffMillis;
+            return this;
+        }
+
+        public Builder healthMaxBackoffMillis(long healthMaxBackoffMillis) {
+            this.healthMaxBackoffMillis = healthMaxBackoffMillis;
+            return this;
+        }
+
+        public Builder asyncThreads(int asyncThreads) {
+            this.asyncThreads = asyncThreads;
+            return this;
+        }
+
+        public Builder asyncQueueSize(int asyncQueueSize) {
+            this.asyncQueueSize = asyncQueueSize;
+            return this;
+        }
+
+        public Builder nioConnections(int nioConnections) {
+            this.nioConnections = nioConnections;
+            return this;
+        }
+
+        public Builder nioBufferSize(int nioBufferSize) {
+            this.nioBufferSize = nioBufferSize;
+            return this;
+        }
+
+        public Builder nioQueueSize(int nioQueueSize) {
+            this.nioQueueSize = nioQueueSize;
+            return this;
+        }
+
+        public Builder autoPipelineConnections(int autoPipelineConnections) {
+            this.autoPipelineConnections = autoPipelineConnections;
+            return this;
+        }
+
+        public Builder autoPipelineMaxBatch(int autoPipelineMaxBatch) {
+            this.autoPipelineMaxBatch = autoPipelineMaxBatch;
+            return this;
+        }
+
+        public Builder autoPipelineQueueSize(int autoPipelineQueueSize) {
+            this.autoPipelineQueueSize = autoPipelineQueueSize;
+            return this;
+        }
+
+        /**
+         * 生成配置
+         *
+         * @return 配置
+         * @throws IllegalArgumentException 未指定地址(host、集群、分片或Sentinel之一)或参数不合法
+         */
+        public RedisClientConfig build() {
+            if (name == null) {
+                //同名实例的JMX指标名相同,后注册的会被忽略
+                name = "client-" + UNNAMED.incrementAndGet();
+            }
+            if (name.trim().isEmpty()) {
+                throw new IllegalArgumentException("Redis客户端名称不能为空");
+            }
+            if (!isConfigured(host) && !isConfigured(clusterNodes) && !isConfigured(shards)
+                    && !isConfigured(sentinelMaster)) {
+                throw new IllegalArgumentException("Redis客户端" + name + "未指定地址(host、集群、分片或Sentinel)");
+            }
+            if (isConfigured(sentinelMaster) && !isConfigured(sentinelNodes)) {
+                throw new IllegalArgumentException("Redis客户端" + name + "未指定Sentinel地址");
+            }
+            if (maxTotal == 0 || timeout < 0) {
+                throw new IllegalArgumentException("Redis客户端" + name + "连接池参数不合法");
+            }
+            return create();
+        }
+
+        /**
+         * 不校验,默认实例的地址在首次使用时才检查
+         */
+        private RedisClientConfig create() {
+            return new RedisClientConfig(this);
+        }
+    }
+}
@@ -11,10 +11,26 @@
 package com.nfbank.common.utils.redis;
 
 import com.alibaba.fastjson.JSON;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 
 /**
@@ -35,203 +51,962 @@ import java.util.Properties;
 @Slf4j
 public class RedisConfig {
     private static final byte[] lock = new byte[0];
+    private static final String RESOURCE = "redis.properties";
     /**
-     * 最大连接数
+     * 配置变化监听者,参数为有变化的配置项
      */
-    private static Integer maxTotal;
+    private static final List<Consumer<Set<String>>> listeners = new CopyOnWriteArrayList<Consumer<Set<String>>>();
     /**
-     * 最大空闲连接数
+     * 当前配置。每次修改都整体发布一份新的快照,读取方不需要加锁,也不会读到修改了一半的配置
      */
-    private static Integer maxIdle;
-    /**
-     * 初始化连接数量
-     */
-    private static Integer minIdle;
-    /**
-     * 表示borrowJedis实例等待间超等待间则直接抛JedisConnectionException
-     */
-    private static Long maxWaitMillis;
+    private static volatile Snapshot current = new Snapshot();
+
+    static {
+        try {
+            //双重验证
+            if (current.properties == null) {
+                synchronized (lock) {
+                    if (current.properties == null) {
+                        apply(read());
+                        log.info("初始化Redis配置信息为：{}",JSON.toJSONString(current.properties));
+                        watch();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Properties read() throws IOException {
+        Properties loaded = new Properties();
+        try (InputStream stream = RedisConfig.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (stream == null) {
+                throw new IOException("classpath中找不到" + RESOURCE);
+            }
+            loaded.load(stream);
+        }
+        return loaded;
+    }
+
     /**
-     * 超时
+     * 解析配置并发布新的快照;解析失败时抛出异常,不修改当前配置
      */
-    private static Integer timeout;
+    private static void apply(Properties pro) {
+        Integer maxTotal = Integer.parseInt(pro.getProperty("redis.pool.maxTotal", "10000"));
+        Integer maxIdle = Integer.parseInt(pro.getProperty("redis.pool.maxIdle", "10000"));
+        Integer minIdle = Integer.parseInt(pro.getProperty("redis.pool.minIdle", "100"));
+        Long maxWait = Long.parseLong(pro.getProperty("redis.pool.maxWait", "1000"));
+        Integer retryNum = Integer.parseInt(pro.getProperty("redis.pool.retryNum", "2"));
+        Integer timeout = Integer.parseInt(pro.getProperty("redis.pool.timeout", "10000"));
+        Boolean testOnBorrow = Boolean.parseBoolean(pro.getProperty("redis.pool.testOnBorrow", "true"));
+        Boolean testOnReturn = Boolean.parseBoolean(pro.getProperty("redis.pool.testOnReturn", "true"));
+        Boolean testWhileIdle = Boolean.parseBoolean(pro.getProperty("redis.pool.testWhileIdle", "true"));
+        ValidationMode validationMode = ValidationMode.parse(pro.getProperty("redis.pool.validation", "always"));
+        Long validationIdleMillis = Long.parseLong(pro.getProperty("redis.pool.validationIdleMillis", "30000"));
+        Integer asyncThreads = Integer.parseInt(pro.getProperty("redis.async.threads", "32"));
+        Integer asyncQueueSize = Integer.parseInt(pro.getProperty("redis.async.queueSize", "10000"));
+        Boolean warmUpEnabled = Boolean.parseBoolean(pro.getProperty("redis.warmup.enabled", "false"));
+        Boolean warmUpBlocking = Boolean.parseBoolean(pro.getProperty("redis.warmup.blocking", "true"));
+        Long warmUpTimeoutMillis = Long.parseLong(pro.getProperty("redis.warmup.timeoutMillis", "10000"));
+        Integer healthFailureThreshold = Integer.parseInt(pro.getProperty("redis.health.failureThreshold", "3"));
+        Long healthBackoffMillis = Long.parseLong(pro.getProperty("redis.health.backoffMillis", "200"));
+        Long healthMaxBackoffMillis = Long.parseLong(pro.getProperty("redis.health.maxBackoffMillis", "30000"));
+        Boolean autoPipelineEnabled = Boolean.parseBoolean(pro.getProperty("redis.autoPipeline.enabled", "false"));
+        Integer autoPipelineConnections = Integer.parseInt(pro.getProperty("redis.autoPipeline.connections", "4"));
+        Integer autoPipelineMaxBatch = Integer.parseInt(pro.getProperty("redis.autoPipeline.maxBatch", "128"));
+        Integer autoPipelineQueueSize = Integer.parseInt(pro.getProperty("redis.autoPipeline.queueSize", "10000"));
+        Transport transport = Transport.parse(pro.getProperty("redis.transport", "blocking"));
+        Integer nioConnections = Integer.parseInt(pro.getProperty("redis.nio.connections", "2"));
+        Integer nioBufferSize = Integer.parseInt(pro.getProperty("redis.nio.bufferSize", "65536"));
+        Integer nioQueueSize = Integer.parseInt(pro.getProperty("redis.nio.queueSize", "10000"));
+        Boolean metricsJmxEnabled = Boolean.parseBoolean(pro.getProperty("redis.metrics.jmx", "true"));
+        Boolean metricsCommandsEnabled = Boolean.parseBoolean(pro.getProperty("redis.metrics.commands", "true"));
+        Boolean slowLogEnabled = Boolean.parseBoolean(pro.getProperty("redis.slowlog.enabled", "false"));
+        Long slowLogThresholdMillis = Long.parseLong(pro.getProperty("redis.slowlog.thresholdMillis", "10"));
+        Integer slowLogCapacity = Integer.parseInt(pro.getProperty("redis.slowlog.capacity", "128"));
+        Integer slowLogStackDepth = Integer.parseInt(pro.getProperty("redis.slowlog.stackDepth", "8"));
+        String bulkheadNames = pro.getProperty("redis.bulkhead.names", "");
+        String replicas = pro.getProperty("redis.replicas", "");
+        ReadStrategy replicaStrategy = ReadStrategy.parse(pro.getProperty("redis.replicas.strategy", "round-robin"));
+        String clusterNodes = pro.getProperty("redis.cluster.nodes", "");
+        Integer clusterMaxRedirects = Integer.parseInt(pro.getProperty("redis.cluster.maxRedirects", "5"));
+        String shards = pro.getProperty("redis.shards", "");
+        Integer shardVirtualNodes = Integer.parseInt(pro.getProperty("redis.shards.virtualNodes", "160"));
+        String sentinelMaster = pro.getProperty("redis.sentinel.master", "");
+        String sentinelNodes = pro.getProperty("redis.sentinel.nodes", "");
+        Long configWatchIntervalMillis = Long.parseLong(pro.getProperty("redis.config.watchIntervalMillis", "0"));
+        Integer batchChunkSize = Integer.parseInt(pro.getProperty("redis.batch.chunkSize", "500"));
+        Integer batchParallelism = Integer.parseInt(pro.getProperty("redis.batch.parallelism", "4"));
+        Integer hashChunkSize = Integer.parseInt(pro.getProperty("redis.hash.chunkSize", "500"));
+        Integer pipelineFlushSize = Integer.parseInt(pro.getProperty("redis.pipeline.flushSize", "1000"));
+        Integer transactionMaxRetries = Integer.parseInt(pro.getProperty("redis.transaction.maxRetries", "5"));
+        Long transactionBackoffMillis = Long.parseLong(pro.getProperty("redis.transaction.backoffMillis", "2"));
+        Integer scanCount = Integer.parseInt(pro.getProperty("redis.scan.count", "1000"));
+        Integer scanDeleteBatchSize = Integer.parseInt(pro.getProperty("redis.scan.deleteBatchSize", "500"));
+        Double scanDeleteRatePerSecond = Double.parseDouble(pro.getProperty("redis.scan.deleteRatePerSecond", "0"));
+        int dbaIndex = Integer.parseInt(pro.getProperty("redis.index", "0"));
+        String ip = pro.getProperty("redis.ip");
+        Integer port = Integer.parseInt(pro.getProperty("redis.port"));
+        String password = pro.getProperty("redis.password");
+
+        Snapshot next = new Snapshot();
+        next.maxTotal = maxTotal;
+        next.maxIdle = maxIdle;
+        next.minIdle = minIdle;
+        next.maxWaitMillis = maxWait;
+        next.timeout = timeout;
+        next.retryNum = retryNum;
+        next.testOnBorrow = testOnBorrow;
+        next.testOnReturn = testOnReturn;
+        next.testWhileIdle = testWhileIdle;
+        next.validationMode = validationMode;
+        next.validationIdleMillis = validationIdleMillis;
+        next.asyncThreads = asyncThreads;
+        next.asyncQueueSize = asyncQueueSize;
+        next.warmUpEnabled = warmUpEnabled;
+        next.warmUpBlocking = warmUpBlocking;
+        next.warmUpTimeoutMillis = warmUpTimeoutMillis;
+        next.healthFailureThreshold = healthFailureThreshold;
+        next.healthBackoffMillis = healthBackoffMillis;
+        next.healthMaxBackoffMillis = healthMaxBackoffMillis;
+        next.autoPipelineEnabled = autoPipelineEnabled;
+        next.autoPipelineConnections = autoPipelineConnections;
+        next.autoPipelineMaxBatch = autoPipelineMaxBatch;
+        next.autoPipelineQueueSize = autoPipelineQueueSize;
+        next.transport = transport;
+        next.nioConnections = nioConnections;
+        next.nioBufferSize = nioBufferSize;
+        next.nioQueueSize = nioQueueSize;
+        next.metricsJmxEnabled = metricsJmxEnabled;
+        next.metricsCommandsEnabled = metricsCommandsEnabled;
+        next.slowLogEnabled = slowLogEnabled;
+        next.slowLogThresholdMillis = slowLogThresholdMillis;
+        next.slowLogCapacity = slowLogCapacity;
+        next.slowLogStackDepth = slowLogStackDepth;
+        next.bulkheadNames = bulkheadNames;
+        next.replicas = replicas;
+        next.replicaStrategy = replicaStrategy;
+        next.clusterNodes = clusterNodes;
+        next.clusterMaxRedirects = clusterMaxRedirects;
+        next.shards = shards;
+        next.shardVirtualNodes = shardVirtualNodes;
+        next.sentinelMaster = sentinelMaster;
+        next.sentinelNodes = sentinelNodes;
+        next.configWatchIntervalMillis = configWatchIntervalMillis;
+        next.batchChunkSize = batchChunkSize;
+        next.batchParallelism = batchParallelism;
+        next.hashChunkSize = hashChunkSize;
+        next.pipelineFlushSize = pipelineFlushSize;
+        next.transactionMaxRetries = transactionMaxRetries;
+        next.transactionBackoffMillis = transactionBackoffMillis;
+        next.scanCount = scanCount;
+        next.scanDeleteBatchSize = scanDeleteBatchSize;
+        next.scanDeleteRatePerSecond = scanDeleteRatePerSecond;
+        next.ip = ip;
+        next.port = port;
+        next.dbIndex = dbaIndex;
+        next.password = password != null && password.length() > 0 ? password : null;
+        next.properties = pro;
+        current = next;
+    }
+
     /**
-     * 重试连接次数
+     * 重新读取redis.properties,有变化时更新配置并通知监听者(连接池大小、超时、地址等随即对现有连接池生效)
+     *
+     * @return 有变化的配置项
+     * @throws IOException 读取失败
      */
-    private static Integer retryNum;
+    public static Set<String> reload() throws IOException {
+        return replace(read());
+    }
+
     /**
-     * borrow jedis实例是否提前进行alidate操作(检查连接可用性,采用ping命令)；true则jedis实例均用
+     * 在当前配置上修改部分配置项,有变化时更新配置并通知监听者;只修改内存中的配置,不写回文件
+     *
+     * @param changes 配置项到新值的映射
+     * @return 有变化的配置项
      */
-    private static Boolean testOnBorrow;
+    public static Set<String> update(Map<String, String> changes) {
+        Properties next = new Properties();
+        next.putAll(current.properties);
+        next.putAll(changes);
+        return replace(next);
+    }
+
+    private static Set<String> replace(Properties next) {
+        Set<String> changed;
+        synchronized (lock) {
+            changed = diff(current.properties, next);
+            if (changed.isEmpty()) {
+                return changed;
+            }
+            apply(next);
+        }
+        log.info("Redis配置已更新：{}", changed);
+        for (Consumer<Set<String>> listener : listeners) {
+            try {
+                listener.accept(changed);
+            } catch (RuntimeException e) {
+                log.error("Redis配置变化处理失败", e);
+            }
+        }
+        return changed;
+    }
+
     /**
-     * return给pool是否提前进行validate操作(检查连接可用性,采用ping命令)
+     * 两份配置中值不同的配置项(含新增、删除的)
      */
-    private static Boolean testOnReturn;
+    static Set<String> diff(Properties previous, Properties next) {
+        Set<String> keys = new TreeSet<String>(previous.stringPropertyNames());
+        keys.addAll(next.stringPropertyNames());
+        Set<String> changed = new TreeSet<String>();
+        for (String key : keys) {
+            if (!Objects.equals(previous.getProperty(key), next.getProperty(key))) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
     /**
-     * idle状态监测用异步线程evict进行检查
+     * 注册配置变化监听者,在{@link #reload()}或{@link #update(Map)}的调用线程中执行
+     *
+     * @param listener 参数为有变化的配置项
      */
-    private static Boolean testWhileIdle;
-    private static String ip;
-    private static Integer port;
-    private static Properties pro;
-    private static String password;
+    public static void addListener(Consumer<Set<String>> listener) {
+        listeners.add(listener);
+    }
+
     /**
-     * 数据库索引(默认存储在第0个)
+     * redis.config.watchIntervalMillis大于0且redis.properties是普通文件(不在jar包中)时,按间隔检查文件修改时间,修改后重新读取
      */
-    private static int dbIndex;
-
-    static {
-        try {
-            //双重验证
-            if (pro == null) {
-                synchronized (lock) {
-                    if (pro == null) {
-                        pro = new Properties();
-                        InputStream stream = new RedisConfig().getClass().getClassLoader()
-                                .getResourceAsStream("redis.properties");
-                        pro.load(stream);
-                        Integer maxTotal = Integer.parseInt(pro.getProperty("redis.pool.maxTotal", "10000"));
-                        Integer maxIdle = Integer.parseInt(pro.getProperty("redis.pool.maxIdle", "10000"));
-                        Integer minIdle = Integer.parseInt(pro.getProperty("redis.pool.minIdle", "100"));
-                        Long maxWait = Long.parseLong(pro.getProperty("redis.pool.maxWait", "1000"));
-                        Integer retryNum = Integer.parseInt(pro.getProperty("redis.pool.retryNum", "2"));
-                        Integer timeout = Integer.parseInt(pro.getProperty("redis.pool.timeout", "10000"));
-                        Boolean testOnBorrow = Boolean.parseBoolean(pro.getProperty("redis.pool.testOnBorrow", "true"));
-                        Boolean testOnReturn = Boolean.parseBoolean(pro.getProperty("redis.pool.testOnReturn", "true"));
-                        Boolean testWhileIdle = Boolean.parseBoolean(pro.getProperty("redis.pool.testWhileIdle", "true"));
-                        int dbaIndex = Integer.parseInt(pro.getProperty("redis.index", "0"));
-                        String ip = pro.getProperty("redis.ip");
-                        Integer port = Integer.parseInt(pro.getProperty("redis.port"));
-                        String password = pro.getProperty("redis.password");
-
-
-                        setMaxTotal(maxTotal);
-                        setMaxIdle(maxIdle);
-                        setMinIdle(minIdle);
-                        setMaxWaitMillis(maxWait);
-                        setTimeout(timeout);
-                        setRetryNum(retryNum);
-                        setTestOnBorrow(testOnBorrow);
-                        setTestOnReturn(testOnReturn);
-                        setTestWhileIdle(testWhileIdle);
-                        setIp(ip);
-                        setPort(port);
-                        setDbIndex(dbaIndex);
-                        if (password != null & password.length() > 0) {
-                            setPassword(password);
-                        }
-
-                        log.info("初始化Redis配置信息为：{}",JSON.toJSONString(pro));
-                    }
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    private static void watch() throws URISyntaxException {
+        long interval = current.configWatchIntervalMillis;
+        if (interval <= 0) {
+            return;
         }
+        URL url = RedisConfig.class.getClassLoader().getResource(RESOURCE);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            log.warn("{}不是文件,不检查配置修改：{}", RESOURCE, url);
+            return;
+        }
+        File file = new File(url.toURI());
+        AtomicLong lastModified = new AtomicLong(file.lastModified());
+        ScheduledExecutorService watcher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("redis-config-watcher-%d").setDaemon(true).build());
+        watcher.scheduleWithFixedDelay(() -> {
+            long modified = file.lastModified();
+            if (modified == lastModified.getAndSet(modified)) {
+                return;
+            }
+            try {
+                reload();
+            } catch (Exception e) {
+                log.error("重新读取{}失败,继续使用原配置", RESOURCE, e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
     }
 
     public static Integer getMaxTotal() {
-        return maxTotal;
+        return current.maxTotal;
     }
 
     public static void setMaxTotal(Integer maxTotal) {
-        RedisConfig.maxTotal = maxTotal;
+        modify(snapshot -> snapshot.maxTotal = maxTotal);
     }
 
     public static Integer getMaxIdle() {
-        return maxIdle;
+        return current.maxIdle;
     }
 
     public static void setMaxIdle(Integer maxIdle) {
-        RedisConfig.maxIdle = maxIdle;
+        modify(snapshot -> snapshot.maxIdle = maxIdle);
     }
 
     public static Long getMaxWaitMillis() {
-        return maxWaitMillis;
+        return current.maxWaitMillis;
     }
 
     public static void setMaxWaitMillis(Long maxWaitMillis) {
-        RedisConfig.maxWaitMillis = maxWaitMillis;
+        modify(snapshot -> snapshot.maxWaitMillis = maxWaitMillis);
     }
 
     public static Integer getTimeout() {
-        return timeout;
+        return current.timeout;
     }
 
     public static void setTimeout(Integer timeout) {
-        RedisConfig.timeout = timeout;
+        modify(snapshot -> snapshot.timeout = timeout);
     }
 
     public static Integer getRetryNum() {
-        return retryNum;
+        return current.retryNum;
     }
 
     public static void setRetryNum(Integer retryNum) {
-        RedisConfig.retryNum = retryNum;
+        modify(snapshot -> snapshot.retryNum = retryNum);
     }
 
     public static String getIp() {
-        return ip;
+        return current.ip;
     }
 
     public static void setIp(String ip) {
-        RedisConfig.ip = ip;
+        modify(snapshot -> snapshot.ip = ip);
     }
 
     public static Integer getPort() {
-        return port;
+        return current.port;
     }
 
     public static void setPort(Integer port) {
-        RedisConfig.port = port;
+        modify(snapshot -> snapshot.port = port);
     }
 
     public static String getPassword() {
-        return password;
+        return current.password;
     }
 
     public static void setPassword(String password) {
-        RedisConfig.password = password;
+        modify(snapshot -> snapshot.password = password);
     }
 
     public static Integer getMinIdle() {
-        return minIdle;
+        return current.minIdle;
     }
 
     public static void setMinIdle(Integer minIdle) {
-        RedisConfig.minIdle = minIdle;
+        modify(snapshot -> snapshot.minIdle = minIdle);
     }
 
     public static Boolean getTestOnBorrow() {
-        return testOnBorrow;
+        return current.testOnBorrow;
     }
 
     public static void setTestOnBorrow(Boolean testOnBorrow) {
-        RedisConfig.testOnBorrow = testOnBorrow;
+        modify(snapshot -> snapshot.testOnBorrow = testOnBorrow);
     }
 
     public static Boolean getTestOnReturn() {
-        return testOnReturn;
+        return current.testOnReturn;
     }
 
     public static void setTestOnReturn(Boolean testOnReturn) {
-        RedisConfig.testOnReturn = testOnReturn;
+        modify(snapshot -> snapshot.testOnReturn = testOnReturn);
     }
 
     public static Boolean getTestWhileIdle() {
-        return testWhileIdle;
+        return current.testWhileIdle;
     }
 
     public static void setTestWhileIdle(Boolean testWhileIdle) {
-        RedisConfig.testWhileIdle = testWhileIdle;
+        modify(snapshot -> snapshot.testWhileIdle = testWhileIdle);
+    }
+
+    public static ValidationMode getValidationMode() {
+        return current.validationMode;
+    }
+
+    public static void setValidationMode(ValidationMode validationMode) {
+        modify(snapshot -> snapshot.validationMode = validationMode);
+    }
+
+    public static Long getValidationIdleMillis() {
+        return current.validationIdleMillis;
+    }
+
+    public static void setValidationIdleMillis(Long validationIdleMillis) {
+        modify(snapshot -> snapshot.validationIdleMillis = validationIdleMillis);
+    }
+
+    public static Integer getAsyncThreads() {
+        return current.asyncThreads;
+    }
+
+    public static void setAsyncThreads(Integer asyncThreads) {
+        modify(snapshot -> snapshot.asyncThreads = asyncThreads);
+    }
+
+    public static Integer getAsyncQueueSize() {
+        return current.asyncQueueSize;
+    }
+
+    public static void setAsyncQueueSize(Integer asyncQueueSize) {
+        modify(snapshot -> snapshot.asyncQueueSize = asyncQueueSize);
+    }
+
+    public static Boolean getWarmUpEnabled() {
+        return current.warmUpEnabled;
+    }
+
+    public static void setWarmUpEnabled(Boolean warmUpEnabled) {
+        modify(snapshot -> snapshot.warmUpEnabled = warmUpEnabled);
+    }
+
+    public static Boolean getWarmUpBlocking() {
+        return current.warmUpBlocking;
+    }
+
+    public static void setWarmUpBlocking(Boolean warmUpBlocking) {
+        modify(snapshot -> snapshot.warmUpBlocking = warmUpBlocking);
+    }
+
+    public static Long getWarmUpTimeoutMillis() {
+        return current.warmUpTimeoutMillis;
+    }
+
+    public static void setWarmUpTimeoutMillis(Long warmUpTimeoutMillis) {
+        modify(snapshot -> snapshot.warmUpTimeoutMillis = warmUpTimeoutMillis);
+    }
+
+    public static Integer getHealthFailureThreshold() {
+        return current.healthFailureThreshold;
+    }
+
+    public static void setHealthFailureThreshold(Integer healthFailureThreshold) {
+        modify(snapshot -> snapshot.healthFailureThreshold = healthFailureThreshold);
+    }
+
+    public static Long getHealthBackoffMillis() {
+        return current.healthBackoffMillis;
+    }
+
+    public static void setHealthBackoffMillis(Long healthBackoffMillis) {
+        modify(snapshot -> snapshot.healthBackoffMillis = healthBackoffMillis);
+    }
+
+    public static Long getHealthMaxBackoffMillis() {
+        return current.healthMaxBackoffMillis;
+    }
+
+    public static void setHealthMaxBackoffMillis(Long healthMaxBackoffMillis) {
+        modify(snapshot -> snapshot.healthMaxBackoffMillis = healthMaxBackoffMillis);
+    }
+
+    /**
+     * 读取redis.properties中的任意配置项,用于名称不固定的配置(如redis.bulkhead.&lt;name&gt;.maxConcurrent)
+     *
+     * @param key          配置项
+     * @param defaultValue 默认值
+     * @return 配置值
+     */
+    public static String getProperty(String key, String defaultValue) {
+        Properties properties = current.properties;
+        return properties == null ? defaultValue : properties.getProperty(key, defaultValue);
     }
 
     public static int getDbIndex() {
-        return dbIndex;
+        return current.dbIndex;
     }
 
     public static void setDbIndex(int dbIndex) {
-        RedisConfig.dbIndex = dbIndex;
+        modify(snapshot -> snapshot.dbIndex = dbIndex);
+    }
+
+    public static Boolean getAutoPipelineEnabled() {
+        return current.autoPipelineEnabled;
+    }
+
+    public static void setAutoPipelineEnabled(Boolean autoPipelineEnabled) {
+        modify(snapshot -> snapshot.autoPipelineEnabled = autoPipelineEnabled);
+    }
+
+    public static Integer getAutoPipelineConnections() {
+        return current.autoPipelineConnections;
+    }
+
+    public static void setAutoPipelineConnections(Integer autoPipelineConnections) {
+        modify(snapshot -> snapshot.autoPipelineConnections = autoPipelineConnections);
+    }
+
+    public static Integer getAutoPipelineMaxBatch() {
+        return current.autoPipelineMaxBatch;
+    }
+
+    public static void setAutoPipelineMaxBatch(Integer autoPipelineMaxBatch) {
+        modify(snapshot -> snapshot.autoPipelineMaxBatch = autoPipelineMaxBatch);
+    }
+
+    public static Integer getAutoPipelineQueueSize() {
+        return current.autoPipelineQueueSize;
+    }
+
+    public static void setAutoPipelineQueueSize(Integer autoPipelineQueueSize) {
+        modify(snapshot -> snapshot.autoPipelineQueueSize = autoPipelineQueueSize);
+    }
+
+    public static Transport getTransport() {
+        return current.transport;
+    }
+
+    public static void setTransport(Transport transport) {
+        modify(snapshot -> snapshot.transport = transport);
+    }
+
+    public static Integer getNioConnections() {
+        return current.nioConnections;
+    }
+
+    public static void setNioConnections(Integer nioConnections) {
+        modify(snapshot -> snapshot.nioConnections = nioConnections);
+    }
+
+    public static Integer getNioBufferSize() {
+        return current.nioBufferSize;
+    }
+
+    public static void setNioBufferSize(Integer nioBufferSize) {
+        modify(snapshot -> snapshot.nioBufferSize = nioBufferSize);
+    }
+
+    public static Integer getNioQueueSize() {
+        return current.nioQueueSize;
+    }
+
+    public static void setNioQueueSize(Integer nioQueueSize) {
+        modify(snapshot -> snapshot.nioQueueSize = nioQueueSize);
+    }
+
+    public static Boolean getMetricsJmxEnabled() {
+        return current.metricsJmxEnabled;
+    }
+
+    public static void setMetricsJmxEnabled(Boolean metricsJmxEnabled) {
+        modify(snapshot -> snapshot.metricsJmxEnabled = metricsJmxEnabled);
+    }
+
+    public static Boolean getMetricsCommandsEnabled() {
+        return current.metricsCommandsEnabled;
+    }
+
+    public static void setMetricsCommandsEnabled(Boolean metricsCommandsEnabled) {
+        modify(snapshot -> snapshot.metricsCommandsEnabled = metricsCommandsEnabled);
+    }
+
+    public static Boolean getSlowLogEnabled() {
+        return current.slowLogEnabled;
+    }
+
+    public static void setSlowLogEnabled(Boolean slowLogEnabled) {
+        modify(snapshot -> snapshot.slowLogEnabled = slowLogEnabled);
+    }
+
+    public static Long getSlowLogThresholdMillis() {
+        return current.slowLogThresholdMillis;
+    }
+
+    public static void setSlowLogThresholdMillis(Long slowLogThresholdMillis) {
+        modify(snapshot -> snapshot.slowLogThresholdMillis = slowLogThresholdMillis);
+    }
+
+    public static Integer getSlowLogCapacity() {
+        return current.slowLogCapacity;
+    }
+
+    public static void setSlowLogCapacity(Integer slowLogCapacity) {
+        modify(snapshot -> snapshot.slowLogCapacity = slowLogCapacity);
+    }
+
+    public static Integer getSlowLogStackDepth() {
+        return current.slowLogStackDepth;
+    }
+
+    public static void setSlowLogStackDepth(Integer slowLogStackDepth) {
+        modify(snapshot -> snapshot.slowLogStackDepth = slowLogStackDepth);
+    }
+
+    public static String getBulkheadNames() {
+        return current.bulkheadNames;
+    }
+
+    public static void setBulkheadNames(String bulkheadNames) {
+        modify(snapshot -> snapshot.bulkheadNames = bulkheadNames);
+    }
+
+    public static String getReplicas() {
+        return current.replicas;
+    }
+
+    public static void setReplicas(String replicas) {
+        modify(snapshot -> snapshot.replicas = replicas);
+    }
+
+    public static ReadStrategy getReplicaStrategy() {
+        return current.replicaStrategy;
+    }
+
+    public static void setReplicaStrategy(ReadStrategy replicaStrategy) {
+        modify(snapshot -> snapshot.replicaStrategy = replicaStrategy);
+    }
+
+    public static String getClusterNodes() {
+        return current.clusterNodes;
+    }
+
+    public static void setClusterNodes(String clusterNodes) {
+        modify(snapshot -> snapshot.clusterNodes = clusterNodes);
+    }
+
+    public static Integer getClusterMaxRedirects() {
+        return current.clusterMaxRedirects;
+    }
+
+    public static void setClusterMaxRedirects(Integer clusterMaxRedirects) {
+        modify(snapshot -> snapshot.clusterMaxRedirects = clusterMaxRedirects);
+    }
+
+    public static String getShards() {
+        return current.shards;
+    }
+
+    public static void setShards(String shards) {
+        modify(snapshot -> snapshot.shards = shards);
+    }
+
+    public static Integer getShardVirtualNodes() {
+        return current.shardVirtualNodes;
+    }
+
+    public static void setShardVirtualNodes(Integer shardVirtualNodes) {
+        modify(snapshot -> snapshot.shardVirtualNodes = shardVirtualNodes);
+    }
+
+    public static String getSentinelMaster() {
+        return current.sentinelMaster;
+    }
+
+    public static void setSentinelMaster(String sentinelMaster) {
+        modify(snapshot -> snapshot.sentinelMaster = sentinelMaster);
+    }
+
+    public static String getSentinelNodes() {
+        return current.sentinelNodes;
+    }
+
+    public static void setSentinelNodes(String sentinelNodes) {
+        modify(snapshot -> snapshot.sentinelNodes = sentinelNodes);
+    }
+
+    public static Long getConfigWatchIntervalMillis() {
+        return current.configWatchIntervalMillis;
+    }
+
+    public static void setConfigWatchIntervalMillis(Long configWatchIntervalMillis) {
+        modify(snapshot -> snapshot.configWatchIntervalMillis = configWatchIntervalMillis);
+    }
+
+    public static Integer getBatchChunkSize() {
+        return current.batchChunkSize;
+    }
+
+    public static void setBatchChunkSize(Integer batchChunkSize) {
+        modify(snapshot -> snapshot.batchChunkSize = batchChunkSize);
+    }
+
+    public static Integer getBatchParallelism() {
+        return current.batchParallelism;
+    }
+
+    public static void setBatchParallelism(Integer batchParallelism) {
+        modify(snapshot -> snapshot.batchParallelism = batchParallelism);
+    }
+
+    public static Integer getHashChunkSize() {
+        return current.hashChunkSize;
+    }
+
+    public static void setHashChunkSize(Integer hashChunkSize) {
+        modify(snapshot -> snapshot.hashChunkSize = hashChunkSize);
+    }
+
+    public static Integer getPipelineFlushSize() {
+        return current.pipelineFlushSize;
+    }
+
+    public static void setPipelineFlushSize(Integer pipelineFlushSize) {
+        modify(snapshot -> snapshot.pipelineFlushSize = pipelineFlushSize);
+    }
+
+    public static Integer getTransactionMaxRetries() {
+        return current.transactionMaxRetries;
+    }
+
+    public static void setTransactionMaxRetries(Integer transactionMaxRetries) {
+        modify(snapshot -> snapshot.transactionMaxRetries = transactionMaxRetries);
+    }
+
+    public static Long getTransactionBackoffMillis() {
+        return current.transactionBackoffMillis;
+    }
+
+    public static void setTransactionBackoffMillis(Long transactionBackoffMillis) {
+        modify(snapshot -> snapshot.transactionBackoffMillis = transactionBackoffMillis);
+    }
+
+    public static Integer getScanCount() {
+        return current.scanCount;
+    }
+
+    public static void setScanCount(Integer scanCount) {
+        modify(snapshot -> snapshot.scanCount = scanCount);
+    }
+
+    public static Integer getScanDeleteBatchSize() {
+        return current.scanDeleteBatchSize;
+    }
+
+    public static void setScanDeleteBatchSize(Integer scanDeleteBatchSize) {
+        modify(snapshot -> snapshot.scanDeleteBatchSize = scanDeleteBatchSize);
+    }
+
+    public static Double getScanDeleteRatePerSecond() {
+        return current.scanDeleteRatePerSecond;
+    }
+
+    public static void setScanDeleteRatePerSecond(Double scanDeleteRatePerSecond) {
+        modify(snapshot -> snapshot.scanDeleteRatePerSecond = scanDeleteRatePerSecond);
+    }
+
+    /**
+     * 复制当前配置,修改后整体发布
+     */
+    private static void modify(Consumer<Snapshot> change) {
+        synchronized (lock) {
+            Snapshot next = current.copy();
+            change.accept(next);
+            current = next;
+        }
+    }
+
+    /**
+     * 一份完整的配置。发布到{@link #current}之后不再修改,修改配置时先复制再整体替换
+     */
+    private static final class Snapshot implements Cloneable {
+        /**
+         * 最大连接数
+         */
+        Integer maxTotal;
+        /**
+         * 最大空闲连接数
+         */
+        Integer maxIdle;
+        /**
+         * 初始化连接数量
+         */
+        Integer minIdle;
+        /**
+         * 表示borrowJedis实例等待间超等待间则直接抛JedisConnectionException
+         */
+        Long maxWaitMillis;
+        /**
+         * 超时
+         */
+        Integer timeout;
+        /**
+         * 重试连接次数
+         */
+        Integer retryNum;
+        /**
+         * borrow jedis实例是否提前进行alidate操作(检查连接可用性,采用ping命令)；true则jedis实例均用
+         */
+        Boolean testOnBorrow;
+        /**
+         * return给pool是否提前进行validate操作(检查连接可用性,采用ping命令)
+         */
+        Boolean testOnReturn;
+        /**
+         * idle状态监测用异步线程evict进行检查
+         */
+        Boolean testWhileIdle;
+        /**
+         * 连接校验方式
+         */
+        ValidationMode validationMode;
+        /**
+         * IDLE校验方式下,空闲超过该时间(毫秒)的连接借出前才执行PING
+         */
+        Long validationIdleMillis;
+        /**
+         * 异步命令线程数
+         */
+        Integer asyncThreads;
+        /**
+         * 异步命令等待队列长度
+         */
+        Integer asyncQueueSize;
+        /**
+         * Spring容器启动时是否预热连接池
+         */
+        Boolean warmUpEnabled;
+        /**
+         * 预热是否阻塞容器启动,直到预热完成或超时
+         */
+        Boolean warmUpBlocking;
+        /**
+         * 预热最长等待时间(毫秒)
+         */
+        Long warmUpTimeoutMillis;
+        /**
+         * 连续失败多少次后熔断
+         */
+        Integer healthFailureThreshold;
+        /**
+         * 熔断后探测及重试的基础退避间隔(毫秒),按指数增长
+         */
+        Long healthBackoffMillis;
+        /**
+         * 退避间隔上限(毫秒)
+         */
+        Long healthMaxBackoffMillis;
+        /**
+         * 是否开启自动管道
+         */
+        Boolean autoPipelineEnabled;
+        /**
+         * 自动管道每个节点的共享连接数
+         */
+        Integer autoPipelineConnections;
+        /**
+         * 自动管道单批最多发送的命令数
+         */
+        Integer autoPipelineMaxBatch;
+        /**
+         * 自动管道每个连接的等待队列长度
+         */
+        Integer autoPipelineQueueSize;
+        /**
+         * 命令传输方式
+         */
+        Transport transport;
+        /**
+         * NIO方式每个节点的连接数
+         */
+        Integer nioConnections;
+        /**
+         * NIO连接收发缓冲区初始大小(字节)
+         */
+        Integer nioBufferSize;
+        /**
+         * NIO每个连接的发送队列长度
+         */
+        Integer nioQueueSize;
+        /**
+         * 是否把连接池指标注册到JMX
+         */
+        Boolean metricsJmxEnabled;
+        /**
+         * 是否按命令名统计耗时
+         */
+        Boolean metricsCommandsEnabled;
+        /**
+         * 是否开启客户端慢日志
+         */
+        Boolean slowLogEnabled;
+        /**
+         * 慢日志阈值(毫秒)
+         */
+        Long slowLogThresholdMillis;
+        /**
+         * 慢日志保留的记录数
+         */
+        Integer slowLogCapacity;
+        /**
+         * 慢日志记录的调用栈深度
+         */
+        Integer slowLogStackDepth;
+        /**
+         * 隔离区名称,多个用逗号分隔
+         */
+        String bulkheadNames;
+        /**
+         * 从节点地址(ip:port,逗号分隔),配置后只读命令发往从节点
+         */
+        String replicas;
+        /**
+         * 从节点选择方式
+         */
+        ReadStrategy replicaStrategy;
+        /**
+         * 集群初始节点地址(ip:port,逗号分隔),配置后启用集群模式
+         */
+        String clusterNodes;
+        /**
+         * 集群模式下一条命令最多跟随的重定向次数
+         */
+        Integer clusterMaxRedirects;
+        /**
+         * 分片节点地址(ip:port,逗号分隔),配置后按一致性哈希把key分布到各节点
+         */
+        String shards;
+        /**
+         * 分片模式下每个节点的虚拟节点数
+         */
+        Integer shardVirtualNodes;
+        /**
+         * Sentinel中配置的主节点名,配置后通过Sentinel获取主节点
+         */
+        String sentinelMaster;
+        /**
+         * Sentinel地址(ip:port,逗号分隔)
+         */
+        String sentinelNodes;
+        /**
+         * 检查redis.properties是否修改的间隔(毫秒),0表示不检查
+         */
+        Long configWatchIntervalMillis;
+        /**
+         * 批量命令每个pipeline最多包含的key数
+         */
+        Integer batchChunkSize;
+        /**
+         * 批量命令最多同时使用的连接数
+         */
+        Integer batchParallelism;
+        /**
+         * hash批量写入时每条HMSET最多包含的字段数
+         */
+        Integer hashChunkSize;
+        /**
+         * pipeline中未读取应答的命令达到多少条时先发送并读取
+         */
+        Integer pipelineFlushSize;
+        /**
+         * 乐观锁事务冲突后的最大重试次数
+         */
+        Integer transactionMaxRetries;
+        /**
+         * 乐观锁事务冲突后重试的基础等待时间(毫秒)
+         */
+        Long transactionBackoffMillis;
+        /**
+         * 遍历key时每次SCAN的COUNT提示
+         */
+        Integer scanCount;
+        /**
+         * 按表达式删除时每次UNLINK的key数
+         */
+        Integer scanDeleteBatchSize;
+        /**
+         * 按表达式删除时每秒最多删除的key数,0表示不限速
+         */
+        Double scanDeleteRatePerSecond;
+        String ip;
+        Integer port;
+        Properties properties;
+        String password;
+        /**
+         * 数据库索引(默认存储在第0个)
+         */
+        int dbIndex;
+
+        Snapshot copy() {
+            try {
+                return (Snapshot) clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
     }
 
 }
@@ -0,0 +1,156 @@
+package com.nfbank.common.utils.redis;
+
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import redis.clients.jedis.Jedis;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 连接池的连接工厂。与Jedis自带的工厂行为一致(建连、认证、选库、归还前切回默认库),
+ * 区别在于校验连接时按{@link ValidationMode}决定是否真正发送PING,并把建连、销毁、校验失败和连接占用时间记入{@link PoolMetrics}。
+ */
+public class RedisConnectionFactory implements PooledObjectFactory<Jedis> {
+
+    private final String host;
+    private final int port;
+    private final int timeout;
+    private final String password;
+    private final int database;
+    private final ValidationMode validationMode;
+    /**
+     * 空闲超过该时间的连接在借出前才需要PING,仅IDLE模式有效
+     */
+    private final long validationIdleMillis;
+    private final PoolMetrics metrics;
+    /**
+     * 使用该工厂的连接池,用于连接数上限调小后销毁归还的多余连接
+     */
+    private volatile GenericObjectPool<Jedis> pool;
+
+    public RedisConnectionFactory(String host, int port, int timeout, String password, int database,
+                                  ValidationMode validationMode, long validationIdleMillis, PoolMetrics metrics) {
+        this.host = host;
+        this.port = port;
+        this.timeout = timeout;
+        this.password = password;
+        this.database = database;
+        this.validationMode = validationMode;
+        this.validationIdleMillis = validationIdleMillis;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 关联使用该工厂的连接池
+     */
+    void attach(GenericObjectPool<Jedis> pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public PooledObject<Jedis> makeObject() throws Exception {
+        Jedis jedis = new TracingJedis(host, port, timeout);
+        try {
+            jedis.connect();
+            if (password != null) {
+                jedis.auth(password);
+            }
+            if (database != 0) {
+                jedis.select(database);
+            }
+        } catch (Exception e) {
+            jedis.close();
+            throw e;
+        }
+        metrics.recordCreated();
+        return new TimedPooledObject(jedis);
+    }
+
+    @Override
+    public void destroyObject(PooledObject<Jedis> p) throws Exception {
+        metrics.recordDestroyed();
+        //借出中被销毁(连接异常)的连接也计入占用时间
+        recordHoldTime(p);
+        Jedis jedis = p.getObject();
+        if (jedis.isConnected()) {
+            try {
+                jedis.quit();
+            } catch (Exception ignored) {
+            }
+            try {
+                jedis.disconnect();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    @Override
+    public boolean validateObject(PooledObject<Jedis> p) {
+        Jedis jedis = p.getObject();
+        if (!jedis.isConnected()) {
+            metrics.recordValidationFailure();
+            return false;
+        }
+        if (validationMode == ValidationMode.LAZY
+                || (validationMode == ValidationMode.IDLE && p.getIdleTimeMillis() < validationIdleMillis)) {
+            return true;
+        }
+        boolean valid;
+        try {
+            valid = "PONG".equals(jedis.ping());
+        } catch (Exception e) {
+            valid = false;
+        }
+        if (!valid) {
+            metrics.recordValidationFailure();
+        }
+        return valid;
+    }
+
+    @Override
+    public void activateObject(PooledObject<Jedis> p) throws Exception {
+        ((TimedPooledObject) p).borrowNanos = System.nanoTime();
+        Jedis jedis = p.getObject();
+        if (jedis.getDB() != database) {
+            jedis.select(database);
+        }
+    }
+
+    @Override
+    public void passivateObject(PooledObject<Jedis> p) throws Exception {
+        recordHoldTime(p);
+        //连接数上限调小后,超出上限的连接在归还(或空闲检测)时由连接池销毁,连接总数逐步降到新的上限
+        GenericObjectPool<Jedis> owner = pool;
+        if (owner != null) {
+            int maxTotal = owner.getMaxTotal();
+            if (maxTotal >= 0 && owner.getCreatedCount() - owner.getDestroyedCount() > maxTotal) {
+                throw new IllegalStateException("连接数超过上限" + maxTotal + ",销毁该连接");
+            }
+        }
+    }
+
+    private void recordHoldTime(PooledObject<Jedis> p) {
+        TimedPooledObject timed = (TimedPooledObject) p;
+        if (timed.borrowNanos != 0) {
+            metrics.recordHoldTime(System.nanoTime() - timed.borrowNanos);
+            timed.borrowNanos = 0;
+        }
+    }
+
+    /**
+     * 记录借出时间的池对象,用于统计连接占用时间
+     */
+    private static class TimedPooledObject extends DefaultPooledObject<Jedis> {
+
+        /**
+         * 借出时的System.nanoTime(),未借出时为0
+         */
+        private volatile long borrowNanos;
+
+        TimedPooledObject(Jedis jedis) {
+            super(jedis);
+        }
+    }
+}
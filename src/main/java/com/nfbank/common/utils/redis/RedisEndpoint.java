@@ -0,0 +1,437 @@
+package com.nfbank.common.utils.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.NoSuchElementException;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * Redis节点(ip:port),持有该节点的连接池。
+ * <p>
+ * 连接池在首次使用时才创建,创建过程只锁当前节点:某个节点建连缓慢时,只有访问该节点的线程会等待,
+ * 其他节点的查找和使用不受影响。连接池创建成功后,读取只是一次volatile读。
+ */
+@Slf4j
+public class RedisEndpoint {
+
+    /**
+     * ip地址
+     */
+    private final String host;
+    /**
+     * 端口
+     */
+    private final int port;
+    /**
+     * 库
+     */
+    private final int database;
+    /**
+     * 节点标识,格式为ip:port,非0号库为ip:port/库
+     */
+    private final String key;
+    /**
+     * 连接池,延迟创建
+     */
+    private volatile JedisPool pool;
+    /**
+     * 共享连接通道(NIO或自动管道),延迟创建
+     */
+    private volatile CommandChannel channel;
+    /**
+     * 健康状态
+     */
+    private final EndpointHealth health = new EndpointHealth(this);
+    /**
+     * 连接池指标
+     */
+    private final PoolMetrics metrics = new PoolMetrics(this);
+    /**
+     * 所属客户端的配置(超时、密码、连接池参数),配置热更新时替换
+     */
+    private volatile RedisClientConfig config;
+
+    RedisEndpoint(String host, int port) {
+        this(host, port, RedisConfig.getDbIndex());
+    }
+
+    RedisEndpoint(String host, int port, int database) {
+        this(host, port, database, RedisClientConfig.defaults());
+    }
+
+    /**
+     * @param host     ip地址
+     * @param port     端口
+     * @param database 库,连接建立时选择,之后不再切换
+     * @param config   所属客户端的配置
+     */
+    RedisEndpoint(String host, int port, int database, RedisClientConfig config) {
+        this.host = host;
+        this.port = port;
+        this.database = database;
+        this.key = key(host, port, database);
+        this.config = config;
+    }
+
+    /**
+     * 生成节点标识
+     *
+     * @param host ip地址
+     * @param port 端口
+     * @return ip:port
+     */
+    static String key(String host, int port) {
+        return host + ":" + port;
+    }
+
+    /**
+     * 生成节点标识
+     *
+     * @param host     ip地址
+     * @param port     端口
+     * @param database 库
+     * @return 0号库为ip:port,其他库为ip:port/库
+     */
+    static String key(String host, int port, int database) {
+        return database == 0 ? key(host, port) : key(host, port) + "/" + database;
+    }
+
+    /**
+     * 获取连接池,首次调用时创建。节点熔断期间创建连接池会快速失败
+     *
+     * @return 连接池实例
+     */
+    public JedisPool getPool() {
+        JedisPool current = pool;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (pool == null) {
+                //等锁期间节点可能已经熔断,不再重复等待连接超时
+                health.checkAvailable();
+                try {
+                    pool = createPool();
+                } catch (JedisConnectionException e) {
+                    health.recordFailure(e);
+                    throw e;
+                }
+                health.recordSuccess();
+            }
+            return pool;
+        }
+    }
+
+    /**
+     * 从连接池获取连接,节点熔断时快速失败,获取连接失败计入健康状态
+     *
+     * @return 连接
+     */
+    public Jedis getResource() {
+        health.checkAvailable();
+        JedisPool current = getPool();
+        Jedis jedis;
+        long start = System.nanoTime();
+        try {
+            jedis = current.getResource();
+        } catch (JedisConnectionException e) {
+            health.recordFailure(e);
+            throw e;
+        } catch (JedisException e) {
+            if (e.getCause() instanceof NoSuchElementException) {
+                metrics.recordBorrowTimeout();
+            }
+            throw e;
+        } finally {
+            metrics.recordBorrowWait(System.nanoTime() - start);
+        }
+        health.recordSuccess();
+        return jedis;
+    }
+
+    /**
+     * 借用一个连接执行一条命令,执行完毕后归还
+     *
+     * @param command 命令
+     * @param args    参数
+     * @return 应答,格式与Protocol.read一致
+     */
+    Object execute(Protocol.Command command, byte[][] args) {
+        Jedis jedis = getResource();
+        try {
+            return TracingClient.of(jedis).execute(command, args);
+        } finally {
+            jedis.close();
+        }
+    }
+
+    /**
+     * 获取共享连接通道,首次调用时创建:NIO传输方式为{@link NioChannel},否则为{@link AutoPipelineChannel}。
+     * NIO通道的selector线程异常退出后重新创建
+     *
+     * @return 通道实例
+     */
+    public CommandChannel getChannel() {
+        CommandChannel current = channel;
+        if (current != null && !isDead(current)) {
+            return current;
+        }
+        synchronized (this) {
+            if (channel == null || isDead(channel)) {
+                if (config.getTransport() == Transport.NIO) {
+                    channel = new NioChannel(this, config.getNioConnections(),
+                            config.getNioBufferSize(), config.getNioQueueSize());
+                } else {
+                    channel = new AutoPipelineChannel(this, config.getAutoPipelineConnections(),
+                            config.getAutoPipelineMaxBatch(), config.getAutoPipelineQueueSize());
+                }
+            }
+            return channel;
+        }
+    }
+
+    private static boolean isDead(CommandChannel channel) {
+        return channel instanceof NioChannel && ((NioChannel) channel).isClosed();
+    }
+
+    /**
+     * 探测节点是否可用:连接池未创建时尝试创建,否则新建一个独立连接执行PING
+     */
+    void ping() {
+        if (pool == null) {
+            synchronized (this) {
+                if (pool == null) {
+                    pool = createPool();
+                    return;
+                }
+            }
+        }
+        RedisClientConfig current = config;
+        Jedis jedis = new Jedis(host, port, current.getTimeout());
+        try {
+            if (current.getPassword() != null) {
+                jedis.auth(current.getPassword());
+            }
+            jedis.ping();
+        } finally {
+            jedis.close();
+        }
+    }
+
+    /**
+     * 新建一个空闲连接,用于预热
+     *
+     * @throws Exception 建连失败
+     */
+    void addIdleConnection() throws Exception {
+        JedisPool current = getPool();
+        if (current instanceof RedisPool) {
+            ((RedisPool) current).addIdle();
+        }
+    }
+
+    /**
+     * 停止使用当前的共享通道和连接池(如主从切换后旧主节点):空闲连接立即销毁,借出中的连接归还时销毁,
+     * 通道在一个超时时间(redis.pool.timeout)后关闭,期间已发出的命令可以正常完成。之后再次使用该节点会重新创建
+     */
+    void drain() {
+        CommandChannel oldChannel;
+        JedisPool oldPool;
+        synchronized (this) {
+            oldChannel = channel;
+            oldPool = pool;
+            channel = null;
+            pool = null;
+        }
+        if (oldChannel != null) {
+            EndpointHealth.schedule(oldChannel::close, config.getTimeout());
+        }
+        if (oldPool != null) {
+            oldPool.close();
+        }
+    }
+
+    /**
+     * 立即关闭共享通道和连接池,用于关闭客户端
+     */
+    void close() {
+        CommandChannel oldChannel;
+        JedisPool oldPool;
+        synchronized (this) {
+            oldChannel = channel;
+            oldPool = pool;
+            channel = null;
+            pool = null;
+        }
+        if (oldChannel != null) {
+            oldChannel.close();
+        }
+        if (oldPool != null) {
+            oldPool.close();
+        }
+        metrics.unregister();
+    }
+
+    /**
+     * 按新配置调整已创建的连接池,不影响正在执行的命令
+     *
+     * @param config  新配置
+     * @param rebuild false时只调整连接数、等待时间等池参数;true时(超时、密码、校验方式变化)按新配置创建连接池替换旧池,
+     *                旧池的空闲连接立即销毁,借出中的连接归还时销毁。新池创建失败时继续使用旧池
+     */
+    void reconfigure(RedisClientConfig config, boolean rebuild) {
+        this.config = config;
+        JedisPool current = pool;
+        if (current == null) {
+            return;
+        }
+        if (!rebuild) {
+            try {
+                if (current instanceof RedisPool) {
+                    ((RedisPool) current).applyConfig(poolConfig(config));
+                }
+                log.info("Redis连接池已按新配置调整：{}", key);
+            } catch (Exception e) {
+                log.warn("Redis连接池按新配置补足空闲连接失败：{}", key, e);
+            }
+            return;
+        }
+        JedisPool created;
+        try {
+            created = createPool();
+        } catch (JedisConnectionException e) {
+            log.error("按新配置创建Redis连接池失败,继续使用原连接池：{}", key, e);
+            return;
+        }
+        synchronized (this) {
+            if (pool != current) {
+                //期间连接池已被替换或停用
+                created.close();
+                return;
+            }
+            pool = created;
+        }
+        current.close();
+    }
+
+    /**
+     * 连接池是否已经创建
+     *
+     * @return true已创建
+     */
+    public boolean isInitialized() {
+        return pool != null;
+    }
+
+    /**
+     * 按当前配置生成连接池参数
+     */
+    private static JedisPoolConfig poolConfig(RedisClientConfig client) {
+        JedisPoolConfig config = new JedisPoolConfig();
+        //最大连接数
+        config.setMaxTotal(client.getMaxTotal());
+        // 最大空闲连接数
+        config.setMaxIdle(client.getMaxIdle());
+        // 最大等待时间
+        config.setMaxWaitMillis(client.getMaxWaitMillis());
+        ValidationMode mode = client.getValidationMode();
+        if (mode == ValidationMode.ALWAYS) {
+            // 在获取连接的时候检查有效性,默认false
+            config.setTestOnBorrow(client.isTestOnBorrow());
+            config.setTestOnReturn(client.isTestOnReturn());
+        } else {
+            //IDLE模式由连接工厂根据空闲时间决定是否PING,LAZY模式不校验
+            config.setTestOnBorrow(mode == ValidationMode.IDLE);
+            config.setTestOnReturn(false);
+        }
+        config.setTestWhileIdle(client.isTestWhileIdle());
+        config.setMinIdle(client.getMinIdle());
+        return config;
+    }
+
+    /**
+     * 创建连接池并测试是否可以获取连接,获取失败时关闭连接池并抛出异常,下次调用会重新创建
+     *
+     * @return 连接池实例
+     */
+    private JedisPool createPool() {
+        RedisClientConfig client = config;
+        JedisPoolConfig config = poolConfig(client);
+        JedisPool created = null;
+        try {
+            /**
+             * 如果你遇到 java.net.SocketTimeoutException: Read timed out
+             * exception的异常信息 请尝试在构造JedisPool的时候设置自己的超时值.
+             * JedisPool默认的超时时间是2秒(单位毫秒)
+             */
+            created = new RedisPool(config, new RedisConnectionFactory(host, port, client.getTimeout(),
+                    client.getPassword(), database, client.getValidationMode(), client.getValidationIdleMillis(), metrics));
+            //测试是否可以获取对象
+            Jedis jedis = created.getResource();
+            jedis.close();
+            log.info("创建Redis连接池成功：{}", key);
+            if (client.isMetricsJmxEnabled()) {
+                metrics.register();
+            }
+            return created;
+        } catch (Exception e) {
+            if (created != null) {
+                created.close();
+            }
+            throw new JedisConnectionException("创建Redis连接池失败：" + key, e);
+        }
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getDatabase() {
+        return database;
+    }
+
+    /**
+     * 是否与另一个节点是同一个Redis实例(可能是不同的库)
+     *
+     * @param other 另一个节点
+     * @return true同一个实例
+     */
+    public boolean isSameServer(RedisEndpoint other) {
+        return port == other.port && host.equals(other.host);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 所属客户端的配置
+     */
+    public RedisClientConfig getConfig() {
+        return config;
+    }
+
+    public EndpointHealth getHealth() {
+        return health;
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -1,7 +1,12 @@
 package com.nfbank.common.utils.redis;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -12,8 +17,76 @@ import java.util.Set;
  * @author 孙威
  * @date 2018/12/18 10:58
  */
+@Slf4j
 @Component
-public class RedisHelper {
+public class RedisHelper implements InitializingBean {
+
+    /**
+     * 容器启动时按配置预热连接池,redis.warmup.blocking为true时阻塞到预热完成
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (!RedisConfig.getWarmUpEnabled()) {
+            return;
+        }
+        if (RedisConfig.getWarmUpBlocking()) {
+            warmUp();
+        } else {
+            RedisUtil.getInstance().warmUpAsync();
+        }
+    }
+
+    /**
+     * 预热连接池,为每个节点并行建立minIdle个连接
+     *
+     * @return 预热结果(各节点建连数、耗时)
+     */
+    public RedisWarmUp.Result warmUp() {
+        return RedisUtil.getInstance().warmUp();
+    }
+
+    /**
+     * 重新读取redis.properties,连接池大小、超时、地址等变化随即对现有连接池生效,不影响正在执行的命令
+     *
+     * @return 有变化的配置项
+     * @throws IOException 读取失败
+     */
+    public Set<String> reloadConfig() throws IOException {
+        return RedisConfig.reload();
+    }
+
+    /**
+     * 修改部分配置项(只修改内存中的配置,不写回文件),如高峰期临时调大连接池:
+     * <pre>
+     * redisHelper.updateConfig(Collections.singletonMap("redis.pool.maxTotal", "500"));
+     * </pre>
+     *
+     * @param changes 配置项到新值的映射
+     * @return 有变化的配置项
+     */
+    public Set<String> updateConfig(Map<String, String> changes) {
+        return RedisConfig.update(changes);
+    }
+
+    /**
+     * 客户端慢日志记录,最新的在前
+     *
+     * @return 慢日志记录
+     */
+    public List<SlowLog.Entry> slowLog() {
+        return RedisUtil.getInstance().getSlowLog().entries();
+    }
+
+    /**
+     * 把慢日志输出到日志文件
+     *
+     * @return 输出的文本
+     */
+    public String dumpSlowLog() {
+        String dump = RedisUtil.getInstance().getSlowLog().dump();
+        log.warn(dump);
+        return dump;
+    }
 
     /**
      * 操作hash信息
@@ -69,6 +142,15 @@ public class RedisHelper {
         return RedisUtil.getInstance().STRINGS;
     }
 
+    /**
+     * 异步执行各类操作
+     *
+     * @return
+     */
+    public RedisAsync optForAsync() {
+        return RedisUtil.getInstance().async();
+    }
+
     /**
      *
      * 查询指定数量的结果集（首次查询游标默认值为0，当查询结束，游标结果仍为0），一般分页查询。查询次数由调用者自己控制。判断游标返回结果是否为0即可
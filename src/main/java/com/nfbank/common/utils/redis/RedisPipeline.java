@@ -0,0 +1,489 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.MultiKeyPipelineBase;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 以pipeline方式执行的命令组,与RedisUtil的命令组同名,通过{@link RedisUtil#pipelined(java.util.function.Consumer)}使用:
+ * <pre>
+ * List&lt;Response&lt;Map&lt;String, String&gt;&gt;&gt; profiles = new ArrayList&lt;&gt;();
+ * redisUtil.pipelined(p -&gt; {
+ *     for (String id : ids) {
+ *         profiles.add(p.HASH.hgetAll("profile:" + id));
+ *     }
+ * });
+ * </pre>
+ * 每个方法立即返回{@link Response},命令在pipelined返回前统一发送,之后才能调用{@link Response#get()};
+ * 单条命令的错误在调用其get()时抛出,不影响其他命令。
+ * <p>
+ * 已加入但未读取应答的命令达到redis.pipeline.flushSize条时先发送并读取一次应答,避免很大的pipeline占满客户端和Redis的缓冲区。
+ * 对象只能在回调中、由调用线程使用。
+ */
+public class RedisPipeline {
+
+    private final MultiKeyPipelineBase commands;
+
+    private final Pipeline pipeline;
+
+    private final int flushSize;
+
+    private int unread;
+
+    /**
+     * 操作Key的方法
+     */
+    public Keys KEYS = new Keys();
+
+    /**
+     * 对存储结构为String类型的操作
+     */
+    public Strings STRINGS = new Strings();
+
+    /**
+     * 对存储结构为List类型的操作
+     */
+    public Lists LISTS = new Lists();
+
+    /**
+     * 对存储结构为Set类型的操作
+     */
+    public Sets SETS = new Sets();
+
+    /**
+     * 对存储结构为HashMap类型的操作
+     */
+    public Hash HASH = new Hash();
+
+    /**
+     * 对存储结构为Set(排序的)类型的操作
+     */
+    public SortSet SORTSET = new SortSet();
+
+    RedisPipeline(Pipeline pipeline, int flushSize) {
+        this.commands = pipeline;
+        this.pipeline = pipeline;
+        this.flushSize = flushSize;
+    }
+
+    /**
+     * 记录加入的命令,达到flushSize条时发送并读取应答
+     */
+    private <T> Response<T> queued(Response<T> response) {
+        if (++unread >= flushSize && flushSize > 0) {
+            sync();
+        }
+        return response;
+    }
+
+    /**
+     * 发送已加入的命令并读取应答
+     */
+    void sync() {
+        pipeline.sync();
+        unread = 0;
+    }
+
+    public class Keys {
+        /**
+         * 在pipeline中执行{@link RedisUtil.Keys#expired(String, int)}
+         */
+        public Response<Long> expired(String key, int seconds) {
+            return queued(commands.expire(key, seconds));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Keys#expireAt(String, long)}
+         */
+        public Response<Long> expireAt(String key, long timestamp) {
+            return queued(commands.expireAt(key, timestamp));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Keys#ttl(String)}
+         */
+        public Response<Long> ttl(String key) {
+            return queued(commands.ttl(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Keys#persist(String)}
+         */
+        public Response<Long> persist(String key) {
+            return queued(commands.persist(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Keys#del(String...)}
+         */
+        public Response<Long> del(String... keys) {
+            return queued(commands.del(keys));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Keys#exists(String)}
+         */
+        public Response<Boolean> exists(String key) {
+            return queued(commands.exists(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Keys#type(String)}
+         */
+        public Response<String> type(String key) {
+            return queued(commands.type(key));
+        }
+    }
+
+    public class Strings {
+        /**
+         * 在pipeline中执行{@link RedisUtil.Strings#get(String)}
+         */
+        public Response<String> get(String key) {
+            return queued(commands.get(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Strings#set(String, String)}
+         */
+        public Response<String> set(String key, String value) {
+            return queued(commands.set(key, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Strings#setEx(String, int, String)}
+         */
+        public Response<String> setEx(String key, int seconds, String value) {
+            return queued(commands.setex(key, seconds, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Strings#setnx(String, String)}
+         */
+        public Response<Long> setnx(String key, String value) {
+            return queued(commands.setnx(key, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Strings#append(String, String)}
+         */
+        public Response<Long> append(String key, String value) {
+            return queued(commands.append(key, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Strings#incrBy(String, long)}
+         */
+        public Response<Long> incrBy(String key, long number) {
+            return queued(commands.incrBy(key, number));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Strings#decrBy(String, long)}
+         */
+        public Response<Long> decrBy(String key, long number) {
+            return queued(commands.decrBy(key, number));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Strings#getSet(String, String)}
+         */
+        public Response<String> getSet(String key, String value) {
+            return queued(commands.getSet(key, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Strings#mget(String...)}
+         */
+        public Response<List<String>> mget(String... keys) {
+            return queued(commands.mget(keys));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Strings#strlen(String)}
+         */
+        public Response<Long> strlen(String key) {
+            return queued(commands.strlen(key));
+        }
+    }
+
+    public class Lists {
+        /**
+         * 在pipeline中执行{@link RedisUtil.Lists#llen(String)}
+         */
+        public Response<Long> llen(String key) {
+            return queued(commands.llen(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Lists#lset(String, int, String)}
+         */
+        public Response<String> lset(String key, int index, String value) {
+            return queued(commands.lset(key, index, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Lists#lindex(String, int)}
+         */
+        public Response<String> lindex(String key, int index) {
+            return queued(commands.lindex(key, index));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Lists#lpop(String)}
+         */
+        public Response<String> lpop(String key) {
+            return queued(commands.lpop(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Lists#rpop(String)}
+         */
+        public Response<String> rpop(String key) {
+            return queued(commands.rpop(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Lists#lpush(String, String)}
+         */
+        public Response<Long> lpush(String key, String value) {
+            return queued(commands.lpush(key, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Lists#rpush(String, String)}
+         */
+        public Response<Long> rpush(String key, String value) {
+            return queued(commands.rpush(key, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Lists#lrange(String, long, long)}
+         */
+        public Response<List<String>> lrange(String key, long start, long end) {
+            return queued(commands.lrange(key, start, end));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Lists#lrem(String, int, String)}
+         */
+        public Response<Long> lrem(String key, int c, String value) {
+            return queued(commands.lrem(key, c, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Lists#ltrim(String, int, int)}
+         */
+        public Response<String> ltrim(String key, int start, int end) {
+            return queued(commands.ltrim(key, start, end));
+        }
+    }
+
+    public class Sets {
+        /**
+         * 在pipeline中执行{@link RedisUtil.Sets#sadd(String, String)}
+         */
+        public Response<Long> sadd(String key, String member) {
+            return queued(commands.sadd(key, member));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Sets#scard(String)}
+         */
+        public Response<Long> scard(String key) {
+            return queued(commands.scard(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Sets#sismember(String, String)}
+         */
+        public Response<Boolean> sismember(String key, String member) {
+            return queued(commands.sismember(key, member));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Sets#smembers(String)}
+         */
+        public Response<Set<String>> smembers(String key) {
+            return queued(commands.smembers(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Sets#srem(String, String)}
+         */
+        public Response<Long> srem(String key, String member) {
+            return queued(commands.srem(key, member));
+        }
+    }
+
+    public class Hash {
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hdel(String, String)}
+         */
+        public Response<Long> hdel(String key, String field) {
+            return queued(commands.hdel(key, field));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hexists(String, String)}
+         */
+        public Response<Boolean> hexists(String key, String field) {
+            return queued(commands.hexists(key, field));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hget(String, String)}
+         */
+        public Response<String> hget(String key, String field) {
+            return queued(commands.hget(key, field));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hgetAll(String)}
+         */
+        public Response<Map<String, String>> hgetAll(String key) {
+            return queued(commands.hgetAll(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hset(String, String, String)}
+         */
+        public Response<Long> hset(String key, String field, String value) {
+            return queued(commands.hset(key, field, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hsetnx(String, String, String)}
+         */
+        public Response<Long> hsetnx(String key, String field, String value) {
+            return queued(commands.hsetnx(key, field, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hvals(String)}
+         */
+        public Response<List<String>> hvals(String key) {
+            return queued(commands.hvals(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hincrby(String, String, long)}
+         */
+        public Response<Long> hincrby(String key, String field, long value) {
+            return queued(commands.hincrBy(key, field, value));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hkeys(String)}
+         */
+        public Response<Set<String>> hkeys(String key) {
+            return queued(commands.hkeys(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hlen(String)}
+         */
+        public Response<Long> hlen(String key) {
+            return queued(commands.hlen(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hmget(String, String...)}
+         */
+        public Response<List<String>> hmget(String key, String... fields) {
+            return queued(commands.hmget(key, fields));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.Hash#hmset(String, Map)}
+         */
+        public Response<String> hmset(String key, Map<String, String> map) {
+            return queued(commands.hmset(key, map));
+        }
+    }
+
+    public class SortSet {
+        /**
+         * 在pipeline中执行ZADD
+         */
+        public Response<Long> zadd(String key, double score, String member) {
+            return queued(commands.zadd(key, score, member));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.SortSet#zcard(String)}
+         */
+        public Response<Long> zcard(String key) {
+            return queued(commands.zcard(key));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.SortSet#zcount(String, double, double)}
+         */
+        public Response<Long> zcount(String key, double min, double max) {
+            return queued(commands.zcount(key, min, max));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.SortSet#zincrby(String, double, String)}
+         */
+        public Response<Double> zincrby(String key, double score, String member) {
+            return queued(commands.zincrby(key, score, member));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.SortSet#zrange(String, int, int)}
+         */
+        public Response<Set<String>> zrange(String key, int start, int end) {
+            return queued(commands.zrange(key, start, end));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.SortSet#zrangeByScore(String, double, double)}
+         */
+        public Response<Set<String>> zrangeByScore(String key, double min, double max) {
+            return queued(commands.zrangeByScore(key, min, max));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.SortSet#zrank(String, String)}
+         */
+        public Response<Long> zrank(String key, String member) {
+            return queued(commands.zrank(key, member));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.SortSet#zrevrank(String, String)}
+         */
+        public Response<Long> zrevrank(String key, String member) {
+            return queued(commands.zrevrank(key, member));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.SortSet#zrem(String, String)}
+         */
+        public Response<Long> zrem(String key, String member) {
+            return queued(commands.zrem(key, member));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.SortSet#zrevrange(String, int, int)}
+         */
+        public Response<Set<String>> zrevrange(String key, int start, int end) {
+            return queued(commands.zrevrange(key, start, end));
+        }
+
+        /**
+         * 在pipeline中执行{@link RedisUtil.SortSet#zscore(String, String)}
+         */
+        public Response<Double> zscore(String key, String member) {
+            return queued(commands.zscore(key, member));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.nfbank.common.utils.redis;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 使用{@link RedisConnectionFactory}创建连接的连接池,对外仍是JedisPool,连接归还方式不变
+ */
+public class RedisPool extends JedisPool {
+
+    public RedisPool(GenericObjectPoolConfig config, RedisConnectionFactory factory) {
+        //父类构造器会创建默认工厂的内部池,这里替换为自定义工厂(替换时旧的内部池会被关闭,此时尚未建立任何连接)
+        super(config, "localhost");
+        initPool(config, factory);
+        factory.attach(internalPool);
+    }
+
+    /**
+     * 新建一个连接放入空闲队列,可以多个线程并发调用
+     *
+     * @throws Exception 建连失败
+     */
+    public void addIdle() throws Exception {
+        internalPool.addObject();
+    }
+
+    /**
+     * 修改连接数上限、等待时间、校验方式等配置,立即生效;minIdle增大时立即补足空闲连接。
+     * 连接数上限减小时不影响已借出的连接,超出上限或maxIdle的连接在归还时销毁
+     *
+     * @param config 新配置
+     * @throws Exception 补足空闲连接时建连失败
+     */
+    public void applyConfig(GenericObjectPoolConfig config) throws Exception {
+        internalPool.setConfig(config);
+        internalPool.preparePool();
+    }
+}
@@ -11,15 +11,23 @@
 package com.nfbank.common.utils.redis;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+import com.google.common.util.concurrent.RateLimiter;
 import org.springframework.util.StringUtils;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 import redis.clients.jedis.Tuple;
+import redis.clients.util.SafeEncoder;
 
 /**
  * Title:  RedisScan<br>
@@ -43,6 +51,11 @@ public class RedisScan {
      */
     private static final String DEFAULT_PATTERN = "*";
 
+    /**
+     * 每次删除的key数上限:脚本以unpack展开KEYS,超过Lua栈上限(LUAI_MAXCSTACK,8000)时报错
+     */
+    static final int MAX_DELETE_BATCH_SIZE = 5000;
+
     /**
      * Title:  zscan<br>
      * Description: 浏览<br>
@@ -177,5 +190,191 @@ public class RedisScan {
         return cursor;
     }
 
+    /**
+     * 遍历整个库中匹配的key,参数见{@link #scan(RedisUtil, String, int, String)}
+     */
+    public static Iterator<String> scan(String pattern) {
+        RedisUtil redisUtil = RedisUtil.getInstance();
+        return scan(redisUtil, pattern, redisUtil.getConfig().getScanCount(), null);
+    }
+
+    /**
+     * 以SCAN遍历整个库中匹配的key,代替会阻塞Redis的KEYS命令。返回的迭代器是惰性的:每次取完一页(约count个)再发送下一次SCAN,
+     * 内存中只保留一页。集群、分片模式下依次遍历每个节点。
+     * <p>
+     * 遍历期间一直存在的key一定会返回,期间新增或删除的key可能返回也可能不返回,同一个key可能返回多次。
+     * 迭代器不是线程安全的
+     *
+     * @param redisUtil 客户端
+     * @param pattern   key的表达式,为空时遍历所有key
+     * @param count     每次SCAN的COUNT提示
+     * @param type      只返回该类型(string、list、set、zset、hash、stream)的key,需要Redis 6.0以上;为空时不限
+     * @return key的迭代器
+     */
+    public static Iterator<String> scan(RedisUtil redisUtil, String pattern, int count, String type) {
+        return new KeyIterator(redisUtil, redisUtil.getDataNodes(), params(pattern, count, type));
+    }
+
+    /**
+     * 删除匹配的key,批次大小和限速使用redis.scan.deleteBatchSize、redis.scan.deleteRatePerSecond
+     */
+    public static long deleteByPattern(String pattern) {
+        RedisUtil redisUtil = RedisUtil.getInstance();
+        return deleteByPattern(redisUtil, pattern, redisUtil.getConfig().getScanDeleteBatchSize(),
+                redisUtil.getConfig().getScanDeleteRatePerSecond());
+    }
 
+    /**
+     * 删除匹配的key:在每个节点上以SCAN遍历,每batchSize个key以UNLINK(Lua脚本)删除一次,Redis在后台释放内存。
+     * 遍历和删除交替进行,内存中最多保留一批key;按keysPerSecond限制删除速度,避免清理任务占满Redis。需要Redis 4.0以上。
+     * 脚本经{@link RedisUtil.Scripts}以EVALSHA执行,清理期间脚本缓存被清空(SCRIPT FLUSH、主从切换)时改用EVAL,不会中断
+     *
+     * @param redisUtil     客户端
+     * @param pattern       key的表达式,不能为空
+     * @param batchSize     每次删除的key数,超过{@link #MAX_DELETE_BATCH_SIZE}时按该值
+     * @param keysPerSecond 每秒最多删除的key数,小于等于0时不限速
+     * @return 删除的key数
+     */
+    public static long deleteByPattern(RedisUtil redisUtil, String pattern, int batchSize, double keysPerSecond) {
+        if (StringUtils.isEmpty(pattern)) {
+            throw new IllegalArgumentException("删除的key表达式不能为空");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("每次删除的key数必须大于0：" + batchSize);
+        }
+        batchSize = Math.min(batchSize, MAX_DELETE_BATCH_SIZE);
+        RateLimiter limiter = keysPerSecond > 0 ? RateLimiter.create(keysPerSecond) : null;
+        ScanParams params = params(pattern, Math.max(redisUtil.getConfig().getScanCount(), batchSize), null);
+        long deleted = 0;
+        for (RedisEndpoint node : redisUtil.getDataNodes()) {
+            List<String> batch = new ArrayList<String>(batchSize);
+            String cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                ScanResult<String> page = scanPage(redisUtil, node, cursor, params);
+                cursor = page.getStringCursor();
+                for (String key : page.getResult()) {
+                    batch.add(key);
+                    if (batch.size() >= batchSize) {
+                        deleted += unlink(redisUtil, node, batch, limiter);
+                        batch.clear();
+                    }
+                }
+            } while (!ZERO.equals(cursor));
+            if (!batch.isEmpty()) {
+                deleted += unlink(redisUtil, node, batch, limiter);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 在节点上删除一批key。集群模式下脚本中的key须位于同一槽位,按槽位分组,各组在一个pipeline中执行
+     */
+    private static long unlink(RedisUtil redisUtil, RedisEndpoint node, List<String> keys, RateLimiter limiter) {
+        if (limiter != null) {
+            limiter.acquire(keys.size());
+        }
+        Collection<List<String>> groups;
+        if (redisUtil.isCluster()) {
+            Map<Integer, List<String>> slots = new HashMap<Integer, List<String>>();
+            for (String key : keys) {
+                slots.computeIfAbsent(ClusterChannel.slot(key), slot -> new ArrayList<String>()).add(key);
+            }
+            groups = slots.values();
+        } else {
+            groups = Collections.singletonList(keys);
+        }
+        List<Long> replies = redisUtil.SCRIPTS.evalOn("KEYS.deleteByPattern", node, RedisScript.UNLINK, groups);
+        long deleted = 0;
+        for (Long reply : replies) {
+            deleted += reply;
+        }
+        return deleted;
+    }
+
+    private static ScanResult<String> scanPage(RedisUtil redisUtil, RedisEndpoint node, String cursor, ScanParams params) {
+        return redisUtil.executeOn("KEYS.scan", node, jedis -> jedis.scan(cursor, params));
+    }
+
+    private static ScanParams params(String pattern, int count, String type) {
+        ScanParams params = StringUtils.isEmpty(type) ? new ScanParams() : new TypedScanParams(type);
+        if (!StringUtils.isEmpty(pattern)) {
+            params.match(pattern);
+        }
+        if (count > 0) {
+            params.count(count);
+        }
+        return params;
+    }
+
+    /**
+     * 带TYPE选项的SCAN参数(Jedis 2.9的ScanParams不支持)
+     */
+    private static class TypedScanParams extends ScanParams {
+
+        private final byte[] type;
+
+        TypedScanParams(String type) {
+            this.type = SafeEncoder.encode(type);
+        }
+
+        @Override
+        public Collection<byte[]> getParams() {
+            List<byte[]> params = new ArrayList<byte[]>(super.getParams());
+            params.add(TYPE);
+            params.add(type);
+            return params;
+        }
+    }
+
+    private static final byte[] TYPE = SafeEncoder.encode("TYPE");
+
+    /**
+     * 依次遍历各节点的惰性迭代器
+     */
+    private static class KeyIterator implements Iterator<String> {
+
+        private final RedisUtil redisUtil;
+
+        private final Iterator<RedisEndpoint> nodes;
+
+        private final ScanParams params;
+
+        private RedisEndpoint node;
+
+        private String cursor;
+
+        private Iterator<String> page = Collections.<String>emptyList().iterator();
+
+        KeyIterator(RedisUtil redisUtil, List<RedisEndpoint> nodes, ScanParams params) {
+            this.redisUtil = redisUtil;
+            this.nodes = nodes.iterator();
+            this.params = params;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext()) {
+                if (node == null || ZERO.equals(cursor)) {
+                    if (!nodes.hasNext()) {
+                        return false;
+                    }
+                    node = nodes.next();
+                    cursor = ScanParams.SCAN_POINTER_START;
+                }
+                ScanResult<String> result = scanPage(redisUtil, node, cursor, params);
+                cursor = result.getStringCursor();
+                page = result.getResult().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+    }
 }
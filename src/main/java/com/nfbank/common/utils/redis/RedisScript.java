@@ -0,0 +1,122 @@
+package com.nfbank.common.utils.redis;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * Lua脚本:名称、源码、本地计算的SHA1和结果转换。通过{@link RedisUtil.Scripts#eval(RedisScript, List, List)}以EVALSHA执行,
+ * Redis中没有该脚本(重启、切换主节点、SCRIPT FLUSH后)时改用EVAL发送源码,Redis会同时缓存脚本,之后仍走EVALSHA。
+ * <p>
+ * 脚本对象不可变,应定义为常量复用。脚本中访问的key都应通过KEYS传入,集群模式下按第一个key选择节点。
+ *
+ * @param <T> 结果类型
+ */
+public final class RedisScript<T> {
+
+    /**
+     * 值等于ARGV[1]时删除key,返回是否删除。用于释放锁:只删除自己加的锁
+     */
+    public static final RedisScript<Boolean> COMPARE_AND_DELETE = ofBoolean("compareAndDelete",
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end");
+
+    /**
+     * 值等于ARGV[1]时把过期时间设为ARGV[2]秒,返回是否设置。用于锁续期
+     */
+    public static final RedisScript<Boolean> COMPARE_AND_EXPIRE = ofBoolean("compareAndExpire",
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('expire', KEYS[1], ARGV[2]) else return 0 end");
+
+    /**
+     * 把ARGV[2]加入列表头部并只保留前ARGV[1]个元素,返回保留后的长度。用于最近N条记录
+     */
+    public static final RedisScript<Long> CAPPED_LPUSH = ofLong("cappedLpush",
+            "local length = redis.call('lpush', KEYS[1], ARGV[2]) "
+                    + "local max = tonumber(ARGV[1]) "
+                    + "if length > max then redis.call('ltrim', KEYS[1], 0, max - 1) return max end "
+                    + "return length");
+
+    /**
+     * 以UNLINK删除KEYS中的所有key(在后台线程释放内存,不阻塞Redis),返回删除的个数。需要Redis 4.0以上。
+     * KEYS以unpack展开,个数不能超过Lua栈上限(约8000)
+     */
+    public static final RedisScript<Long> UNLINK = ofLong("unlink", "return redis.call('unlink', unpack(KEYS))");
+
+    private final String name;
+
+    private final String source;
+
+    private final String sha1;
+
+    private final Function<Object, T> mapper;
+
+    private RedisScript(String name, String source, Function<Object, T> mapper) {
+        this.name = name;
+        this.source = source;
+        this.sha1 = Hashing.sha1().hashString(source, StandardCharsets.UTF_8).toString();
+        this.mapper = mapper;
+    }
+
+    /**
+     * 自定义结果转换的脚本
+     *
+     * @param name   名称,用于指标(SCRIPT.name)和注册
+     * @param source 源码
+     * @param mapper 把Redis返回的结果(Long、String、List或null)转换为T
+     * @return 脚本
+     */
+    public static <T> RedisScript<T> of(String name, String source, Function<Object, T> mapper) {
+        return new RedisScript<T>(name, source, mapper);
+    }
+
+    /**
+     * 返回整数的脚本,返回nil时结果为null
+     */
+    public static RedisScript<Long> ofLong(String name, String source) {
+        return of(name, source, result -> (Long) result);
+    }
+
+    /**
+     * 返回字符串的脚本
+     */
+    public static RedisScript<String> ofString(String name, String source) {
+        return of(name, source, result -> (String) result);
+    }
+
+    /**
+     * 返回布尔值的脚本:Lua的true和非0整数为true,false、nil和0为false
+     */
+    public static RedisScript<Boolean> ofBoolean(String name, String source) {
+        return of(name, source, result -> result != null && !Long.valueOf(0).equals(result));
+    }
+
+    /**
+     * 返回数组的脚本
+     */
+    @SuppressWarnings("unchecked")
+    public static RedisScript<List<Object>> ofList(String name, String source) {
+        return of(name, source, result -> (List<Object>) result);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return 源码的SHA1(小写十六进制),与SCRIPT LOAD返回值相同
+     */
+    public String getSha1() {
+        return sha1;
+    }
+
+    T map(Object result) {
+        return mapper.apply(result);
+    }
+}
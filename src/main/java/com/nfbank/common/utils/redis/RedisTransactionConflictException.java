@@ -0,0 +1,17 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 乐观锁事务重试redis.transaction.maxRetries次后仍因WATCH的key被修改而未能提交,事务中的写命令都没有执行
+ */
+public class RedisTransactionConflictException extends JedisException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RedisTransactionConflictException(String message) {
+        super(message);
+    }
+}
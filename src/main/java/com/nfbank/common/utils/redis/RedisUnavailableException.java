@@ -0,0 +1,23 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * Redis节点处于熔断状态时抛出,调用方无需等待连接超时即可失败。
+ * 该异常不填充堆栈,熔断期间大量抛出时开销很小。
+ */
+public class RedisUnavailableException extends JedisConnectionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RedisUnavailableException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
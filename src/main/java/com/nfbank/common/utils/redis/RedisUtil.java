@@ -10,16 +10,36 @@
  */
 package com.nfbank.common.utils.redis;
 
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.google.common.util.concurrent.Uninterruptibles;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import redis.clients.jedis.*;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
 import redis.clients.util.SafeEncoder;
 
 /**
@@ -39,25 +59,153 @@ import redis.clients.util.SafeEncoder;
  * @author wujintao
  */
 @Slf4j
-public class RedisUtil {
+public class RedisUtil implements AutoCloseable {
 
     /**
-     * 锁
+     * 私有构造器,创建默认实例(配置取自redis.properties,随配置热更新调整)
      */
-    private static final byte[] lock = new byte[0];
+    private RedisUtil() {
+        this(RedisClientConfig.defaults(), Bulkheads.fromConfig());
+        RedisConfig.addListener(this::onConfigChanged);
+    }
 
     /**
-     * 私有构造器.
+     * 创建独立的客户端:节点、连接池、命令指标、慢日志都与其他实例分开
+     *
+     * @param config    客户端配置
+     * @param bulkheads 隔离区
      */
-    private RedisUtil() {
+    private RedisUtil(RedisClientConfig config, Bulkheads bulkheads) {
+        this.root = null;
+        this.config = config;
+        this.database = config.getDatabase();
+        this.maps = new ConcurrentHashMap<String, RedisEndpoint>();
+        this.commandMetrics = new CommandMetrics(config.isDefault() ? "" : config.getName() + "/", config.isMetricsJmxEnabled());
+        this.scripts = new ConcurrentHashMap<String, RedisScript<?>>();
+        this.slowLog = new SlowLog(config.getSlowLogCapacity(), config.getSlowLogThresholdMillis(), config.getSlowLogStackDepth());
+        this.bulkheads = bulkheads;
+        this.sentinel = createSentinel();
+        this.readRouter = createReadRouter();
+        this.keyRouter = createKeyRouter();
+    }
+
+    /**
+     * 创建其他库的视图,与root共用节点注册表、指标、慢日志、隔离区和Sentinel,连接池按库分开
+     *
+     * @param root     默认库的实例
+     * @param database 库
+     */
+    private RedisUtil(RedisUtil root, int database) {
+        this.root = root;
+        this.config = root.config;
+        this.database = database;
+        this.maps = root.maps;
+        this.commandMetrics = root.commandMetrics;
+        this.scripts = root.scripts;
+        this.slowLog = root.slowLog;
+        this.bulkheads = root.bulkheads;
+        this.sentinel = root.sentinel;
+        this.readRouter = createReadRouter();
+        this.keyRouter = createKeyRouter();
+    }
+
+    /**
+     * 按配置创建独立的客户端,如把报表、限流等负载隔离到单独的连接池或单独的Redis上:
+     * <pre>
+     * RedisUtil reports = RedisUtil.create(RedisClientConfig.builder()
+     *         .name("report").host("10.0.0.8").port(6379).maxTotal(20).build());
+     * reports.HASH.hgetAll(key);
+     * </pre>
+     * 客户端拥有自己的节点、连接池、命令指标和慢日志,连接池、批量命令、事务、SCAN、慢日志、指标、熔断、异步线程池和NIO/自动管道的参数
+     * 都取自config,不受redis.properties热更新影响;连接预热和隔离区仍按redis.properties,不再使用时调用{@link #close()}
+     *
+     * @param config 客户端配置
+     * @return 客户端
+     */
+    public static RedisUtil create(RedisClientConfig config) {
+        return create(config, new Bulkheads(Collections.<Bulkhead>emptyList(), Collections.<String, List<String>>emptyMap()));
+    }
 
+    /**
+     * 按配置创建独立的客户端,命令按给定的隔离区限制并发
+     *
+     * @param config    客户端配置
+     * @param bulkheads 隔离区
+     * @return 客户端
+     */
+    public static RedisUtil create(RedisClientConfig config, Bulkheads bulkheads) {
+        return new RedisUtil(config, bulkheads);
     }
 
     /**
-     * 存储redisPool实例对象
+     * 存储本客户端的Redis节点(含连接池),key为ip:port,非0号库为ip:port/库,各个库的视图共用
+     */
+    private final ConcurrentMap<String, RedisEndpoint> maps;
+
+    /**
+     * 客户端配置,默认实例在配置热更新后替换
+     */
+    private volatile RedisClientConfig config;
+
+    /**
+     * 默认节点(redis.ip/redis.port)的引用缓存,避免每次调用都拼接key查表
+     */
+    private volatile RedisEndpoint defaultEndpoint;
+
+    /**
+     * 默认库的实例,本实例即为默认库时为null
+     */
+    private final RedisUtil root;
+
+    /**
+     * 本实例操作的库
+     */
+    private final int database;
+
+    /**
+     * 其他库的视图,只在默认库的实例中使用
+     */
+    private final ConcurrentMap<Integer, RedisUtil> databases = new ConcurrentHashMap<Integer, RedisUtil>();
+
+    /**
+     * 按命令名统计的耗时指标
+     */
+    private final CommandMetrics commandMetrics;
+
+    /**
+     * 按事务名统计的冲突、重试次数,只在默认库的实例中使用
+     */
+    private final ConcurrentMap<String, TransactionStats> transactions = new ConcurrentHashMap<String, TransactionStats>();
+
+    /**
+     * 已注册的Lua脚本,按名称索引,与各库的视图共用
+     */
+    private final ConcurrentMap<String, RedisScript<?>> scripts;
+
+    /**
+     * 客户端慢日志
      */
-    private static Map<String, JedisPool> maps = new HashMap<String, JedisPool>();
+    private final SlowLog slowLog;
 
+    /**
+     * 隔离区
+     */
+    private final Bulkheads bulkheads;
+
+    /**
+     * 读写分离路由,未配置redis.replicas时所有命令都发往默认节点
+     */
+    private final ReadRouter readRouter;
+
+    /**
+     * 通过Sentinel跟踪主节点,未配置redis.sentinel.master时为null,此时默认节点为redis.ip/redis.port
+     */
+    private final SentinelMonitor sentinel;
+
+    /**
+     * 集群或分片模式下按key选择节点的命令通道,单节点模式为null
+     */
+    private final CommandChannel keyRouter;
 
     /**
      * 操作Key的方法
@@ -83,6 +231,14 @@ public class RedisUtil {
      * 对存储结构为Set(排序的)类型的操作
      */
     public SortSet SORTSET = new SortSet();
+    /**
+     * 批量命令(自动分块、并行),如:RedisUtil.getInstance().BATCH.getAll(keys)
+     */
+    public RedisBatch BATCH = new RedisBatch(this);
+    /**
+     * Lua脚本
+     */
+    public Scripts SCRIPTS = new Scripts();
 
     /**
      * 类级的内部类，也就是静态的成员式内部类，该内部类的实例与外部类的实例 没有绑定关系，而且只有被调用到时才会装载，从而实现了延迟加载。
@@ -94,6 +250,11 @@ public class RedisUtil {
         private static RedisUtil instance = new RedisUtil();
     }
 
+    /**
+     * 异步命令组,首次调用async()时创建
+     */
+    private volatile RedisAsync async;
+
     /**
      * 当getInstance方法第一次被调用的时候，它第一次读取
      * RedisUtilHolder.instance，导致RedisUtilHolder类得到初始化；而这个类在装载并被初始化的时候，会初始化它的静
@@ -104,16 +265,122 @@ public class RedisUtil {
         return RedisUtilHolder.instance;
     }
 
+    /**
+     * 获取异步命令组,如:RedisUtil.getInstance().async().HASH.hget(key, field)
+     *
+     * @return 异步命令组
+     */
+    public RedisAsync async() {
+        RedisAsync current = async;
+        if (current == null) {
+            synchronized (this) {
+                if (async == null) {
+                    async = new RedisAsync(this);
+                }
+                current = async;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在一个连接上以pipeline方式执行多条命令,一次往返发送,各命令的结果通过返回的Response获取:
+     * RedisUtil.getInstance().pipelined(p -&gt; keys.forEach(key -&gt; values.add(p.STRINGS.get(key))))。
+     * 回调返回后发送剩余命令并读取全部应答,整体计为一次命令PIPELINE记录指标和慢日志。
+     * <p>
+     * 集群、分片模式下命令按key发往各自节点,使用阻塞传输时每条命令仍是一次往返,需开启NIO传输或自动管道才能批量发送;
+     * 批量读写多个key可使用{@link #BATCH},它会按节点分组发送
+     *
+     * @param commands 加入命令的回调
+     * @see RedisPipeline
+     */
+    public void pipelined(Consumer<RedisPipeline> commands) {
+        execute("PIPELINE", jedis -> {
+            RedisPipeline pipeline = new RedisPipeline(jedis.pipelined(), config.getPipelineFlushSize());
+            commands.accept(pipeline);
+            pipeline.sync();
+            return null;
+        });
+    }
+
+    /**
+     * 获取操作指定库的实例,拥有与本实例相同的命令组:RedisUtil.getInstance().db(2).HASH.hget(key, field)。
+     * 每个库使用自己的连接池(连接建立时选库),执行命令不需要SELECT,也不会改变其他调用方所用连接的库。
+     * 各个库共用命令指标、慢日志、隔离区,Sentinel切换时一起切换。实例会被缓存,可以重复调用
+     *
+     * @param database 库
+     * @return 该库的实例,为默认库时返回默认实例
+     */
+    public RedisUtil db(int database) {
+        if (root != null) {
+            return root.db(database);
+        }
+        if (database == this.database) {
+            return this;
+        }
+        RedisUtil view = databases.get(database);
+        if (view == null) {
+            view = databases.computeIfAbsent(database, d -> new RedisUtil(this, d));
+        }
+        return view;
+    }
+
+    /**
+     * 本实例操作的库
+     *
+     * @return 库
+     */
+    public int getDatabase() {
+        return database;
+    }
+
+    /**
+     * 客户端配置
+     *
+     * @return 配置
+     */
+    public RedisClientConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 关闭客户端:停止Sentinel订阅、集群或分片通道、异步线程池,关闭所有节点的连接池和共享通道,注销JMX指标。
+     * 在某个库的视图上调用时关闭整个客户端,关闭后不应再使用。默认实例随JVM退出,一般不需要关闭
+     */
+    @Override
+    public void close() {
+        if (root != null) {
+            root.close();
+            return;
+        }
+        if (sentinel != null) {
+            sentinel.close();
+        }
+        List<RedisUtil> instances = new ArrayList<RedisUtil>(databases.values());
+        instances.add(this);
+        for (RedisUtil instance : instances) {
+            if (instance.keyRouter != null) {
+                instance.keyRouter.close();
+            }
+            if (instance.async != null) {
+                instance.async.shutdown();
+            }
+        }
+        for (RedisEndpoint endpoint : maps.values()) {
+            endpoint.close();
+        }
+        maps.clear();
+        commandMetrics.unregister();
+        log.info("Redis客户端已关闭：{}", config.getName());
+    }
+
     /**
      * 获取连接池.
      *
      * @return 连接池实例
      */
     public JedisPool getPool() {
-        String ip = RedisConfig.getIp();
-        Integer port = RedisConfig.getPort();
-        JedisPool pool = jedisPoolConfig(ip, port);
-        return pool;
+        return getDefaultEndpoint().getPool();
     }
 
     /**
@@ -124,8 +391,7 @@ public class RedisUtil {
      * @return 连接池对象
      */
     public JedisPool getPool(String ip, int port) {
-        JedisPool pool = jedisPoolConfig(ip, port);
-        return pool;
+        return getEndpoint(ip, port).getPool();
     }
 
     /**
@@ -136,9 +402,7 @@ public class RedisUtil {
      * @since JDK 1.7
      */
     public Jedis getJedis() {
-        String ip = RedisConfig.getIp();
-        int port = RedisConfig.getPort();
-        return getJedisByCondition(ip, port);
+        return getJedisByCondition(getDefaultEndpoint());
     }
 
     /**
@@ -149,7 +413,7 @@ public class RedisUtil {
      * @return 连接池中的Jedis对象
      */
     public Jedis getJedis(String ip, int port) {
-        return getJedisByCondition(ip, port);
+        return getJedisByCondition(getEndpoint(ip, port));
     }
 
     /**
@@ -179,108 +443,860 @@ public class RedisUtil {
 
 
     /**
-     * jedisPoolConfig:连接池的配置 <br/>
+     * 在默认节点上执行操作,耗时计入命令CUSTOM
+     *
+     * @param callback 要执行的操作
+     * @return 执行结果
+     */
+    public <T> T execute(RedisCallback<T> callback) {
+        return execute("CUSTOM", callback);
+    }
+
+    /**
+     * 在默认节点上执行操作(配置了从节点时只读命令发往从节点,集群、分片模式下按key发往对应节点),开启redis.metrics.commands时按命令名记录耗时和成功/失败次数,
+     * 开启redis.slowlog.enabled时超过阈值的调用记入慢日志。命令属于某个隔离区时,先占用该隔离区的名额,
+     * 名额已满且等待超时抛出{@link RedisBulkheadException}
+     *
+     * @param command  命令名,如HASH.hgetAll
+     * @param callback 要执行的操作
+     * @return 执行结果
+     */
+    public <T> T execute(String command, RedisCallback<T> callback) {
+        Bulkhead bulkhead = bulkheads.resolve(command);
+        if (bulkhead == null) {
+            return route(command, callback);
+        }
+        bulkhead.acquire();
+        try {
+            return route(command, callback);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * 只读命令发往从节点,从节点连接失败时改在默认节点上执行一次;其他命令发往默认节点。
+     * 集群、分片模式下由对应通道按key选择节点
+     */
+    private <T> T route(String command, RedisCallback<T> callback) {
+        if (keyRouter != null) {
+            return instrument(command, null, false, callback);
+        }
+        int replica = readRouter.select(command);
+        if (replica < 0) {
+            return instrument(command, getDefaultEndpoint(), false, callback);
+        }
+        try {
+            return instrument(command, readRouter.getReplica(replica), false, callback);
+        } catch (JedisConnectionException e) {
+            log.warn("Redis从节点{}不可用,改读主节点：{}", readRouter.getReplica(replica).getKey(), e.getMessage());
+            return instrument(command, getDefaultEndpoint(), false, callback);
+        } finally {
+            readRouter.release(replica);
+        }
+    }
+
+    /**
+     * 按配置记录命令耗时、慢日志
+     *
+     * @param pinned 为true时总是借用endpoint连接池中的独占连接
+     */
+    private <T> T instrument(String command, RedisEndpoint endpoint, boolean pinned, RedisCallback<T> callback) {
+        RedisClientConfig config = this.config;
+        boolean metricsEnabled = config.isMetricsCommandsEnabled();
+        boolean slowLogEnabled = config.isSlowLogEnabled();
+        if (!metricsEnabled && !slowLogEnabled) {
+            return dispatch(command, endpoint, pinned, callback);
+        }
+        long start = System.nanoTime();
+        RedisCallback<T> action = slowLogEnabled ? slowLog.trace(command, start, callback) : callback;
+        if (!metricsEnabled) {
+            return dispatch(command, endpoint, pinned, action);
+        }
+        CommandStats stats = commandMetrics.get(command);
+        T result;
+        try {
+            result = dispatch(command, endpoint, pinned, action);
+        } catch (RuntimeException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        }
+        stats.recordSuccess(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * 集群、分片模式下命令按key发往对应节点;NIO传输方式或开启自动管道时命令经共享连接发送,否则借用连接池中的连接。
+     * 需要独占连接(WATCH、MULTI等会改变连接状态)时总是借用endpoint连接池中的连接
+     *
+     */
+    private <T> T dispatch(String command, RedisEndpoint endpoint, boolean pinned, RedisCallback<T> callback) {
+        boolean readOnly = ReadRouter.READ_ONLY_COMMANDS.contains(command);
+        if (pinned) {
+            return executeOnPool(endpoint, readOnly, callback);
+        }
+        if (keyRouter != null) {
+            return callback.doInRedis(new MultiplexedJedis(keyRouter, config.getTimeout()));
+        }
+        if (config.isMultiplexed()) {
+            return callback.doInRedis(new MultiplexedJedis(endpoint.getChannel(), config.getTimeout()));
+        }
+        return executeOnPool(endpoint, readOnly, callback);
+    }
+
+    /**
+     * 乐观锁事务:在独占连接上WATCH指定的key后调用callback读取数据,再把callback返回的写命令以MULTI/EXEC在一次往返中提交。
+     * WATCH的key在此期间被其他客户端修改时EXEC不执行任何写命令,等待一段时间(redis.transaction.backoffMillis起翻倍并加随机抖动)
+     * 后重新WATCH并再次调用callback,最多重试redis.transaction.maxRetries次:
+     * <pre>
+     * redisUtil.transaction("stock", jedis -&gt; {
+     *     long stock = Long.parseLong(jedis.get("stock:1"));
+     *     return stock &lt;= 0 ? null : p -&gt; p.STRINGS.decrBy("stock:1", 1);
+     * }, "stock:1");
+     * </pre>
+     * 写命令返回的Response在提交后可以读取。集群、分片模式下在第一个key所在的节点上执行,所有key应位于同一节点(集群模式下同一槽位)。
+     * 每次尝试计为一次命令TX.name记录指标和慢日志,冲突、重试次数见{@link #transactionMetrics()}
+     *
+     * @param name      事务名,用于指标和隔离区
+     * @param callback  读取并决定写命令
+     * @param watchKeys 需要WATCH的key,至少一个
+     * @return 提交返回true,callback放弃时返回false
+     * @throws RedisTransactionConflictException 重试次数用尽后仍然冲突
+     * @throws JedisDataException                 EXEC中有命令执行失败,Redis不回滚,其余写命令已经生效
+     */
+    public boolean transaction(String name, TransactionCallback callback, String... watchKeys) {
+        if (watchKeys.length == 0) {
+            throw new IllegalArgumentException("事务至少需要WATCH一个key");
+        }
+        if (root != null) {
+            //视图的连接池在自己的库上,统计与root共用
+            return transaction(name, callback, watchKeys, root.transactionStats(name));
+        }
+        return transaction(name, callback, watchKeys, transactionStats(name));
+    }
+
+    private boolean transaction(String name, TransactionCallback callback, String[] watchKeys, TransactionStats stats) {
+        String command = "TX." + name;
+        int maxRetries = config.getTransactionMaxRetries();
+        for (int attempt = 0; ; attempt++) {
+            Boolean committed = executeOn(command, endpointFor(watchKeys[0]),
+                    jedis -> runTransaction(jedis, callback, watchKeys));
+            if (committed != null) {
+                if (committed) {
+                    stats.recordCommit();
+                } else {
+                    stats.recordAbort();
+                }
+                return committed;
+            }
+            stats.recordConflict();
+            if (attempt >= maxRetries) {
+                stats.recordExhausted();
+                throw new RedisTransactionConflictException("事务" + name + "重试" + maxRetries + "次后仍然冲突："
+                        + Arrays.toString(watchKeys));
+            }
+            stats.recordRetry();
+            Uninterruptibles.sleepUninterruptibly(transactionBackoffMillis(attempt), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 在指定节点的独占连接上执行操作(经过隔离区、指标和慢日志),用于WATCH、逐个节点SCAN等不能经共享连接或按key路由的操作
+     *
+     * @param command  命令名
+     * @param endpoint 节点
+     * @param callback 要执行的操作
+     * @return 执行结果
+     */
+    <T> T executeOn(String command, RedisEndpoint endpoint, RedisCallback<T> callback) {
+        Bulkhead bulkhead = bulkheads.resolve(command);
+        if (bulkhead != null) {
+            bulkhead.acquire();
+        }
+        try {
+            return instrument(command, endpoint, true, callback);
+        } catch (JedisConnectionException e) {
+            if (keyRouter instanceof ClusterChannel) {
+                ((ClusterChannel) keyRouter).nodeFailed(endpoint);
+            }
+            throw e;
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    /**
+     * 保存全部数据的节点:集群模式下为所有主节点,分片模式下为所有分片,否则为默认节点
+     *
+     * @return 节点列表
+     */
+    List<RedisEndpoint> getDataNodes() {
+        if (keyRouter instanceof ClusterChannel) {
+            return ((ClusterChannel) keyRouter).getMasters();
+        }
+        if (keyRouter instanceof ShardedChannel) {
+            return ((ShardedChannel) keyRouter).getRing().getNodes();
+        }
+        return Collections.singletonList(getDefaultEndpoint());
+    }
+
+    /**
+     * @return 是否为集群模式,集群模式下多key命令的key须位于同一槽位
+     */
+    boolean isCluster() {
+        return keyRouter instanceof ClusterChannel;
+    }
+
+    /**
+     * 执行一次事务
+     *
+     * @return 提交返回true,放弃返回false,冲突返回null
+     */
+    private static Boolean runTransaction(Jedis jedis, TransactionCallback callback, String[] watchKeys) {
+        jedis.watch(watchKeys);
+        //回调抛出异常时连接归还连接池时会执行UNWATCH
+        Consumer<RedisPipeline> writes = callback.doInTransaction(jedis);
+        if (writes == null) {
+            jedis.unwatch();
+            return false;
+        }
+        Pipeline pipeline = jedis.pipelined();
+        pipeline.multi();
+        writes.accept(new RedisPipeline(pipeline, 0));
+        Response<List<Object>> exec = pipeline.exec();
+        pipeline.sync();
+        List<Object> replies = exec.get();
+        if (replies == null) {
+            return null;
+        }
+        //EXEC中单条命令失败(如WRONGTYPE)不会回滚其他命令,失败不能当作提交
+        throwErrorReply(replies);
+        return true;
+    }
+
+    /**
+     * 第attempt次冲突后的等待时间:基础间隔按2的指数增长,在其后半段随机取值
+     */
+    private long transactionBackoffMillis(int attempt) {
+        long exp = config.getTransactionBackoffMillis() << Math.min(attempt, 6);
+        long half = exp / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private TransactionStats transactionStats(String name) {
+        TransactionStats stats = transactions.get(name);
+        if (stats == null) {
+            TransactionStats created = new TransactionStats(name);
+            stats = transactions.putIfAbsent(name, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 获取各乐观锁事务的提交、冲突、重试次数
+     *
+     * @return 事务名到统计的映射,按事务名排序
+     */
+    public Map<String, TransactionStats> transactionMetrics() {
+        if (root != null) {
+            return root.transactionMetrics();
+        }
+        return Collections.unmodifiableMap(new TreeMap<String, TransactionStats>(transactions));
+    }
+
+    /**
+     * 批量命令是否需要按节点分组发送:集群、分片模式下使用阻塞传输时,共享路由上的pipeline每条命令都是一次同步往返,
+     * 需按key所在节点分组后在各节点的连接上发送才有批量效果;NIO传输或自动管道由各节点的共享通道批量发送
+     *
+     * @return 是否按节点分组
+     */
+    boolean pipelinesByNode() {
+        return keyRouter != null && !config.isMultiplexed();
+    }
+
+    /**
+     * key所在的节点:集群模式下为负责其槽位的主节点,分片模式下为哈希环上的节点,否则为默认节点
+     */
+    RedisEndpoint endpointFor(String key) {
+        if (keyRouter instanceof ClusterChannel) {
+            return ((ClusterChannel) keyRouter).nodeFor(key);
+        }
+        if (keyRouter instanceof ShardedChannel) {
+            return ((ShardedChannel) keyRouter).getRing().get(key);
+        }
+        return getDefaultEndpoint();
+    }
+
+    /**
+     * 在节点的一个连接上执行操作,执行完毕后归还连接。
+     * 连接校验方式为LAZY时,只读命令遇到连接异常(读超时除外)说明连接已失效,丢弃该连接后在新连接上重试一次。
+     * 写命令、管道、事务不重试:无法判断Redis是否已执行过,重试可能重复写入
+     *
+     * @param endpoint 节点
+     * @param readOnly 是否只读命令
+     * @param callback 要执行的操作
+     * @return 执行结果
+     */
+    private <T> T executeOnPool(RedisEndpoint endpoint, boolean readOnly, RedisCallback<T> callback) {
+        Jedis jedis = endpoint.getResource();
+        try {
+            return callback.doInRedis(jedis);
+        } catch (JedisConnectionException e) {
+            if (!readOnly || config.getValidationMode() != ValidationMode.LAZY
+                    || e.getCause() instanceof SocketTimeoutException) {
+                throw e;
+            }
+            log.warn("Redis连接已失效,更换新连接重试：{}", e.getMessage());
+            //连接已标记为broken,归还时会被销毁
+            returnJedis(jedis);
+            jedis = null;
+            jedis = endpoint.getResource();
+            return callback.doInRedis(jedis);
+        } finally {
+            returnJedis(jedis);
+        }
+    }
+
+    /**
+     * 预热连接池:为默认节点及所有已注册节点并行建立minIdle个连接,阻塞直到完成或超时
+     *
+     * @return 预热结果
+     */
+    public RedisWarmUp.Result warmUp() {
+        if (keyRouter instanceof ClusterChannel) {
+            //加载槽位映射,注册所有主节点
+            ((ClusterChannel) keyRouter).getMasters();
+        } else if (keyRouter == null) {
+            getDefaultEndpoint();
+        }
+        return RedisWarmUp.warmUp(getEndpoints(), config.getMinIdle(), RedisConfig.getWarmUpTimeoutMillis());
+    }
+
+    /**
+     * 在后台线程中预热连接池,不阻塞调用方
+     *
+     * @return 预热结果
+     */
+    public CompletableFuture<RedisWarmUp.Result> warmUpAsync() {
+        return CompletableFuture.supplyAsync(this::warmUp, task -> {
+            Thread thread = new Thread(task, "redis-warmup");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * 获取已注册的所有节点
+     *
+     * @return 节点集合
+     */
+    public Collection<RedisEndpoint> getEndpoints() {
+        return Collections.unmodifiableCollection(maps.values());
+    }
+
+    /**
+     * 获取所有已注册节点的连接池指标快照
+     *
+     * @return 节点(ip:port)到指标快照的映射
+     */
+    public Map<String, PoolMetrics.Snapshot> metrics() {
+        Map<String, PoolMetrics.Snapshot> snapshots = new LinkedHashMap<String, PoolMetrics.Snapshot>();
+        for (RedisEndpoint endpoint : maps.values()) {
+            snapshots.put(endpoint.getKey(), endpoint.getMetrics().snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * 获取按命令名统计的耗时指标快照
+     *
+     * @return 命令名到指标快照的映射
+     */
+    public Map<String, CommandStats.Snapshot> commandMetrics() {
+        return commandMetrics.snapshot();
+    }
+
+    /**
+     * 获取客户端慢日志
+     *
+     * @return 慢日志
+     */
+    public SlowLog getSlowLog() {
+        return slowLog;
+    }
+
+    /**
+     * 指定当前线程后续命令使用的隔离区,直到返回的Scope关闭,用于按调用方隔离(如报表任务)
+     *
+     * @param name 隔离区名,需在redis.bulkhead.names中配置
+     * @return 关闭时恢复之前的隔离区
+     */
+    public Bulkheads.Scope bulkhead(String name) {
+        return bulkheads.tag(name);
+    }
+
+    /**
+     * 获取所有隔离区的快照(并发数、拒绝次数等)
+     *
+     * @return 隔离区名到快照的映射
+     */
+    public Map<String, Bulkhead.Snapshot> bulkheads() {
+        return bulkheads.snapshot();
+    }
+
+    /**
+     * 把当前线程指定的隔离区和强制读主节点设置带到在其他线程中执行的任务
+     *
+     * @param task 任务
+     * @return 包装后的任务
+     */
+    Runnable inheritContext(Runnable task) {
+        String bulkhead = bulkheads.taggedName();
+        boolean masterForced = ReadRouter.isMasterForced();
+        if (bulkhead == null && !masterForced) {
+            return task;
+        }
+        return () -> {
+            try (Bulkheads.Scope tag = bulkhead == null ? null : bulkheads.tag(bulkhead);
+                 ReadRouter.Scope master = masterForced ? readRouter.forceMaster() : null) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * 当前线程后续的只读命令都读主节点,直到返回的Scope关闭。用于写入后立即读取、不能容忍复制延迟的场景:
+     * <pre>
+     * try (ReadRouter.Scope scope = RedisUtil.getInstance().readFromMaster()) {
+     *     ...
+     * }
+     * </pre>
+     *
+     * @return 关闭时恢复读从节点
+     */
+    public ReadRouter.Scope readFromMaster() {
+        return readRouter.forceMaster();
+    }
+
+    /**
+     * 按redis.replicas配置注册从节点
+     */
+    private ReadRouter createReadRouter() {
+        List<RedisEndpoint> replicas = RedisClientConfig.isConfigured(config.getClusterNodes())
+                || RedisClientConfig.isConfigured(config.getShards())
+                ? Collections.<RedisEndpoint>emptyList()
+                : parseEndpoints("redis.replicas", config.getReplicas());
+        return new ReadRouter(replicas, config.getReplicaStrategy());
+    }
+
+    /**
+     * 配置了redis.cluster.nodes时创建集群通道(槽位映射在首次执行命令时加载),
+     * 否则配置了redis.shards时创建分片通道
+     */
+    private CommandChannel createKeyRouter() {
+        boolean multiplexed = config.isMultiplexed();
+        if (RedisClientConfig.isConfigured(config.getClusterNodes())) {
+            if (database != 0) {
+                throw new IllegalStateException("Redis集群只有0号库：" + database);
+            }
+            return new ClusterChannel(parseEndpoints("redis.cluster.nodes", config.getClusterNodes()),
+                    node -> getEndpoint(node.getHost(), node.getPort()), config.getClusterMaxRedirects(), multiplexed);
+        }
+        if (RedisClientConfig.isConfigured(config.getShards())) {
+            return new ShardedChannel(new ConsistentHashRing(parseEndpoints("redis.shards", config.getShards()),
+                    config.getShardVirtualNodes()), multiplexed);
+        }
+        return null;
+    }
+
+    /**
+     * 按redis.sentinel.*配置创建主节点监视器,首次使用默认节点时才询问Sentinel并开始订阅切换消息
+     */
+    private SentinelMonitor createSentinel() {
+        if (!RedisClientConfig.isConfigured(config.getSentinelMaster())) {
+            return null;
+        }
+        List<HostAndPort> sentinels = parseAddresses("redis.sentinel.nodes", config.getSentinelNodes());
+        return new SentinelMonitor(config.getSentinelMaster().trim(), sentinels, config, master -> switchMaster());
+    }
+
+    /**
+     * 解析逗号分隔的ip:port列表并注册节点
+     */
+    private List<RedisEndpoint> parseEndpoints(String property, String value) {
+        List<RedisEndpoint> endpoints = new ArrayList<RedisEndpoint>();
+        for (HostAndPort address : parseAddresses(property, value)) {
+            endpoints.add(getEndpoint(address.getHost(), address.getPort()));
+        }
+        return endpoints;
+    }
+
+    /**
+     * pipeline中某条命令返回错误时不会抛出,而是作为应答返回,这里抛出第一个错误
+     *
+     * @param replies pipeline的应答
+     */
+    static void throwErrorReply(List<Object> replies) {
+        for (Object reply : replies) {
+            if (reply instanceof JedisDataException) {
+                throw (JedisDataException) reply;
+            }
+        }
+    }
+
+    /**
+     * 解析逗号分隔的ip:port列表
+     */
+    private static List<HostAndPort> parseAddresses(String property, String value) {
+        List<HostAndPort> addresses = new ArrayList<HostAndPort>();
+        if (value != null) {
+            for (String address : value.split(",")) {
+                address = address.trim();
+                if (address.isEmpty()) {
+                    continue;
+                }
+                int colon = address.lastIndexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException(property + "格式应为ip:port：" + address);
+                }
+                addresses.add(new HostAndPort(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1))));
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * 获取默认节点,首次调用后缓存引用
+     *
+     * @return 默认节点
+     */
+    RedisEndpoint getDefaultEndpoint() {
+        RedisEndpoint endpoint = defaultEndpoint;
+        if (root != null) {
+            //跟随默认库实例的节点(Sentinel切换后会变化)
+            RedisEndpoint server = root.getDefaultEndpoint();
+            if (endpoint == null || !endpoint.isSameServer(server)) {
+                endpoint = getEndpoint(server.getHost(), server.getPort());
+                defaultEndpoint = endpoint;
+            }
+            return endpoint;
+        }
+        if (endpoint == null) {
+            synchronized (this) {
+                if (defaultEndpoint == null) {
+                    if (sentinel == null) {
+                        defaultEndpoint = getEndpoint(config.getHost(), config.getPort());
+                    } else {
+                        HostAndPort master = sentinel.getMaster();
+                        defaultEndpoint = getEndpoint(master.getHost(), master.getPort());
+                        sentinel.start();
+                    }
+                }
+                endpoint = defaultEndpoint;
+            }
+        }
+        return endpoint;
+    }
+
+    /**
+     * Sentinel通知主节点切换:之后的命令立即使用新主节点,旧主节点的连接池和共享通道被清空
+     */
+    private synchronized void switchMaster() {
+        HostAndPort master = sentinel.getMaster();
+        switchDefaultEndpoint(master.getHost(), master.getPort());
+    }
+
+    /**
+     * 切换默认节点,旧节点各个库的连接池和共享通道被清空(借出中的连接归还时销毁)
+     */
+    private synchronized void switchDefaultEndpoint(String host, int port) {
+        RedisEndpoint current = getEndpoint(host, port);
+        RedisEndpoint previous = defaultEndpoint;
+        if (previous == current) {
+            return;
+        }
+        defaultEndpoint = current;
+        log.warn("Redis主节点已切换：{} -> {}", previous, current);
+        if (previous != null) {
+            //旧主节点各个库的连接池
+            for (RedisEndpoint endpoint : maps.values()) {
+                if (endpoint.isSameServer(previous)) {
+                    endpoint.drain();
+                }
+            }
+        }
+    }
+
+    /**
+     * 修改后重新创建连接池才能生效的配置项
+     */
+    private static final Set<String> REBUILD_PROPERTIES = new HashSet<String>(Arrays.asList(
+            "redis.pool.timeout", "redis.password", "redis.pool.validation", "redis.pool.validationIdleMillis"));
+
+    /**
+     * 修改后需要重启才能生效的配置项(前缀)
+     */
+    private static final List<String> RESTART_PROPERTIES = Arrays.asList("redis.index", "redis.replicas",
+            "redis.cluster.", "redis.shards", "redis.sentinel.", "redis.bulkhead.", "redis.transport", "redis.nio.",
+            "redis.autoPipeline.", "redis.async.", "redis.slowlog.capacity", "redis.config.");
+
+    /**
+     * 配置变化时调整运行中的连接池:redis.pool.*调整所有已创建的连接池,超时、密码、校验方式变化时按新配置重建连接池,
+     * redis.ip/redis.port变化时切换默认节点。其余配置项(如慢日志阈值、熔断参数)随默认实例的配置一起更新,自动生效
+     */
+    private void onConfigChanged(Set<String> changed) {
+        boolean rebuild = false;
+        boolean resize = false;
+        for (String property : changed) {
+            if (REBUILD_PROPERTIES.contains(property)) {
+                rebuild = true;
+            } else if (property.startsWith("redis.pool.")) {
+                resize = true;
+            } else if ((sentinel != null && (property.equals("redis.ip") || property.equals("redis.port")))
+                    || RESTART_PROPERTIES.stream().anyMatch(property::startsWith)) {
+                log.warn("Redis配置项{}修改后需要重启才能生效", property);
+            }
+        }
+        RedisClientConfig refreshed = config.refresh();
+        config = refreshed;
+        for (RedisUtil view : databases.values()) {
+            view.config = refreshed;
+        }
+        slowLog.configure(refreshed.getSlowLogThresholdMillis(), refreshed.getSlowLogStackDepth());
+        if (rebuild || resize) {
+            for (RedisEndpoint endpoint : maps.values()) {
+                endpoint.reconfigure(refreshed, rebuild);
+            }
+        }
+        if (sentinel == null && keyRouter == null && (changed.contains("redis.ip") || changed.contains("redis.port"))) {
+            switchDefaultEndpoint(config.getHost(), config.getPort());
+        }
+    }
+
+    /**
+     * 获取节点,不存在时注册。注册只创建节点对象,连接池在节点首次使用时才创建,不会阻塞其他节点
      *
      * @param ip   所要连接的redis ip
      * @param port 连接端口
+     * @return 节点
+     */
+    RedisEndpoint getEndpoint(final String ip, final int port) {
+        return getEndpoint(ip, port, database);
+    }
+
+    /**
+     * 获取节点的某个库,不存在时注册。每个库单独一个连接池,连接建立时选库,之后不再切换
+     *
+     * @param ip       所要连接的redis ip
+     * @param port     连接端口
+     * @param database 库
+     * @return 节点
+     */
+    RedisEndpoint getEndpoint(final String ip, final int port, final int database) {
+        String key = RedisEndpoint.key(ip, port, database);
+        RedisEndpoint endpoint = maps.get(key);
+        if (endpoint == null) {
+            endpoint = maps.computeIfAbsent(key, k -> new RedisEndpoint(ip, port, database, config));
+        }
+        return endpoint;
+    }
+
+    /**
+     * getJedisByCondition:根据条件获取Redis对象. <br/>
+     *
+     * @param endpoint 节点
      * @return
+     * @author sw
+     * @since JDK 1.7
      */
-    private JedisPool jedisPoolConfig(String ip, Integer port) {
-        String key = ip + ":" + port;
-        JedisPool pool = null;
-        if (!maps.containsKey(key)) {
-            synchronized (lock) {
-                if (!maps.containsKey(key)) {
-
-                    JedisPoolConfig config = new JedisPoolConfig();
-                    //最大连接数
-                    config.setMaxTotal(RedisConfig.getMaxTotal());
-                    // 最大空闲连接数
-                    config.setMaxIdle(RedisConfig.getMaxIdle());
-                    // 最大等待时间
-                    config.setMaxWaitMillis(RedisConfig.getMaxWaitMillis());
-                    // 在获取连接的时候检查有效性,默认false
-                    config.setTestOnBorrow(RedisConfig.getTestOnBorrow());
-
-                    config.setTestOnReturn(RedisConfig.getTestOnReturn());
-                    config.setTestWhileIdle(RedisConfig.getTestWhileIdle());
-                    config.setMinIdle(RedisConfig.getMinIdle());
-                    try {
-                        /**
-                         * 如果你遇到 java.net.SocketTimeoutException: Read timed out
-                         * exception的异常信息 请尝试在构造JedisPool的时候设置自己的超时值.
-                         * JedisPool默认的超时时间是2秒(单位毫秒)
-                         */
-                        if (RedisConfig.getPassword() != null) {
-                            pool = new JedisPool(config, ip, port, RedisConfig.getTimeout(), RedisConfig.getPassword(), RedisConfig.getDbIndex());
-                        } else {
-                            pool = new JedisPool(config, ip, port, RedisConfig.getTimeout());
-                        }
-                        //测试是否可以获取对象
-                        Jedis jedis = pool.getResource();
-                        if (jedis != null) {
-                            //关闭
-                            returnJedis(jedis);
+    private Jedis getJedisByCondition(RedisEndpoint endpoint) {
+        Jedis jedis = null;
+        //用来保存获取实例对象的次数
+        int count = 0;
+        do {
+            try {
+                jedis = endpoint.getResource();
+            } catch (RedisUnavailableException e) {
+                //节点熔断中,重试没有意义
+                log.warn(e.getMessage());
+                break;
+            } catch (Exception e) {
+                log.error("get redis master1 failed!", e);
+                // 销毁对象
+                returnJedis(jedis);
+            }
+            count++;
+            if (jedis == null && count < config.getRetryNum()) {
+                //退避后再重试,避免立即重连
+                try {
+                    Thread.sleep(EndpointHealth.backoffMillis(count - 1, config));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } while (jedis == null && count < config.getRetryNum());
+
+        return jedis;
+    }
+
+
+    public class Scripts {
+
+        /**
+         * 注册脚本,之后可以按名称执行,{@link #load()}时预先加载到Redis
+         *
+         * @param script 脚本
+         * @throws IllegalArgumentException 已注册了同名但源码不同的脚本
+         */
+        public void register(RedisScript<?> script) {
+            RedisScript<?> existing = scripts.putIfAbsent(script.getName(), script);
+            if (existing != null && !existing.getSha1().equals(script.getSha1())) {
+                throw new IllegalArgumentException("已注册了同名的其他脚本：" + script.getName());
+            }
+        }
+
+        /**
+         * 获取已注册的脚本
+         *
+         * @param name 名称
+         * @return 脚本,未注册时为null
+         */
+        public RedisScript<?> get(String name) {
+            return scripts.get(name);
+        }
+
+        /**
+         * 执行脚本(未注册时先注册):先以EVALSHA发送SHA1,Redis返回NOSCRIPT时改用EVAL发送源码,耗时计入命令SCRIPT.name
+         *
+         * @param script 脚本
+         * @param keys   KEYS
+         * @param args   ARGV
+         * @return 转换后的结果
+         */
+        public <T> T eval(RedisScript<T> script, List<String> keys, List<String> args) {
+            register(script);
+            return execute("SCRIPT." + script.getName(), jedis -> {
+                Object result;
+                try {
+                    result = jedis.evalsha(script.getSha1(), keys, args);
+                } catch (JedisNoScriptException e) {
+                    result = jedis.eval(script.getSource(), keys, args);
+                }
+                return script.map(result);
+            });
+        }
+
+        /**
+         * 按名称执行已注册的脚本
+         *
+         * @param name 名称
+         * @param keys KEYS
+         * @param args ARGV
+         * @return 转换后的结果
+         * @throws IllegalArgumentException 脚本未注册
+         */
+        public Object eval(String name, List<String> keys, List<String> args) {
+            RedisScript<?> script = scripts.get(name);
+            if (script == null) {
+                throw new IllegalArgumentException("脚本未注册：" + name);
+            }
+            return eval(script, keys, args);
+        }
 
-                            maps.put(key, pool);
-                        }
-                    } catch (Exception e) {
-                        if (pool != null) {
-                            pool.close();
-                        }
+        /**
+         * 在指定节点上以一个pipeline执行多次脚本,每组keys一次,用于逐个节点的批量操作(如按表达式删除)。
+         * 先以EVALSHA发送,返回NOSCRIPT的几次改用EVAL重发源码,执行期间脚本缓存被清空也不会失败。耗时计入command
+         *
+         * @param command   命令名
+         * @param endpoint  节点
+         * @param script    脚本
+         * @param keyGroups 每次执行的KEYS,集群模式下每组须位于同一槽位
+         * @return 各次执行转换后的结果,顺序与keyGroups相同
+         */
+        <T> List<T> evalOn(String command, RedisEndpoint endpoint, RedisScript<T> script,
+                           Collection<List<String>> keyGroups) {
+            register(script);
+            byte[] sha1 = SafeEncoder.encode(script.getSha1());
+            byte[] source = SafeEncoder.encode(script.getSource());
+            List<byte[][]> keys = new ArrayList<byte[][]>(keyGroups.size());
+            for (List<String> group : keyGroups) {
+                keys.add(SafeEncoder.encodeMany(group.toArray(new String[group.size()])));
+            }
+            List<Object> replies = executeOn(command, endpoint, jedis -> {
+                Pipeline pipeline = jedis.pipelined();
+                for (byte[][] group : keys) {
+                    //字符串版本的evalsha在Jedis 2.9中把结果解析为字符串,这里用二进制版本取得原始结果
+                    pipeline.evalsha(sha1, group.length, group);
+                }
+                List<Object> results = new ArrayList<Object>(pipeline.syncAndReturnAll());
+                List<Integer> missing = new ArrayList<Integer>();
+                for (int i = 0; i < results.size(); i++) {
+                    if (results.get(i) instanceof JedisNoScriptException) {
+                        missing.add(i);
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    pipeline = jedis.pipelined();
+                    for (int i : missing) {
+                        pipeline.eval(source, keys.get(i).length, keys.get(i));
+                    }
+                    List<Object> retried = pipeline.syncAndReturnAll();
+                    for (int i = 0; i < missing.size(); i++) {
+                        results.set(missing.get(i), retried.get(i));
                     }
                 }
+                return results;
+            });
+            throwErrorReply(replies);
+            List<T> mapped = new ArrayList<T>(replies.size());
+            for (Object reply : replies) {
+                mapped.add(script.map(reply));
             }
-        } else {
-            pool = maps.get(key);
+            return mapped;
         }
-        return pool;
-    }
 
-    /**
-     * getJedisByCondition:根据条件获取Redis对象. <br/>
-     *
-     * @param ip
-     * @param port
-     * @return
-     * @author sw
-     * @since JDK 1.7
-     */
-    private Jedis getJedisByCondition(String ip, int port) {
-        Jedis jedis = null;
-        //用来保存获取实例对象的次数
-        int count = 0;
-        do {
-            try {
-                jedis = getPool(ip, port).getResource();
-            } catch (Exception e) {
-                log.error("get redis master1 failed!", e);
-                // 销毁对象
-                returnJedis(jedis);
+        /**
+         * 把已注册的脚本加载(SCRIPT LOAD)到所有已注册的节点,如启动后或主从切换后调用,避免首次执行时的NOSCRIPT往返。
+         * 不可用或返回错误(如BUSY)的节点跳过,不影响其他节点
+         *
+         * @return 加载成功的节点数
+         */
+        public int load() {
+            int loaded = 0;
+            for (RedisEndpoint endpoint : maps.values()) {
+                try (Jedis jedis = endpoint.getResource()) {
+                    for (RedisScript<?> script : scripts.values()) {
+                        jedis.scriptLoad(script.getSource());
+                    }
+                    loaded++;
+                } catch (JedisException e) {
+                    log.warn("Redis节点{}加载脚本失败：{}", endpoint.getKey(), e.getMessage());
+                }
             }
-            count++;
-        } while (jedis == null && count < RedisConfig.getRetryNum());
-
-        return jedis;
+            return loaded;
+        }
     }
 
-
     public class Keys {
         /**
-         * 清空redis中所有数据
+         * 清空redis中所有数据,集群、分片模式下依次清空每个节点
          *
          * @return 状态码
          */
         public String flushAll() {
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                return jedis.flushAll();
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
+            if (keyRouter == null) {
+                return execute("KEYS.flushAll", jedis -> jedis.flushAll());
             }
+            for (RedisEndpoint node : getDataNodes()) {
+                executeOn("KEYS.flushAll", node, Jedis::flushAll);
+            }
+            return "OK";
         }
 
         /**
@@ -302,17 +1318,7 @@ public class RedisUtil {
          * @return 状态码
          */
         public long renamenx(String oldKey, String newKey) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long status = jedis.renamenx(oldKey, newKey);
-                return status;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("KEYS.renamenx", jedis -> jedis.renamenx(oldKey, newKey));
         }
 
         /**
@@ -323,16 +1329,7 @@ public class RedisUtil {
          * @return 状态码
          */
         public String rename(byte[] oldKey, byte[] newKey) {
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String status = jedis.rename(oldKey, newKey);
-                return status;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("KEYS.rename", jedis -> jedis.rename(oldKey, newKey));
         }
 
         /**
@@ -343,17 +1340,20 @@ public class RedisUtil {
          * @return 影响的记录数
          */
         public long expired(String key, int seconds) {
+            return execute("KEYS.expired", jedis -> jedis.expire(key, seconds));
+        }
 
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long count = jedis.expire(key, seconds);
-                return count;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+        /**
+         * 值等于expected时设置过期时间,判断和设置是原子的,用于锁续期
+         *
+         * @param key
+         * @param expected 期望的值
+         * @param seconds  时间,以秒为单位
+         * @return 是否设置
+         */
+        public boolean expireIfEquals(String key, String expected, int seconds) {
+            return SCRIPTS.eval(RedisScript.COMPARE_AND_EXPIRE, Collections.singletonList(key),
+                    Arrays.asList(expected, String.valueOf(seconds)));
         }
 
         /**
@@ -364,17 +1364,7 @@ public class RedisUtil {
          * @return 影响的记录数
          */
         public long expireAt(String key, long timestamp) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long count = jedis.expireAt(key, timestamp);
-                return count;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("KEYS.expireAt", jedis -> jedis.expireAt(key, timestamp));
         }
 
         /**
@@ -384,15 +1374,7 @@ public class RedisUtil {
          * @return 以秒为单位的时间表示
          */
         public long ttl(String key) {
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                return jedis.ttl(key);
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("KEYS.ttl", jedis -> jedis.ttl(key));
         }
 
         /**
@@ -402,16 +1384,7 @@ public class RedisUtil {
          * @return 影响的记录数
          */
         public long persist(String key) {
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long count = jedis.persist(key);
-                return count;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("KEYS.persist", jedis -> jedis.persist(key));
         }
 
         /**
@@ -421,17 +1394,8 @@ public class RedisUtil {
          * @return 删除的记录数
          */
         public long del(String... keys) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                //删除
-                return jedis.del(keys);
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            //删除
+            return execute("KEYS.del", jedis -> jedis.del(keys));
         }
 
         /**
@@ -441,16 +1405,7 @@ public class RedisUtil {
          * @return 删除的记录数
          */
         public long del(byte[]... keys) {
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long count = jedis.del(keys);
-                return count;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("KEYS.del", jedis -> jedis.del(keys));
         }
 
         /**
@@ -460,16 +1415,7 @@ public class RedisUtil {
          * @return boolean
          */
         public boolean exists(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                return jedis.exists(key);
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("KEYS.exists", jedis -> jedis.exists(key));
         }
 
         /**
@@ -480,16 +1426,8 @@ public class RedisUtil {
          * @return
          */
         public boolean exists(int dbIndex, String key) {
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                jedis.select(dbIndex);
-                return jedis.exists(key);
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            //在该库自己的连接池上执行,不切换共享连接的库
+            return db(dbIndex).KEYS.exists(key);
         }
 
         /**
@@ -499,16 +1437,7 @@ public class RedisUtil {
          * @return List<String> 集合的全部记录
          **/
         public List<String> sort(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                return jedis.sort(key);
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("KEYS.sort", jedis -> jedis.sort(key));
         }
 
         /**
@@ -519,16 +1448,7 @@ public class RedisUtil {
          * @return List<String> 全部或部分记录
          **/
         public List<String> sort(String key, SortingParams params) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                return jedis.sort(key, params);
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("KEYS.sort", jedis -> jedis.sort(key, params));
         }
 
         /**
@@ -538,37 +1458,58 @@ public class RedisUtil {
          * @return String string|list|set|zset|hash
          **/
         public String type(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String type = jedis.type(key);
-                return type;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("KEYS.type", jedis -> jedis.type(key));
         }
 
         /**
-         * 查找所有匹配给定的模式的键
+         * 查找所有匹配给定的模式的键,集群、分片模式下在每个节点上执行并合并结果。
+         * KEYS会遍历整个库并阻塞Redis,key多时应使用{@link #scan(String)}
          *
          * @param pattern key的表达式,*表示多个，？表示一个
          * @return
          */
         public Set<String> keys(String pattern) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Set<String> set = jedis.keys(pattern);
-                return set;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
+            if (keyRouter == null) {
+                return execute("KEYS.keys", jedis -> jedis.keys(pattern));
+            }
+            Set<String> keys = new HashSet<String>();
+            for (RedisEndpoint node : getDataNodes()) {
+                keys.addAll(executeOn("KEYS.keys", node, jedis -> jedis.keys(pattern)));
             }
+            return keys;
+        }
+
+        /**
+         * 以SCAN惰性遍历匹配的键,每次SCAN的COUNT为redis.scan.count
+         *
+         * @param pattern key的表达式,*表示多个，？表示一个
+         * @return key的迭代器,同一个key可能返回多次
+         */
+        public Iterator<String> scan(String pattern) {
+            return RedisScan.scan(RedisUtil.this, pattern, config.getScanCount(), null);
+        }
+
+        /**
+         * 以SCAN惰性遍历匹配的键
+         *
+         * @param pattern key的表达式,*表示多个，？表示一个
+         * @param count   每次SCAN的COUNT提示
+         * @param type    只返回该类型的key(需要Redis 6.0以上),为空时不限
+         * @return key的迭代器,同一个key可能返回多次
+         */
+        public Iterator<String> scan(String pattern, int count, String type) {
+            return RedisScan.scan(RedisUtil.this, pattern, count, type);
+        }
+
+        /**
+         * 删除匹配的键:边SCAN边以UNLINK分批删除,批次大小和限速使用redis.scan.deleteBatchSize、redis.scan.deleteRatePerSecond
+         *
+         * @param pattern key的表达式,*表示多个，？表示一个
+         * @return 删除的key数
+         */
+        public long deleteByPattern(String pattern) {
+            return RedisScan.deleteByPattern(RedisUtil.this, pattern, config.getScanDeleteBatchSize(),
+                    config.getScanDeleteRatePerSecond());
         }
     }
 
@@ -582,17 +1523,7 @@ public class RedisUtil {
          * @return 操作码, 0或1
          */
         public long sadd(String key, String member) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.sadd(key, member);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.sadd", jedis -> jedis.sadd(key, member));
         }
 
         /**
@@ -603,17 +1534,31 @@ public class RedisUtil {
          * @return 操作码, 0或1
          */
         public long sadd(byte[] key, byte[] member) {
+            return execute("SETS.sadd", jedis -> jedis.sadd(key, member));
+        }
 
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.sadd(key, member);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+        /**
+         * 批量向Set添加记录,按redis.batch.chunkSize个成员一条SADD,多条SADD以pipeline在多个连接上并行发送
+         *
+         * @param key
+         * @param members 成员
+         * @return 发送数、新增数和耗时
+         */
+        public BulkLoadResult saddAll(String key, Iterable<String> members) {
+            return saddAll(key, members.iterator());
+        }
+
+        /**
+         * 批量向Set添加记录,成员边读取边发送,适合从文件、数据库游标等读取的大量成员。
+         * 迭代器会在线程池中被读取(加锁,同一时刻只有一个线程读取);中途失败时已发送的成员已经写入
+         *
+         * @param key
+         * @param members 成员
+         * @return 发送数、新增数和耗时
+         */
+        public BulkLoadResult saddAll(String key, Iterator<String> members) {
+            return BATCH.load("SETS.saddAll", key, members, config.getBatchChunkSize(),
+                    (pipeline, chunk) -> pipeline.sadd(key, chunk.toArray(new String[chunk.size()])));
         }
 
         /**
@@ -623,17 +1568,7 @@ public class RedisUtil {
          * @return 元素个数
          */
         public long scard(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long len = jedis.scard(key);
-                return len;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.scard", jedis -> jedis.scard(key));
         }
 
         /**
@@ -643,17 +1578,7 @@ public class RedisUtil {
          * @return 差异的成员集合
          */
         public Set<String> sdiff(String... keys) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Set<String> set = jedis.sdiff(keys);
-                return set;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.sdiff", jedis -> jedis.sdiff(keys));
         }
 
         /**
@@ -664,17 +1589,7 @@ public class RedisUtil {
          * @return 新集合中的记录数
          **/
         public long sdiffstore(String newKey, String... keys) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.sdiffstore(newKey, keys);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.sdiffstore", jedis -> jedis.sdiffstore(newKey, keys));
         }
 
         /**
@@ -684,17 +1599,7 @@ public class RedisUtil {
          * @return 交集成员的集合
          **/
         public Set<String> sinter(String... keys) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Set<String> set = jedis.sinter(keys);
-                return set;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.sinter", jedis -> jedis.sinter(keys));
         }
 
         /**
@@ -705,17 +1610,7 @@ public class RedisUtil {
          * @return 新集合中的记录数
          **/
         public long sinterstore(String newkey, String... keys) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.sinterstore(newkey, keys);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.sinterstore", jedis -> jedis.sinterstore(newkey, keys));
         }
 
         /**
@@ -726,17 +1621,7 @@ public class RedisUtil {
          * @return 存在返回1，不存在返回0
          **/
         public boolean sismember(String key, String member) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                boolean s = jedis.sismember(key, member);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.sismember", jedis -> jedis.sismember(key, member));
         }
 
         /**
@@ -746,17 +1631,7 @@ public class RedisUtil {
          * @return 成员集合
          */
         public Set<String> smembers(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Set<String> set = jedis.smembers(key);
-                return set;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.smembers", jedis -> jedis.smembers(key));
         }
 
         /**
@@ -766,17 +1641,7 @@ public class RedisUtil {
          * @return 成员集合
          */
         public Set<byte[]> smembers(byte[] key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Set<byte[]> set = jedis.smembers(key);
-                return set;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.smembers", jedis -> jedis.smembers(key));
         }
 
         /**
@@ -790,17 +1655,7 @@ public class RedisUtil {
          * @return 状态码，1成功，0失败
          */
         public long smove(String srcKey, String dstKey, String member) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.smove(srcKey, dstKey, member);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.smove", jedis -> jedis.smove(srcKey, dstKey, member));
         }
 
         /**
@@ -810,17 +1665,7 @@ public class RedisUtil {
          * @return 被删除的成员
          */
         public String spop(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String s = jedis.spop(key);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.spop", jedis -> jedis.spop(key));
         }
 
         /**
@@ -831,17 +1676,7 @@ public class RedisUtil {
          * @return 状态码，成功返回1，成员不存在返回0
          */
         public long srem(String key, String member) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.srem(key, member);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.srem", jedis -> jedis.srem(key, member));
         }
 
         /**
@@ -851,17 +1686,7 @@ public class RedisUtil {
          * @return 合并后的结果集合
          */
         public Set<String> sunion(String... keys) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Set<String> set = jedis.sunion(keys);
-                return set;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.sunion", jedis -> jedis.sunion(keys));
         }
 
         /**
@@ -871,17 +1696,7 @@ public class RedisUtil {
          * @param keys   要合并的集合
          **/
         public long sunionstore(String newKey, String... keys) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.sunionstore(newKey, keys);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SETS.sunionstore", jedis -> jedis.sunionstore(newKey, keys));
         }
     }
 
@@ -896,17 +1711,7 @@ public class RedisUtil {
          * @return 状态码 1成功，0已存在member的值
          */
         public long zadd(byte[] key, double score, byte[] member) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.zadd(key, score, member);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zadd", jedis -> jedis.zadd(key, score, member));
         }
 
         /**
@@ -918,21 +1723,37 @@ public class RedisUtil {
          * @return 状态码 1成功，0已存在member的值
          */
         public long zadd(String key, int score, String member) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.zadd(key, score, member);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zadd", jedis -> jedis.zadd(key, score, member));
         }
 
+        /**
+         * 批量向集合中增加记录,已存在的成员更新权重。按redis.batch.chunkSize个成员一条ZADD,多条ZADD以pipeline在多个连接上并行发送
+         *
+         * @param key
+         * @param scoreMembers 成员到权重的映射
+         * @return 发送数、新增数和耗时
+         */
+        public BulkLoadResult zaddAll(String key, Map<String, Double> scoreMembers) {
+            return zaddAll(key, scoreMembers.entrySet().iterator());
+        }
 
-
+        /**
+         * 批量向集合中增加记录,成员边读取边发送。迭代器会在线程池中被读取(加锁,同一时刻只有一个线程读取);
+         * 同一成员出现多次时以最后执行的ZADD为准,并行发送时不保证是迭代顺序中的最后一个
+         *
+         * @param key
+         * @param scoreMembers 成员和权重
+         * @return 发送数、新增数和耗时
+         */
+        public BulkLoadResult zaddAll(String key, Iterator<? extends Map.Entry<String, Double>> scoreMembers) {
+            return BATCH.load("SORTSET.zaddAll", key, scoreMembers, config.getBatchChunkSize(), (pipeline, chunk) -> {
+                Map<String, Double> batch = new HashMap<String, Double>(chunk.size() * 4 / 3 + 1);
+                for (Map.Entry<String, Double> entry : chunk) {
+                    batch.put(entry.getKey(), entry.getValue());
+                }
+                pipeline.zadd(key, batch);
+            });
+        }
 
         /**
          * 获取集合中元素的数量
@@ -941,17 +1762,7 @@ public class RedisUtil {
          * @return 如果返回0则集合不存在
          */
         public long zcard(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long len = jedis.zcard(key);
-                return len;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zcard", jedis -> jedis.zcard(key));
         }
         /**
          * 获取集合的并集
@@ -961,17 +1772,7 @@ public class RedisUtil {
          * @return 返回并集集合
          */
         public long zunionstore(String destKey,String... keys) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long len = jedis.zunionstore(destKey, keys);
-                return len;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zunionstore", jedis -> jedis.zunionstore(destKey, keys));
         }
 
         /**
@@ -982,17 +1783,7 @@ public class RedisUtil {
          * @param max 最大排序位置
          */
         public long zcount(String key, double min, double max) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long len = jedis.zcount(key, min, max);
-                return len;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zcount", jedis -> jedis.zcount(key, min, max));
         }
 
         /**
@@ -1016,17 +1807,7 @@ public class RedisUtil {
          * @return 增后的权重
          */
         public double zincrby(String key, double score, String member) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                double s = jedis.zincrby(key, score, member);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zincrby", jedis -> jedis.zincrby(key, score, member));
         }
 
         /**
@@ -1038,17 +1819,7 @@ public class RedisUtil {
          * @return 增后的权重
          */
         public double zincrby(String key, int score, String member) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                double s = jedis.zincrby(key, score, member);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zincrby", jedis -> jedis.zincrby(key, score, member));
         }
 
         /**
@@ -1060,17 +1831,7 @@ public class RedisUtil {
          * @return Set<String>
          */
         public Set<String> zrange(String key, int start, int end) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Set<String> set = jedis.zrange(key, start, end);
-                return set;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zrange", jedis -> jedis.zrange(key, start, end));
         }
 
         /**
@@ -1082,17 +1843,7 @@ public class RedisUtil {
          * @return Set<String>
          */
         public Set<byte[]> zrange(byte[] key, int start, int end) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Set<byte[]> set = jedis.zrange(key, start, end);
-                return set;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zrange", jedis -> jedis.zrange(key, start, end));
         }
 
         /**
@@ -1104,17 +1855,7 @@ public class RedisUtil {
          * @return Set<String>
          */
         public Set<String> zrangeByScore(String key, double min, double max) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Set<String> set = jedis.zrangeByScore(key, min, max);
-                return set;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zrangeByScore", jedis -> jedis.zrangeByScore(key, min, max));
         }
 
         /**
@@ -1125,17 +1866,7 @@ public class RedisUtil {
          * @return long 位置
          */
         public long zrank(String key, String member) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long index = jedis.zrank(key, member);
-                return index;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zrank", jedis -> jedis.zrank(key, member));
         }
 
         /**
@@ -1146,17 +1877,7 @@ public class RedisUtil {
          * @return long 位置
          */
         public long zrevrank(String key, String member) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long index = jedis.zrevrank(key, member);
-                return index;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zrevrank", jedis -> jedis.zrevrank(key, member));
         }
 
         /**
@@ -1167,17 +1888,7 @@ public class RedisUtil {
          * @return 返回1成功
          */
         public long zrem(String key, String member) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.zrem(key, member);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zrem", jedis -> jedis.zrem(key, member));
         }
 
         /**
@@ -1185,19 +1896,9 @@ public class RedisUtil {
          *
          * @param key
          * @return
-         */
-        public long zrem(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.del(key);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+         */
+        public long zrem(String key) {
+            return execute("SORTSET.zrem", jedis -> jedis.del(key));
         }
 
         /**
@@ -1209,17 +1910,7 @@ public class RedisUtil {
          * @return 删除的数量
          */
         public long zremrangeByRank(String key, int start, int end) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.zremrangeByRank(key, start, end);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zremrangeByRank", jedis -> jedis.zremrangeByRank(key, start, end));
         }
 
         /**
@@ -1231,17 +1922,7 @@ public class RedisUtil {
          * @return 删除的数量
          */
         public long zremrangeByScore(String key, double min, double max) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.zremrangeByScore(key, min, max);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zremrangeByScore", jedis -> jedis.zremrangeByScore(key, min, max));
         }
 
         /**
@@ -1253,17 +1934,7 @@ public class RedisUtil {
          * @return Set<String>
          */
         public Set<String> zrevrange(String key, int start, int end) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Set<String> set = jedis.zrevrange(key, start, end);
-                return set;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("SORTSET.zrevrange", jedis -> jedis.zrevrange(key, start, end));
         }
 
         /**
@@ -1274,24 +1945,20 @@ public class RedisUtil {
          * @return double 权重
          */
         public double zscore(String key, String memebr) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Double score = jedis.zscore(key, memebr);
-                if (score != null)
-                    return score;
-                return 0;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            Double score = execute("SORTSET.zscore", jedis -> jedis.zscore(key, memebr));
+            if (score != null)
+                return score;
+            return 0;
         }
     }
 
     public class Hash {
 
+        /**
+         * hsetAll每发出多少条HMSET读取一次应答
+         */
+        static final int HSET_ALL_WINDOW = 16;
+
         /**
          * 从hash中删除指定的存储
          *
@@ -1300,17 +1967,7 @@ public class RedisUtil {
          * @return 状态码，1成功，0失败
          */
         public long hdel(String key, String field) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.hdel(key, field);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hdel", jedis -> jedis.hdel(key, field));
         }
 
         /**
@@ -1321,17 +1978,7 @@ public class RedisUtil {
          * @return 状态码，1成功，0失败
          */
         public long hdel(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.del(key);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hdel", jedis -> jedis.del(key));
         }
 
         /**
@@ -1342,17 +1989,7 @@ public class RedisUtil {
          * @return 1存在，0不存在
          */
         public boolean hexists(String key, String field) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                boolean s = jedis.hexists(key, field);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hexists", jedis -> jedis.hexists(key, field));
         }
 
         /**
@@ -1363,16 +2000,7 @@ public class RedisUtil {
          * @return 存储对应的值
          */
         public String hget(String key, String field) {
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String s = jedis.hget(key, field);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hget", jedis -> jedis.hget(key, field));
         }
 
         /**
@@ -1383,17 +2011,7 @@ public class RedisUtil {
          * @return 存储对应的值
          */
         public byte[] hget(byte[] key, byte[] field) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                byte[] s = jedis.hget(key, field);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hget", jedis -> jedis.hget(key, field));
         }
 
         /**
@@ -1403,17 +2021,7 @@ public class RedisUtil {
          * @return Map<Strinig , String>
          */
         public Map<String, String> hgetAll(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Map<String, String> map = jedis.hgetAll(key);
-                return map;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hgetAll", jedis -> jedis.hgetAll(key));
         }
 
         /**
@@ -1421,21 +2029,129 @@ public class RedisUtil {
          *
          * @param key
          * @param map 所要添加的集合
+         * @see #hsetAll(String, Map, int)
          */
         public void hsetAll(String key, Map<String, String> map) {
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
+            hsetAll(key, map, 0);
+        }
+
+        /**
+         * 向指定的key中添加map集合并设置过期时间。字段按redis.hash.chunkSize分成多条HMSET,与EXPIRE在同一个pipeline中发送,
+         * 每发出{@link #HSET_ALL_WINDOW}条HMSET读取一次应答,客户端同时只保留一块字段的编码结果。
+         * <p>
+         * 整体不是原子操作:中途失败时已发送的块已经写入。需要新增、更新数时使用{@link #hsetAllWithResult(String, Map, int)}
+         *
+         * @param key
+         * @param map     所要添加的集合
+         * @param seconds 过期时间(秒),小于等于0时不设置
+         */
+        public void hsetAll(String key, Map<String, String> map, int seconds) {
+            if (map.isEmpty() && seconds <= 0) {
+                return;
+            }
+            int chunkSize = Math.max(config.getHashChunkSize(), 1);
+            execute("HASH.hsetAll", jedis -> {
                 Pipeline pipeline = jedis.pipelined();
+                Map<String, String> chunk = new HashMap<String, String>(Math.min(map.size(), chunkSize) * 4 / 3 + 1);
+                int unread = 0;
+                for (Map.Entry<String, String> entry : map.entrySet()) {
+                    chunk.put(entry.getKey(), entry.getValue());
+                    if (chunk.size() == chunkSize) {
+                        //参数在发送时已编码,块可以复用
+                        pipeline.hmset(key, chunk);
+                        chunk.clear();
+                        if (++unread == HSET_ALL_WINDOW) {
+                            throwErrorReply(pipeline.syncAndReturnAll());
+                            unread = 0;
+                        }
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    pipeline.hmset(key, chunk);
+                }
+                if (seconds > 0) {
+                    pipeline.expire(key, seconds);
+                }
+                throwErrorReply(pipeline.syncAndReturnAll());
+                return null;
+            });
+        }
+
+        /**
+         * 向指定的key中添加map集合,并返回新增、更新的字段数
+         *
+         * @param key
+         * @param map 所要添加的集合
+         * @return 新增、更新的字段数
+         * @see #hsetAllWithResult(String, Map, int)
+         */
+        public HashWriteResult hsetAllWithResult(String key, Map<String, String> map) {
+            return hsetAllWithResult(key, map, 0);
+        }
+
+        /**
+         * 向指定的key中添加map集合并设置过期时间,返回新增、更新的字段数。字段按redis.hash.chunkSize分成多条多字段的HSET
+         * (需要Redis 4.0以上),与EXPIRE在同一个pipeline中发送,每发出{@link #HSET_ALL_WINDOW}条HSET读取一次应答。
+         * 每条HSET的应答为其中新增的字段数,其余字段为更新,其他客户端同时修改该hash时仍然准确。
+         * <p>
+         * 整体不是原子操作:中途失败时已发送的块已经写入。
+         *
+         * @param key
+         * @param map     所要添加的集合
+         * @param seconds 过期时间(秒),小于等于0时不设置
+         * @return 新增、更新的字段数
+         */
+        public HashWriteResult hsetAllWithResult(String key, Map<String, String> map, int seconds) {
+            if (map.isEmpty() && seconds <= 0) {
+                return new HashWriteResult(0, 0);
+            }
+            int chunkSize = Math.max(config.getHashChunkSize(), 1);
+            byte[] rawKey = SafeEncoder.encode(key);
+            return execute("HASH.hsetAllWithResult", jedis -> {
+                TracingClient client = TracingClient.of(jedis);
+                List<byte[]> chunk = new ArrayList<byte[]>(2 * Math.min(map.size(), chunkSize) + 1);
+                long fields = 0;
+                long created = 0;
+                int unread = 0;
                 for (Map.Entry<String, String> entry : map.entrySet()) {
-                    pipeline.hset(key, entry.getKey(), entry.getValue());
+                    if (chunk.isEmpty()) {
+                        chunk.add(rawKey);
+                    }
+                    chunk.add(SafeEncoder.encode(entry.getKey()));
+                    chunk.add(SafeEncoder.encode(entry.getValue()));
+                    fields++;
+                    if (chunk.size() == 2 * chunkSize + 1) {
+                        //慢日志保留参数数组的引用,每块使用新数组
+                        client.sendCommand(Protocol.Command.HSET, chunk.toArray(new byte[chunk.size()][]));
+                        chunk.clear();
+                        if (++unread == HSET_ALL_WINDOW) {
+                            created += countCreated(client.getAll(), unread);
+                            unread = 0;
+                        }
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    client.sendCommand(Protocol.Command.HSET, chunk.toArray(new byte[chunk.size()][]));
+                    unread++;
                 }
-                pipeline.sync();
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
+                if (seconds > 0) {
+                    client.sendCommand(Protocol.Command.EXPIRE, rawKey, Protocol.toByteArray(seconds));
                 }
+                created += countCreated(client.getAll(), unread);
+                return new HashWriteResult(created, fields - created);
+            });
+        }
+
+        /**
+         * 累加前hsets条HSET应答中新增的字段数,应答中有错误时抛出
+         */
+        private long countCreated(List<Object> replies, int hsets) {
+            throwErrorReply(replies);
+            long created = 0;
+            for (int i = 0; i < hsets; i++) {
+                created += (Long) replies.get(i);
             }
+            return created;
         }
 
         /**
@@ -1447,17 +2163,7 @@ public class RedisUtil {
          * @return 状态码 1成功，0失败，field已存在将更新，也返回0
          **/
         public long hset(String key, String field, String value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.hset(key, field, value);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hset", jedis -> jedis.hset(key, field, value));
         }
 
         /**
@@ -1469,17 +2175,7 @@ public class RedisUtil {
          * @return 状态码 1成功，0失败，field已存在将更新，也返回0
          **/
         public long hset(String key, String field, byte[] value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.hset(key.getBytes(), field.getBytes(), value);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hset", jedis -> jedis.hset(key.getBytes(), field.getBytes(), value));
         }
 
         /**
@@ -1491,17 +2187,7 @@ public class RedisUtil {
          * @return 状态码 1成功，0失败field已存
          **/
         public long hsetnx(String key, String field, String value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.hsetnx(key, field, value);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hsetnx", jedis -> jedis.hsetnx(key, field, value));
         }
 
         /**
@@ -1511,17 +2197,7 @@ public class RedisUtil {
          * @return List<String>
          */
         public List<String> hvals(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                List<String> list = jedis.hvals(key);
-                return list;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hvals", jedis -> jedis.hvals(key));
         }
 
         /**
@@ -1533,17 +2209,7 @@ public class RedisUtil {
          * @return 增加指定数字后，存储位置的值
          */
         public long hincrby(String key, String field, long value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long s = jedis.hincrBy(key, field, value);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hincrby", jedis -> jedis.hincrBy(key, field, value));
         }
 
         /**
@@ -1553,17 +2219,7 @@ public class RedisUtil {
          * @return Set<String> 存储名称的集合
          */
         public Set<String> hkeys(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                Set<String> set = jedis.hkeys(key);
-                return set;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hkeys", jedis -> jedis.hkeys(key));
         }
 
         /**
@@ -1573,17 +2229,7 @@ public class RedisUtil {
          * @return long 存储的个数
          */
         public long hlen(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long len = jedis.hlen(key);
-                return len;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hlen", jedis -> jedis.hlen(key));
         }
 
         /**
@@ -1594,17 +2240,7 @@ public class RedisUtil {
          * @return List<String>
          */
         public List<String> hmget(String key, String... fields) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                List<String> list = jedis.hmget(key, fields);
-                return list;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hmget", jedis -> jedis.hmget(key, fields));
         }
 
         /**
@@ -1615,38 +2251,18 @@ public class RedisUtil {
          * @return List<String>
          */
         public List<byte[]> hmget(byte[] key, byte[]... fields) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                List<byte[]> list = jedis.hmget(key, fields);
-                return list;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hmget", jedis -> jedis.hmget(key, fields));
         }
 
         /**
-         * 添加对应关系，如果对应关系已存在，则覆盖
+         * 添加对应关系，如果对应关系已存在，则覆盖。map在一条命令中发送,字段很多时请使用{@link #hsetAll(String, Map)}
          *
          * @param key
          * @param map 对应关系
          * @return 状态，成功返回OK
          */
         public String hmset(String key, Map<String, String> map) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String s = jedis.hmset(key, map);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hmset", jedis -> jedis.hmset(key, map));
         }
 
         /**
@@ -1657,17 +2273,7 @@ public class RedisUtil {
          * @return 状态，成功返回OK
          */
         public String hmset(byte[] key, Map<byte[], byte[]> map) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String s = jedis.hmset(key, map);
-                return s;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("HASH.hmset", jedis -> jedis.hmset(key, map));
         }
 
     }
@@ -1680,17 +2286,7 @@ public class RedisUtil {
          * @return 值
          */
         public String get(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String value = jedis.get(key);
-                return value;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.get", jedis -> jedis.get(key));
         }
 
         /**
@@ -1700,18 +2296,7 @@ public class RedisUtil {
          * @return 值
          */
         public byte[] get(byte[] key) {
-
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                byte[] value = jedis.get(key);
-                return value;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.get", jedis -> jedis.get(key));
         }
 
         /**
@@ -1723,17 +2308,7 @@ public class RedisUtil {
          * @return String 操作状态
          */
         public String setEx(String key, int seconds, String value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String str = jedis.setex(key, seconds, value);
-                return str;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.setEx", jedis -> jedis.setex(key, seconds, value));
         }
 
         /**
@@ -1745,17 +2320,7 @@ public class RedisUtil {
          * @return String 操作状态
          */
         public String setEx(byte[] key, int seconds, byte[] value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String str = jedis.setex(key, seconds, value);
-                return str;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.setEx", jedis -> jedis.setex(key, seconds, value));
         }
 
         /**
@@ -1766,17 +2331,31 @@ public class RedisUtil {
          * @return long 状态码，1插入成功且key不存在，0未插入，key存在
          */
         public long setnx(String key, String value) {
+            return execute("STRINGS.setnx", jedis -> jedis.setnx(key, value));
+        }
 
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long str = jedis.setnx(key, value);
-                return str;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+        /**
+         * 仅当给定的key不存在时插入并设置过期时间,一条SET NX EX命令完成,不会出现插入后未设置过期时间的情况
+         *
+         * @param key
+         * @param value
+         * @param seconds 过期时间(秒)
+         * @return 是否插入
+         */
+        public boolean setIfAbsent(String key, String value, int seconds) {
+            return "OK".equals(execute("STRINGS.setIfAbsent", jedis -> jedis.set(key, value, "NX", "EX", seconds)));
+        }
+
+        /**
+         * 值等于expected时删除key,判断和删除是原子的,用于释放锁
+         *
+         * @param key
+         * @param expected 期望的值
+         * @return 是否删除
+         */
+        public boolean delIfEquals(String key, String expected) {
+            return SCRIPTS.eval(RedisScript.COMPARE_AND_DELETE, Collections.singletonList(key),
+                    Collections.singletonList(expected));
         }
 
         /**
@@ -1809,17 +2388,7 @@ public class RedisUtil {
          * @return 状态码
          */
         public String set(byte[] key, byte[] value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String status = jedis.set(key, value);
-                return status;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.set", jedis -> jedis.set(key, value));
         }
 
         /**
@@ -1833,17 +2402,7 @@ public class RedisUtil {
          * @return long value的长度
          */
         public long setRange(String key, long offset, String value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long len = jedis.setrange(key, offset, value);
-                return len;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.setRange", jedis -> jedis.setrange(key, offset, value));
         }
 
         /**
@@ -1854,17 +2413,7 @@ public class RedisUtil {
          * @return long 追加后value的长度
          **/
         public long append(String key, String value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long len = jedis.append(key, value);
-                return len;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.append", jedis -> jedis.append(key, value));
         }
 
         /**
@@ -1875,17 +2424,7 @@ public class RedisUtil {
          * @return long 减指定值后的值
          */
         public long decrBy(String key, long number) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long len = jedis.decrBy(key, number);
-                return len;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.decrBy", jedis -> jedis.decrBy(key, number));
         }
 
         /**
@@ -1897,17 +2436,7 @@ public class RedisUtil {
          * @return long 相加后的值
          */
         public long incrBy(String key, long number) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long len = jedis.incrBy(key, number);
-                return len;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.incrBy", jedis -> jedis.incrBy(key, number));
         }
 
         /**
@@ -1919,17 +2448,7 @@ public class RedisUtil {
          * @return String 截取的值
          */
         public String getrange(String key, long startOffset, long endOffset) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String value = jedis.getrange(key, startOffset, endOffset);
-                return value;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.getrange", jedis -> jedis.getrange(key, startOffset, endOffset));
         }
 
         /**
@@ -1941,17 +2460,7 @@ public class RedisUtil {
          * @return String 原始value或null
          */
         public String getSet(String key, String value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String str = jedis.getSet(key, value);
-                return str;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.getSet", jedis -> jedis.getSet(key, value));
         }
 
         /**
@@ -1961,17 +2470,7 @@ public class RedisUtil {
          * @return List<String> 值得集合
          */
         public List<String> mget(String... keys) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                List<String> str = jedis.mget(keys);
-                return str;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.mget", jedis -> jedis.mget(keys));
         }
 
         /**
@@ -1981,17 +2480,7 @@ public class RedisUtil {
          * @return String 状态码
          */
         public String mset(String... keysValues) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String str = jedis.mset(keysValues);
-                return str;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.mset", jedis -> jedis.mset(keysValues));
         }
 
         /**
@@ -2001,17 +2490,7 @@ public class RedisUtil {
          * @return value值得长度
          */
         public long strlen(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long len = jedis.strlen(key);
-                return len;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("STRINGS.strlen", jedis -> jedis.strlen(key));
         }
     }
 
@@ -2033,17 +2512,7 @@ public class RedisUtil {
          * @return 长度
          */
         public long llen(byte[] key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long count = jedis.llen(key);
-                return count;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.llen", jedis -> jedis.llen(key));
         }
 
         /**
@@ -2055,17 +2524,7 @@ public class RedisUtil {
          * @return 状态码
          */
         public String lset(byte[] key, int index, byte[] value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String status = jedis.lset(key, index, value);
-                return status;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.lset", jedis -> jedis.lset(key, index, value));
         }
 
         /**
@@ -2103,17 +2562,7 @@ public class RedisUtil {
          * @return 记录总数
          */
         public long linsert(byte[] key, BinaryClient.LIST_POSITION where, byte[] pivot, byte[] value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long count = jedis.linsert(key, where, pivot, value);
-                return count;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.linsert", jedis -> jedis.linsert(key, where, pivot, value));
         }
 
         /**
@@ -2135,17 +2584,7 @@ public class RedisUtil {
          * @return 值
          **/
         public byte[] lindex(byte[] key, int index) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                byte[] value = jedis.lindex(key, index);
-                return value;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.lindex", jedis -> jedis.lindex(key, index));
         }
 
         /**
@@ -2165,17 +2604,7 @@ public class RedisUtil {
          * @return 移出的记录
          */
         public byte[] lpop(byte[] key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                byte[] value = jedis.lpop(key);
-                return value;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.lpop", jedis -> jedis.lpop(key));
         }
 
         /**
@@ -2185,17 +2614,7 @@ public class RedisUtil {
          * @return 移出的记录
          */
         public String rpop(String key) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String value = jedis.rpop(key);
-                return value;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.rpop", jedis -> jedis.rpop(key));
         }
 
         /**
@@ -2209,6 +2628,19 @@ public class RedisUtil {
             return lpush(SafeEncoder.encode(key), SafeEncoder.encode(value));
         }
 
+        /**
+         * 向List头部追加记录并只保留最新的maxLength条,追加和截断是原子的
+         *
+         * @param key
+         * @param value
+         * @param maxLength 最多保留的记录数,应大于0
+         * @return 截断后的记录总数
+         */
+        public long lpushCapped(String key, String value, int maxLength) {
+            return SCRIPTS.eval(RedisScript.CAPPED_LPUSH, Collections.singletonList(key),
+                    Arrays.asList(String.valueOf(maxLength), value));
+        }
+
         /**
          * 向List头部追加记录
          *
@@ -2217,17 +2649,7 @@ public class RedisUtil {
          * @return 记录总数
          */
         public long rpush(String key, String value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long count = jedis.rpush(key, value);
-                return count;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.rpush", jedis -> jedis.rpush(key, value));
         }
 
         /**
@@ -2238,17 +2660,7 @@ public class RedisUtil {
          * @return 记录总数
          */
         public long rpush(byte[] key, byte[] value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long count = jedis.rpush(key, value);
-                return count;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.rpush", jedis -> jedis.rpush(key, value));
         }
 
         /**
@@ -2259,17 +2671,7 @@ public class RedisUtil {
          * @return 记录总数
          */
         public long lpush(byte[] key, byte[] value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long count = jedis.lpush(key, value);
-                return count;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.lpush", jedis -> jedis.lpush(key, value));
         }
 
         /**
@@ -2281,17 +2683,7 @@ public class RedisUtil {
          * @return List
          */
         public List<String> lrange(String key, long start, long end) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                List<String> list = jedis.lrange(key, start, end);
-                return list;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.lrange", jedis -> jedis.lrange(key, start, end));
         }
 
         /**
@@ -2303,17 +2695,7 @@ public class RedisUtil {
          * @return List
          */
         public List<byte[]> lrange(byte[] key, int start, int end) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                List<byte[]> list = jedis.lrange(key, start, end);
-                return list;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.lrange", jedis -> jedis.lrange(key, start, end));
         }
 
         /**
@@ -2325,17 +2707,7 @@ public class RedisUtil {
          * @return 删除后的List中的记录数
          */
         public long lrem(byte[] key, int c, byte[] value) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                long count = jedis.lrem(key, c, value);
-                return count;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.lrem", jedis -> jedis.lrem(key, c, value));
         }
 
         /**
@@ -2359,17 +2731,7 @@ public class RedisUtil {
          * @return 执行状态码
          */
         public String ltrim(byte[] key, int start, int end) {
-
-            Jedis jedis = null;
-            try {
-                jedis = getPool().getResource();
-                String str = jedis.ltrim(key, start, end);
-                return str;
-            } finally {
-                if (jedis != null) {
-                    returnJedis(jedis);
-                }
-            }
+            return execute("LISTS.ltrim", jedis -> jedis.ltrim(key, start, end));
         }
 
         /**
@@ -0,0 +1,150 @@
+package com.nfbank.common.utils.redis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 连接池预热:启动时为每个节点并行建立minIdle个连接,避免发布后最初的请求在调用路径上逐个建连
+ */
+@Slf4j
+public class RedisWarmUp {
+
+    /**
+     * 预热并发建连的线程数上限
+     */
+    private static final int MAX_THREADS = 32;
+
+    private RedisWarmUp() {
+    }
+
+    /**
+     * 并行预热所有节点,最多等待timeoutMillis,超时未完成的建连任务会被取消
+     *
+     * @param endpoints     节点
+     * @param connections   每个节点的连接数(已有的空闲连接计算在内)
+     * @param timeoutMillis 最长等待时间(毫秒)
+     * @return 预热结果
+     */
+    public static Result warmUp(Collection<RedisEndpoint> endpoints, int connections, long timeoutMillis) {
+        long start = System.currentTimeMillis();
+        Result result = new Result();
+        if (endpoints.isEmpty() || connections <= 0) {
+            return result;
+        }
+
+        List<RedisEndpoint> owners = new ArrayList<RedisEndpoint>();
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        for (final RedisEndpoint endpoint : endpoints) {
+            result.opened.put(endpoint.getKey(), 0);
+            boolean initialized = endpoint.isInitialized();
+            int missing = initialized ? connections - endpoint.getPool().getNumIdle() : connections;
+            for (int i = 0; i < missing; i++) {
+                //连接池未创建时,其中一个任务只负责创建连接池(创建时的测试连接会留在空闲队列中)
+                final boolean createPool = !initialized && i == 0;
+                owners.add(endpoint);
+                tasks.add(() -> {
+                    if (createPool) {
+                        endpoint.getPool();
+                    } else {
+                        endpoint.addIdleConnection();
+                    }
+                    return Boolean.TRUE;
+                });
+            }
+        }
+        if (tasks.isEmpty()) {
+            return result;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(tasks.size(), MAX_THREADS),
+                new ThreadFactoryBuilder().setNameFormat("redis-warmup-%d").setDaemon(true).build());
+        try {
+            List<Future<Boolean>> futures = executor.invokeAll(tasks, timeoutMillis, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < futures.size(); i++) {
+                String key = owners.get(i).getKey();
+                try {
+                    futures.get(i).get();
+                    result.opened.put(key, result.opened.get(key) + 1);
+                } catch (CancellationException e) {
+                    result.timedOut++;
+                } catch (Exception e) {
+                    result.failed++;
+                    log.warn("Redis节点{}预热建连失败：{}", key, e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        result.elapsedMillis = System.currentTimeMillis() - start;
+        log.info("Redis连接池预热完成：{}", result);
+        return result;
+    }
+
+    /**
+     * 预热结果
+     */
+    public static class Result {
+        /**
+         * 每个节点成功建立的连接数
+         */
+        private final Map<String, Integer> opened = new LinkedHashMap<String, Integer>();
+        /**
+         * 建连失败数
+         */
+        private int failed;
+        /**
+         * 超时取消数
+         */
+        private int timedOut;
+        /**
+         * 耗时(毫秒)
+         */
+        private long elapsedMillis;
+
+        public Map<String, Integer> getOpened() {
+            return opened;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public int getTimedOut() {
+            return timedOut;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * 是否全部建连成功
+         *
+         * @return true全部成功
+         */
+        public boolean isComplete() {
+            return failed == 0 && timedOut == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "节点建连数" + opened + ",失败" + failed + "个,超时" + timedOut + "个,耗时" + elapsedMillis + "毫秒";
+        }
+    }
+}
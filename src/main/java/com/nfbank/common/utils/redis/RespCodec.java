@@ -0,0 +1,334 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisBusyException;
+import redis.clients.jedis.exceptions.JedisClusterException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import redis.clients.util.SafeEncoder;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * RESP协议编解码,直接读写ByteBuffer(可以是堆外缓冲区)。
+ * <p>
+ * 编码时命令和参数直接写入发送缓冲区;解码时数字、状态在缓冲区中原地解析,bulk内容从缓冲区直接复制到最终的byte[],
+ * 没有Jedis RedisInputStream那样的中间缓冲和逐行String。大应答分多次到达时由{@link Decoder}保留解析进度,已解析的部分不会重复解析。解码结果与{@link Protocol#read}一致:
+ * 状态为byte[],整数为Long,bulk为byte[],数组为List,错误为对应的JedisDataException(作为结果返回而不是抛出)。
+ */
+final class RespCodec {
+
+    /**
+     * 缓冲区中的数据还不是一个完整的应答
+     */
+    static final Object INCOMPLETE = new Object();
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private RespCodec() {
+    }
+
+    /**
+     * 命令编码后的字节数,用于预先确认缓冲区空间
+     *
+     * @param command 命令
+     * @param args    参数
+     * @return 字节数
+     */
+    static int encodedLength(Protocol.Command command, byte[][] args) {
+        int length = 1 + digits(args.length + 1) + 2 + bulkLength(command.raw.length);
+        for (byte[] arg : args) {
+            length += bulkLength(arg.length);
+        }
+        return length;
+    }
+
+    /**
+     * 把命令编码写入缓冲区,调用前需确认剩余空间不小于{@link #encodedLength}
+     *
+     * @param out     发送缓冲区
+     * @param command 命令
+     * @param args    参数
+     */
+    static void encode(ByteBuffer out, Protocol.Command command, byte[][] args) {
+        out.put(Protocol.ASTERISK_BYTE);
+        putIntCrLf(out, args.length + 1);
+        putBulk(out, command.raw);
+        for (byte[] arg : args) {
+            putBulk(out, arg);
+        }
+    }
+
+    /**
+     * 从缓冲区解码一个完整应答。数据不完整时返回{@link #INCOMPLETE}并且不移动position。
+     * 持续从连接读取时应使用{@link Decoder},避免大应答分多次到达时重复解析
+     *
+     * @param in 接收缓冲区(读模式)
+     * @return 应答或INCOMPLETE
+     */
+    static Object decode(ByteBuffer in) {
+        int start = in.position();
+        Object reply = new Decoder().decode(in);
+        if (reply == INCOMPLETE) {
+            //以Buffer调用position(int),JDK 9以上编译时不绑定到ByteBuffer新增的重载,Java 8下可以运行
+            ((Buffer) in).position(start);
+        }
+        return reply;
+    }
+
+    /**
+     * 增量解码器,一个连接一个,只在读线程中使用。
+     * <p>
+     * 应答不完整时保留已解析的部分(未完成的数组和已收到的bulk内容),已解析的字节从缓冲区中消费掉,
+     * 下次读到数据后从中断处继续。bulk内容按到达的顺序直接复制到最终的byte[],接收缓冲区只需容纳一行
+     */
+    static final class Decoder {
+
+        /**
+         * 表示读到了数组头,需要继续读元素
+         */
+        private static final Object ARRAY_STARTED = new Object();
+
+        /**
+         * 未完成的数组,栈顶为最内层
+         */
+        private final ArrayDeque<Frame> arrays = new ArrayDeque<Frame>();
+
+        /**
+         * 未读完的bulk,没有时为null
+         */
+        private byte[] bulk;
+
+        /**
+         * bulk已读的字节数,包括结尾的CRLF
+         */
+        private int bulkRead;
+
+        /**
+         * 解码一个应答,已解析的字节从缓冲区中消费掉
+         *
+         * @param in 接收缓冲区(读模式)
+         * @return 应答,数据不完整时返回{@link #INCOMPLETE}
+         */
+        Object decode(ByteBuffer in) {
+            while (true) {
+                Object value = bulk != null ? readBulkBody(in) : readValue(in);
+                if (value == INCOMPLETE) {
+                    return INCOMPLETE;
+                }
+                if (value == ARRAY_STARTED) {
+                    continue;
+                }
+                Frame frame;
+                while ((frame = arrays.peek()) != null) {
+                    frame.list.add(value);
+                    if (--frame.remaining > 0) {
+                        break;
+                    }
+                    arrays.pop();
+                    value = frame.list;
+                }
+                if (frame == null) {
+                    return value;
+                }
+            }
+        }
+
+        /**
+         * 丢弃未完成的应答,连接重建时调用
+         */
+        void reset() {
+            arrays.clear();
+            bulk = null;
+        }
+
+        /**
+         * 读一个类型字节和所在行,行不完整时不移动position
+         */
+        private Object readValue(ByteBuffer in) {
+            if (!in.hasRemaining()) {
+                return INCOMPLETE;
+            }
+            int start = in.position();
+            byte type = in.get(start);
+            if (type != Protocol.PLUS_BYTE && type != Protocol.COLON_BYTE && type != Protocol.DOLLAR_BYTE
+                    && type != Protocol.ASTERISK_BYTE && type != Protocol.MINUS_BYTE) {
+                throw new JedisConnectionException("Unknown reply: " + (char) type);
+            }
+            ((Buffer) in).position(start + 1);
+            int end = lineEnd(in);
+            if (end < 0) {
+                ((Buffer) in).position(start);
+                return INCOMPLETE;
+            }
+            switch (type) {
+                case Protocol.PLUS_BYTE:
+                    return readLine(in, end);
+                case Protocol.COLON_BYTE:
+                    return parseLong(in, end);
+                case Protocol.MINUS_BYTE:
+                    return error(SafeEncoder.encode(readLine(in, end)));
+                case Protocol.DOLLAR_BYTE: {
+                    int length = (int) parseLong(in, end);
+                    if (length < 0) {
+                        return null;
+                    }
+                    bulk = new byte[length];
+                    bulkRead = 0;
+                    return readBulkBody(in);
+                }
+                default: {
+                    int size = (int) parseLong(in, end);
+                    if (size < 0) {
+                        return null;
+                    }
+                    if (size == 0) {
+                        return new ArrayList<Object>(0);
+                    }
+                    arrays.push(new Frame(size));
+                    return ARRAY_STARTED;
+                }
+            }
+        }
+
+        /**
+         * 把缓冲区中的bulk内容复制到bulk中,再跳过结尾的CRLF
+         */
+        private Object readBulkBody(ByteBuffer in) {
+            int length = bulk.length;
+            if (bulkRead < length) {
+                int n = Math.min(in.remaining(), length - bulkRead);
+                in.get(bulk, bulkRead, n);
+                bulkRead += n;
+            }
+            int crlf = Math.min(in.remaining(), length + 2 - bulkRead);
+            ((Buffer) in).position(in.position() + crlf);
+            bulkRead += crlf;
+            if (bulkRead < length + 2) {
+                return INCOMPLETE;
+            }
+            byte[] done = bulk;
+            bulk = null;
+            return done;
+        }
+
+        private static byte[] readLine(ByteBuffer in, int end) {
+            byte[] line = new byte[end - in.position()];
+            in.get(line);
+            ((Buffer) in).position(end + 2);
+            return line;
+        }
+    }
+
+    /**
+     * 未完成的数组:已读的元素和还需读的个数
+     */
+    private static final class Frame {
+
+        final List<Object> list;
+
+        int remaining;
+
+        Frame(int size) {
+            this.list = new ArrayList<Object>(size);
+            this.remaining = size;
+        }
+    }
+
+    /**
+     * 查找当前行的CR位置,不移动position
+     */
+    private static int lineEnd(ByteBuffer in) {
+        int limit = in.limit() - 1;
+        for (int i = in.position(); i < limit; i++) {
+            if (in.get(i) == CR && in.get(i + 1) == LF) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 解析position到end之间的十进制数,position移到CRLF之后
+     */
+    private static long parseLong(ByteBuffer in, int end) {
+        int i = in.position();
+        boolean negative = in.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            value = value * 10 + (in.get(i) - '0');
+        }
+        ((Buffer) in).position(end + 2);
+        return negative ? -value : value;
+    }
+
+    /**
+     * 与{@link Protocol}对错误应答的处理一致
+     */
+    private static JedisDataException error(String message) {
+        if (message.startsWith("MOVED") || message.startsWith("ASK")) {
+            String[] info = message.split(" ");
+            String[] hostAndPort = HostAndPort.extractParts(info[2]);
+            HostAndPort target = new HostAndPort(hostAndPort[0], Integer.parseInt(hostAndPort[1]));
+            int slot = Integer.parseInt(info[1]);
+            return message.startsWith("MOVED") ? new JedisMovedDataException(message, target, slot)
+                    : new JedisAskDataException(message, target, slot);
+        } else if (message.startsWith("CLUSTERDOWN")) {
+            return new JedisClusterException(message);
+        } else if (message.startsWith("BUSY")) {
+            return new JedisBusyException(message);
+        } else if (message.startsWith("NOSCRIPT")) {
+            return new JedisNoScriptException(message);
+        }
+        return new JedisDataException(message);
+    }
+
+    private static void putBulk(ByteBuffer out, byte[] bulk) {
+        out.put(Protocol.DOLLAR_BYTE);
+        putIntCrLf(out, bulk.length);
+        out.put(bulk);
+        out.put(CR).put(LF);
+    }
+
+    private static void putIntCrLf(ByteBuffer out, int value) {
+        if (value < 10) {
+            out.put((byte) ('0' + value));
+        } else {
+            int divisor = 1;
+            while (value / divisor >= 10) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                out.put((byte) ('0' + value / divisor % 10));
+            }
+        }
+        out.put(CR).put(LF);
+    }
+
+    private static int bulkLength(int length) {
+        return 1 + digits(length) + 2 + length + 2;
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
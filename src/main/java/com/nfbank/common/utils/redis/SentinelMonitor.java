@@ -0,0 +1,220 @@
+package com.nfbank.common.utils.redis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 通过Sentinel发现主节点并跟踪主从切换:
+ * <ul>
+ * <li>首次使用时依次询问各Sentinel(SENTINEL get-master-addr-by-name),取第一个成功的结果</li>
+ * <li>每个Sentinel一个后台线程订阅+switch-master,收到切换消息后立即通知监听者,不需要等到连接失败</li>
+ * <li>订阅断开后按退避间隔重连,重连时重新询问主节点,避免错过断开期间的切换</li>
+ * </ul>
+ */
+@Slf4j
+public class SentinelMonitor implements AutoCloseable {
+
+    private static final String SWITCH_MASTER = "+switch-master";
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setNameFormat("redis-sentinel-%d").setDaemon(true).build();
+
+    private final String masterName;
+
+    private final List<HostAndPort> sentinels;
+
+    /**
+     * 所属客户端的配置,提供连接超时和重连退避参数
+     */
+    private final RedisClientConfig config;
+
+    /**
+     * 主节点变化时调用,参数为新的主节点
+     */
+    private final Consumer<HostAndPort> listener;
+
+    private volatile HostAndPort master;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile boolean closed;
+
+    /**
+     * 订阅中的连接,关闭时断开
+     */
+    private final List<Jedis> subscriptions = new CopyOnWriteArrayList<Jedis>();
+
+    /**
+     * @param masterName Sentinel中配置的主节点名
+     * @param sentinels  Sentinel地址
+     * @param config     所属客户端的配置,使用其中的超时和熔断退避参数
+     * @param listener   主节点变化时调用
+     */
+    public SentinelMonitor(String masterName, List<HostAndPort> sentinels, RedisClientConfig config,
+                          Consumer<HostAndPort> listener) {
+        if (sentinels.isEmpty()) {
+            throw new IllegalArgumentException("未配置Sentinel节点");
+        }
+        this.masterName = masterName;
+        this.sentinels = new ArrayList<HostAndPort>(sentinels);
+        this.config = config;
+        this.listener = listener;
+    }
+
+    /**
+     * 为每个Sentinel启动订阅线程,重复调用无效
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        for (HostAndPort sentinel : sentinels) {
+            THREAD_FACTORY.newThread(() -> subscribe(sentinel)).start();
+        }
+    }
+
+    /**
+     * 当前主节点,尚未获取时询问Sentinel
+     *
+     * @return 主节点地址
+     * @throws JedisConnectionException 所有Sentinel都无法给出主节点
+     */
+    public HostAndPort getMaster() {
+        HostAndPort current = master;
+        if (current == null) {
+            synchronized (this) {
+                if (master == null) {
+                    master = discover();
+                    log.info("通过Sentinel获取到Redis主节点{}：{}", masterName, master);
+                }
+                current = master;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 依次询问各Sentinel
+     */
+    private HostAndPort discover() {
+        JedisException last = null;
+        for (HostAndPort sentinel : sentinels) {
+            Jedis jedis = new Jedis(sentinel.getHost(), sentinel.getPort(), config.getTimeout());
+            try {
+                HostAndPort address = queryMaster(jedis);
+                if (address != null) {
+                    return address;
+                }
+                log.warn("Sentinel {}未监控主节点{}", sentinel, masterName);
+            } catch (JedisException e) {
+                log.warn("询问Sentinel {}失败：{}", sentinel, e.getMessage());
+                last = e;
+            } finally {
+                jedis.close();
+            }
+        }
+        throw new JedisConnectionException("无法从Sentinel获取Redis主节点：" + masterName, last);
+    }
+
+    private HostAndPort queryMaster(Jedis jedis) {
+        List<String> address = jedis.sentinelGetMasterAddrByName(masterName);
+        if (address == null || address.size() < 2) {
+            return null;
+        }
+        return new HostAndPort(address.get(0), Integer.parseInt(address.get(1)));
+    }
+
+    /**
+     * 订阅一个Sentinel的切换消息,断开后退避重连,直到关闭
+     */
+    private void subscribe(HostAndPort sentinel) {
+        int attempt = 0;
+        while (!closed) {
+            Jedis jedis = new Jedis(sentinel.getHost(), sentinel.getPort(), config.getTimeout());
+            subscriptions.add(jedis);
+            try {
+                //订阅前先确认一次主节点,补上断开期间可能错过的切换
+                HostAndPort current = queryMaster(jedis);
+                if (current != null) {
+                    update(current);
+                }
+                attempt = 0;
+                jedis.subscribe(new JedisPubSub() {
+                    @Override
+                    public void onMessage(String channel, String message) {
+                        onSwitchMaster(message);
+                    }
+                }, SWITCH_MASTER);
+            } catch (JedisException e) {
+                if (!closed) {
+                    log.warn("订阅Sentinel {}失败：{}", sentinel, e.getMessage());
+                }
+            } finally {
+                subscriptions.remove(jedis);
+                jedis.close();
+            }
+            if (!closed) {
+                sleep(EndpointHealth.backoffMillis(attempt++, config));
+            }
+        }
+    }
+
+    /**
+     * 处理切换消息,格式为:主节点名 旧ip 旧端口 新ip 新端口
+     */
+    void onSwitchMaster(String message) {
+        String[] parts = message.split(" ");
+        if (parts.length < 5 || !masterName.equals(parts[0])) {
+            return;
+        }
+        log.warn("Sentinel通知Redis主节点{}切换：{}:{} -> {}:{}", masterName, parts[1], parts[2], parts[3], parts[4]);
+        update(new HostAndPort(parts[3], Integer.parseInt(parts[4])));
+    }
+
+    /**
+     * 记录新的主节点,与当前不同时通知监听者。通知在锁外进行,多个Sentinel并发通知时监听者应以{@link #getMaster()}为准
+     */
+    private void update(HostAndPort current) {
+        synchronized (this) {
+            if (current.equals(master)) {
+                return;
+            }
+            master = current;
+        }
+        listener.accept(current);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 停止订阅
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Jedis jedis : subscriptions) {
+            jedis.disconnect();
+        }
+    }
+}
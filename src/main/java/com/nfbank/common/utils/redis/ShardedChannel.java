@@ -0,0 +1,140 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 客户端分片命令通道:多个互相独立的Redis节点组成{@link ConsistentHashRing},命令按key发往对应节点。
+ * <p>
+ * 与集群模式相同,多key命令(mget、mset、多key的del、rename、sinter等)的key需要用同一个hash tag保证在同一节点上,
+ * 否则以CROSSSLOT错误失败(与集群返回的错误相同),不会只发往第一个key所在的节点;
+ * 其他无key命令(ping、info等)只发往一个节点;作用于整个库的命令(keys、scan、dbsize、flushdb、flushall)抛出UnsupportedOperationException,
+ * 应使用RedisUtil.KEYS中逐个节点执行的方法。
+ * <p>
+ * 开启自动管道或NIO传输时经各节点的共享通道发送,否则每条命令借用该节点连接池中的连接。
+ */
+public class ShardedChannel implements CommandChannel {
+
+    /**
+     * 参数全部是key的多key命令
+     */
+    private static final Set<Protocol.Command> ALL_KEYS = EnumSet.of(
+            Protocol.Command.MGET, Protocol.Command.DEL, Protocol.Command.EXISTS, Protocol.Command.WATCH,
+            Protocol.Command.RENAME, Protocol.Command.RENAMENX, Protocol.Command.RPOPLPUSH,
+            Protocol.Command.SDIFF, Protocol.Command.SDIFFSTORE, Protocol.Command.SINTER, Protocol.Command.SINTERSTORE,
+            Protocol.Command.SUNION, Protocol.Command.SUNIONSTORE, Protocol.Command.PFCOUNT, Protocol.Command.PFMERGE);
+
+    /**
+     * 最后一个参数为超时时间,其余为key的阻塞命令
+     */
+    private static final Set<Protocol.Command> KEYS_THEN_TIMEOUT = EnumSet.of(
+            Protocol.Command.BLPOP, Protocol.Command.BRPOP, Protocol.Command.BRPOPLPUSH);
+
+    private final ConsistentHashRing ring;
+
+    private final boolean multiplexed;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param ring        一致性哈希环
+     * @param multiplexed 是否经节点的共享通道发送
+     */
+    public ShardedChannel(ConsistentHashRing ring, boolean multiplexed) {
+        this.ring = ring;
+        this.multiplexed = multiplexed;
+    }
+
+    @Override
+    public CompletableFuture<Object> send(Protocol.Command command, byte[][] args) {
+        ClusterChannel.checkRoutable(command, "分片");
+        byte[] key = ClusterChannel.routingKey(command, args);
+        RedisEndpoint node;
+        if (key == null) {
+            List<RedisEndpoint> nodes = ring.getNodes();
+            node = nodes.get((next.getAndIncrement() & Integer.MAX_VALUE) % nodes.size());
+        } else {
+            node = ring.get(key);
+        }
+        CompletableFuture<Object> reply = new CompletableFuture<Object>();
+        try {
+            checkSameNode(command, args, node);
+            if (multiplexed) {
+                return node.getChannel().send(command, args);
+            }
+            reply.complete(node.execute(command, args));
+        } catch (RuntimeException e) {
+            reply.completeExceptionally(e);
+        }
+        return reply;
+    }
+
+    /**
+     * 多key命令的其余key须与路由key位于同一节点,服务端无法发现这种错误,由客户端检查
+     *
+     * @throws JedisDataException key分布在不同节点
+     */
+    private void checkSameNode(Protocol.Command command, byte[][] args, RedisEndpoint node) {
+        int from;
+        int to;
+        int step = 1;
+        if (ALL_KEYS.contains(command)) {
+            from = 1;
+            to = args.length;
+        } else if (KEYS_THEN_TIMEOUT.contains(command)) {
+            from = 1;
+            to = args.length - 1;
+        } else if (command == Protocol.Command.MSET || command == Protocol.Command.MSETNX) {
+            //key value key value ...
+            from = 2;
+            to = args.length;
+            step = 2;
+        } else if (command == Protocol.Command.SMOVE) {
+            //SMOVE source destination member
+            from = 1;
+            to = 2;
+        } else if (command == Protocol.Command.BITOP) {
+            //BITOP op destkey key...,路由key为destkey
+            from = 2;
+            to = args.length;
+        } else if (command == Protocol.Command.ZUNIONSTORE || command == Protocol.Command.ZINTERSTORE) {
+            //destination numkeys key... [WEIGHTS ...]
+            from = 2;
+            to = args.length > 1 ? Math.min(args.length, 2 + Integer.parseInt(SafeEncoder.encode(args[1]))) : 0;
+        } else if (command == Protocol.Command.EVAL || command == Protocol.Command.EVALSHA) {
+            //script numkeys key... arg...,路由key为第一个key
+            from = 3;
+            to = args.length > 1 ? Math.min(args.length, 2 + Integer.parseInt(SafeEncoder.encode(args[1]))) : 0;
+        } else {
+            return;
+        }
+        for (int i = from; i < to; i += step) {
+            if (ring.get(args[i]) != node) {
+                throw new JedisDataException("CROSSSLOT Keys in request don't hash to the same shard: " + command
+                        + ",请用同一个{hash tag}");
+            }
+        }
+    }
+
+    /**
+     * 分片使用的一致性哈希环
+     *
+     * @return 哈希环
+     */
+    public ConsistentHashRing getRing() {
+        return ring;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,318 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.util.SafeEncoder;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 客户端慢日志:耗时(含获取连接等待)超过redis.slowlog.thresholdMillis的命令记入固定容量的环形缓冲区,新记录覆盖最旧的记录。
+ * <p>
+ * 命令、key、参数个数和字节数取自{@link TracingClient}记录的最后一条命令;应答大小、调用栈只在命令变慢时才计算。
+ */
+public class SlowLog {
+
+    /**
+     * key最多保留的字符数
+     */
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final AtomicReferenceArray<Entry> entries;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 阈值(毫秒)
+     */
+    private volatile long thresholdMillis;
+
+    /**
+     * 记录的调用栈深度
+     */
+    private volatile int stackDepth;
+
+    public SlowLog(int capacity) {
+        this(capacity, RedisConfig.getSlowLogThresholdMillis(), RedisConfig.getSlowLogStackDepth());
+    }
+
+    /**
+     * @param capacity        保留的记录数
+     * @param thresholdMillis 阈值(毫秒)
+     * @param stackDepth      记录的调用栈深度
+     */
+    public SlowLog(int capacity, long thresholdMillis, int stackDepth) {
+        this.entries = new AtomicReferenceArray<Entry>(Math.max(capacity, 1));
+        configure(thresholdMillis, stackDepth);
+    }
+
+    /**
+     * 修改阈值和调用栈深度,对之后完成的命令生效
+     *
+     * @param thresholdMillis 阈值(毫秒)
+     * @param stackDepth      记录的调用栈深度
+     */
+    public void configure(long thresholdMillis, int stackDepth) {
+        this.thresholdMillis = thresholdMillis;
+        this.stackDepth = stackDepth;
+    }
+
+    /**
+     * 包装操作:执行完成(连接归还前)检查耗时,超过阈值时记录
+     *
+     * @param command  命令名
+     * @param start    调用开始时间(System.nanoTime),开始到操作被执行之间为获取连接的等待时间
+     * @param callback 要执行的操作
+     * @return 包装后的操作
+     */
+    <T> RedisCallback<T> trace(String command, long start, RedisCallback<T> callback) {
+        return jedis -> {
+            long invoked = System.nanoTime();
+            TracingClient client = TracingClient.of(jedis);
+            if (client != null) {
+                client.resetTrace();
+            }
+            T result;
+            try {
+                result = callback.doInRedis(jedis);
+            } catch (RuntimeException e) {
+                check(command, start, invoked, jedis, null, e);
+                throw e;
+            }
+            check(command, start, invoked, jedis, result, null);
+            return result;
+        };
+    }
+
+    private void check(String command, long start, long invoked, Jedis jedis, Object result, RuntimeException error) {
+        long elapsed = System.nanoTime() - start;
+        if (elapsed < TimeUnit.MILLISECONDS.toNanos(thresholdMillis)) {
+            return;
+        }
+        Entry entry = new Entry();
+        entry.timestamp = System.currentTimeMillis();
+        entry.command = command;
+        entry.elapsedNanos = elapsed;
+        entry.borrowWaitNanos = invoked - start;
+        entry.replySize = error == null ? replySize(result) : -1;
+        entry.error = error == null ? null : error.toString();
+        entry.thread = Thread.currentThread().getName();
+        entry.stack = callerStack(stackDepth);
+        TracingClient client = TracingClient.of(jedis);
+        if (client != null && client.getLastCommand() != null) {
+            byte[][] args = client.getLastArgs();
+            entry.redisCommand = client.getLastCommand().name();
+            entry.commandCount = client.getCommandCount();
+            entry.argCount = args.length;
+            for (byte[] arg : args) {
+                entry.argBytes += arg.length;
+            }
+            if (args.length > 0) {
+                String key = SafeEncoder.encode(args[0]);
+                entry.key = key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) + "..." : key;
+            }
+        }
+        entries.set((int) (sequence.getAndIncrement() % entries.length()), entry);
+    }
+
+    /**
+     * 应答大小:字符串为长度,集合为元素个数,其余为0
+     */
+    private static long replySize(Object result) {
+        if (result instanceof byte[]) {
+            return ((byte[]) result).length;
+        } else if (result instanceof String) {
+            return ((String) result).length();
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        return 0;
+    }
+
+    /**
+     * 调用方的栈帧,跳过本包、lambda和JDK线程池的栈帧
+     */
+    private static String[] callerStack(int depth) {
+        List<String> frames = new ArrayList<String>(depth);
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (className.startsWith("com.nfbank.common.utils.redis.") || className.contains("$$Lambda")
+                    || className.startsWith("java.") || className.startsWith("sun.")) {
+                continue;
+            }
+            frames.add(element.toString());
+            if (frames.size() >= depth) {
+                break;
+            }
+        }
+        return frames.toArray(new String[0]);
+    }
+
+    /**
+     * 慢日志记录,最新的在前
+     *
+     * @return 记录列表
+     */
+    public List<Entry> entries() {
+        List<Entry> list = new ArrayList<Entry>();
+        long last = sequence.get();
+        int capacity = entries.length();
+        for (long i = last - 1; i >= 0 && i >= last - capacity; i--) {
+            Entry entry = entries.get((int) (i % capacity));
+            if (entry != null) {
+                list.add(entry);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 累计记录过的慢命令数(含已被覆盖的)
+     *
+     * @return 数量
+     */
+    public long getTotal() {
+        return sequence.get();
+    }
+
+    /**
+     * 清空慢日志
+     */
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+
+    /**
+     * 把全部记录格式化为文本,每条记录一段
+     *
+     * @return 文本
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Redis慢日志,累计").append(getTotal()).append("条,阈值")
+                .append(thresholdMillis).append("毫秒\n");
+        for (Entry entry : entries()) {
+            builder.append(entry).append('\n');
+            for (String frame : entry.stack) {
+                builder.append("\tat ").append(frame).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 一条慢日志
+     */
+    public static class Entry {
+
+        private long timestamp;
+        private String command;
+        private String redisCommand;
+        private String key;
+        private int commandCount;
+        private int argCount;
+        private long argBytes;
+        private long replySize;
+        private long elapsedNanos;
+        private long borrowWaitNanos;
+        private String error;
+        private String thread;
+        private String[] stack;
+
+        /**
+         * 记录时间(毫秒时间戳)
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * RedisUtil中的命令名,如HASH.hgetAll
+         */
+        public String getCommand() {
+            return command;
+        }
+
+        /**
+         * 实际发送的最后一条Redis命令,如HGETALL
+         */
+        public String getRedisCommand() {
+            return redisCommand;
+        }
+
+        /**
+         * 最后一条命令的第一个参数,超长时截断
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * 本次调用发送的命令数,pipeline时大于1
+         */
+        public int getCommandCount() {
+            return commandCount;
+        }
+
+        public int getArgCount() {
+            return argCount;
+        }
+
+        public long getArgBytes() {
+            return argBytes;
+        }
+
+        /**
+         * 应答大小:字符串为长度,集合为元素个数;失败时为-1
+         */
+        public long getReplySize() {
+            return replySize;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * 获取连接的等待时间(纳秒)
+         */
+        public long getBorrowWaitNanos() {
+            return borrowWaitNanos;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public String[] getStack() {
+            return stack;
+        }
+
+        @Override
+        public String toString() {
+            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(timestamp)) + " [" + thread + "] "
+                    + command + " 耗时" + TimeUnit.NANOSECONDS.toMicros(elapsedNanos) + "us(等待连接"
+                    + TimeUnit.NANOSECONDS.toMicros(borrowWaitNanos) + "us) " + redisCommand + " key=" + key
+                    + " 命令数" + commandCount + " 参数" + argCount + "个/" + argBytes + "字节 应答大小" + replySize
+                    + (error == null ? "" : " 异常:" + error)
+                    + (stack.length == 0 ? "" : " 调用方:" + stack[0]);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Connection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 记住最近一次发送的命令和参数的Client,供慢日志在命令变慢时取出key和参数大小。
+ * 只保存引用,不复制参数,发送命令时只多两次字段写入。
+ */
+public class TracingClient extends Client {
+
+    private Protocol.Command lastCommand;
+
+    private byte[][] lastArgs;
+
+    private int commandCount;
+
+    public TracingClient() {
+        super();
+    }
+
+    public TracingClient(String host, int port) {
+        super(host, port);
+    }
+
+    /**
+     * 取出Jedis使用的TracingClient
+     *
+     * @param jedis 连接
+     * @return 不是TracingClient时返回null
+     */
+    static TracingClient of(Jedis jedis) {
+        Client client = jedis.getClient();
+        return client instanceof TracingClient ? (TracingClient) client : null;
+    }
+
+    @Override
+    protected Connection sendCommand(Protocol.Command cmd, byte[]... args) {
+        trace(cmd, args);
+        return super.sendCommand(cmd, args);
+    }
+
+    /**
+     * 记录一次发送的命令
+     *
+     * @param cmd  命令
+     * @param args 参数
+     */
+    protected void trace(Protocol.Command cmd, byte[][] args) {
+        lastCommand = cmd;
+        lastArgs = args;
+        commandCount++;
+    }
+
+    /**
+     * 发送一条命令并读取应答,错误应答抛出JedisDataException
+     *
+     * @param cmd  命令
+     * @param args 参数
+     * @return 应答,格式与Protocol.read一致
+     */
+    Object execute(Protocol.Command cmd, byte[][] args) {
+        sendCommand(cmd, args);
+        return getOne();
+    }
+
+    /**
+     * 清空记录,连接被再次使用前调用
+     */
+    void resetTrace() {
+        lastCommand = null;
+        lastArgs = null;
+        commandCount = 0;
+    }
+
+    Protocol.Command getLastCommand() {
+        return lastCommand;
+    }
+
+    byte[][] getLastArgs() {
+        return lastArgs;
+    }
+
+    /**
+     * 自上次清空后发送的命令数,pipeline时大于1
+     */
+    int getCommandCount() {
+        return commandCount;
+    }
+}
@@ -0,0 +1,19 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 使用{@link TracingClient}的Jedis,由连接池的连接工厂创建
+ */
+public class TracingJedis extends Jedis {
+
+    public TracingJedis(String host, int port, int timeout) {
+        super(host, port, timeout);
+        //替换父类构造器创建的Client,此时尚未建立连接
+        client = new TracingClient(host, port);
+        client.setConnectionTimeout(timeout);
+        client.setSoTimeout(timeout);
+    }
+}
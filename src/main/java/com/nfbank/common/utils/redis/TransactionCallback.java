@@ -0,0 +1,22 @@
+package com.nfbank.common.utils.redis;
+
+import redis.clients.jedis.Jedis;
+
+import java.util.function.Consumer;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 乐观锁事务中的读取和决策,由{@link RedisUtil#transaction(String, TransactionCallback, String...)}在WATCH之后调用,
+ * 发生冲突时会被再次调用,因此不应有Redis以外的副作用
+ */
+public interface TransactionCallback {
+
+    /**
+     * 读取被WATCH的key,决定要写入的命令
+     *
+     * @param jedis 已WATCH的连接,只用于读取,不要在回调中关闭或执行MULTI
+     * @return 在MULTI/EXEC中执行的写命令;返回null表示放弃本次事务
+     */
+    Consumer<RedisPipeline> doInTransaction(Jedis jedis);
+}
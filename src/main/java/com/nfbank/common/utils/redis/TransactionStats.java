@@ -0,0 +1,92 @@
+package com.nfbank.common.utils.redis;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 单个乐观锁事务(按名称)的提交、放弃、冲突、重试次数。冲突次数与提交次数之比反映所WATCH的key的争用程度
+ */
+public class TransactionStats {
+
+    private final String name;
+
+    private final LongAdder commits = new LongAdder();
+
+    private final LongAdder aborts = new LongAdder();
+
+    private final LongAdder conflicts = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder exhausted = new LongAdder();
+
+    TransactionStats(String name) {
+        this.name = name;
+    }
+
+    void recordCommit() {
+        commits.increment();
+    }
+
+    void recordAbort() {
+        aborts.increment();
+    }
+
+    void recordConflict() {
+        conflicts.increment();
+    }
+
+    void recordRetry() {
+        retries.increment();
+    }
+
+    void recordExhausted() {
+        exhausted.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 成功提交的次数
+     */
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    /**
+     * @return 回调放弃事务的次数
+     */
+    public long getAborts() {
+        return aborts.sum();
+    }
+
+    /**
+     * @return EXEC因WATCH的key被修改而未执行的次数
+     */
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    /**
+     * @return 冲突后重试的次数
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * @return 重试次数用尽、抛出{@link RedisTransactionConflictException}的次数
+     */
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name + ":提交" + getCommits() + ",放弃" + getAborts() + ",冲突" + getConflicts()
+                + ",重试" + getRetries() + ",重试用尽" + getExhausted();
+    }
+}
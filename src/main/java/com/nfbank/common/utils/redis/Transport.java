@@ -0,0 +1,30 @@
+package com.nfbank.common.utils.redis;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 命令传输方式,对应redis.transport配置
+ */
+public enum Transport {
+    /**
+     * Jedis阻塞socket,每个执行中的命令独占一个连接(原有方式);开启redis.autoPipeline.enabled时改为共享连接批量发送
+     */
+    BLOCKING,
+    /**
+     * NIO多路复用,每个节点一个selector线程和少量非阻塞连接
+     */
+    NIO;
+
+    /**
+     * 解析配置值,忽略大小写
+     *
+     * @param value 配置值
+     * @return 传输方式,为空时返回BLOCKING
+     */
+    public static Transport parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return BLOCKING;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,36 @@
+package com.nfbank.common.utils.redis;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 连接有效性校验方式,对应redis.pool.validation配置
+ */
+public enum ValidationMode {
+    /**
+     * 按redis.pool.testOnBorrow/testOnReturn配置,借出和归还时都执行PING(原有方式)
+     */
+    ALWAYS,
+    /**
+     * 仅当连接空闲时间超过redis.pool.validationIdleMillis时,借出前执行PING,归还时不校验;
+     * 此时忽略redis.pool.testOnBorrow/testOnReturn
+     */
+    IDLE,
+    /**
+     * 借出和归还都不校验(忽略redis.pool.testOnBorrow/testOnReturn),只读命令执行时第一次遇到连接异常则丢弃该连接,换一个新连接重试一次;
+     * 写命令遇到连接异常直接抛出,由调用方判断是否重试
+     */
+    LAZY;
+
+    /**
+     * 解析配置值,忽略大小写
+     *
+     * @param value 配置值
+     * @return 校验方式,为空时返回ALWAYS
+     */
+    public static ValidationMode parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return ALWAYS;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+}
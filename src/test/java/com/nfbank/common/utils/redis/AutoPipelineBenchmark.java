@@ -0,0 +1,65 @@
+package com.nfbank.common.utils.redis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 大量线程并发执行小命令时的吞吐量:每个线程独占连接池中的连接(pooled)与经少量共享连接自动管道(autoPipeline)、NIO多路复用(nio)对比。
+ * 每个参数值在独立的JVM中运行。需要redis.properties中配置的Redis可用。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class AutoPipelineBenchmark {
+
+    private static final String KEY = "benchmark:autoPipeline";
+
+    @Param({"pooled", "autoPipeline", "nio"})
+    public String transport;
+
+    private RedisUtil.Strings strings;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RedisConfig.setAutoPipelineEnabled("autoPipeline".equals(transport));
+        RedisConfig.setTransport("nio".equals(transport) ? Transport.NIO : Transport.BLOCKING);
+        strings = RedisUtil.getInstance().STRINGS;
+        strings.set(KEY, "value");
+    }
+
+    @Benchmark
+    public String get() {
+        return strings.get(KEY);
+    }
+
+    @Benchmark
+    public String set() {
+        return strings.set(KEY, "value");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AutoPipelineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,135 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.util.SafeEncoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 自动管道测试:多线程并发时应答回到各自的调用方,错误应答只影响对应命令;关闭后排队中和之后发送的命令都会结束
+ */
+public class AutoPipelineChannelTest {
+
+    private MemoryStandIn server;
+
+    private RedisEndpoint endpoint;
+
+    /**
+     * 处理slow命令前等待,用于让命令在队列中积压
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MemoryStandIn() {
+            @Override
+            protected String handle(Session session, List<String> request) {
+                if ("GET".equalsIgnoreCase(request.get(0)) && "slow".equals(request.get(1))) {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.handle(session, request);
+            }
+        };
+        endpoint = new RedisEndpoint("127.0.0.1", server.getPort(), 0,
+                StandInTestSupport.clientConfig("auto-pipeline", server).build());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        release.countDown();
+        endpoint.close();
+        server.close();
+    }
+
+    @Test
+    public void testConcurrentRepliesReachCallers() throws Exception {
+        for (int i = 0; i < 8 * 500; i++) {
+            server.strings.put("key" + i, "value" + i);
+        }
+        server.hashes.put("hash", new ConcurrentHashMap<String, String>());
+        AutoPipelineChannel channel = new AutoPipelineChannel(endpoint, 2, 16, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<Future<?>>();
+            for (int t = 0; t < 8; t++) {
+                int first = t * 500;
+                workers.add(executor.submit(() -> {
+                    List<CompletableFuture<Object>> replies = new ArrayList<CompletableFuture<Object>>();
+                    for (int i = first; i < first + 500; i++) {
+                        String key = i % 7 == 0 ? "hash" : "key" + i;
+                        replies.add(channel.send(Protocol.Command.GET, new byte[][]{SafeEncoder.encode(key)}));
+                    }
+                    for (int i = first; i < first + 500; i++) {
+                        CompletableFuture<Object> reply = replies.get(i - first);
+                        if (i % 7 == 0) {
+                            try {
+                                reply.get(5, TimeUnit.SECONDS);
+                                Assert.fail();
+                            } catch (ExecutionException e) {
+                                Assert.assertTrue(e.getCause() instanceof JedisDataException);
+                            }
+                        } else {
+                            Assert.assertEquals("value" + i, SafeEncoder.encode((byte[]) reply.get(5, TimeUnit.SECONDS)));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            channel.close();
+        }
+    }
+
+    @Test
+    public void testCloseCompletesQueuedCommands() throws Exception {
+        AutoPipelineChannel channel = new AutoPipelineChannel(endpoint, 1, 1, 2);
+        CompletableFuture<Object> slow = channel.send(Protocol.Command.GET, new byte[][]{SafeEncoder.encode("slow")});
+        //IO线程阻塞在slow的应答上,队列被占满,再发送的线程阻塞在入队
+        List<CompletableFuture<Object>> queued = new ArrayList<CompletableFuture<Object>>();
+        queued.add(channel.send(Protocol.Command.GET, new byte[][]{SafeEncoder.encode("a")}));
+        queued.add(channel.send(Protocol.Command.GET, new byte[][]{SafeEncoder.encode("b")}));
+        CompletableFuture<CompletableFuture<Object>> blocked = CompletableFuture.supplyAsync(() ->
+                channel.send(Protocol.Command.GET, new byte[][]{SafeEncoder.encode("c")}));
+        Thread.sleep(100);
+
+        channel.close();
+        release.countDown();
+        Assert.assertNull(slow.get(5, TimeUnit.SECONDS));
+        queued.add(blocked.get(5, TimeUnit.SECONDS));
+        queued.add(channel.send(Protocol.Command.GET, new byte[][]{SafeEncoder.encode("d")}));
+        for (CompletableFuture<Object> reply : queued) {
+            try {
+                reply.get(5, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof JedisConnectionException);
+            }
+        }
+    }
+}
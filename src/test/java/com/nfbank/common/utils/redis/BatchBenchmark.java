@@ -0,0 +1,90 @@
+package com.nfbank.common.utils.redis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 读写size个key的耗时:逐个调用(perKey)与分块并行pipeline的批量命令(batch)对比。需要redis.properties中配置的Redis可用。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private RedisUtil redisUtil;
+
+    private Map<String, String> values;
+
+    private List<String> keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        redisUtil = RedisUtil.getInstance();
+        values = new LinkedHashMap<String, String>();
+        for (int i = 0; i < size; i++) {
+            values.put("benchmark:batch:" + i, "value" + i);
+        }
+        keys = new ArrayList<String>(values.keySet());
+        redisUtil.BATCH.setAllEx(values, 600);
+    }
+
+    @Benchmark
+    public Map<String, String> getPerKey() {
+        Map<String, String> result = new LinkedHashMap<String, String>();
+        for (String key : keys) {
+            String value = redisUtil.STRINGS.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Map<String, String> getBatch() {
+        return redisUtil.BATCH.getAll(keys);
+    }
+
+    @Benchmark
+    public void setExPerKey() {
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            redisUtil.STRINGS.setEx(entry.getKey(), 600, entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public void setExBatch() {
+        redisUtil.BATCH.setAllEx(values, 600);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BatchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
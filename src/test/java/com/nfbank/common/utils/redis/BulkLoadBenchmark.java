@@ -0,0 +1,89 @@
+package com.nfbank.common.utils.redis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 向集合、有序集合写入size个成员的耗时:逐个SADD/ZADD(perCall)与批量写入(bulk)对比。需要redis.properties中配置的Redis可用。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkLoadBenchmark {
+
+    private static final String SET_KEY = "benchmark:bulkLoad:set";
+
+    private static final String ZSET_KEY = "benchmark:bulkLoad:zset";
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private RedisUtil redisUtil;
+
+    private List<String> members;
+
+    private Map<String, Double> scoreMembers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        redisUtil = RedisUtil.getInstance();
+        members = new ArrayList<String>(size);
+        scoreMembers = new HashMap<String, Double>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            members.add("member" + i);
+            scoreMembers.put("member" + i, (double) i);
+        }
+    }
+
+    @Benchmark
+    public void saddPerCall() {
+        for (String member : members) {
+            redisUtil.SETS.sadd(SET_KEY, member);
+        }
+    }
+
+    @Benchmark
+    public BulkLoadResult saddBulk() {
+        return redisUtil.SETS.saddAll(SET_KEY, members);
+    }
+
+    @Benchmark
+    public void zaddPerCall() {
+        for (Map.Entry<String, Double> entry : scoreMembers.entrySet()) {
+            redisUtil.SORTSET.zadd(ZSET_KEY.getBytes(), entry.getValue(), entry.getKey().getBytes());
+        }
+    }
+
+    @Benchmark
+    public BulkLoadResult zaddBulk() {
+        return redisUtil.SORTSET.zaddAll(ZSET_KEY, scoreMembers);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BulkLoadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 隔离区测试,不需要Redis;异步调用的隔离区标记使用{@link MemoryStandIn}
+ */
+public class BulkheadTest {
+
+    private Bulkheads bulkheads() {
+        Bulkhead heavy = new Bulkhead("heavy", 1, 0);
+        Bulkhead report = new Bulkhead("report", 2, 10);
+        Map<String, List<String>> commands = Collections.singletonMap("heavy",
+                Arrays.asList("KEYS.keys", "SETS.sdiff*"));
+        return new Bulkheads(Arrays.asList(heavy, report), commands);
+    }
+
+    @Test
+    public void testResolve() {
+        Bulkheads bulkheads = bulkheads();
+        Assert.assertEquals("heavy", bulkheads.resolve("KEYS.keys").getName());
+        Assert.assertEquals("heavy", bulkheads.resolve("SETS.sdiffstore").getName());
+        Assert.assertNull(bulkheads.resolve("STRINGS.get"));
+
+        try (Bulkheads.Scope scope = bulkheads.tag("report")) {
+            Assert.assertEquals("report", bulkheads.resolve("STRINGS.get").getName());
+            Assert.assertEquals("report", bulkheads.resolve("KEYS.keys").getName());
+        }
+        Assert.assertNull(bulkheads.resolve("STRINGS.get"));
+    }
+
+    @Test
+    public void testReject() {
+        Bulkheads bulkheads = bulkheads();
+        Bulkhead heavy = bulkheads.resolve("KEYS.keys");
+        heavy.acquire();
+        try {
+            heavy.acquire();
+            Assert.fail();
+        } catch (RedisBulkheadException e) {
+            Assert.assertEquals(1, bulkheads.snapshot().get("heavy").getRejected());
+        }
+        Assert.assertEquals(1, bulkheads.snapshot().get("heavy").getActive());
+        heavy.release();
+        heavy.acquire();
+        heavy.release();
+        Assert.assertEquals(2, bulkheads.snapshot().get("heavy").getAcquired());
+        Assert.assertEquals(0, bulkheads.snapshot().get("heavy").getActive());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownTag() {
+        bulkheads().tag("unknown");
+    }
+
+    @Test
+    public void testTaggedAsyncCallsUsePartition() throws Exception {
+        MemoryStandIn server = new MemoryStandIn();
+        RedisUtil client = RedisUtil.create(StandInTestSupport.clientConfig("bulkhead-async", server).build(), bulkheads());
+        try {
+            client.async().STRINGS.get("key").get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(0, client.bulkheads().get("report").getAcquired());
+            try (Bulkheads.Scope scope = client.bulkhead("report")) {
+                //异步线程上执行时仍占用调用方标记的隔离区
+                client.async().STRINGS.get("key").get(5, TimeUnit.SECONDS);
+            }
+            Assert.assertEquals(1, client.bulkheads().get("report").getAcquired());
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 集群路由测试,使用本机启动的{@link ClusterStandIn},不需要Redis
+ */
+public class ClusterChannelTest {
+
+    private ClusterStandIn standIn;
+
+    private final Map<String, RedisEndpoint> endpoints = new ConcurrentHashMap<String, RedisEndpoint>();
+
+    @Before
+    public void setUp() throws Exception {
+        standIn = new ClusterStandIn(3);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (RedisEndpoint endpoint : endpoints.values()) {
+            if (endpoint.isInitialized()) {
+                endpoint.getPool().close();
+            }
+        }
+        standIn.close();
+    }
+
+    private ClusterChannel channel(boolean multiplexed) {
+        RedisEndpoint seed = endpoint(new HostAndPort("127.0.0.1", standIn.port(0)));
+        return new ClusterChannel(Collections.singletonList(seed), this::endpoint, 5, multiplexed);
+    }
+
+    private RedisEndpoint endpoint(HostAndPort node) {
+        return endpoints.computeIfAbsent(node.toString(), k -> new RedisEndpoint(node.getHost(), node.getPort()));
+    }
+
+    @Test
+    public void testSlot() {
+        Assert.assertEquals(12182, ClusterChannel.slot("foo"));
+        Assert.assertEquals(12739, ClusterChannel.slot("123456789"));
+        Assert.assertEquals(ClusterChannel.slot("user1000"), ClusterChannel.slot("{user1000}.following"));
+        Assert.assertEquals(ClusterChannel.slot("{user1000}.followers"), ClusterChannel.slot("{user1000}.following"));
+        //空的{}不算hash tag
+        Assert.assertNotEquals(ClusterChannel.slot("{}a"), ClusterChannel.slot("{}b"));
+    }
+
+    @Test
+    public void testRouting() {
+        for (boolean multiplexed : new boolean[]{false, true}) {
+            ClusterChannel channel = channel(multiplexed);
+            Jedis jedis = new MultiplexedJedis(channel, 2000);
+            for (int i = 0; i < 300; i++) {
+                Assert.assertEquals("OK", jedis.set("key" + i, "value" + i));
+            }
+            for (int i = 0; i < 300; i++) {
+                Assert.assertEquals("value" + i, jedis.get("key" + i));
+            }
+            Assert.assertEquals(3, channel.getMasters().size());
+            //每个key只存在于负责其槽位的节点
+            for (int i = 0; i < 300; i++) {
+                String key = "key" + i;
+                Assert.assertTrue(standIn.data(standIn.owner(ClusterChannel.slot(key))).containsKey(key));
+            }
+            channel.close();
+        }
+    }
+
+    @Test
+    public void testMoved() {
+        ClusterChannel channel = channel(false);
+        Jedis jedis = new MultiplexedJedis(channel, 2000);
+        jedis.set("foo", "bar");
+        int slot = ClusterChannel.slot("foo");
+        int target = (standIn.owner(slot) + 1) % 3;
+        standIn.move(slot, target);
+
+        Assert.assertEquals("bar", jedis.get("foo"));
+        Assert.assertEquals(standIn.port(target), channel.nodeFor(slot).getPort());
+    }
+
+    @Test
+    public void testFailoverRefreshesSlots() throws Exception {
+        ClusterChannel channel = channel(false);
+        Jedis jedis = new MultiplexedJedis(channel, 2000);
+        jedis.set("foo", "bar");
+        int slot = ClusterChannel.slot("foo");
+        int target = (standIn.owner(slot) + 1) % 3;
+        standIn.failover(standIn.owner(slot), target);
+        try {
+            jedis.get("foo");
+            Assert.fail();
+        } catch (JedisConnectionException e) {
+            //旧主节点已不可用,触发后台刷新
+        }
+        for (int i = 0; i < 100 && channel.nodeFor(slot).getPort() != standIn.port(target); i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(standIn.port(target), channel.nodeFor(slot).getPort());
+        Assert.assertEquals("bar", jedis.get("foo"));
+        channel.close();
+    }
+
+    @Test
+    public void testAsk() {
+        ClusterChannel channel = channel(true);
+        Jedis jedis = new MultiplexedJedis(channel, 2000);
+        int slot = ClusterChannel.slot("foo");
+        int source = standIn.owner(slot);
+        int target = (source + 1) % 3;
+        jedis.get("foo");
+        standIn.migrate(slot, target);
+        standIn.data(target).put("foo", "migrated");
+
+        Assert.assertEquals("migrated", jedis.get("foo"));
+        //ASK不更新映射
+        Assert.assertEquals(standIn.port(source), channel.nodeFor(slot).getPort());
+        channel.close();
+    }
+}
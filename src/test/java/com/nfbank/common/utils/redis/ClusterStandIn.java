@@ -0,0 +1,174 @@
+package com.nfbank.common.utils.redis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 测试用的Redis Cluster替身:在本机启动若干节点,模拟槽位归属、MOVED和ASK重定向。
+ * 只支持PING、AUTH、SELECT、QUIT、ASKING、CLUSTER SLOTS、GET、SET、DEL。
+ */
+class ClusterStandIn implements AutoCloseable {
+
+    private final Node[] nodes;
+
+    /**
+     * 槽位归属的节点下标
+     */
+    private final AtomicIntegerArray owners = new AtomicIntegerArray(ClusterChannel.SLOTS);
+
+    /**
+     * 迁移中的槽位到目标节点下标
+     */
+    private final Map<Integer, Integer> migrating = new ConcurrentHashMap<Integer, Integer>();
+
+    /**
+     * 启动节点并平均分配槽位
+     *
+     * @param count 节点数
+     */
+    ClusterStandIn(int count) throws IOException {
+        nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = new Node(i);
+        }
+        for (int slot = 0; slot < ClusterChannel.SLOTS; slot++) {
+            owners.set(slot, slot * count / ClusterChannel.SLOTS);
+        }
+    }
+
+    int port(int node) {
+        return nodes[node].getPort();
+    }
+
+    int owner(int slot) {
+        return owners.get(slot);
+    }
+
+    Map<String, String> data(int node) {
+        return nodes[node].data;
+    }
+
+    /**
+     * 把槽位及其中的key改归另一个节点,旧节点之后返回MOVED
+     */
+    void move(int slot, int target) {
+        Node source = nodes[owners.get(slot)];
+        for (String key : new ArrayList<String>(source.data.keySet())) {
+            if (ClusterChannel.slot(key) == slot) {
+                nodes[target].data.put(key, source.data.remove(key));
+            }
+        }
+        owners.set(slot, target);
+    }
+
+    /**
+     * 模拟主节点宕机后从节点接替:节点的槽位和数据改归target,节点停止服务并断开所有连接
+     */
+    void failover(int node, int target) throws IOException {
+        //先停掉旧节点再改槽位归属,否则旧节点断开前可能先返回MOVED,命令被重定向到target而不是连接失败
+        nodes[node].close();
+        nodes[node].dropConnections();
+        nodes[target].data.putAll(nodes[node].data);
+        for (int slot = 0; slot < ClusterChannel.SLOTS; slot++) {
+            if (owners.get(slot) == node) {
+                owners.set(slot, target);
+            }
+        }
+    }
+
+    /**
+     * 把槽位标记为正在迁往另一个节点:源节点上不存在的key返回ASK
+     */
+    void migrate(int slot, int target) {
+        migrating.put(slot, target);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Node node : nodes) {
+            node.close();
+        }
+    }
+
+    private class Node extends RespStandIn {
+
+        private final int index;
+
+        private final Map<String, String> data = new ConcurrentHashMap<String, String>();
+
+        Node(int index) throws IOException {
+            super("cluster-stand-in-" + index);
+            this.index = index;
+            start();
+        }
+
+        @Override
+        protected String handle(Session session, List<String> request) {
+            String command = request.get(0).toUpperCase();
+            boolean asking = session.asking;
+            session.asking = "ASKING".equals(command);
+            switch (command) {
+                case "PING":
+                    return "+PONG\r\n";
+                case "AUTH":
+                case "SELECT":
+                case "ASKING":
+                case "QUIT":
+                    return "+OK\r\n";
+                case "CLUSTER":
+                    return slots();
+                default:
+                    break;
+            }
+            if (request.size() < 2) {
+                return "-ERR wrong number of arguments for '" + command + "' command\r\n";
+            }
+            String key = request.get(1);
+            int slot = ClusterChannel.slot(key);
+            Integer target = migrating.get(slot);
+            if (owners.get(slot) == index && target != null && !data.containsKey(key)) {
+                return "-ASK " + slot + " 127.0.0.1:" + port(target) + "\r\n";
+            }
+            if (owners.get(slot) != index && !(asking && target != null && target == index)) {
+                return "-MOVED " + slot + " 127.0.0.1:" + port(owners.get(slot)) + "\r\n";
+            }
+            switch (command) {
+                case "GET":
+                    return bulk(data.get(key));
+                case "SET":
+                    data.put(key, request.get(2));
+                    return "+OK\r\n";
+                case "DEL":
+                    return ":" + (data.remove(key) == null ? 0 : 1) + "\r\n";
+                default:
+                    return "-ERR unknown command '" + command + "'\r\n";
+            }
+        }
+
+        /**
+         * CLUSTER SLOTS应答,连续归属同一节点的槽位合并为一项
+         */
+        private String slots() {
+            List<String> ranges = new ArrayList<String>();
+            int start = 0;
+            for (int slot = 1; slot <= ClusterChannel.SLOTS; slot++) {
+                if (slot == ClusterChannel.SLOTS || owners.get(slot) != owners.get(start)) {
+                    ranges.add("*3\r\n:" + start + "\r\n:" + (slot - 1) + "\r\n*3\r\n" + bulk("127.0.0.1")
+                            + ":" + port(owners.get(start)) + "\r\n" + bulk("node" + owners.get(start)));
+                    start = slot;
+                }
+            }
+            StringBuilder builder = new StringBuilder("*").append(ranges.size()).append("\r\n");
+            for (String range : ranges) {
+                builder.append(range);
+            }
+            return builder.toString();
+        }
+    }
+}
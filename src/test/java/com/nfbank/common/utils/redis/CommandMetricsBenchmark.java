@@ -0,0 +1,52 @@
+package com.nfbank.common.utils.redis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 命令耗时统计本身的开销:与RedisUtil.execute中的统计代码相同(查找统计对象、两次nanoTime、记录直方图),
+ * 不访问Redis。8个线程同时记录同一个命令,模拟热点命令的竞争。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class CommandMetricsBenchmark {
+
+    private final CommandMetrics metrics = new CommandMetrics();
+
+    @Benchmark
+    public long baseline() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    public long instrumented() {
+        CommandStats stats = metrics.get("HASH.hgetAll");
+        long start = System.nanoTime();
+        stats.recordSuccess(System.nanoTime() - start);
+        return start;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CommandMetricsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
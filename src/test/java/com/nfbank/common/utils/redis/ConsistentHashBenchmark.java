@@ -0,0 +1,115 @@
+package com.nfbank.common.utils.redis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisShardInfo;
+import redis.clients.util.Hashing;
+import redis.clients.util.SafeEncoder;
+import redis.clients.util.Sharded;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 一致性哈希环的查找耗时,与Jedis自带分片(TreeMap实现)对比;main方法先输出不同虚拟节点数下的分布均匀度
+ * 和增加一个节点时的key迁移比例,再运行基准测试。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsistentHashBenchmark {
+
+    private static final int KEYS = 1024;
+
+    @Param({"4", "16"})
+    private int nodes;
+
+    private ConsistentHashRing ring;
+
+    private Sharded<Jedis, JedisShardInfo> sharded;
+
+    private byte[][] keys;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ring = new ConsistentHashRing(ConsistentHashRingTest.nodes(nodes), 160);
+        List<JedisShardInfo> shards = new ArrayList<JedisShardInfo>();
+        for (RedisEndpoint endpoint : ring.getNodes()) {
+            shards.add(new JedisShardInfo(endpoint.getHost(), endpoint.getPort()));
+        }
+        sharded = new Sharded<Jedis, JedisShardInfo>(shards, Hashing.MURMUR_HASH, Sharded.DEFAULT_KEY_TAG_PATTERN);
+        keys = new byte[KEYS][];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = SafeEncoder.encode("user:" + i + ":profile");
+        }
+    }
+
+    @Benchmark
+    public RedisEndpoint ring() {
+        return ring.get(keys[next++ & (KEYS - 1)]);
+    }
+
+    @Benchmark
+    public JedisShardInfo jedisSharded() {
+        return sharded.getShardInfo(keys[next++ & (KEYS - 1)]);
+    }
+
+    /**
+     * 输出分布均匀度:各节点key数相对平均值的最大偏差,以及从N个节点增加到N+1个时迁移的key比例
+     */
+    private static void printDistribution() {
+        int total = 1000000;
+        for (int virtualNodes : new int[]{10, 40, 160, 640}) {
+            for (int count : new int[]{4, 16}) {
+                List<RedisEndpoint> all = ConsistentHashRingTest.nodes(count + 1);
+                ConsistentHashRing ring = new ConsistentHashRing(all.subList(0, count), virtualNodes);
+                ConsistentHashRing grown = new ConsistentHashRing(all, virtualNodes);
+                Map<RedisEndpoint, Integer> counts = new HashMap<RedisEndpoint, Integer>();
+                int moved = 0;
+                for (int i = 0; i < total; i++) {
+                    byte[] key = SafeEncoder.encode("user:" + i);
+                    RedisEndpoint node = ring.get(key);
+                    counts.merge(node, 1, Integer::sum);
+                    if (grown.get(key) != node) {
+                        moved++;
+                    }
+                }
+                double mean = total / (double) count;
+                double deviation = 0;
+                for (int value : counts.values()) {
+                    deviation = Math.max(deviation, Math.abs(value - mean) / mean);
+                }
+                System.out.printf("虚拟节点%d,节点%d:最大偏差%.1f%%,增加1个节点迁移%.1f%%(理想%.1f%%)%n", virtualNodes, count,
+                        deviation * 100, moved * 100.0 / total, 100.0 / (count + 1));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        printDistribution();
+        new Runner(new OptionsBuilder().include(ConsistentHashBenchmark.class.getSimpleName()).build()).run();
+    }
+}
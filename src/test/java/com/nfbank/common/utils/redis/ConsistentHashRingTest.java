@@ -0,0 +1,68 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 一致性哈希环测试,不需要Redis
+ */
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 100000;
+
+    static List<RedisEndpoint> nodes(int count) {
+        List<RedisEndpoint> nodes = new ArrayList<RedisEndpoint>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(new RedisEndpoint("10.0.0." + (i + 1), 6379));
+        }
+        return nodes;
+    }
+
+    @Test
+    public void testDistribution() {
+        ConsistentHashRing ring = new ConsistentHashRing(nodes(4), 160);
+        Map<RedisEndpoint, Integer> counts = new HashMap<RedisEndpoint, Integer>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.get("user:" + i), 1, Integer::sum);
+        }
+        Assert.assertEquals(4, counts.size());
+        //160个虚拟节点时各节点的key数偏离平均值不超过15%
+        for (int count : counts.values()) {
+            Assert.assertEquals(KEYS / 4.0, count, KEYS / 4.0 * 0.15);
+        }
+    }
+
+    @Test
+    public void testAddNodeRemapsOneNth() {
+        List<RedisEndpoint> nodes = nodes(5);
+        ConsistentHashRing before = new ConsistentHashRing(nodes.subList(0, 4), 160);
+        ConsistentHashRing after = new ConsistentHashRing(nodes, 160);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            RedisEndpoint node = after.get("user:" + i);
+            if (node != before.get("user:" + i)) {
+                //只会移到新节点
+                Assert.assertSame(nodes.get(4), node);
+                moved++;
+            }
+        }
+        Assert.assertEquals(0.2, moved / (double) KEYS, 0.05);
+    }
+
+    @Test
+    public void testHashTag() {
+        ConsistentHashRing ring = new ConsistentHashRing(nodes(8), 160);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertSame(ring.get("{order" + i + "}:items"), ring.get("{order" + i + "}:amount"));
+        }
+        Assert.assertEquals(ConsistentHashRing.hash("{}a".getBytes()), ConsistentHashRing.hash("{}a".getBytes()));
+        Assert.assertNotEquals(ConsistentHashRing.hash("{}a".getBytes()), ConsistentHashRing.hash("{}b".getBytes()));
+    }
+}
@@ -0,0 +1,61 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 节点熔断测试,使用一个没有监听的端口模拟Redis宕机
+ */
+public class EndpointHealthTest {
+
+    @Test
+    public void testOpenAfterFailures() throws IOException {
+        RedisEndpoint endpoint = new RedisEndpoint("127.0.0.1", unusedPort());
+
+        for (int i = 0; i < RedisConfig.getHealthFailureThreshold(); i++) {
+            Assert.assertEquals(EndpointHealth.State.CLOSED, endpoint.getHealth().getState());
+            try {
+                endpoint.getResource();
+                Assert.fail();
+            } catch (JedisConnectionException e) {
+                Assert.assertFalse(e instanceof RedisUnavailableException);
+            }
+        }
+        Assert.assertEquals(EndpointHealth.State.OPEN, endpoint.getHealth().getState());
+
+        long start = System.nanoTime();
+        try {
+            endpoint.getResource();
+            Assert.fail();
+        } catch (RedisUnavailableException e) {
+            System.out.println("熔断拒绝用时：" + (System.nanoTime() - start) / 1000 + " 微秒");
+        }
+        Assert.assertEquals(1, endpoint.getHealth().getRejected());
+    }
+
+    @Test
+    public void testBackoff() {
+        RedisClientConfig config = RedisClientConfig.builder().host("127.0.0.1")
+                .healthBackoffMillis(100).healthMaxBackoffMillis(5000).build();
+        for (int attempt = 0; attempt < 40; attempt++) {
+            long base = Math.min(5000, 100L << Math.min(attempt, 20));
+            long delay = EndpointHealth.backoffMillis(attempt, config);
+            Assert.assertTrue(delay >= base / 2 && delay <= base);
+        }
+    }
+
+    private static int unusedPort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+}
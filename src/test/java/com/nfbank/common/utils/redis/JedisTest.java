@@ -8,6 +8,7 @@ import redis.clients.jedis.Tuple;
 
 import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 /**
  * com.nfbank.common.utils.redis
@@ -142,13 +143,10 @@ public class JedisTest {
 
 //        instance.KEYS.flushAll();
         int num = 3000000;
-        for (int i = 0; i < num; i++) {
-            instance.SETS.sadd("20181222-1001", "\"" + String.valueOf(i) + "\"");
+        System.out.println(instance.SETS.saddAll("20181222-1001",
+                IntStream.range(0, num).mapToObj(i -> "\"" + String.valueOf(i) + "\"").iterator()));
 //            instance.SETS.sadd("20181222-1001", "\""+String.valueOf(i)+"\"");
-        }
-        for (int i = 0; i < num; i++) {
-            instance.SETS.sadd("20181225-1002", String.valueOf(i));
-        }
+        System.out.println(instance.SETS.saddAll("20181225-1002", IntStream.range(0, num).mapToObj(String::valueOf).iterator()));
         long count = instance.SETS.sdiffstore("newHaha", "20181222-1001", "20181222-1002");
 
         System.out.println("数量：" + count);
@@ -220,13 +218,9 @@ public class JedisTest {
     public void testDiffCount() {
         RedisUtil instance = RedisUtil.getInstance();
         final int num = 3000000;
-        for (int i = 0; i < num; i++) {
-            instance.SETS.sadd("20181222-1001", "\"" + String.valueOf(i) + "\"");
-        }
+        instance.SETS.saddAll("20181222-1001", IntStream.range(0, num).mapToObj(i -> "\"" + String.valueOf(i) + "\"").iterator());
 
-        for (int i = 0; i < num; i++) {
-            instance.SETS.sadd("20181225-1002", String.valueOf(i));
-        }
+        instance.SETS.saddAll("20181225-1002", IntStream.range(0, num).mapToObj(String::valueOf).iterator());
 
         long count = RedisUtil.getInstance().SETS.sdiffstore("newHaha", "20181222-1001", "20181222-1002");
 
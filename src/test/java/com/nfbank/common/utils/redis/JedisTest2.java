@@ -2,6 +2,9 @@ package com.nfbank.common.utils.redis;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * com.nfbank.common.utils.redis
  * <p>
@@ -25,10 +28,12 @@ public class JedisTest2 {
         long start = System.currentTimeMillis();
         RedisUtil instance = RedisUtil.getInstance();
         final int num = 1000;
+        List<String> members = new ArrayList<String>(num);
         for (int i = 0; i < num; i++) {
-            instance.SETS.sadd("20181222-1001", "\"" + String.valueOf(i) + "\"");
+            members.add("\"" + String.valueOf(i) + "\"");
         }
-        System.out.println("用时：" + (System.currentTimeMillis() - start)+" 毫秒");
+        BulkLoadResult result = instance.SETS.saddAll("20181222-1001", members);
+        System.out.println(result + ",用时：" + (System.currentTimeMillis() - start) + " 毫秒");
     }
 
 }
@@ -0,0 +1,43 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 耗时直方图测试
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        long[] values = {0, 1, 7, 8, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.index(value);
+            Assert.assertTrue(value <= LatencyHistogram.upperBound(index));
+            //上界误差不超过12.5%
+            Assert.assertTrue(LatencyHistogram.upperBound(index) - value <= value / 8);
+            if (index > 0) {
+                Assert.assertTrue(value > LatencyHistogram.upperBound(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(1000, snapshot.getCount());
+        Assert.assertEquals(500500, snapshot.getMean());
+        Assert.assertEquals(1000000, snapshot.getMax());
+        Assert.assertEquals(500000, snapshot.getP50(), 500000 / 8);
+        Assert.assertEquals(990000, snapshot.getP99(), 990000 / 8);
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.snapshot().getCount());
+    }
+}
@@ -0,0 +1,369 @@
+package com.nfbank.common.utils.redis;
+
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 内存中的简易Redis:支持字符串、hash、集合的常用命令、KEYS/SCAN/FLUSHALL、WATCH/MULTI/EXEC、内置脚本和过期时间记录(不会真正过期),其他命令回复OK。
+ */
+class MemoryStandIn extends RespStandIn {
+
+    /**
+     * 会修改key的命令
+     */
+    private static final Set<String> WRITES = new HashSet<String>(Arrays.asList(
+            "SET", "MSET", "SETEX", "INCRBY", "DECRBY", "HSET", "HMSET", "SADD", "ZADD", "DEL", "EXPIRE"));
+
+    final Map<String, String> strings = new ConcurrentHashMap<String, String>();
+
+    final Map<String, Map<String, String>> hashes = new ConcurrentHashMap<String, Map<String, String>>();
+
+    final Map<String, Set<String>> sets = new ConcurrentHashMap<String, Set<String>>();
+
+    final Map<String, Map<String, Double>> zsets = new ConcurrentHashMap<String, Map<String, Double>>();
+
+    final Map<String, List<String>> lists = new ConcurrentHashMap<String, List<String>>();
+
+    final Map<String, Integer> ttls = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * 每个key被写入的次数,用于判断WATCH的key是否被修改
+     */
+    final Map<String, Long> versions = new ConcurrentHashMap<String, Long>();
+
+    volatile int hmsets;
+
+    volatile int hsets;
+
+    /**
+     * 已缓存的脚本(SHA1到源码)
+     */
+    final Map<String, String> scriptCache = new ConcurrentHashMap<String, String>();
+
+    final AtomicInteger evals = new AtomicInteger();
+
+    /**
+     * 能执行的脚本:源码到用Java实现的逻辑(参数为KEYS和ARGV)
+     */
+    private final Map<String, BiFunction<List<String>, List<String>, String>> scripts =
+            new HashMap<String, BiFunction<List<String>, List<String>, String>>();
+
+    MemoryStandIn() throws IOException {
+        super("memory-stand-in");
+        scripts.put(RedisScript.COMPARE_AND_DELETE.getSource(), (keys, args) -> args.get(0).equals(strings.get(keys.get(0)))
+                ? execute(Arrays.asList("DEL", keys.get(0))) : ":0\r\n");
+        scripts.put(RedisScript.COMPARE_AND_EXPIRE.getSource(), (keys, args) -> args.get(0).equals(strings.get(keys.get(0)))
+                ? execute(Arrays.asList("EXPIRE", keys.get(0), args.get(1))) : ":0\r\n");
+        scripts.put(RedisScript.CAPPED_LPUSH.getSource(), (keys, args) -> {
+            List<String> list = lists.computeIfAbsent(keys.get(0), k -> new ArrayList<String>());
+            list.add(0, args.get(1));
+            int max = Integer.parseInt(args.get(0));
+            while (list.size() > max) {
+                list.remove(list.size() - 1);
+            }
+            return ":" + list.size() + "\r\n";
+        });
+        scripts.put(RedisScript.UNLINK.getSource(), (keys, args) -> {
+            int deleted = 0;
+            for (String key : keys) {
+                versions.merge(key, 1L, Long::sum);
+                if (strings.remove(key) != null | hashes.remove(key) != null | sets.remove(key) != null
+                        | zsets.remove(key) != null | lists.remove(key) != null) {
+                    deleted++;
+                }
+            }
+            return ":" + deleted + "\r\n";
+        });
+        start();
+    }
+
+    @Override
+    protected String handle(Session session, List<String> request) {
+        switch (request.get(0).toUpperCase()) {
+            case "WATCH":
+                for (String key : request.subList(1, request.size())) {
+                    session.watched.put(key, versions.getOrDefault(key, 0L));
+                }
+                return "+OK\r\n";
+            case "UNWATCH":
+                session.watched.clear();
+                return "+OK\r\n";
+            case "MULTI":
+                session.queued = new ArrayList<List<String>>();
+                return "+OK\r\n";
+            case "EXEC":
+                return exec(session);
+            default:
+                if (session.queued != null) {
+                    session.queued.add(request);
+                    return "+QUEUED\r\n";
+                }
+                return execute(request);
+        }
+    }
+
+    private synchronized String exec(Session session) {
+        List<List<String>> queued = session.queued;
+        session.queued = null;
+        boolean conflict = false;
+        for (Map.Entry<String, Long> entry : session.watched.entrySet()) {
+            conflict |= !entry.getValue().equals(versions.getOrDefault(entry.getKey(), 0L));
+        }
+        session.watched.clear();
+        if (conflict) {
+            return "*-1\r\n";
+        }
+        StringBuilder reply = new StringBuilder("*").append(queued.size()).append("\r\n");
+        for (List<String> request : queued) {
+            reply.append(execute(request));
+        }
+        return reply.toString();
+    }
+
+    private synchronized String execute(List<String> request) {
+        String command = request.get(0).toUpperCase();
+        if (WRITES.contains(command)) {
+            for (String key : "DEL".equals(command) ? request.subList(1, request.size()) : request.subList(1, 2)) {
+                versions.merge(key, 1L, Long::sum);
+            }
+        }
+        switch (command) {
+            case "PING":
+                return "+PONG\r\n";
+            case "SETEX":
+                strings.put(request.get(1), request.get(3));
+                ttls.put(request.get(1), Integer.parseInt(request.get(2)));
+                return "+OK\r\n";
+            case "SCRIPT": {
+                //SCRIPT LOAD source
+                String sha1 = Hashing.sha1().hashString(request.get(2), StandardCharsets.UTF_8).toString();
+                scriptCache.put(sha1, request.get(2));
+                return bulk(sha1);
+            }
+            case "EVAL":
+            case "EVALSHA": {
+                String source = "EVAL".equals(command) ? request.get(1) : scriptCache.get(request.get(1));
+                if (source == null) {
+                    return "-NOSCRIPT No matching script. Please use EVAL.\r\n";
+                }
+                evals.incrementAndGet();
+                scriptCache.put(Hashing.sha1().hashString(source, StandardCharsets.UTF_8).toString(), source);
+                int numKeys = Integer.parseInt(request.get(2));
+                return scripts.get(source).apply(request.subList(3, 3 + numKeys), request.subList(3 + numKeys, request.size()));
+            }
+            case "SET":
+                if (request.size() > 3 && "NX".equalsIgnoreCase(request.get(3)) && strings.containsKey(request.get(1))) {
+                    return "$-1\r\n";
+                }
+                strings.put(request.get(1), request.get(2));
+                if (request.size() > 5) {
+                    ttls.put(request.get(1), Integer.parseInt(request.get(5)));
+                }
+                return "+OK\r\n";
+            case "INCRBY":
+            case "DECRBY": {
+                long delta = Long.parseLong(request.get(2));
+                long value = Long.parseLong(strings.getOrDefault(request.get(1), "0"))
+                        + ("DECRBY".equals(command) ? -delta : delta);
+                strings.put(request.get(1), String.valueOf(value));
+                return ":" + value + "\r\n";
+            }
+            case "MSET":
+                for (int i = 1; i + 1 < request.size(); i += 2) {
+                    strings.put(request.get(i), request.get(i + 1));
+                }
+                return "+OK\r\n";
+            case "MGET": {
+                StringBuilder reply = new StringBuilder("*").append(request.size() - 1).append("\r\n");
+                for (String key : request.subList(1, request.size())) {
+                    reply.append(bulk(strings.get(key)));
+                }
+                return reply.toString();
+            }
+            case "GET":
+                if (hashes.containsKey(request.get(1))) {
+                    return "-WRONGTYPE Operation against a key holding the wrong kind of value\r\n";
+                }
+                return bulk(strings.get(request.get(1)));
+            case "HSET": {
+                if (strings.containsKey(request.get(1))) {
+                    return "-WRONGTYPE Operation against a key holding the wrong kind of value\r\n";
+                }
+                Map<String, String> hash = hashes.computeIfAbsent(request.get(1),
+                        k -> new ConcurrentHashMap<String, String>());
+                int created = 0;
+                for (int i = 2; i + 1 < request.size(); i += 2) {
+                    if (hash.put(request.get(i), request.get(i + 1)) == null) {
+                        created++;
+                    }
+                }
+                hsets++;
+                return ":" + created + "\r\n";
+            }
+            case "HMSET": {
+                if (strings.containsKey(request.get(1))) {
+                    return "-WRONGTYPE Operation against a key holding the wrong kind of value\r\n";
+                }
+                Map<String, String> hash = hashes.computeIfAbsent(request.get(1),
+                        k -> new ConcurrentHashMap<String, String>());
+                for (int i = 2; i + 1 < request.size(); i += 2) {
+                    hash.put(request.get(i), request.get(i + 1));
+                }
+                hmsets++;
+                return "+OK\r\n";
+            }
+            case "HLEN": {
+                Map<String, String> hash = hashes.get(request.get(1));
+                return ":" + (hash == null ? 0 : hash.size()) + "\r\n";
+            }
+            case "HGET": {
+                Map<String, String> hash = hashes.get(request.get(1));
+                return bulk(hash == null ? null : hash.get(request.get(2)));
+            }
+            case "HGETALL": {
+                Map<String, String> hash = hashes.get(request.get(1));
+                if (hash == null) {
+                    return "*0\r\n";
+                }
+                StringBuilder reply = new StringBuilder("*").append(hash.size() * 2).append("\r\n");
+                for (Map.Entry<String, String> entry : hash.entrySet()) {
+                    reply.append(bulk(entry.getKey())).append(bulk(entry.getValue()));
+                }
+                return reply.toString();
+            }
+            case "SADD": {
+                if (strings.containsKey(request.get(1))) {
+                    return "-WRONGTYPE Operation against a key holding the wrong kind of value\r\n";
+                }
+                Set<String> set = sets.computeIfAbsent(request.get(1), k -> ConcurrentHashMap.<String>newKeySet());
+                int added = 0;
+                for (String member : request.subList(2, request.size())) {
+                    if (set.add(member)) {
+                        added++;
+                    }
+                }
+                return ":" + added + "\r\n";
+            }
+            case "ZADD": {
+                Map<String, Double> zset = zsets.computeIfAbsent(request.get(1),
+                        k -> new ConcurrentHashMap<String, Double>());
+                int added = 0;
+                for (int i = 2; i + 1 < request.size(); i += 2) {
+                    if (zset.put(request.get(i + 1), Double.valueOf(request.get(i))) == null) {
+                        added++;
+                    }
+                }
+                return ":" + added + "\r\n";
+            }
+            case "DEL": {
+                int deleted = 0;
+                for (String key : request.subList(1, request.size())) {
+                    if (strings.remove(key) != null | hashes.remove(key) != null | sets.remove(key) != null
+                            | zsets.remove(key) != null | lists.remove(key) != null) {
+                        deleted++;
+                    }
+                }
+                return ":" + deleted + "\r\n";
+            }
+            case "SCAN":
+                return scan(request);
+            case "KEYS": {
+                Pattern match = glob(request.get(1));
+                List<String> found = new ArrayList<String>();
+                for (String key : keyTypes().keySet()) {
+                    if (match.matcher(key).matches()) {
+                        found.add(key);
+                    }
+                }
+                StringBuilder reply = new StringBuilder("*").append(found.size()).append("\r\n");
+                for (String key : found) {
+                    reply.append(bulk(key));
+                }
+                return reply.toString();
+            }
+            case "FLUSHALL":
+                strings.clear();
+                hashes.clear();
+                sets.clear();
+                zsets.clear();
+                lists.clear();
+                ttls.clear();
+                return "+OK\r\n";
+            case "EXPIRE": {
+                String key = request.get(1);
+                if (!strings.containsKey(key) && !hashes.containsKey(key)) {
+                    return ":0\r\n";
+                }
+                ttls.put(key, Integer.parseInt(request.get(2)));
+                return ":1\r\n";
+            }
+            default:
+                return "+OK\r\n";
+        }
+    }
+
+    /**
+     * SCAN:游标为所有key排序后的下标,每次检查COUNT个key,支持MATCH(*和?)和TYPE
+     */
+    private String scan(List<String> request) {
+        List<String> keys = new ArrayList<String>(new TreeSet<String>(keyTypes().keySet()));
+        int cursor = Integer.parseInt(request.get(1));
+        int count = 10;
+        Pattern match = null;
+        String type = null;
+        for (int i = 2; i + 1 < request.size(); i += 2) {
+            String option = request.get(i).toUpperCase();
+            if ("COUNT".equals(option)) {
+                count = Integer.parseInt(request.get(i + 1));
+            } else if ("MATCH".equals(option)) {
+                match = glob(request.get(i + 1));
+            } else if ("TYPE".equals(option)) {
+                type = request.get(i + 1);
+            }
+        }
+        Map<String, String> types = keyTypes();
+        int end = Math.min(cursor + count, keys.size());
+        List<String> found = new ArrayList<String>();
+        for (String key : keys.subList(Math.min(cursor, end), end)) {
+            if ((match == null || match.matcher(key).matches()) && (type == null || type.equals(types.get(key)))) {
+                found.add(key);
+            }
+        }
+        StringBuilder reply = new StringBuilder("*2\r\n").append(bulk(String.valueOf(end == keys.size() ? 0 : end)))
+                .append("*").append(found.size()).append("\r\n");
+        for (String key : found) {
+            reply.append(bulk(key));
+        }
+        return reply.toString();
+    }
+
+    private static Pattern glob(String pattern) {
+        return Pattern.compile(pattern.replace("*", ".*").replace("?", "."));
+    }
+
+    private Map<String, String> keyTypes() {
+        Map<String, String> types = new HashMap<String, String>();
+        strings.keySet().forEach(key -> types.put(key, "string"));
+        hashes.keySet().forEach(key -> types.put(key, "hash"));
+        sets.keySet().forEach(key -> types.put(key, "set"));
+        zsets.keySet().forEach(key -> types.put(key, "zset"));
+        lists.keySet().forEach(key -> types.put(key, "list"));
+        return types;
+    }
+}
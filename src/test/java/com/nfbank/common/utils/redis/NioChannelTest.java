@@ -0,0 +1,48 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * NIO通道测试:应答格式错误只影响所在连接,selector线程继续工作
+ */
+public class NioChannelTest extends StandInTestSupport {
+
+    @Override
+    protected MemoryStandIn createServer() throws IOException {
+        return new MemoryStandIn() {
+            @Override
+            protected String handle(Session session, List<String> request) {
+                if ("GET".equalsIgnoreCase(request.get(0)) && "malformed".equals(request.get(1))) {
+                    return "-MOVED not-a-slot 127.0.0.1:6379\r\n";
+                }
+                return super.handle(session, request);
+            }
+        };
+    }
+
+    @Override
+    protected RedisClientConfig.Builder configure(RedisClientConfig.Builder builder) {
+        return builder.transport(Transport.NIO);
+    }
+
+    @Test
+    public void testMalformedReplyDoesNotKillSelector() {
+        client.STRINGS.set("key", "value");
+        try {
+            client.STRINGS.get("malformed");
+            Assert.fail();
+        } catch (JedisConnectionException e) {
+            Assert.assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("value", client.STRINGS.get("key"));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.nfbank.common.utils.redis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 连接池查找的基准测试:对比原HashMap+全局锁的getPool()与当前节点注册表的getPool(),64个线程并发。
+ * 需要redis.properties中配置的Redis可用。
+ * <p>
+ * 运行方式:mvn test-compile 后执行main方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class PoolRegistryBenchmark {
+
+    private LegacyRegistry legacy;
+
+    private RedisUtil redisUtil;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        legacy = new LegacyRegistry();
+        redisUtil = RedisUtil.getInstance();
+        //两种方式都先完成连接池创建,只比较查找开销
+        legacy.getPool();
+        redisUtil.getPool();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        legacy.close();
+    }
+
+    @Benchmark
+    public JedisPool legacyGetPool() {
+        return legacy.getPool();
+    }
+
+    @Benchmark
+    public JedisPool getPool() {
+        return redisUtil.getPool();
+    }
+
+    /**
+     * 原实现:每次读取配置、拼接key,并在非同步的HashMap中查找,首次创建时持有全局锁建连
+     */
+    static class LegacyRegistry {
+
+        private static final byte[] lock = new byte[0];
+
+        private final Map<String, JedisPool> maps = new HashMap<String, JedisPool>();
+
+        JedisPool getPool() {
+            String ip = RedisConfig.getIp();
+            Integer port = RedisConfig.getPort();
+            return jedisPoolConfig(ip, port);
+        }
+
+        private JedisPool jedisPoolConfig(String ip, Integer port) {
+            String key = ip + ":" + port;
+            JedisPool pool = null;
+            if (!maps.containsKey(key)) {
+                synchronized (lock) {
+                    if (!maps.containsKey(key)) {
+                        JedisPoolConfig config = new JedisPoolConfig();
+                        config.setMaxTotal(RedisConfig.getMaxTotal());
+                        config.setMaxIdle(RedisConfig.getMaxIdle());
+                        config.setMaxWaitMillis(RedisConfig.getMaxWaitMillis());
+                        config.setTestOnBorrow(RedisConfig.getTestOnBorrow());
+                        config.setTestOnReturn(RedisConfig.getTestOnReturn());
+                        config.setTestWhileIdle(RedisConfig.getTestWhileIdle());
+                        config.setMinIdle(RedisConfig.getMinIdle());
+                        pool = new JedisPool(config, ip, port, RedisConfig.getTimeout());
+                        Jedis jedis = pool.getResource();
+                        jedis.close();
+                        maps.put(key, pool);
+                    }
+                }
+            } else {
+                pool = maps.get(key);
+            }
+            return pool;
+        }
+
+        void close() {
+            for (JedisPool pool : maps.values()) {
+                pool.close();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PoolRegistryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,75 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 读写分离路由测试,不需要Redis
+ */
+public class ReadRouterTest {
+
+    private ReadRouter router(ReadStrategy strategy) {
+        return new ReadRouter(Arrays.asList(new RedisEndpoint("127.0.0.1", 1), new RedisEndpoint("127.0.0.1", 2),
+                new RedisEndpoint("127.0.0.1", 3)), strategy);
+    }
+
+    @Test
+    public void testWritesGoToMaster() {
+        ReadRouter router = router(ReadStrategy.ROUND_ROBIN);
+        Assert.assertEquals(-1, router.select("STRINGS.set"));
+        Assert.assertEquals(-1, router.select("HASH.hmset"));
+        Assert.assertEquals(-1, router.select("CUSTOM"));
+        Assert.assertEquals(-1, new ReadRouter(Collections.<RedisEndpoint>emptyList(), ReadStrategy.ROUND_ROBIN)
+                .select("STRINGS.get"));
+    }
+
+    @Test
+    public void testRoundRobin() {
+        ReadRouter router = router(ReadStrategy.ROUND_ROBIN);
+        int[] hits = new int[3];
+        for (int i = 0; i < 30; i++) {
+            int index = router.select("STRINGS.get");
+            hits[index]++;
+            router.release(index);
+        }
+        Assert.assertArrayEquals(new int[]{10, 10, 10}, hits);
+    }
+
+    @Test
+    public void testLeastOutstanding() {
+        ReadRouter router = router(ReadStrategy.LEAST_OUTSTANDING);
+        int first = router.select("HASH.hgetAll");
+        int second = router.select("HASH.hgetAll");
+        int third = router.select("HASH.hgetAll");
+        Assert.assertEquals(3, new HashSet<Integer>(Arrays.asList(first, second, third)).size());
+        //只有second执行完毕,下一次应选中它
+        router.release(second);
+        Assert.assertEquals(second, router.select("HASH.hgetAll"));
+    }
+
+    @Test
+    public void testForceMaster() {
+        ReadRouter router = router(ReadStrategy.ROUND_ROBIN);
+        try (ReadRouter.Scope scope = router.forceMaster()) {
+            Assert.assertEquals(-1, router.select("STRINGS.get"));
+            try (ReadRouter.Scope nested = router.forceMaster()) {
+                Assert.assertEquals(-1, router.select("STRINGS.get"));
+            }
+            Assert.assertEquals(-1, router.select("STRINGS.get"));
+        }
+        Assert.assertTrue(router.select("STRINGS.get") >= 0);
+    }
+
+    @Test
+    public void testParseStrategy() {
+        Assert.assertEquals(ReadStrategy.LEAST_OUTSTANDING, ReadStrategy.parse("least-outstanding"));
+        Assert.assertEquals(ReadStrategy.ROUND_ROBIN, ReadStrategy.parse(" Round_Robin "));
+        Assert.assertEquals(ReadStrategy.ROUND_ROBIN, ReadStrategy.parse(""));
+    }
+}
@@ -0,0 +1,133 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 异步命令测试:结果与同步命令一致,错误和线程池拒绝都以异常完成的CompletableFuture返回,调用线程的读主节点标记对异步命令有效
+ */
+public class RedisAsyncTest extends StandInTestSupport {
+
+    /**
+     * 处理slow命令前等待,用于占住异步线程
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    protected MemoryStandIn createServer() throws IOException {
+        return new MemoryStandIn() {
+            @Override
+            protected String handle(Session session, List<String> request) {
+                if ("GET".equalsIgnoreCase(request.get(0)) && "slow".equals(request.get(1))) {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.handle(session, request);
+            }
+        };
+    }
+
+    @Override
+    protected RedisClientConfig.Builder configure(RedisClientConfig.Builder builder) {
+        return builder.asyncThreads(1).asyncQueueSize(1);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    public void testReplyMapping() throws Exception {
+        RedisAsync async = client.async();
+        Assert.assertEquals("OK", async.STRINGS.set("name", "value").get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("value", async.STRINGS.get("name").get(5, TimeUnit.SECONDS));
+        Assert.assertArrayEquals("value".getBytes(), async.STRINGS.get("name".getBytes()).get(5, TimeUnit.SECONDS));
+        Assert.assertNull(async.STRINGS.get("missing").get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Long.valueOf(1), async.HASH.hset("hash", "a", "1").get(5, TimeUnit.SECONDS));
+        Map<String, String> fields = new LinkedHashMap<String, String>();
+        fields.put("a", "2");
+        fields.put("b", "3");
+        HashWriteResult result = async.HASH.hsetAllWithResult("hash", fields).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(1, result.getCreated());
+        Assert.assertEquals(1, result.getUpdated());
+        Assert.assertEquals(fields, async.HASH.hgetAll("hash").get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Long.valueOf(5), async.STRINGS.incrBy("counter", 5).get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Long.valueOf(1), async.SETS.sadd("set", "m").get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("m")), server.sets.get("set"));
+        Assert.assertEquals(Long.valueOf(2), async.KEYS.del("name", "set").get(5, TimeUnit.SECONDS));
+        Assert.assertNull(async.STRINGS.get("name").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testErrorReplyCompletesExceptionally() throws Exception {
+        client.HASH.hset("hash", "a", "1");
+        try {
+            client.async().STRINGS.get("hash").get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof JedisDataException);
+        }
+    }
+
+    @Test
+    public void testRejectedWhenQueueFull() throws Exception {
+        RedisAsync async = client.async();
+        //一个线程被slow占住,队列长度为1
+        CompletableFuture<String> running = async.STRINGS.get("slow");
+        Thread.sleep(100);
+        CompletableFuture<String> queued = async.STRINGS.get("queued");
+        CompletableFuture<String> rejected = async.STRINGS.get("rejected");
+        Assert.assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        CompletableFuture<Void> rejectedRun = async.HASH.hsetAll("hash", new LinkedHashMap<String, String>());
+        Assert.assertTrue(rejectedRun.isCompletedExceptionally());
+
+        release.countDown();
+        Assert.assertNull(running.get(5, TimeUnit.SECONDS));
+        Assert.assertNull(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReadFromMasterAppliesToAsync() throws Exception {
+        MemoryStandIn replica = new MemoryStandIn();
+        RedisUtil split = RedisUtil.create(clientConfig("async-replicas", server)
+                .replicas("127.0.0.1:" + replica.getPort()).build());
+        try {
+            server.strings.put("key", "master");
+            replica.strings.put("key", "replica");
+            Assert.assertEquals("replica", split.async().STRINGS.get("key").get(5, TimeUnit.SECONDS));
+            try (ReadRouter.Scope scope = split.readFromMaster()) {
+                //异步线程上执行时仍读主节点
+                Assert.assertEquals("master", split.async().STRINGS.get("key").get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            split.close();
+            replica.close();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 批量命令测试:分块大小7、hash分块3,覆盖多块并行时结果顺序、部分失败和逐字段返回的HSET计数,以及分片和集群下按节点拆分
+ */
+public class RedisBatchTest extends StandInTestSupport {
+
+    @Override
+    protected RedisClientConfig.Builder configure(RedisClientConfig.Builder builder) {
+        return builder.batchChunkSize(7).hashChunkSize(3);
+    }
+
+    @Test
+    public void testSetAndGetAll() {
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        for (int i = 0; i < 50; i++) {
+            values.put("key" + i, "value" + i);
+        }
+        client.BATCH.setAllEx(values, 60);
+        Assert.assertEquals(values, server.strings);
+        Assert.assertEquals(Integer.valueOf(60), server.ttls.get("key49"));
+
+        List<String> keys = new ArrayList<String>(values.keySet());
+        keys.add(0, "missing");
+        keys.add("key3");
+        Map<String, String> found = client.BATCH.getAll(keys);
+        Assert.assertEquals(values, found);
+        Assert.assertEquals(new ArrayList<String>(values.keySet()), new ArrayList<String>(found.keySet()));
+        Assert.assertEquals(8, client.commandMetrics().get("BATCH.getAll").getSuccesses());
+    }
+
+    @Test
+    public void testHashAcross() {
+        for (int i = 0; i < 20; i++) {
+            client.HASH.hset("user:" + i, "name", "n" + i);
+        }
+        client.HASH.hset("user:3", "age", "30");
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 25; i++) {
+            keys.add("user:" + i);
+        }
+        Map<String, String> names = client.BATCH.hgetAcross(keys, "name");
+        Assert.assertEquals(20, names.size());
+        Assert.assertEquals("n19", names.get("user:19"));
+        Map<String, Map<String, String>> hashes = client.BATCH.hgetAllAcross(keys);
+        Assert.assertEquals(20, hashes.size());
+        Assert.assertEquals("30", hashes.get("user:3").get("age"));
+    }
+
+    @Test
+    public void testDelAndExpireAll() {
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        for (int i = 0; i < 10; i++) {
+            values.put("key" + i, "value" + i);
+        }
+        client.BATCH.setAll(values);
+        Assert.assertEquals(10, client.BATCH.expireAll(Arrays.asList("key0", "key1", "key2", "key3", "key4",
+                "key5", "key6", "key7", "key8", "key9", "nothing"), 30));
+        Assert.assertEquals(10, client.BATCH.delAll(new ArrayList<String>(values.keySet())));
+        Assert.assertTrue(server.strings.isEmpty());
+    }
+
+    @Test
+    public void testHsetAllInChunks() {
+        client.HASH.hset("profile", "f0", "old");
+        Map<String, String> fields = new LinkedHashMap<String, String>();
+        for (int i = 0; i < 100; i++) {
+            fields.put("f" + i, "v" + i);
+        }
+        client.HASH.hsetAll("profile", fields, 120);
+        Assert.assertEquals(fields, server.hashes.get("profile"));
+        Assert.assertEquals(34, server.hmsets);
+        Assert.assertEquals(Integer.valueOf(120), server.ttls.get("profile"));
+        Assert.assertEquals(1, client.commandMetrics().get("HASH.hsetAll").getSuccesses());
+    }
+
+    @Test
+    public void testHsetAllWithResultCountsReplies() {
+        client.HASH.hset("profile", "f0", "old");
+        Map<String, String> fields = new LinkedHashMap<String, String>();
+        for (int i = 0; i < 100; i++) {
+            fields.put("f" + i, "v" + i);
+        }
+        int hsets = server.hsets;
+        HashWriteResult result = client.HASH.hsetAllWithResult("profile", fields, 120);
+        //每块3个字段一条HSET
+        Assert.assertEquals(34, server.hsets - hsets);
+        Assert.assertEquals(99, result.getCreated());
+        Assert.assertEquals(1, result.getUpdated());
+        Assert.assertEquals("v0", server.hashes.get("profile").get("f0"));
+        Assert.assertEquals(Integer.valueOf(120), server.ttls.get("profile"));
+        Assert.assertEquals(1, client.commandMetrics().get("HASH.hsetAllWithResult").getSuccesses());
+    }
+
+    @Test(expected = JedisDataException.class)
+    public void testHsetAllErrorIsThrown() {
+        client.STRINGS.set("text", "value");
+        client.HASH.hsetAll("text", Collections.singletonMap("field", "value"));
+    }
+
+    @Test(expected = JedisDataException.class)
+    public void testHsetAllWithResultErrorIsThrown() {
+        client.STRINGS.set("text", "value");
+        client.HASH.hsetAllWithResult("text", Collections.singletonMap("field", "value"));
+    }
+
+    @Test
+    public void testSaddAll() {
+        List<String> members = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            members.add("m" + i % 900);
+        }
+        server.sets.put("set", ConcurrentHashMap.<String>newKeySet());
+        server.sets.get("set").add("m0");
+        BulkLoadResult result = client.SETS.saddAll("set", members);
+        Assert.assertEquals(1000, result.getMembers());
+        Assert.assertEquals(899, result.getAdded());
+        Assert.assertEquals(900, server.sets.get("set").size());
+        //1000个成员每条SADD 7个,共143条,每个pipeline 16条
+        Assert.assertEquals(9, client.commandMetrics().get("SETS.saddAll").getSuccesses());
+    }
+
+    @Test
+    public void testZaddAllFromIterator() {
+        Iterator<Map.Entry<String, Double>> source = IntStream.range(0, 500)
+                .mapToObj(i -> (Map.Entry<String, Double>) new AbstractMap.SimpleEntry<String, Double>("m" + i, (double) i))
+                .iterator();
+        BulkLoadResult result = client.SORTSET.zaddAll("zset", source);
+        Assert.assertEquals(500, result.getAdded());
+        Assert.assertEquals(Double.valueOf(499), server.zsets.get("zset").get("m499"));
+    }
+
+    @Test
+    public void testSaddAllErrorIsThrown() {
+        client.STRINGS.set("text", "value");
+        try {
+            client.SETS.saddAll("text", IntStream.range(0, 1000).mapToObj(String::valueOf).iterator());
+            Assert.fail();
+        } catch (JedisDataException e) {
+            Assert.assertTrue(e.getMessage().startsWith("WRONGTYPE"));
+        }
+    }
+
+    @Test
+    public void testShardedBatchGroupsByNode() throws IOException {
+        try (MemoryStandIn other = new MemoryStandIn()) {
+            RedisUtil sharded = RedisUtil.create(RedisClientConfig.builder().name("batch-shards").minIdle(0).batchChunkSize(7)
+                    .shards("127.0.0.1:" + server.getPort() + ",127.0.0.1:" + other.getPort()).build());
+            try {
+                Map<String, String> values = new LinkedHashMap<String, String>();
+                for (int i = 0; i < 50; i++) {
+                    values.put("key" + i, "value" + i);
+                }
+                sharded.BATCH.setAll(values);
+                Assert.assertEquals(50, server.strings.size() + other.strings.size());
+                Assert.assertEquals(values, sharded.BATCH.getAll(new ArrayList<String>(values.keySet())));
+                //每块只含一个分片的key
+                int chunks = (server.strings.size() + 6) / 7 + (other.strings.size() + 6) / 7;
+                Assert.assertEquals(chunks, sharded.commandMetrics().get("BATCH.getAll").getSuccesses());
+
+                sharded.SETS.saddAll("set", IntStream.range(0, 100).mapToObj(String::valueOf).iterator());
+                MemoryStandIn owner = server.sets.containsKey("set") ? server : other;
+                Assert.assertEquals(100, owner.sets.get("set").size());
+            } finally {
+                sharded.close();
+            }
+        }
+    }
+
+    @Test
+    public void testClusterBatchFollowsMoved() throws Exception {
+        try (ClusterStandIn cluster = new ClusterStandIn(3)) {
+            RedisUtil client = RedisUtil.create(RedisClientConfig.builder().name("batch-cluster").minIdle(0).batchChunkSize(7)
+                    .clusterNodes("127.0.0.1:" + cluster.port(0)).build());
+            try {
+                Map<String, String> values = new LinkedHashMap<String, String>();
+                for (int i = 0; i < 50; i++) {
+                    values.put("key" + i, "value" + i);
+                }
+                client.BATCH.setAll(values);
+                //槽位迁移后客户端的映射已过期,收到MOVED的key改为按路由重发
+                int slot = ClusterChannel.slot("key7");
+                cluster.move(slot, (cluster.owner(slot) + 1) % 3);
+                Assert.assertEquals(values, client.BATCH.getAll(new ArrayList<String>(values.keySet())));
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    @Test(expected = JedisDataException.class)
+    public void testErrorReplyIsThrown() {
+        client.HASH.hset("hash", "field", "value");
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 30; i++) {
+            keys.add(i == 20 ? "hash" : "key" + i);
+        }
+        client.BATCH.getAll(keys);
+    }
+}
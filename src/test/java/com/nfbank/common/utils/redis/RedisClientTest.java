@@ -0,0 +1,181 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 多客户端实例测试:必须指定地址,构建器默认值,不同实例的连接池和数据相互隔离,LAZY校验只重试读命令,分片下的key命令、多key命令和db视图
+ */
+public class RedisClientTest {
+
+    private MemoryStandIn first;
+
+    private MemoryStandIn second;
+
+    @Before
+    public void setUp() throws IOException {
+        first = new MemoryStandIn();
+        second = new MemoryStandIn();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        first.close();
+        second.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddressRequired() {
+        RedisClientConfig.builder().name("empty").build();
+    }
+
+    @Test
+    public void testBuilderDefaults() {
+        RedisClientConfig a = RedisClientConfig.builder().host("10.0.0.5").build();
+        RedisClientConfig b = RedisClientConfig.builder().host("10.0.0.5").build();
+        //其他部署不沿用redis.properties的密码,未命名的实例JMX指标名不冲突
+        Assert.assertNull(a.getPassword());
+        Assert.assertNotEquals(a.getName(), b.getName());
+        Assert.assertEquals(a.getName(), a.toBuilder().maxTotal(10).build().getName());
+    }
+
+    @Test
+    public void testClientsAreIsolated() {
+        RedisUtil sessions = RedisUtil.create(StandInTestSupport.clientConfig("session", first).maxTotal(2).build());
+        RedisUtil reports = RedisUtil.create(StandInTestSupport.clientConfig("report", second).maxTotal(5).build());
+        try {
+            sessions.STRINGS.set("key", "session");
+            reports.STRINGS.set("key", "report");
+            Assert.assertEquals("session", first.strings.get("key"));
+            Assert.assertEquals("report", second.strings.get("key"));
+            Assert.assertEquals("session", sessions.STRINGS.get("key"));
+
+            Assert.assertEquals(1, sessions.getEndpoints().size());
+            RedisEndpoint endpoint = sessions.getEndpoints().iterator().next();
+            Assert.assertEquals(first.getPort(), endpoint.getPort());
+            Assert.assertEquals(2, endpoint.getConfig().getMaxTotal());
+            Assert.assertEquals(5, reports.getEndpoints().iterator().next().getConfig().getMaxTotal());
+            for (RedisEndpoint registered : RedisUtil.getInstance().getEndpoints()) {
+                Assert.assertNotSame(endpoint, registered);
+            }
+
+            Assert.assertEquals(2, sessions.commandMetrics().get("STRINGS.set").getSuccesses()
+                    + sessions.commandMetrics().get("STRINGS.get").getSuccesses());
+            Assert.assertEquals(1, reports.commandMetrics().get("STRINGS.set").getSuccesses());
+            Assert.assertNull(reports.commandMetrics().get("STRINGS.get"));
+        } finally {
+            sessions.close();
+            reports.close();
+        }
+        Assert.assertTrue(sessions.getEndpoints().isEmpty());
+    }
+
+    @Test
+    public void testLazyValidationRetriesOnlyReads() throws Exception {
+        RedisUtil client = RedisUtil.create(StandInTestSupport.clientConfig("lazy", first).maxTotal(1)
+                .validationMode(ValidationMode.LAZY).build());
+        try {
+            client.STRINGS.set("key", "1");
+            first.dropConnections();
+            //只读命令在失效连接上失败后换新连接重试
+            Assert.assertEquals("1", client.STRINGS.get("key"));
+            first.dropConnections();
+            try {
+                client.STRINGS.incrBy("key", 1);
+                Assert.fail();
+            } catch (JedisConnectionException e) {
+                //写命令不重试,由调用方决定
+            }
+            Assert.assertEquals("1", first.strings.get("key"));
+            Assert.assertEquals(2, client.STRINGS.incrBy("key", 1));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testShardedKeyspaceCommands() {
+        RedisUtil client = RedisUtil.create(RedisClientConfig.builder().name("shards").minIdle(0)
+                .shards("127.0.0.1:" + first.getPort() + ",127.0.0.1:" + second.getPort()).build());
+        try {
+            for (int i = 0; i < 20; i++) {
+                client.STRINGS.set("key" + i, "value" + i);
+            }
+            Assert.assertFalse(first.strings.isEmpty());
+            Assert.assertFalse(second.strings.isEmpty());
+            //合并所有分片的结果
+            Assert.assertEquals(20, client.KEYS.keys("key*").size());
+            try {
+                client.execute(jedis -> jedis.dbSize());
+                Assert.fail();
+            } catch (UnsupportedOperationException e) {
+                //只发往一个分片的结果不完整
+            }
+            client.KEYS.flushAll();
+            Assert.assertTrue(first.strings.isEmpty());
+            Assert.assertTrue(second.strings.isEmpty());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testShardedMultiKeyCommandsStayOnOneShard() {
+        RedisUtil client = RedisUtil.create(RedisClientConfig.builder().name("shard-mset").minIdle(0)
+                .shards("127.0.0.1:" + first.getPort() + ",127.0.0.1:" + second.getPort()).build());
+        try {
+            for (int i = 0; i < 20; i++) {
+                client.STRINGS.set("key" + i, "value" + i);
+            }
+            String key = first.strings.keySet().iterator().next();
+            String other = second.strings.keySet().iterator().next();
+            client.KEYS.flushAll();
+            try {
+                client.STRINGS.mset(key, "1", other, "2");
+                Assert.fail();
+            } catch (JedisDataException e) {
+                //key分布在两个分片上,不能只写到第一个key的分片
+                Assert.assertTrue(e.getMessage().startsWith("CROSSSLOT"));
+            }
+            try {
+                client.STRINGS.mget(key, other);
+                Assert.fail();
+            } catch (JedisDataException e) {
+                Assert.assertTrue(e.getMessage().startsWith("CROSSSLOT"));
+            }
+            Assert.assertTrue(first.strings.isEmpty());
+            Assert.assertTrue(second.strings.isEmpty());
+
+            //同一个hash tag的key在同一分片上
+            Assert.assertEquals("OK", client.STRINGS.mset("{user1}.name", "n", "{user1}.age", "30"));
+            Assert.assertEquals(Arrays.asList("n", "30"), client.STRINGS.mget("{user1}.name", "{user1}.age"));
+            Assert.assertEquals("30", client.STRINGS.get("{user1}.age"));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testDatabaseViewSharesClient() {
+        RedisUtil client = RedisUtil.create(StandInTestSupport.clientConfig("views", first).build());
+        try {
+            client.db(3).STRINGS.set("key", "value");
+            for (RedisEndpoint endpoint : client.getEndpoints()) {
+                //视图跟随默认库的节点,默认库的节点只注册、未使用
+                Assert.assertEquals(endpoint.getDatabase() == 3, endpoint.isInitialized());
+            }
+            Assert.assertSame(client.getConfig(), client.db(3).getConfig());
+        } finally {
+            client.close();
+        }
+    }
+}
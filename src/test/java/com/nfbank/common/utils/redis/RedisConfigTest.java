@@ -0,0 +1,160 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 配置热更新测试:比较差异并通知监听者,非法值保留原配置,更新对其他线程可见,运行中的连接池扩缩容和重建
+ */
+public class RedisConfigTest {
+
+    private static final List<String> KEYS = Arrays.asList("redis.pool.maxTotal", "redis.pool.minIdle",
+            "redis.pool.timeout");
+
+    private final Map<String, String> original = new HashMap<String, String>();
+
+    private RespStandIn server;
+
+    @Before
+    public void setUp() throws IOException {
+        for (String key : KEYS) {
+            original.put(key, RedisConfig.getProperty(key, null));
+        }
+        server = new RespStandIn("config-stand-in") {
+            @Override
+            protected String handle(Session session, List<String> request) {
+                return "PING".equalsIgnoreCase(request.get(0)) ? "+PONG\r\n" : "+OK\r\n";
+            }
+        };
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RedisConfig.update(original);
+        server.close();
+    }
+
+    @Test
+    public void testDiff() {
+        Properties previous = new Properties();
+        previous.setProperty("redis.pool.maxTotal", "100");
+        previous.setProperty("redis.pool.minIdle", "10");
+        previous.setProperty("redis.ip", "127.0.0.1");
+        Properties next = new Properties();
+        next.setProperty("redis.pool.maxTotal", "200");
+        next.setProperty("redis.pool.minIdle", "10");
+        next.setProperty("redis.port", "6379");
+        Assert.assertEquals(new TreeSet<String>(Arrays.asList("redis.pool.maxTotal", "redis.ip", "redis.port")),
+                RedisConfig.diff(previous, next));
+    }
+
+    @Test
+    public void testUpdateNotifiesListeners() {
+        AtomicReference<Set<String>> notified = new AtomicReference<Set<String>>();
+        RedisConfig.addListener(notified::set);
+        int maxTotal = RedisConfig.getMaxTotal();
+        Map<String, String> changes = Collections.singletonMap("redis.pool.maxTotal", String.valueOf(maxTotal + 1));
+        Set<String> changed = RedisConfig.update(changes);
+        Assert.assertEquals(new TreeSet<String>(Arrays.asList("redis.pool.maxTotal")), changed);
+        Assert.assertEquals(changed, notified.get());
+        Assert.assertEquals(maxTotal + 1, RedisConfig.getMaxTotal().intValue());
+
+        notified.set(null);
+        Assert.assertTrue(RedisConfig.update(changes).isEmpty());
+        Assert.assertNull(notified.get());
+    }
+
+    @Test
+    public void testInvalidValueKeepsConfig() {
+        int maxTotal = RedisConfig.getMaxTotal();
+        try {
+            RedisConfig.update(Collections.singletonMap("redis.pool.maxTotal", "abc"));
+            Assert.fail();
+        } catch (NumberFormatException expected) {
+            Assert.assertEquals(maxTotal, RedisConfig.getMaxTotal().intValue());
+            Assert.assertEquals(String.valueOf(maxTotal), RedisConfig.getProperty("redis.pool.maxTotal", null));
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testUpdateIsVisibleToOtherThreads() throws InterruptedException {
+        int maxTotal = RedisConfig.getMaxTotal();
+        Thread reader = new Thread(() -> {
+            //没有同步的读取方也要看到其他线程发布的配置
+            while (RedisConfig.getMaxTotal() == maxTotal) {
+            }
+        });
+        reader.start();
+        RedisConfig.update(Collections.singletonMap("redis.pool.maxTotal", String.valueOf(maxTotal + 1)));
+        reader.join();
+        Assert.assertEquals(String.valueOf(maxTotal + 1), RedisConfig.getProperty("redis.pool.maxTotal", null));
+    }
+
+    @Test
+    public void testResizeLivePool() {
+        RedisConfig.update(Collections.singletonMap("redis.pool.minIdle", "0"));
+        RedisEndpoint endpoint = new RedisEndpoint("127.0.0.1", server.getPort(), 0);
+        Jedis inFlight = endpoint.getResource();
+
+        RedisConfig.update(Collections.singletonMap("redis.pool.minIdle", "3"));
+        endpoint.reconfigure(RedisClientConfig.defaults(), false);
+        Assert.assertEquals(3, endpoint.getPool().getNumIdle());
+        Assert.assertEquals("PONG", inFlight.ping());
+        inFlight.close();
+        Assert.assertEquals(0, endpoint.getPool().getNumActive());
+    }
+
+    @Test
+    public void testShrinkDestroysReturnedConnections() {
+        RedisConfig.update(Collections.singletonMap("redis.pool.minIdle", "0"));
+        RedisEndpoint endpoint = new RedisEndpoint("127.0.0.1", server.getPort(), 0);
+        List<Jedis> borrowed = Arrays.asList(endpoint.getResource(), endpoint.getResource(), endpoint.getResource());
+
+        RedisConfig.update(Collections.singletonMap("redis.pool.maxTotal", "1"));
+        endpoint.reconfigure(RedisClientConfig.defaults(), false);
+        borrowed.forEach(Jedis::close);
+        JedisPool pool = endpoint.getPool();
+        Assert.assertEquals(1, pool.getNumIdle());
+        Assert.assertEquals(0, pool.getNumActive());
+        Jedis jedis = endpoint.getResource();
+        Assert.assertEquals("PONG", jedis.ping());
+        jedis.close();
+    }
+
+    @Test
+    public void testRebuildKeepsBorrowedConnection() {
+        RedisConfig.update(Collections.singletonMap("redis.pool.minIdle", "0"));
+        RedisEndpoint endpoint = new RedisEndpoint("127.0.0.1", server.getPort(), 0);
+        Jedis inFlight = endpoint.getResource();
+        JedisPool previous = endpoint.getPool();
+
+        String timeout = String.valueOf(RedisConfig.getTimeout() + 1);
+        RedisConfig.update(Collections.singletonMap("redis.pool.timeout", timeout));
+        endpoint.reconfigure(RedisClientConfig.defaults(), true);
+        Assert.assertNotSame(previous, endpoint.getPool());
+        Assert.assertTrue(previous.isClosed());
+        Assert.assertEquals("PONG", inFlight.ping());
+        inFlight.close();
+        Jedis jedis = endpoint.getResource();
+        Assert.assertEquals("PONG", jedis.ping());
+        jedis.close();
+    }
+}
@@ -0,0 +1,85 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * pipeline命令组测试:每3条命令刷新一次,Response在组结束后取值,命令错误在对应Response上抛出
+ */
+public class RedisPipelineTest extends StandInTestSupport {
+
+    @Override
+    protected RedisClientConfig.Builder configure(RedisClientConfig.Builder builder) {
+        return builder.pipelineFlushSize(3);
+    }
+
+    @Test
+    public void testResponses() {
+        List<Response<String>> values = new ArrayList<Response<String>>();
+        AtomicReference<Response<Map<String, String>>> hash = new AtomicReference<Response<Map<String, String>>>();
+        AtomicReference<Response<Long>> deleted = new AtomicReference<Response<Long>>();
+        client.pipelined(p -> {
+            for (int i = 0; i < 10; i++) {
+                p.STRINGS.set("key" + i, "value" + i);
+            }
+            p.HASH.hset("hash", "field", "value");
+            for (int i = 0; i < 11; i++) {
+                values.add(p.STRINGS.get("key" + i));
+            }
+            hash.set(p.HASH.hgetAll("hash"));
+            deleted.set(p.KEYS.del("key0", "key1", "missing"));
+        });
+        Assert.assertEquals("value9", values.get(9).get());
+        Assert.assertNull(values.get(10).get());
+        Assert.assertEquals("value", hash.get().get().get("field"));
+        Assert.assertEquals(Long.valueOf(2), deleted.get().get());
+        Assert.assertEquals(8, server.strings.size());
+        Assert.assertEquals(1, client.commandMetrics().get("PIPELINE").getSuccesses());
+    }
+
+    @Test
+    public void testFlushesAtBatchSize() {
+        client.pipelined(p -> {
+            Response<String> first = p.STRINGS.set("a", "1");
+            p.STRINGS.set("b", "2");
+            Response<String> third = p.STRINGS.get("a");
+            //已达到3条,应答已读取
+            Assert.assertEquals("OK", first.get());
+            Assert.assertEquals("1", third.get());
+            Response<String> fourth = p.STRINGS.get("b");
+            try {
+                fourth.get();
+                Assert.fail();
+            } catch (JedisDataException e) {
+                //尚未发送
+            }
+        });
+    }
+
+    @Test
+    public void testErrorOnlyAffectsItsResponse() {
+        List<Response<?>> responses = new ArrayList<Response<?>>();
+        client.pipelined(p -> {
+            responses.add(p.HASH.hset("hash", "field", "value"));
+            responses.add(p.STRINGS.get("hash"));
+            responses.add(p.STRINGS.set("key", "value"));
+        });
+        Assert.assertEquals(1L, responses.get(0).get());
+        try {
+            responses.get(1).get();
+            Assert.fail();
+        } catch (JedisDataException e) {
+            Assert.assertTrue(e.getMessage().startsWith("WRONGTYPE"));
+        }
+        Assert.assertEquals("OK", responses.get(2).get());
+    }
+}
@@ -0,0 +1,91 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * SCAN遍历和按表达式删除测试:迭代器按页惰性取数、按类型过滤,删除分批进行并按每秒数量限速,脚本缓存清空后仍能删除
+ */
+public class RedisScanTest extends StandInTestSupport {
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < 50; i++) {
+            server.strings.put("user:" + i, "v" + i);
+            server.strings.put("order:" + i, "v" + i);
+        }
+        server.sets.put("user:tags", ConcurrentHashMap.<String>newKeySet());
+    }
+
+    @Test
+    public void testScanIsLazy() {
+        Iterator<String> keys = client.KEYS.scan("order:*", 10, null);
+        Assert.assertTrue(keys.hasNext());
+        keys.next();
+        //只取了第一页
+        Assert.assertEquals(1, client.commandMetrics().get("KEYS.scan").getSuccesses());
+        Set<String> found = new TreeSet<String>();
+        keys = client.KEYS.scan("user:*", 10, null);
+        keys.forEachRemaining(found::add);
+        Assert.assertEquals(51, found.size());
+        Assert.assertFalse(found.contains("order:0"));
+        //101个key每页检查10个
+        Assert.assertEquals(12, client.commandMetrics().get("KEYS.scan").getSuccesses());
+    }
+
+    @Test
+    public void testScanByType() {
+        List<String> found = new ArrayList<String>();
+        client.KEYS.scan("user:*", 1000, "set").forEachRemaining(found::add);
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals("user:tags", found.get(0));
+    }
+
+    @Test
+    public void testDeleteByPattern() {
+        Assert.assertEquals(51, RedisScan.deleteByPattern(client, "user:*", 7, 0));
+        Assert.assertEquals(50, server.strings.size());
+        Assert.assertTrue(server.sets.isEmpty());
+        //51个key每批7个
+        Assert.assertEquals(8, client.commandMetrics().get("KEYS.deleteByPattern").getSuccesses());
+        Assert.assertEquals(0, RedisScan.deleteByPattern(client, "user:*", 7, 0));
+    }
+
+    @Test
+    public void testDeleteByPatternReloadsFlushedScript() {
+        Assert.assertEquals(11, RedisScan.deleteByPattern(client, "order:1*", 5, 0));
+        //模拟清理期间执行了SCRIPT FLUSH,EVALSHA返回NOSCRIPT后改用EVAL
+        server.scriptCache.clear();
+        Assert.assertEquals(39, RedisScan.deleteByPattern(client, "order:*", 5000000, 0));
+        Assert.assertTrue(server.strings.keySet().stream().allMatch(key -> key.startsWith("user:")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeleteByPatternRequiresPositiveBatch() {
+        RedisScan.deleteByPattern(client, "order:*", 0, 0);
+    }
+
+    @Test
+    public void testDeleteByPatternIsRateLimited() {
+        long start = System.nanoTime();
+        Assert.assertEquals(50, RedisScan.deleteByPattern(client, "order:*", 10, 100));
+        //首批不等待,之后4批每批10个,每秒100个
+        Assert.assertTrue((System.nanoTime() - start) / 1000000 >= 350);
+        Assert.assertTrue(server.strings.keySet().stream().allMatch(key -> key.startsWith("user:")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeleteByPatternRequiresPattern() {
+        RedisScan.deleteByPattern(client, "", 10, 0);
+    }
+}
@@ -0,0 +1,110 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * Lua脚本测试:内置脚本的结果(服务端用Java模拟),EVALSHA未命中时回退EVAL,注册和预加载时跳过拒绝SCRIPT LOAD的节点,
+ * 以及经共享NIO通道执行
+ */
+public class RedisScriptTest extends StandInTestSupport {
+
+    @Test
+    public void testSha1() {
+        Assert.assertEquals("e0e1f9fabfc9d4800c877a703b823ac0578ff8db",
+                RedisScript.ofLong("one", "return 1").getSha1());
+    }
+
+    @Test
+    public void testNoScriptFallsBackToEval() {
+        client.STRINGS.set("lock", "me");
+        Assert.assertFalse(client.STRINGS.delIfEquals("lock", "other"));
+        Assert.assertTrue(server.scriptCache.containsKey(RedisScript.COMPARE_AND_DELETE.getSha1()));
+        //脚本已缓存,之后走EVALSHA
+        Assert.assertTrue(client.STRINGS.delIfEquals("lock", "me"));
+        Assert.assertNull(server.strings.get("lock"));
+        Assert.assertEquals(2, server.evals.get());
+        Assert.assertEquals(2, client.commandMetrics().get("SCRIPT.compareAndDelete").getSuccesses());
+
+        //Redis重启后脚本缓存丢失
+        server.scriptCache.clear();
+        Assert.assertFalse(client.STRINGS.delIfEquals("lock", "me"));
+        Assert.assertSame(RedisScript.COMPARE_AND_DELETE, client.SCRIPTS.get("compareAndDelete"));
+    }
+
+    @Test
+    public void testBuiltIns() {
+        Assert.assertTrue(client.STRINGS.setIfAbsent("lock", "me", 30));
+        Assert.assertFalse(client.STRINGS.setIfAbsent("lock", "other", 30));
+        Assert.assertEquals(Integer.valueOf(30), server.ttls.get("lock"));
+        Assert.assertTrue(client.KEYS.expireIfEquals("lock", "me", 60));
+        Assert.assertFalse(client.KEYS.expireIfEquals("lock", "other", 90));
+        Assert.assertEquals(Integer.valueOf(60), server.ttls.get("lock"));
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(Math.min(i + 1, 3), client.LISTS.lpushCapped("recent", "v" + i, 3));
+        }
+        Assert.assertEquals(Arrays.asList("v4", "v3", "v2"), server.lists.get("recent"));
+    }
+
+    @Test
+    public void testRegistryAndLoad() {
+        client.SCRIPTS.register(RedisScript.CAPPED_LPUSH);
+        client.SCRIPTS.register(RedisScript.CAPPED_LPUSH);
+        try {
+            client.SCRIPTS.register(RedisScript.ofLong("cappedLpush", "return 1"));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            //同名不同源码
+        }
+        client.STRINGS.set("key", "value");
+        Assert.assertEquals(1, client.SCRIPTS.load());
+        Assert.assertTrue(server.scriptCache.containsKey(RedisScript.CAPPED_LPUSH.getSha1()));
+        Assert.assertEquals(1L, client.SCRIPTS.eval("cappedLpush", Collections.singletonList("list"),
+                Arrays.asList("10", "value")));
+        Assert.assertEquals(1, server.evals.get());
+    }
+
+    @Test
+    public void testLoadSkipsNodeWithErrorReply() throws IOException {
+        try (MemoryStandIn busy = new MemoryStandIn() {
+            @Override
+            protected String handle(Session session, List<String> request) {
+                if ("SCRIPT".equalsIgnoreCase(request.get(0))) {
+                    return "-BUSY Redis is busy running a script\r\n";
+                }
+                return super.handle(session, request);
+            }
+        }) {
+            RedisUtil other = RedisUtil.create(clientConfig("script-busy", busy).build());
+            try {
+                other.SCRIPTS.register(RedisScript.CAPPED_LPUSH);
+                other.STRINGS.set("key", "value");
+                Assert.assertEquals(0, other.SCRIPTS.load());
+                //连接正常归还,节点仍可使用
+                Assert.assertEquals("value", other.STRINGS.get("key"));
+            } finally {
+                other.close();
+            }
+        }
+    }
+
+    @Test
+    public void testEvalOverSharedChannel() {
+        RedisUtil nio = RedisUtil.create(clientConfig("script-nio", server).transport(Transport.NIO).build());
+        try {
+            nio.STRINGS.set("lock", "me");
+            Assert.assertTrue(nio.STRINGS.delIfEquals("lock", "me"));
+            Assert.assertFalse(nio.STRINGS.delIfEquals("lock", "me"));
+        } finally {
+            nio.close();
+        }
+    }
+}
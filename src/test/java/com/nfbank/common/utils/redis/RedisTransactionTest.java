@@ -0,0 +1,115 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 乐观锁事务测试:WATCH的key被并发修改时重试直到提交,超过重试次数放弃,EXEC中失败的命令不算提交
+ */
+public class RedisTransactionTest extends StandInTestSupport {
+
+    @Override
+    protected RedisClientConfig.Builder configure(RedisClientConfig.Builder builder) {
+        return builder.maxTotal(8).transactionMaxRetries(1000);
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws Exception {
+        client.STRINGS.set("counter", "0");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 25; j++) {
+                    client.transaction("increment", jedis -> {
+                        long value = Long.parseLong(jedis.get("counter"));
+                        return p -> p.STRINGS.set("counter", String.valueOf(value + 1));
+                    }, "counter");
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertEquals("100", server.strings.get("counter"));
+        TransactionStats stats = client.transactionMetrics().get("increment");
+        Assert.assertEquals(100, stats.getCommits());
+        Assert.assertEquals(stats.getConflicts(), stats.getRetries());
+        Assert.assertEquals(100 + stats.getRetries(), client.commandMetrics().get("TX.increment").getSuccesses());
+    }
+
+    @Test
+    public void testResponsesAndAbort() {
+        client.STRINGS.set("stock", "1");
+        AtomicReference<Response<Long>> left = new AtomicReference<Response<Long>>();
+        TransactionCallback takeOne = jedis -> {
+            if (Long.parseLong(jedis.get("stock")) <= 0) {
+                return null;
+            }
+            return p -> {
+                left.set(p.STRINGS.decrBy("stock", 1));
+                p.HASH.hset("orders", "1", "taken");
+            };
+        };
+        Assert.assertTrue(client.transaction("take", takeOne, "stock"));
+        Assert.assertEquals(Long.valueOf(0), left.get().get());
+        Assert.assertEquals("taken", server.hashes.get("orders").get("1"));
+        Assert.assertFalse(client.transaction("take", takeOne, "stock"));
+        Assert.assertEquals(1, client.transactionMetrics().get("take").getAborts());
+    }
+
+    @Test
+    public void testFailedCommandIsNotCommit() {
+        client.STRINGS.set("text", "value");
+        try {
+            client.transaction("mixed", jedis -> p -> {
+                p.HASH.hset("text", "field", "value");
+                p.STRINGS.set("other", "1");
+            }, "text");
+            Assert.fail();
+        } catch (JedisDataException e) {
+            Assert.assertTrue(e.getMessage().startsWith("WRONGTYPE"));
+        }
+        //Redis不回滚,其余命令已执行
+        Assert.assertEquals("1", server.strings.get("other"));
+        Assert.assertEquals(0, client.transactionMetrics().get("mixed").getCommits());
+    }
+
+    @Test
+    public void testConflictRetriesExhausted() {
+        RedisUtil impatient = RedisUtil.create(client.getConfig().toBuilder().name("impatient")
+                .transactionMaxRetries(2).build());
+        try {
+            impatient.STRINGS.set("hot", "0");
+            try {
+                impatient.transaction("hot", jedis -> {
+                    //其他连接修改了WATCH的key
+                    impatient.STRINGS.set("hot", jedis.get("hot") + "1");
+                    return p -> p.STRINGS.set("hot", "lost");
+                }, "hot");
+                Assert.fail();
+            } catch (RedisTransactionConflictException e) {
+                //重试用尽
+            }
+            TransactionStats stats = impatient.transactionMetrics().get("hot");
+            Assert.assertEquals(3, stats.getConflicts());
+            Assert.assertEquals(2, stats.getRetries());
+            Assert.assertEquals(1, stats.getExhausted());
+            Assert.assertEquals("0111", server.strings.get("hot"));
+        } finally {
+            impatient.close();
+        }
+    }
+}
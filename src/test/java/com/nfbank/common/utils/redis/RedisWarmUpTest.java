@@ -0,0 +1,98 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 连接池预热测试:每个节点补足指定的连接数,节点无响应时在超时后返回
+ */
+public class RedisWarmUpTest {
+
+    private MemoryStandIn first;
+
+    private MemoryStandIn second;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws IOException {
+        first = new MemoryStandIn();
+        second = new MemoryStandIn();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        release.countDown();
+        first.close();
+        second.close();
+    }
+
+    private static RedisEndpoint endpoint(RespStandIn server) {
+        return new RedisEndpoint("127.0.0.1", server.getPort(), 0, StandInTestSupport.clientConfig("warmup", server)
+                .timeout(5000).validationMode(ValidationMode.ALWAYS).testOnBorrow(true).build());
+    }
+
+    @Test
+    public void testOpensConnectionsPerEndpoint() {
+        RedisEndpoint a = endpoint(first);
+        RedisEndpoint b = endpoint(second);
+        try {
+            RedisWarmUp.Result result = RedisWarmUp.warmUp(Arrays.asList(a, b), 3, 5000);
+            Assert.assertTrue(result.isComplete());
+            Assert.assertEquals(Integer.valueOf(3), result.getOpened().get(a.getKey()));
+            Assert.assertEquals(Integer.valueOf(3), result.getOpened().get(b.getKey()));
+            Assert.assertEquals(3, a.getPool().getNumIdle());
+            Assert.assertEquals(3, b.getPool().getNumIdle());
+
+            //已有的空闲连接计算在内,只补足差额
+            result = RedisWarmUp.warmUp(Arrays.asList(a, b), 4, 5000);
+            Assert.assertEquals(Integer.valueOf(1), result.getOpened().get(a.getKey()));
+            Assert.assertEquals(4, a.getPool().getNumIdle());
+        } finally {
+            a.close();
+            b.close();
+        }
+    }
+
+    @Test
+    public void testTimeout() throws IOException {
+        try (MemoryStandIn stalled = new MemoryStandIn() {
+            @Override
+            protected String handle(Session session, List<String> request) {
+                //建连后的PING不应答,直到测试结束
+                if ("PING".equalsIgnoreCase(request.get(0))) {
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.handle(session, request);
+            }
+        }) {
+            RedisEndpoint endpoint = endpoint(stalled);
+            try {
+                long start = System.nanoTime();
+                RedisWarmUp.Result result = RedisWarmUp.warmUp(Collections.singletonList(endpoint), 2, 200);
+                Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+                Assert.assertFalse(result.isComplete());
+                Assert.assertEquals(2, result.getTimedOut());
+                Assert.assertEquals(Integer.valueOf(0), result.getOpened().get(endpoint.getKey()));
+            } finally {
+                release.countDown();
+                endpoint.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.util.SafeEncoder;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * RESP编解码测试,不需要Redis
+ */
+public class RespCodecTest {
+
+    @Test
+    public void testEncode() {
+        byte[][] args = {SafeEncoder.encode("key"), SafeEncoder.encode("value")};
+        int length = RespCodec.encodedLength(Protocol.Command.SET, args);
+        ByteBuffer out = ByteBuffer.allocateDirect(length);
+        RespCodec.encode(out, Protocol.Command.SET, args);
+        Assert.assertFalse(out.hasRemaining());
+
+        ((Buffer) out).flip();
+        byte[] bytes = new byte[out.remaining()];
+        out.get(bytes);
+        Assert.assertEquals("*3\r\n$3\r\nSET\r\n$3\r\nkey\r\n$5\r\nvalue\r\n", SafeEncoder.encode(bytes));
+    }
+
+    @Test
+    public void testDecode() {
+        ByteBuffer in = buffer("+OK\r\n:-12\r\n$5\r\nhello\r\n$-1\r\n*3\r\n$1\r\na\r\n:1\r\n-ERR wrong\r\n");
+        Assert.assertEquals("OK", SafeEncoder.encode((byte[]) RespCodec.decode(in)));
+        Assert.assertEquals(-12L, RespCodec.decode(in));
+        Assert.assertEquals("hello", SafeEncoder.encode((byte[]) RespCodec.decode(in)));
+        Assert.assertNull(RespCodec.decode(in));
+
+        List<?> list = (List<?>) RespCodec.decode(in);
+        Assert.assertEquals(3, list.size());
+        Assert.assertEquals("a", SafeEncoder.encode((byte[]) list.get(0)));
+        Assert.assertEquals(1L, list.get(1));
+        Assert.assertEquals("ERR wrong", ((JedisDataException) list.get(2)).getMessage());
+        Assert.assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    public void testDecodeIncomplete() {
+        String reply = "*2\r\n$5\r\nhello\r\n$5\r\nworld\r\n";
+        for (int i = 0; i < reply.length(); i++) {
+            ByteBuffer in = buffer(reply.substring(0, i));
+            Assert.assertSame(RespCodec.INCOMPLETE, RespCodec.decode(in));
+            Assert.assertEquals(0, in.position());
+        }
+        Assert.assertEquals(2, ((List<?>) RespCodec.decode(buffer(reply))).size());
+    }
+
+    @Test
+    public void testDecoderResumesAcrossReads() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            value.append("0123456789");
+        }
+        byte[] reply = SafeEncoder.encode("*3\r\n*2\r\n$1000\r\n" + value + "\r\n$-1\r\n*0\r\n:7\r\n+OK\r\n");
+        RespCodec.Decoder decoder = new RespCodec.Decoder();
+        //接收缓冲区比bulk小得多,模拟每次读到7个字节
+        ByteBuffer in = ByteBuffer.allocateDirect(16);
+        Object result = RespCodec.INCOMPLETE;
+        int offset = 0;
+        List<?> list = null;
+        while (offset < reply.length) {
+            int n = Math.min(7, reply.length - offset);
+            in.put(reply, offset, n);
+            offset += n;
+            ((Buffer) in).flip();
+            result = decoder.decode(in);
+            if (result != RespCodec.INCOMPLETE) {
+                list = (List<?>) result;
+                break;
+            }
+            //已解析的字节被消费掉,缓冲区中最多剩下不完整的一行
+            Assert.assertTrue(in.remaining() < 7);
+            in.compact();
+        }
+        Assert.assertNotNull(list);
+        Assert.assertEquals(3, list.size());
+        List<?> nested = (List<?>) list.get(0);
+        Assert.assertEquals(value.toString(), SafeEncoder.encode((byte[]) nested.get(0)));
+        Assert.assertNull(nested.get(1));
+        Assert.assertTrue(((List<?>) list.get(1)).isEmpty());
+        Assert.assertEquals(7L, list.get(2));
+        //下一个应答留在缓冲区中
+        in.compact();
+        in.put(reply, offset, reply.length - offset);
+        ((Buffer) in).flip();
+        Assert.assertEquals("OK", SafeEncoder.encode((byte[]) decoder.decode(in)));
+    }
+
+    @Test
+    public void testDecodeMoved() {
+        Object reply = RespCodec.decode(buffer("-MOVED 3999 127.0.0.1:6381\r\n"));
+        JedisMovedDataException moved = (JedisMovedDataException) reply;
+        Assert.assertEquals(3999, moved.getSlot());
+        Assert.assertEquals(6381, moved.getTargetNode().getPort());
+    }
+
+    private static ByteBuffer buffer(String content) {
+        byte[] bytes = SafeEncoder.encode(content);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,191 @@
+package com.nfbank.common.utils.redis;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 测试用的RESP服务端替身基类:在本机随机端口监听,每个连接一个线程,按请求调用{@link #handle(Session, List)}。
+ */
+abstract class RespStandIn implements Runnable, AutoCloseable {
+
+    private final ServerSocket server;
+
+    private final String name;
+
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    private Thread acceptor;
+
+    RespStandIn(String name) throws IOException {
+        this.name = name;
+        this.server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+    }
+
+    /**
+     * 开始接受连接,子类初始化完成后调用
+     */
+    void start() {
+        acceptor = new Thread(this, name);
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * 处理一条请求
+     *
+     * @param session 连接
+     * @param request 命令及参数
+     * @return 应答(RESP格式),为null时不应答
+     */
+    protected abstract String handle(Session session, List<String> request);
+
+    @Override
+    public void run() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                //接受时即登记,dropConnections不会漏掉还没开始处理的连接
+                connections.add(socket);
+                Thread thread = new Thread(() -> serve(socket), name + "-conn");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 断开当前所有客户端连接,模拟Redis重启或关闭空闲连接,之后仍接受新连接
+     */
+    void dropConnections() throws IOException {
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            Session session = new Session(s.getOutputStream());
+            while (true) {
+                List<String> request = read(in);
+                //dropConnections关闭连接时可能已有请求读入,不再处理;close之后也不再处理已接受的连接
+                if (request == null || s.isClosed() || server.isClosed()) {
+                    return;
+                }
+                String reply = handle(session, request);
+                if (reply != null) {
+                    session.write(reply);
+                }
+            }
+        } catch (IOException e) {
+            //连接关闭
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        //accept阻塞期间关闭时,监听端口要等接受线程退出才真正释放,之前的新连接仍能建立
+        try {
+            acceptor.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static String bulk(String value) {
+        if (value == null) {
+            return "$-1\r\n";
+        }
+        return "$" + value.getBytes(StandardCharsets.UTF_8).length + "\r\n" + value + "\r\n";
+    }
+
+    private static List<String> read(DataInputStream in) throws IOException {
+        String header = line(in);
+        if (header == null) {
+            return null;
+        }
+        int count = Integer.parseInt(header.substring(1));
+        List<String> request = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] value = new byte[Integer.parseInt(line(in).substring(1))];
+            in.readFully(value);
+            line(in);
+            request.add(new String(value, StandardCharsets.UTF_8));
+        }
+        return request;
+    }
+
+    private static String line(DataInputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                return null;
+            }
+            if (b != '\r') {
+                buffer.write(b);
+            }
+        }
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 一个客户端连接
+     */
+    static class Session {
+
+        private final OutputStream out;
+
+        /**
+         * 上一条命令是否为ASKING
+         */
+        boolean asking;
+
+        /**
+         * MULTI之后排队的命令,不在事务中时为null
+         */
+        List<List<String>> queued;
+
+        /**
+         * WATCH的key及当时的版本
+         */
+        final Map<String, Long> watched = new HashMap<String, Long>();
+
+        Session(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * 写出应答,可以在其他线程中调用(如推送订阅消息)
+         */
+        synchronized void write(String reply) throws IOException {
+            out.write(reply.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+}
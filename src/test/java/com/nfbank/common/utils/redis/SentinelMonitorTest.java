@@ -0,0 +1,75 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.HostAndPort;
+
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * Sentinel主节点发现和切换测试,使用本机启动的{@link SentinelStandIn},不需要Redis
+ */
+public class SentinelMonitorTest {
+
+    private SentinelStandIn standIn;
+
+    private SentinelMonitor monitor;
+
+    private final BlockingQueue<HostAndPort> switches = new LinkedBlockingQueue<HostAndPort>();
+
+    @Before
+    public void setUp() throws Exception {
+        standIn = new SentinelStandIn("mymaster", 7001);
+    }
+
+    private static RedisClientConfig config() {
+        return RedisClientConfig.builder().name("sentinel-test").sentinel("mymaster", "127.0.0.1:26379").timeout(2000).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (monitor != null) {
+            monitor.close();
+        }
+        standIn.close();
+    }
+
+    @Test
+    public void testSwitchMaster() throws Exception {
+        monitor = new SentinelMonitor("mymaster", Arrays.asList(new HostAndPort("127.0.0.1", standIn.getPort())),
+                config(), switches::add);
+        Assert.assertEquals(new HostAndPort("127.0.0.1", 7001), monitor.getMaster());
+        monitor.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (standIn.getSubscriberCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        standIn.failover(7002);
+        Assert.assertEquals(new HostAndPort("127.0.0.1", 7002), switches.poll(1, TimeUnit.SECONDS));
+        Assert.assertEquals(new HostAndPort("127.0.0.1", 7002), monitor.getMaster());
+
+        //其他主节点的切换消息忽略
+        monitor.onSwitchMaster("other 127.0.0.1 7002 127.0.0.1 7003");
+        Assert.assertNull(switches.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSkipUnavailableSentinel() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        monitor = new SentinelMonitor("mymaster", Arrays.asList(new HostAndPort("127.0.0.1", closedPort),
+                new HostAndPort("127.0.0.1", standIn.getPort())), config(), switches::add);
+        Assert.assertEquals(new HostAndPort("127.0.0.1", 7001), monitor.getMaster());
+    }
+}
@@ -0,0 +1,66 @@
+package com.nfbank.common.utils.redis;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 测试用的Sentinel替身:应答SENTINEL get-master-addr-by-name,{@link #failover(int)}时向+switch-master的订阅者推送切换消息。
+ */
+class SentinelStandIn extends RespStandIn {
+
+    private static final String CHANNEL = "+switch-master";
+
+    private final String masterName;
+
+    private volatile int masterPort;
+
+    private final List<Session> subscribers = new CopyOnWriteArrayList<Session>();
+
+    SentinelStandIn(String masterName, int masterPort) throws IOException {
+        super("sentinel-stand-in");
+        this.masterName = masterName;
+        this.masterPort = masterPort;
+        start();
+    }
+
+    /**
+     * 主节点切换到本机的另一个端口,并通知订阅者
+     */
+    void failover(int port) {
+        String message = masterName + " 127.0.0.1 " + masterPort + " 127.0.0.1 " + port;
+        masterPort = port;
+        for (Session subscriber : subscribers) {
+            try {
+                subscriber.write("*3\r\n" + bulk("message") + bulk(CHANNEL) + bulk(message));
+            } catch (IOException e) {
+                //订阅者已断开
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    protected String handle(Session session, List<String> request) {
+        switch (request.get(0).toUpperCase()) {
+            case "PING":
+                return "+PONG\r\n";
+            case "SENTINEL":
+                if (!masterName.equals(request.get(2))) {
+                    return "*-1\r\n";
+                }
+                return "*2\r\n" + bulk("127.0.0.1") + bulk(String.valueOf(masterPort));
+            case "SUBSCRIBE":
+                subscribers.add(session);
+                return "*3\r\n" + bulk("subscribe") + bulk(request.get(1)) + ":1\r\n";
+            default:
+                return "-ERR unknown command '" + request.get(0) + "'\r\n";
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 慢日志测试,操作不访问Redis
+ */
+public class SlowLogTest {
+
+    @Test
+    public void testRingBuffer() {
+        SlowLog slowLog = new SlowLog(3, 0, 8);
+        for (int i = 0; i < 5; i++) {
+            String command = "CMD" + i;
+            slowLog.trace(command, System.nanoTime(), jedis -> Arrays.asList(command, command))
+                    .doInRedis(new TracingJedis("localhost", 6379, 100));
+        }
+        List<SlowLog.Entry> entries = slowLog.entries();
+        Assert.assertEquals(5, slowLog.getTotal());
+        Assert.assertEquals(3, entries.size());
+        Assert.assertEquals("CMD4", entries.get(0).getCommand());
+        Assert.assertEquals("CMD2", entries.get(2).getCommand());
+        Assert.assertEquals(2, entries.get(0).getReplySize());
+        Assert.assertTrue(entries.get(0).getStack().length > 0);
+    }
+
+    @Test
+    public void testThreshold() {
+        SlowLog slowLog = new SlowLog(3, 1000, 8);
+        slowLog.trace("CMD", System.nanoTime(), jedis -> "OK").doInRedis(new TracingJedis("localhost", 6379, 100));
+        Assert.assertTrue(slowLog.entries().isEmpty());
+        slowLog.configure(0, 8);
+        slowLog.trace("CMD", System.nanoTime(), jedis -> "OK").doInRedis(new TracingJedis("localhost", 6379, 100));
+        Assert.assertEquals(1, slowLog.entries().size());
+    }
+}
@@ -0,0 +1,57 @@
+package com.nfbank.common.utils.redis;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 基于{@link MemoryStandIn}的测试基类:每个测试前启动一个内存服务和连接它的独立客户端,测试后依次关闭
+ * <p>
+ * 子类覆盖{@link #createServer()}定制服务的应答,覆盖{@link #configure(RedisClientConfig.Builder)}调整客户端配置;
+ * 子类的@After先于本类执行,可以在其中放行被阻塞的命令
+ */
+public abstract class StandInTestSupport {
+
+    protected MemoryStandIn server;
+
+    protected RedisUtil client;
+
+    @Before
+    public void startStandIn() throws IOException {
+        server = createServer();
+        client = RedisUtil.create(configure(clientConfig(getClass().getSimpleName(), server)).build());
+    }
+
+    @After
+    public void stopStandIn() throws IOException {
+        try {
+            client.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     * 创建本测试使用的服务
+     */
+    protected MemoryStandIn createServer() throws IOException {
+        return new MemoryStandIn();
+    }
+
+    /**
+     * 调整连接{@link #server}的客户端配置,默认不做修改
+     */
+    protected RedisClientConfig.Builder configure(RedisClientConfig.Builder builder) {
+        return builder;
+    }
+
+    /**
+     * 连接指定服务的单机客户端配置,不预先创建空闲连接
+     */
+    static RedisClientConfig.Builder clientConfig(String name, RespStandIn server) {
+        return RedisClientConfig.builder().name(name).host("127.0.0.1").port(server.getPort()).minIdle(0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.nfbank.common.utils.redis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * com.nfbank.common.utils.redis
+ * <p>
+ * 不同连接校验方式下Strings.get的单次延迟。ALWAYS且testOnBorrow/testOnReturn为true时即原有行为(每次多两次PING)。
+ * 每个参数值在独立的JVM中运行,连接池按该参数创建。需要redis.properties中配置的Redis可用。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ValidationBenchmark {
+
+    private static final String KEY = "benchmark:validation";
+
+    @Param({"ALWAYS", "IDLE", "LAZY"})
+    public String mode;
+
+    private RedisUtil.Strings strings;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RedisConfig.setValidationMode(ValidationMode.valueOf(mode));
+        RedisConfig.setTestOnBorrow(true);
+        RedisConfig.setTestOnReturn(true);
+        strings = RedisUtil.getInstance().STRINGS;
+        strings.set(KEY, "value");
+    }
+
+    @Benchmark
+    public String get() {
+        return strings.get(KEY);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ValidationBenchmark.class.getSimpleName()).build()).run();
+    }
+}